@@ -1,9 +1,11 @@
 package minecraftbyexample;
 
+import minecraftbyexample.usefultools.AnimationClock;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.entity.EntityPlayerSP;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.common.MinecraftForge;
 
 /**
  * ClientProxy is used to set up the mod and start it running on normal minecraft.  It contains all the code that should run on the
@@ -20,6 +22,9 @@ public class ClientOnlyProxy extends CommonProxy
   {
     super.preInit();
     minecraftbyexample.mbe70_configuration.StartupClientOnly.preInitClientOnly();
+
+    // the animation clock is used by MBE06, MBE12 and MBE21
+    MinecraftForge.EVENT_BUS.register(new AnimationClock.EventHandler());
     
     minecraftbyexample.mbe01_block_simple.StartupClientOnly.preInitClientOnly();
     minecraftbyexample.mbe02_block_partial.StartupClientOnly.preInitClientOnly();
@@ -37,6 +42,7 @@ public class ClientOnlyProxy extends CommonProxy
     minecraftbyexample.mbe21_tileentityspecialrenderer.StartupClientOnly.preInitClientOnly();
     minecraftbyexample.mbe30_inventory_basic.StartupClientOnly.preInitClientOnly();
     minecraftbyexample.mbe31_inventory_furnace.StartupClientOnly.preInitClientOnly();
+    minecraftbyexample.mbe32_inventory_bulk.StartupClientOnly.preInitClientOnly();
     minecraftbyexample.mbe35_recipes.StartupClientOnly.preInitClientOnly();
     minecraftbyexample.mbe40_hud_overlay.StartupClientOnly.preInitClientOnly();
     minecraftbyexample.mbe50_particle.StartupClientOnly.preInitClientOnly();
@@ -70,6 +76,7 @@ public class ClientOnlyProxy extends CommonProxy
     minecraftbyexample.mbe21_tileentityspecialrenderer.StartupClientOnly.initClientOnly();
     minecraftbyexample.mbe30_inventory_basic.StartupClientOnly.initClientOnly();
     minecraftbyexample.mbe31_inventory_furnace.StartupClientOnly.initClientOnly();
+    minecraftbyexample.mbe32_inventory_bulk.StartupClientOnly.initClientOnly();
     minecraftbyexample.mbe35_recipes.StartupClientOnly.initClientOnly();
     minecraftbyexample.mbe40_hud_overlay.StartupClientOnly.initClientOnly();
     minecraftbyexample.mbe50_particle.StartupClientOnly.initClientOnly();
@@ -102,6 +109,7 @@ public class ClientOnlyProxy extends CommonProxy
     minecraftbyexample.mbe21_tileentityspecialrenderer.StartupClientOnly.postInitClientOnly();
     minecraftbyexample.mbe30_inventory_basic.StartupClientOnly.postInitClientOnly();
     minecraftbyexample.mbe31_inventory_furnace.StartupClientOnly.postInitClientOnly();
+    minecraftbyexample.mbe32_inventory_bulk.StartupClientOnly.postInitClientOnly();
     minecraftbyexample.mbe35_recipes.StartupClientOnly.postInitClientOnly();
     minecraftbyexample.mbe40_hud_overlay.StartupClientOnly.postInitClientOnly();
     minecraftbyexample.mbe50_particle.StartupClientOnly.postInitClientOnly();
@@ -1,6 +1,10 @@
 package minecraftbyexample;
 
+import minecraftbyexample.usefultools.DeferredLightUpdates;
+import minecraftbyexample.usefultools.OscillatorBus;
+import minecraftbyexample.usefultools.TimerWheel;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraftforge.common.MinecraftForge;
 
 /**
  * CommonProxy is used to set up the mod and start it running.  It contains all the code that should run on both the
@@ -17,6 +21,13 @@ public abstract class CommonProxy {
 	   //read config first
 	  minecraftbyexample.mbe70_configuration.StartupCommon.preInitCommon();
 
+    // the deferred light update queue is shared by several of the examples (MBE06, MBE31)
+    MinecraftForge.EVENT_BUS.register(new DeferredLightUpdates.EventHandler());
+    // the timer wheel is used by MBE20
+    MinecraftForge.EVENT_BUS.register(new TimerWheel.EventHandler());
+    // the oscillator bus is used by MBE06
+    MinecraftForge.EVENT_BUS.register(new OscillatorBus.EventHandler());
+
     minecraftbyexample.mbe01_block_simple.StartupCommon.preInitCommon();
     minecraftbyexample.mbe02_block_partial.StartupCommon.preInitCommon();
     minecraftbyexample.mbe03_block_variants.StartupCommon.preInitCommon();
@@ -33,6 +44,7 @@ public abstract class CommonProxy {
     minecraftbyexample.mbe21_tileentityspecialrenderer.StartupCommon.preInitCommon();
     minecraftbyexample.mbe30_inventory_basic.StartupCommon.preInitCommon();
     minecraftbyexample.mbe31_inventory_furnace.StartupCommon.preInitCommon();
+    minecraftbyexample.mbe32_inventory_bulk.StartupCommon.preInitCommon();
     minecraftbyexample.mbe35_recipes.StartupCommon.preInitCommon();
     minecraftbyexample.mbe40_hud_overlay.StartupCommon.preInitCommon();
     minecraftbyexample.mbe50_particle.StartupCommon.preInitCommon();
@@ -65,6 +77,7 @@ public abstract class CommonProxy {
     minecraftbyexample.mbe21_tileentityspecialrenderer.StartupCommon.initCommon();
     minecraftbyexample.mbe30_inventory_basic.StartupCommon.initCommon();
     minecraftbyexample.mbe31_inventory_furnace.StartupCommon.initCommon();
+    minecraftbyexample.mbe32_inventory_bulk.StartupCommon.initCommon();
     minecraftbyexample.mbe35_recipes.StartupCommon.initCommon();
     minecraftbyexample.mbe40_hud_overlay.StartupCommon.initCommon();
     minecraftbyexample.mbe50_particle.StartupCommon.initCommon();
@@ -96,6 +109,7 @@ public abstract class CommonProxy {
     minecraftbyexample.mbe21_tileentityspecialrenderer.StartupCommon.postInitCommon();
     minecraftbyexample.mbe30_inventory_basic.StartupCommon.postInitCommon();
     minecraftbyexample.mbe31_inventory_furnace.StartupCommon.postInitCommon();
+    minecraftbyexample.mbe32_inventory_bulk.StartupCommon.postInitCommon();
     minecraftbyexample.mbe35_recipes.StartupCommon.postInitCommon();
     minecraftbyexample.mbe40_hud_overlay.StartupCommon.postInitCommon();
     minecraftbyexample.mbe50_particle.StartupCommon.postInitCommon();
@@ -0,0 +1,428 @@
+package minecraftbyexample.mbe06_redstone;
+
+import minecraftbyexample.mbe06_redstone.input.BlockRedstoneColouredLamp;
+import minecraftbyexample.mbe06_redstone.input_and_output.BlockRedstoneMeter;
+import minecraftbyexample.mbe06_redstone.output_only.BlockRedstoneVariableSource;
+import minecraftbyexample.mbe70_configuration.MBEConfiguration;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * SignalGraph is an alternative to the cascading neighborChanged() updates for a group of connected MBE06 redstone
+ *   blocks (variable sources, meters and coloured lamps), eg a large display made of lamps driven by sources.
+ * It's turned on using compiledRedstoneGraph in the configuration file.
+ *
+ * Normally, each time a source changes, every neighbouring lamp or meter recalculates itself straight away by looking at
+ *   all of its input sides with getRedstonePower().  If a row of sources changes in the same tick, a lamp with three
+ *   sources next to it recalculates three times.
+ * When the graph is turned on, the lamps' and meters' neighborChanged() just mark the block (and the neighbour which
+ *   changed) as dirty.  At the end of the world tick, the dirty blocks are evaluated once each, in topological order:
+ *   - the connected MBE06 blocks are found by a flood fill, and "compiled" into nodes.  Each input side of a node is
+ *     either an edge from a neighbouring node which provides power on that side, or a boundary input (anything else, eg
+ *     redstone dust), which is read from the world as usual;
+ *   - the nodes are sorted into levels: a node's level is one more than the highest level of the nodes feeding it;
+ *   - each node caches its output power, so the nodes downstream read it without querying the world.  If the output of
+ *     a node changes, the nodes it feeds are marked dirty too; they're on a higher level so they're evaluated in the
+ *     same pass.
+ *   The lamps and meters then store their new values and notify the vanilla neighbours in the same way as before.
+ * With the blocks in MBE06, the graph is shallow: the sources feed the lamps and meters, but the meter's output only
+ *   goes up and down and the lamps and meters only listen to their sides.  So a chain through a meter to a lamp has to
+ *   go through vanilla redstone (eg dust), which is outside the graph.
+ * If a block is placed or broken next to the graph, the nodes around it are discarded and compiled again the next time
+ *   they're needed.  The groups with nodes in a chunk are discarded when the chunk is unloaded, so that the graph doesn't
+ *   hold on to them (or load the chunk again by evaluating them).
+ * Server side only.
+ */
+public class SignalGraph
+{
+  /**
+   * Get the graph for the given world, creating it if necessary.  Server side only.
+   */
+  public static SignalGraph forWorld(World world)
+  {
+    SignalGraph graph = graphs.get(world);
+    if (graph == null) {
+      graph = new SignalGraph(world);
+      graphs.put(world, graph);
+    }
+    return graph;
+  }
+
+  /**
+   * Use forWorld() instead, unless you want a separate graph (eg for testing)
+   */
+  public SignalGraph(World world) {
+    this.world = world;
+  }
+
+  /** true if the MBE06 blocks should use the graph instead of updating themselves in neighborChanged() */
+  public static boolean isEnabled() {
+    return MBEConfiguration.compiledRedstoneGraph;
+  }
+
+  /**
+   * Called by a lamp or meter's neighborChanged() when the graph is turned on: the block will be evaluated at the end of
+   *   the tick.
+   * @param pos the lamp or meter
+   * @param neighborPos the neighbour which changed; if it's part of the graph, its output is read again
+   */
+  public void onNeighborChanged(BlockPos pos, BlockPos neighborPos)
+  {
+    Node neighbour = nodes.get(neighborPos);
+    if (neighbour != null) markDirty(neighbour);
+    Node node = nodes.get(pos);
+    if (node != null) {
+      markDirty(node);
+    } else {
+      uncompiledDirty.add(pos.toImmutable());
+    }
+  }
+
+  /**
+   * Called when an MBE06 block is placed or broken, whether the graph is turned on or not: discards the nodes at and
+   *   around pos so that they're compiled again with the new connections.
+   */
+  public static void onBlockPlacedOrBroken(World world, BlockPos pos)
+  {
+    if (world.isRemote) return;
+    SignalGraph graph = graphs.get(world);
+    if (graph != null) graph.discardAround(pos);
+  }
+
+  /**
+   * Called when a chunk is unloaded: discards the groups which have nodes in it.  The parts of those groups in other
+   *   chunks are compiled again the next time they're needed.
+   */
+  public void onChunkUnload(int chunkX, int chunkZ)
+  {
+    Set<Node> nodesInChunk = nodesByChunk.get(chunkKey(chunkX, chunkZ));
+    if (nodesInChunk == null) return;
+    for (Node node : new ArrayList<Node>(nodesInChunk)) {
+      if (nodes.get(node.pos) == node) discardGroup(node);  // might already have gone with an earlier node's group
+    }
+  }
+
+  /**
+   * Evaluate all the dirty nodes, in order of level.  Called at the end of each world tick.
+   */
+  public void evaluate()
+  {
+    if (!uncompiledDirty.isEmpty()) {
+      List<BlockPos> toCompile = new ArrayList<BlockPos>(uncompiledDirty);
+      uncompiledDirty.clear();
+      for (BlockPos pos : toCompile) {
+        if (!nodes.containsKey(pos)) compile(pos);
+        Node node = nodes.get(pos);
+        if (node != null) markDirty(node);
+      }
+    }
+
+    // a node only marks nodes on higher levels as dirty, so one pass through the levels is enough
+    for (int level = 0; level < dirtyByLevel.size(); ++level) {
+      Set<Node> dirty = dirtyByLevel.get(level);
+      while (!dirty.isEmpty()) {
+        Iterator<Node> iterator = dirty.iterator();
+        Node node = iterator.next();
+        iterator.remove();
+        evaluateNode(node);
+        node.dirty = false;  // after evaluating, so that the node's own notifications don't make it dirty again
+      }
+    }
+  }
+
+  /** the number of blocks which are currently compiled into the graph */
+  public int getNodeCount() {
+    return nodes.size();
+  }
+
+  /** the number of nodes evaluated since the game started (all worlds) */
+  public static long getEvaluationCount() {
+    return evaluationCount;
+  }
+
+  // ------- compiling
+
+  // the types of block in the graph.  The sides are the "side" parameter of getWeakPower(), i.e. the direction from
+  //  the block asking for power to the block providing it
+  private enum NodeType
+  {
+    SOURCE(new EnumFacing[0], EnumFacing.VALUES),
+    METER(EnumFacing.HORIZONTALS, new EnumFacing[] {EnumFacing.UP, EnumFacing.DOWN}),
+    LAMP(null, new EnumFacing[0]);
+
+    NodeType(EnumFacing[] inputSides, EnumFacing[] outputSides) {
+      this.inputSides = inputSides;
+      this.outputSides = outputSides;
+    }
+
+    public static NodeType fromBlock(Block block)
+    {
+      if (block instanceof BlockRedstoneVariableSource) return SOURCE;
+      if (block instanceof BlockRedstoneMeter) return METER;
+      if (block instanceof BlockRedstoneColouredLamp) return LAMP;
+      return null;
+    }
+
+    // the lamp's inputs depend on which way it's facing
+    public EnumFacing[] getInputSides(IBlockState state)
+    {
+      if (this != LAMP) return inputSides;
+      return BlockRedstoneColouredLamp.getInputSides(state);
+    }
+
+    public boolean providesPowerTo(EnumFacing side)
+    {
+      for (EnumFacing outputSide : outputSides) {
+        if (outputSide == side) return true;
+      }
+      return false;
+    }
+
+    private final EnumFacing[] inputSides;
+    private final EnumFacing[] outputSides;
+  }
+
+  private static class Node
+  {
+    public Node(BlockPos pos, NodeType type, Block block) {
+      this.pos = pos;
+      this.type = type;
+      this.block = block;
+    }
+
+    public final BlockPos pos;
+    public final NodeType type;
+    public final Block block;
+    public EnumFacing[] inputSides;
+    public Node[] inputNodes;   // the node on each input side, or null for a boundary input
+    public final List<Node> outputNodes = new ArrayList<Node>();
+    public List<Node> group;  // all the nodes which were compiled together
+    public int level;
+    public int outputPower;
+    public boolean dirty;
+  }
+
+  // find all the MBE06 blocks connected to pos, and compile them into nodes
+  private void compile(BlockPos start)
+  {
+    Map<BlockPos, Node> groupNodes = new HashMap<BlockPos, Node>();
+    ArrayDeque<BlockPos> toVisit = new ArrayDeque<BlockPos>();
+    toVisit.add(start);
+    while (!toVisit.isEmpty() && groupNodes.size() < MAXIMUM_GROUP_SIZE) {
+      BlockPos pos = toVisit.poll();
+      if (groupNodes.containsKey(pos) || nodes.containsKey(pos) || !world.isBlockLoaded(pos)) continue;
+      Block block = world.getBlockState(pos).getBlock();
+      NodeType type = NodeType.fromBlock(block);
+      if (type == null) continue;
+      groupNodes.put(pos, new Node(pos, type, block));
+      for (EnumFacing facing : EnumFacing.VALUES) {
+        toVisit.add(pos.offset(facing));
+      }
+    }
+    if (groupNodes.isEmpty()) return;
+
+    // connect each input side to the neighbouring node, if it provides power on that side.
+    // (Neither of the providers is a normal cube, so getRedstonePower() would ask them for their weak power.)
+    List<Node> group = new ArrayList<Node>(groupNodes.values());
+    Map<Node, Integer> unsortedInputs = new HashMap<Node, Integer>();
+    for (Node node : group) {
+      node.group = group;
+      IBlockState state = world.getBlockState(node.pos);
+      node.inputSides = node.type.getInputSides(state);
+      node.inputNodes = new Node[node.inputSides.length];
+      int inputCount = 0;
+      for (int i = 0; i < node.inputSides.length; ++i) {
+        EnumFacing side = node.inputSides[i];
+        Node inputNode = groupNodes.get(node.pos.offset(side));
+        if (inputNode != null && inputNode.type.providesPowerTo(side)) {
+          node.inputNodes[i] = inputNode;
+          inputNode.outputNodes.add(node);
+          ++inputCount;
+        }
+      }
+      unsortedInputs.put(node, inputCount);
+      if (node.type.outputSides.length > 0) {
+        node.outputPower = state.getWeakPower(world, node.pos, node.type.outputSides[0]);
+      }
+    }
+
+    // sort into levels (Kahn's algorithm): a node is given its level once all of its inputs have theirs
+    ArrayDeque<Node> ready = new ArrayDeque<Node>();
+    for (Node node : group) {
+      if (unsortedInputs.get(node) == 0) ready.add(node);
+    }
+    int sortedCount = 0;
+    while (!ready.isEmpty()) {
+      Node node = ready.poll();
+      ++sortedCount;
+      for (Node outputNode : node.outputNodes) {
+        outputNode.level = Math.max(outputNode.level, node.level + 1);
+        int remaining = unsortedInputs.get(outputNode) - 1;
+        unsortedInputs.put(outputNode, remaining);
+        if (remaining == 0) ready.add(outputNode);
+      }
+    }
+    // The MBE06 blocks can't form a loop, but just in case: read the inputs of any loop from the world instead
+    if (sortedCount < group.size()) {
+      int loopLevel = 0;
+      for (Node node : group) loopLevel = Math.max(loopLevel, node.level + 1);
+      for (Node node : group) {
+        if (unsortedInputs.get(node) == 0) continue;
+        node.level = loopLevel;
+        for (int i = 0; i < node.inputNodes.length; ++i) {
+          if (node.inputNodes[i] != null && unsortedInputs.get(node.inputNodes[i]) != 0) {
+            node.inputNodes[i].outputNodes.remove(node);
+            node.inputNodes[i] = null;
+          }
+        }
+      }
+    }
+
+    for (Node node : group) {
+      nodes.put(node.pos, node);
+      long key = chunkKey(node.pos.getX() >> 4, node.pos.getZ() >> 4);
+      Set<Node> nodesInChunk = nodesByChunk.get(key);
+      if (nodesInChunk == null) {
+        nodesInChunk = new HashSet<Node>();
+        nodesByChunk.put(key, nodesInChunk);
+      }
+      nodesInChunk.add(node);
+      while (dirtyByLevel.size() <= node.level) {
+        dirtyByLevel.add(new LinkedHashSet<Node>());
+      }
+    }
+  }
+
+  // discard the groups which include pos or its neighbours; the dirty nodes are compiled again when they're evaluated
+  private void discardAround(BlockPos pos)
+  {
+    discardGroup(nodes.get(pos));
+    for (EnumFacing facing : EnumFacing.VALUES) {
+      discardGroup(nodes.get(pos.offset(facing)));
+    }
+  }
+
+  private void discardGroup(Node member)
+  {
+    if (member == null) return;
+    for (Node node : member.group) {
+      nodes.remove(node.pos);
+      long key = chunkKey(node.pos.getX() >> 4, node.pos.getZ() >> 4);
+      Set<Node> nodesInChunk = nodesByChunk.get(key);
+      nodesInChunk.remove(node);
+      if (nodesInChunk.isEmpty()) nodesByChunk.remove(key);
+      if (node.dirty) {
+        dirtyByLevel.get(node.level).remove(node);
+        uncompiledDirty.add(node.pos);
+      }
+    }
+  }
+
+  private static long chunkKey(int chunkX, int chunkZ) {
+    return ((long)chunkX << 32) | (chunkZ & 0xffffffffL);
+  }
+
+  // ------- evaluating
+
+  private void markDirty(Node node)
+  {
+    if (node.dirty) return;
+    node.dirty = true;
+    dirtyByLevel.get(node.level).add(node);
+  }
+
+  private void evaluateNode(Node node)
+  {
+    if (!world.isBlockLoaded(node.pos)) return;  // don't load the chunk again; its group is discarded when it unloads
+    IBlockState state = world.getBlockState(node.pos);
+    if (state.getBlock() != node.block) return;  // it's been replaced; the group will be discarded
+    ++evaluationCount;
+
+    if (node.inputSides.length > 0) {
+      int[] inputPowers = new int[node.inputSides.length];
+      for (int i = 0; i < node.inputSides.length; ++i) {
+        EnumFacing side = node.inputSides[i];
+        Node inputNode = node.inputNodes[i];
+        inputPowers[i] = (inputNode != null) ? inputNode.outputPower
+                                             : world.getRedstonePower(node.pos.offset(side), side);
+      }
+      if (node.type == NodeType.METER) {
+        int maxPowerFound = 0;
+        for (int power : inputPowers) {
+          maxPowerFound = Math.max(power, maxPowerFound);
+        }
+        ((BlockRedstoneMeter)node.block).setInputPower(world, node.pos, state, maxPowerFound);
+      } else if (node.type == NodeType.LAMP) {
+        int rgbColour = BlockRedstoneColouredLamp.calculateLampColour(inputPowers[0], inputPowers[1], inputPowers[2]);
+        ((BlockRedstoneColouredLamp)node.block).setLampColour(world, node.pos, state, rgbColour);
+      }
+    }
+
+    if (node.type.outputSides.length > 0) {
+      int newOutputPower = state.getWeakPower(world, node.pos, node.type.outputSides[0]);
+      if (newOutputPower != node.outputPower) {
+        node.outputPower = newOutputPower;
+        for (Node outputNode : node.outputNodes) {
+          markDirty(outputNode);
+        }
+      }
+    }
+  }
+
+  // a flood fill stops when it has found this many blocks; any more are compiled into another group, and the two groups
+  //   read each other's outputs from the world
+  private static final int MAXIMUM_GROUP_SIZE = 4096;
+
+  private final World world;
+  private final Map<BlockPos, Node> nodes = new HashMap<BlockPos, Node>();
+  private final List<Set<Node>> dirtyByLevel = new ArrayList<Set<Node>>();
+  private final Set<BlockPos> uncompiledDirty = new LinkedHashSet<BlockPos>();
+  private final Map<Long, Set<Node>> nodesByChunk = new HashMap<Long, Set<Node>>();  // see chunkKey()
+  private static long evaluationCount = 0;
+
+  private static final Map<World, SignalGraph> graphs = new WeakHashMap<World, SignalGraph>();
+
+  /**
+   * Evaluates the dirty nodes at the end of each server world tick, discards the nodes in a chunk when it unloads, and
+   *   discards the graph when the world unloads
+   */
+  public static class EventHandler
+  {
+    @SubscribeEvent
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+      if (event.phase != TickEvent.Phase.END || event.world.isRemote) return;
+      SignalGraph graph = graphs.get(event.world);
+      if (graph != null) graph.evaluate();
+    }
+
+    @SubscribeEvent
+    public void onChunkUnload(ChunkEvent.Unload event) {
+      if (event.getWorld().isRemote) return;
+      SignalGraph graph = graphs.get(event.getWorld());
+      if (graph != null) graph.onChunkUnload(event.getChunk().xPosition, event.getChunk().zPosition);
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+      graphs.remove(event.getWorld());
+    }
+  }
+}
@@ -7,6 +7,7 @@ import minecraftbyexample.mbe06_redstone.input_and_output.TileEntityRedstoneMete
 import minecraftbyexample.mbe06_redstone.output_only.BlockRedstoneTarget;
 import minecraftbyexample.mbe06_redstone.output_only.BlockRedstoneVariableSource;
 import net.minecraft.item.ItemBlock;
+import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.registry.GameRegistry;
 
 /**
@@ -84,6 +85,9 @@ public class StartupCommon
     itemBlockRedstoneVariableSource = new ItemBlock(blockRedstoneVariableSource);
     itemBlockRedstoneVariableSource.setRegistryName(blockRedstoneVariableSource.getRegistryName());
     GameRegistry.register(itemBlockRedstoneVariableSource);
+
+    // if the signal graph is turned on, it evaluates the blocks at the end of each world tick
+    MinecraftForge.EVENT_BUS.register(new SignalGraph.EventHandler());
   }
 
   public static void initCommon()
@@ -1,5 +1,6 @@
 package minecraftbyexample.mbe06_redstone.input;
 
+import minecraftbyexample.mbe06_redstone.SignalGraph;
 import minecraftbyexample.mbe06_redstone.input_and_output.TileEntityRedstoneMeter;
 import minecraftbyexample.usefultools.UsefulFunctions;
 import net.minecraft.block.Block;
@@ -77,10 +78,10 @@ public class BlockRedstoneColouredLamp extends Block
     // the colour is based on the redstone inputs from three sides.
     //  If the lamp is facing NORTH, the red input is WEST, green input is SOUTH, blue input is EAST
 
-    EnumFacing facing = (EnumFacing)state.getValue(PROPERTYFACING);
-    EnumFacing redDirection = facing.rotateYCCW();
-    EnumFacing greenDirection = facing.getOpposite();
-    EnumFacing blueDirection = facing.rotateY();
+    EnumFacing [] inputSides = getInputSides(state);
+    EnumFacing redDirection = inputSides[0];
+    EnumFacing greenDirection = inputSides[1];
+    EnumFacing blueDirection = inputSides[2];
 
     BlockPos redNeighbour = pos.offset(redDirection);
     int redPower = world.getRedstonePower(redNeighbour, redDirection);
@@ -89,6 +90,23 @@ public class BlockRedstoneColouredLamp extends Block
     BlockPos blueNeighbour = pos.offset(blueDirection);
     int bluePower = world.getRedstonePower(blueNeighbour, blueDirection);
 
+    return calculateLampColour(redPower, greenPower, bluePower);
+  }
+
+  /**
+   * The three input sides of the lamp: red, green, blue
+   */
+  public static EnumFacing [] getInputSides(IBlockState state)
+  {
+    EnumFacing facing = (EnumFacing)state.getValue(PROPERTYFACING);
+    return new EnumFacing[] {facing.rotateYCCW(), facing.getOpposite(), facing.rotateY()};
+  }
+
+  /**
+   * Convert the power on each of the input sides into the lamp colour
+   */
+  public static int calculateLampColour(int redPower, int greenPower, int bluePower)
+  {
     final int MIN_POWER = 0;
     final int MAX_POWER = 15;
     final int MIN_COMPONENT = 0;
@@ -141,12 +159,24 @@ public class BlockRedstoneColouredLamp extends Block
   // I have no idea why this method is deprecated in 10.1.2.
   @Override
   public void neighborChanged(IBlockState state, World worldIn, BlockPos pos, Block neighborBlock, BlockPos neighborPos)
+  {
+    // if the signal graph is turned on, it calculates the colour at the end of the tick instead
+    if (SignalGraph.isEnabled() && !worldIn.isRemote) {
+      SignalGraph.forWorld(worldIn).onNeighborChanged(pos, neighborPos);
+      return;
+    }
+    setLampColour(worldIn, pos, state, calculateLampColour(worldIn, pos, state));
+  }
+
+  /**
+   * Change the colour of the lamp, and send it to the client if it has changed
+   */
+  public void setLampColour(World worldIn, BlockPos pos, IBlockState state, int newLampColour)
   {
     TileEntity tileentity = worldIn.getTileEntity(pos);
     if (tileentity instanceof TileEntityRedstoneColouredLamp) { // prevent a crash if not the right type, or is null
       TileEntityRedstoneColouredLamp tileEntityRedstoneColouredLamp = (TileEntityRedstoneColouredLamp) tileentity;
       int currentLampColour = tileEntityRedstoneColouredLamp.getRGBcolour();
-      int newLampColour = calculateLampColour(worldIn, pos, state);
 
       if (newLampColour != currentLampColour) {
         tileEntityRedstoneColouredLamp.setRGBcolour(newLampColour);
@@ -157,6 +187,21 @@ public class BlockRedstoneColouredLamp extends Block
     }
   }
 
+  // The signal graph needs to know when the lamp is placed or broken, because it changes the connections
+  @Override
+  public void onBlockAdded(World worldIn, BlockPos pos, IBlockState state)
+  {
+    super.onBlockAdded(worldIn, pos, state);
+    SignalGraph.onBlockPlacedOrBroken(worldIn, pos);
+  }
+
+  @Override
+  public void breakBlock(World worldIn, BlockPos pos, IBlockState state)
+  {
+    SignalGraph.onBlockPlacedOrBroken(worldIn, pos);
+    super.breakBlock(worldIn, pos, state);
+  }
+
   // ---------methods related to storing information about the block (which way it's facing)
 
   // BlockRedstoneColouredLamp has one property
@@ -1,12 +1,13 @@
 package minecraftbyexample.mbe06_redstone.input;
 
-import net.minecraft.block.state.IBlockState;
+import minecraftbyexample.usefultools.DeferredLightUpdates;
+import minecraftbyexample.usefultools.SyncedField;
+import minecraftbyexample.usefultools.SyncedFieldTracker;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SPacketUpdateTileEntity;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.ITickable;
-import net.minecraft.world.EnumSkyBlock;
 
 import javax.annotation.Nullable;
 
@@ -37,59 +38,54 @@ public class TileEntityRedstoneColouredLamp extends TileEntity implements ITicka
     //   state will not always be visible.  Likewise, we need to force a lighting recalculation.
     // The block update (for renderer) is only required on client side, but the lighting is required on both, since
     //    the client needs it for rendering and the server needs it for crop growth etc
+    // The light check is deferred until the end of the tick, so that a group of lamps changing colour together is only
+    //    relit (and on the client, re-rendered) once - see DeferredLightUpdates
     int currentRGBcolour = getRGBcolour();
     if (previousRGBcolor != currentRGBcolour) {
       previousRGBcolor = currentRGBcolour;
-      if (worldObj.isRemote) {
-        IBlockState iblockstate = this.worldObj.getBlockState(pos);
-        final int FLAGS = 3;  // I'm not sure what these flags do, exactly.
-        this.worldObj.notifyBlockUpdate(pos, iblockstate, iblockstate, FLAGS);
-      }
-      worldObj.checkLightFor(EnumSkyBlock.BLOCK, pos);
+      DeferredLightUpdates.requestLightEmissionCheck(worldObj, pos);
     }
 
   }
 
   //	// When the world loads from disk, the server needs to send the TileEntity information to the client
 //	//  it uses getUpdatePacket(), getUpdateTag(), onDataPacket(), and handleUpdateTag() to do this
+  //  Only the @SyncedField fields are sent, and the update packet is only sent when one of them has changed - see SyncedFieldTracker
   @Override
   @Nullable
   public SPacketUpdateTileEntity getUpdatePacket()
   {
-    NBTTagCompound updateTagDescribingTileEntityState = getUpdateTag();
+    NBTTagCompound syncedFieldsNBT = syncedFieldTracker.writeFieldsIfChanged();
+    if (syncedFieldsNBT == null) return null;  // nothing has changed since the last update
     int metadata = getBlockMetadata();
-    return new SPacketUpdateTileEntity(this.pos, metadata, updateTagDescribingTileEntityState);
+    return new SPacketUpdateTileEntity(this.pos, metadata, syncedFieldsNBT);
   }
 
   @Override
   public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
-    NBTTagCompound updateTagDescribingTileEntityState = pkt.getNbtCompound();
-    handleUpdateTag(updateTagDescribingTileEntityState);
+    syncedFieldTracker.readFields(pkt.getNbtCompound());
   }
 
   /* Creates a tag containing the TileEntity information, used by vanilla to transmit from server to client
-     Warning - although our getUpdatePacket() uses this method, vanilla also calls it directly, so don't remove it.
+     This is the whole state (the @SyncedField fields), sent when the player starts watching the chunk.
    */
   @Override
   public NBTTagCompound getUpdateTag()
   {
-    NBTTagCompound nbtTagCompound = new NBTTagCompound();
-    writeToNBT(nbtTagCompound);
-    return nbtTagCompound;
+    NBTTagCompound nbtTagCompound = super.writeToNBT(new NBTTagCompound());  // the client needs the location
+    return syncedFieldTracker.writeAllFields(nbtTagCompound);
   }
 
   /* Populates this TileEntity with information from the tag, used by vanilla to transmit from server to client
-   Warning - although our onDataPacket() uses this method, vanilla also calls it directly, so don't remove it.
  */
   @Override
   public void handleUpdateTag(NBTTagCompound tag)
   {
-    this.readFromNBT(tag);
+    super.readFromNBT(tag);
+    syncedFieldTracker.readFields(tag);
   }
 
-	// This is where you save any data that
-	//  - you don't want to lose when the tile entity unloads
-  //  - you want to transmit to the client
+	// This is where you save any data that you don't want to lose when the tile entity unloads
 	@Override
 	public NBTTagCompound writeToNBT(NBTTagCompound parentNBTTagCompound)
 	{
@@ -106,6 +102,8 @@ public class TileEntityRedstoneColouredLamp extends TileEntity implements ITicka
     int newColour = parentNBTTagCompound.getInteger("rgb_colour");  // default is 0
     rgbColour = newColour;
 	}
+  @SyncedField
   private int rgbColour = 0; // the RGB colour of the lamp
   private int previousRGBcolor = -1;
+  private final SyncedFieldTracker syncedFieldTracker = new SyncedFieldTracker(this);
 }
@@ -1,5 +1,7 @@
 package minecraftbyexample.mbe06_redstone.input_and_output;
 
+import minecraftbyexample.mbe06_redstone.SignalGraph;
+import minecraftbyexample.usefultools.OscillatorBus;
 import net.minecraft.block.Block;
 import net.minecraft.block.ITileEntityProvider;
 import net.minecraft.block.material.Material;
@@ -53,7 +55,7 @@ public class BlockRedstoneMeter extends Block
 
   // ------ methods relevant to redstone
   //  The methods below are used to provide power to neighbours.
-  //  If you are looking for the rendering redstone calculations, look in TileEntityRedstoneMeter.getPowerLevelClient()
+  //  The input power level is also sent to the client for rendering the needle - see neighborChanged()
 
   /**
    * This block can provide power
@@ -136,15 +138,35 @@ public class BlockRedstoneMeter extends Block
   @Override
   public void neighborChanged(IBlockState state, World worldIn, BlockPos pos, Block blockIn, BlockPos neighborPos)
   {
+    // if the signal graph is turned on, it calculates the power level at the end of the tick instead
+    if (SignalGraph.isEnabled() && !worldIn.isRemote) {
+      SignalGraph.forWorld(worldIn).onNeighborChanged(pos, neighborPos);
+      return;
+    }
     // calculate the power level from neighbours and store in our TileEntity for later use in isProvidingWeakPower()
     int powerLevel = getPowerLevelInput(worldIn, pos);
+    setInputPower(worldIn, pos, state, powerLevel);
+  }
+
+  /**
+   * Store the new input power level in the TileEntity, send it to the client, and notify the neighbours if the output
+   *   has changed
+   */
+  public void setInputPower(World worldIn, BlockPos pos, IBlockState state, int powerLevel)
+  {
     TileEntity tileentity = worldIn.getTileEntity(pos);
     if (tileentity instanceof TileEntityRedstoneMeter) { // prevent a crash if not the right type, or is null
       TileEntityRedstoneMeter tileEntityRedstoneMeter = (TileEntityRedstoneMeter) tileentity;
 
       boolean currentOutputState = tileEntityRedstoneMeter.getOutputState();
-      tileEntityRedstoneMeter.setPowerLevel(powerLevel);
-          // this method will also schedule the next tick using call world.scheduleUpdate(pos, block, lastTickDelay);
+      boolean powerLevelChanged = tileEntityRedstoneMeter.setPowerLevel(powerLevel);
+          // this method will also start the output flashing at the new rate
+
+      // send the new power level to the client, for the needle
+      if (powerLevelChanged && !worldIn.isRemote) {
+        final int FLAGS = 2;  // send to the client, don't notify the neighbours
+        worldIn.notifyBlockUpdate(pos, state, state, FLAGS);
+      }
 
       if (currentOutputState != tileEntityRedstoneMeter.getOutputState()) {
         final boolean CASCADE_UPDATE = false;  // I'm not sure what this flag does, but vanilla always sets it to false
@@ -154,26 +176,14 @@ public class BlockRedstoneMeter extends Block
     }
   }
 
-  // Our flashing output uses scheduled ticks to toggle the output.
-  //  Scheduling of ticks is by calling  world.scheduleUpdate(pos, block, numberOfTicksToDelay);
-  //
+  // Our flashing output is toggled by a shared oscillator, which also notifies the neighbours - see ScheduledTogglingOutput.
+  // Each meter used to schedule its own block updates, which meant lots of pending ticks when there were many meters.
+  //  Now the oscillator schedules a single block update at one of its meters when it's due to toggle, so that it toggles
+  //  at the same point in the tick as before - see OscillatorBus.
   @Override
   public void updateTick(World worldIn, BlockPos pos, IBlockState state, Random rand)
   {
-    TileEntity tileentity = worldIn.getTileEntity(pos);
-    if (tileentity instanceof TileEntityRedstoneMeter) { // prevent a crash if not the right type, or is null
-      TileEntityRedstoneMeter tileEntityRedstoneMeter = (TileEntityRedstoneMeter) tileentity;
-
-      boolean currentOutputState = tileEntityRedstoneMeter.getOutputState();
-      tileEntityRedstoneMeter.onScheduledUpdateTick();
-        // this method will also schedule the next tick using call world.scheduleUpdate(pos, block, lastTickDelay);
-
-      if (currentOutputState != tileEntityRedstoneMeter.getOutputState()) {
-        final boolean CASCADE_UPDATE = false;  // I'm not sure what this flag does, but vanilla always sets it to false
-        // except for calls by World.setBlockState()
-        worldIn.notifyNeighborsOfStateChange(pos, this, CASCADE_UPDATE);
-      }
-    }
+    OscillatorBus.onScheduledTick(worldIn, pos);
   }
 
   // ---- the following are copied from BlockRedstoneComparator.  I'm not 100% sure it's necessary to manually
@@ -183,12 +193,18 @@ public class BlockRedstoneMeter extends Block
   {
     super.onBlockAdded(worldIn, pos, state);
     worldIn.setTileEntity(pos, this.createTileEntity(worldIn, state));
+    SignalGraph.onBlockPlacedOrBroken(worldIn, pos);
+    // the neighbours might already be powered; they won't call neighborChanged() until they change
+    if (!worldIn.isRemote) {
+      neighborChanged(state, worldIn, pos, this, pos);
+    }
   }
 
   public void breakBlock(World worldIn, BlockPos pos, IBlockState state)
   {
     super.breakBlock(worldIn, pos, state);
     worldIn.removeTileEntity(pos);
+    SignalGraph.onBlockPlacedOrBroken(worldIn, pos);
     final boolean CASCADE_UPDATE = false;  // I'm not sure what this flag does, but vanilla always sets it to false
     // except for calls by World.setBlockState()
     worldIn.notifyNeighborsOfStateChange(pos, this, CASCADE_UPDATE);
@@ -1,5 +1,6 @@
 package minecraftbyexample.mbe06_redstone.input_and_output;
 
+import minecraftbyexample.usefultools.OscillatorBus;
 import net.minecraft.block.Block;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
@@ -9,19 +10,21 @@ import static com.google.common.base.Preconditions.checkArgument;
 /**
  * Created by TGG on 29/11/2015.
  * Utility class to toggle an output between ON and OFF at a given rate.
- * Uses scheduled updates to do the toggling.
+ * The toggling is done by a shared oscillator (see OscillatorBus) instead of each block scheduling its own updates, so
+ *   that lots of blocks flashing at the same rate only need one scheduled tick between them.  The block's updateTick()
+ *   must call OscillatorBus.onScheduledTick().
  *
  * Typical usage:
  * (1) create the ScheduledTogglingOutput
- * (2) a) call setToggleRate() to change the on time and/or the period (on time + off time).  This will schedule
- *        a block update as appropriate, using world.scheduleUpdate(); or
+ * (2) a) call setToggleRate() to change the on time and/or the period (on time + off time).  The output keeps its current
+ *        state and toggles after the on time (or off time) from now; or
  *     b) call setSteadyOutput to stop toggling and just stay at one value
- * (3) when the block update occurs, call onUpdateTick(), which will toggle output if it's time, and will schedule the
- *     next block update as appropriate
+ * (3) whenever the output toggles, the neighbours of the block are notified (notifyNeighborsOfStateChange)
  * (4) use isOn() to determine the flasher state
+ * (5) call stop() when the block is broken or unloaded
  *
  */
-public class ScheduledTogglingOutput
+public class ScheduledTogglingOutput implements OscillatorBus.Listener
 {
   /**
    * Start toggling the output on and off.
@@ -41,11 +44,12 @@ public class ScheduledTogglingOutput
     } else if (onTimeTicks == periodTicks) {
       setSteadyOutput(true);
     } else {
-      onTicks = onTimeTicks;
-      offTicks = periodTicks - onTimeTicks;
-      togglingIsActive = true;
-      final boolean FORCE_RESET = true;
-      scheduleNextTick(world, pos, block, FORCE_RESET);
+      boolean startOn = isOn();
+      stop();
+      this.world = world;
+      this.pos = pos;
+      this.block = block;
+      oscillator = OscillatorBus.subscribe(world, pos, block, onTimeTicks, periodTicks, startOn, this);
     }
   }
 
@@ -55,49 +59,40 @@ public class ScheduledTogglingOutput
    */
   public void setSteadyOutput(boolean output)
   {
-    togglingIsActive = false;
+    stop();
     outputState = output;
   }
 
   /**
-   * Call when the update tick is received.
+   * Stop toggling; the output stays at its current value.
    */
-  public void onUpdateTick(World world, BlockPos pos, Block block)
+  public void stop()
   {
-    if (!togglingIsActive) return;
-    ticksTillOutputStateChange -= lastTickDelay;
-    if (ticksTillOutputStateChange == 0) {
-        outputState = !outputState;
-    }
-    final boolean FORCE_RESET = true;
-    scheduleNextTick(world, pos, block, !FORCE_RESET);
+    if (oscillator == null) return;
+    outputState = oscillator.isOn();
+    oscillator.unsubscribe(this);
+    oscillator = null;
   }
 
-  private void scheduleNextTick(World world, BlockPos pos, Block block, boolean reset)
+  /**
+   * Called by the oscillator when the output toggles.
+   */
+  @Override
+  public void onOscillatorToggled(boolean isOn)
   {
-    if (!togglingIsActive) return;
-    if (reset || ticksTillOutputStateChange == 0) {
-      ticksTillOutputStateChange = (outputState == true) ? onTicks : offTicks;
-    }
-    final int MAXIMUM_DELAY_UNTIL_NEXT_UPDATE = 20;  // always tick at least once every 20 ticks.
-    lastTickDelay = Math.min(ticksTillOutputStateChange, MAXIMUM_DELAY_UNTIL_NEXT_UPDATE);
-    if (lastTickDelay != 0) {  // should never happen, but be defensive...
-      world.scheduleUpdate(pos, block, lastTickDelay);
-    }
-    return;
+    final boolean CASCADE_UPDATE = false;  // I'm not sure what this flag does, but vanilla always sets it to false
+    // except for calls by World.setBlockState()
+    world.notifyNeighborsOfStateChange(pos, block, CASCADE_UPDATE);
   }
 
-
   public boolean isOn()
   {
-    return outputState;
+    return (oscillator != null) ? oscillator.isOn() : outputState;
   }
 
-  private boolean outputState = false;
-  private int ticksTillOutputStateChange = 0;
-  private int lastTickDelay = 0;
-  private int onTicks = 0;
-  private int offTicks = 0;
-  private boolean togglingIsActive = false;
-
+  private boolean outputState = false;  // the output when not toggling
+  private OscillatorBus.Oscillator oscillator = null;  // null when not toggling
+  private World world;
+  private BlockPos pos;
+  private Block block;
 }
@@ -1,8 +1,10 @@
 package minecraftbyexample.mbe06_redstone.input_and_output;
 
+import minecraftbyexample.usefultools.AnimationClock;
+
 /**
  * Created by TGG on 29/11/2015.
- * Utility class to smooth out the motion of a needle on a dial.  Uses System.nanoTime() for timer.
+ * Utility class to smooth out the motion of a needle on a dial.  Uses the frame time from AnimationClock for timer.
  *
  * Usage:
  * 1) Initialise the class with the desired acceleration and maximum needle movement speed
@@ -30,7 +32,7 @@ public class SmoothNeedleMovement {
       targetNeedlePosition = 1;
     }
 
-    long timeNow = System.nanoTime();
+    long timeNow = AnimationClock.getFrameTimeNanos();
     long deltaTimeNS = timeNow - zeroTimeNanoSeconds;
     double elapsedTime = deltaTimeNS / 1.0e9;
 
@@ -46,7 +48,7 @@ public class SmoothNeedleMovement {
   // return the smoothed position of the needle
   public double getSmoothedNeedlePosition()
   {
-    long timeNow = System.nanoTime();
+    long timeNow = AnimationClock.getFrameTimeNanos();
     long deltaTimeNS = timeNow - zeroTimeNanoSeconds;
     double elapsedTime = deltaTimeNS / 1.0e9;
 
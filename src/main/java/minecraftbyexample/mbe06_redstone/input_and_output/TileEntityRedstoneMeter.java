@@ -1,5 +1,7 @@
 package minecraftbyexample.mbe06_redstone.input_and_output;
 
+import minecraftbyexample.usefultools.SyncedField;
+import minecraftbyexample.usefultools.SyncedFieldTracker;
 import minecraftbyexample.usefultools.UsefulFunctions;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.NetworkManager;
@@ -15,19 +17,28 @@ import javax.annotation.Nullable;
 
 /**
  * This TileEntity is used for two main purposes:
- *  1) on the client side - retrieve the current power level for rendering in the associated TileEntitySpecialRenderer (TESR)
+ *  1) on the client side - hold the current power level (sent by the server) for rendering in the associated
+ *     TileEntitySpecialRenderer (TESR)
  *  2) on the server side
  *     a) used to store the current power level.  This is necessary due to the way that the redstone signals propagate,
  *        e.g. getWeakPower() must retrieve a stored value and not calculate it from neighbours.
  *        see here for more information http://greyminecraftcoder.blogspot.com.au/2015/11/redstone.html
- *     b) used to flash the output at a defined rate using block tick scheduling.
+ *     b) used to flash the output at a defined rate using a shared oscillator (see ScheduledTogglingOutput).
  */
 public class TileEntityRedstoneMeter extends TileEntity {
 
   //  --- client side methods used by the renderer
 
-  // Retrieve the current power level of the meter - the maximum of the four sides (don't look up or down)
+  // Retrieve the current power level of the meter.  This is the level calculated by the server in
+  //   BlockRedstoneMeter.neighborChanged() and sent to the client (storedPowerLevel is a @SyncedField), so the renderer
+  //   doesn't need to look at the neighbours every frame.
 	public int getPowerLevelClient() {
+    return storedPowerLevel;
+  }
+
+  // Calculate the power level from the neighbours - the maximum of the four sides (don't look up or down).
+  // This is what the renderer used to call every frame; it's only kept for comparison (MBE75 test 13).
+  public int getPowerLevelFromNeighbours() {
 
 //    int powerLevel = this.worldObj.isBlockIndirectlyGettingPowered(this.pos);  // if input can come from any side, use this line
 
@@ -46,7 +57,7 @@ public class TileEntityRedstoneMeter extends TileEntity {
     int newPowerLevel = getPowerLevelClient();
     if (newPowerLevel != lastPowerLevel) {
       lastPowerLevel = newPowerLevel;
-      double targetNeedlePosition = getPowerLevelClient() / 15.0;
+      double targetNeedlePosition = newPowerLevel / 15.0;
       smoothNeedleMovement.setTargetNeedlePosition(targetNeedlePosition, false);
     }
 
@@ -65,21 +76,23 @@ public class TileEntityRedstoneMeter extends TileEntity {
     return scheduledTogglingOutput.isOn();
   }
 
-  /** whenever a scheduled block update occurs, call this method
-   *
-   */
-  public void onScheduledUpdateTick()
-  {
-    scheduledTogglingOutput.onUpdateTick(this.getWorld(), this.getPos(), this.getBlockType());
-  }
-
    /**
    *  Change the stored power level (and alters the flashing rate of the power output)
+   *  @return true if the power level has changed, i.e. the client needs to be sent the new level
    */
-  public void setPowerLevel(int newPowerLevel)
+  public boolean setPowerLevel(int newPowerLevel)
   {
-    if (newPowerLevel == storedPowerLevel) return;
+    if (newPowerLevel == storedPowerLevel) return false;
     storedPowerLevel = newPowerLevel;
+    updateOutput();
+    return true;
+  }
+
+  // set the flashing rate of the output to match the stored power level
+  private void updateOutput()
+  {
+    if (worldObj == null || worldObj.isRemote) return;  // the output is only used on the server
+    int newPowerLevel = storedPowerLevel;
     if (newPowerLevel == 0) {   // always off
       scheduledTogglingOutput.setSteadyOutput(false);
     } else if (newPowerLevel == 15) { // always on
@@ -99,18 +112,39 @@ public class TileEntityRedstoneMeter extends TileEntity {
     }
   }
 
+  // The flashing isn't saved, so start it again when the tile entity is loaded, and stop it when the tile entity is
+  //   removed or unloaded.
+  @Override
+  public void onLoad() {
+    updateOutput();
+  }
+
+  @Override
+  public void invalidate() {
+    super.invalidate();
+    scheduledTogglingOutput.stop();
+  }
+
+  @Override
+  public void onChunkUnload() {
+    scheduledTogglingOutput.stop();
+  }
+
   private ScheduledTogglingOutput scheduledTogglingOutput = new ScheduledTogglingOutput();
 
+  @SyncedField
   private int storedPowerLevel;
+  private final SyncedFieldTracker syncedFieldTracker = new SyncedFieldTracker(this);
 
 
   //---------- general TileEntity methods
   // When the world loads from disk, the server needs to send the TileEntity information to the client
   //  it uses getUpdatePacket(), getUpdateTag(), onDataPacket(), and handleUpdateTag() to do this
   // The tag information is loaded and saved using writeToNBT and readFromNBT.
-  // In this case, the power level is recalculated every tick on the client anyway, so we don't need to send anything,
-  //   but we do need to store the power level on the server, to allow for proper calculation of the redstone power
-  //  The update packet methods are shown here for information, even though they're not needed for this example.
+  // In this case, the client needs the power level to draw the needle.  The server also needs to store the power level, to
+  //   allow for proper calculation of the redstone power.
+  //  Only the @SyncedField fields are sent, and the update packet is only sent when one of them has changed - see
+  //  SyncedFieldTracker
 
   // This is where you save any data that you don't want to lose when the tile entity unloads
   @Override
@@ -135,35 +169,34 @@ public class TileEntityRedstoneMeter extends TileEntity {
   @Nullable
   public SPacketUpdateTileEntity getUpdatePacket()
   {
-    NBTTagCompound updateTagDescribingTileEntityState = getUpdateTag();
+    NBTTagCompound syncedFieldsNBT = syncedFieldTracker.writeFieldsIfChanged();
+    if (syncedFieldsNBT == null) return null;  // nothing has changed since the last update
     int metadata = getBlockMetadata();
-    return new SPacketUpdateTileEntity(this.pos, metadata, updateTagDescribingTileEntityState);
+    return new SPacketUpdateTileEntity(this.pos, metadata, syncedFieldsNBT);
   }
 
   @Override
   public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
-    NBTTagCompound updateTagDescribingTileEntityState = pkt.getNbtCompound();
-    handleUpdateTag(updateTagDescribingTileEntityState);
+    syncedFieldTracker.readFields(pkt.getNbtCompound());
   }
 
   /* Creates a tag containing the TileEntity information, used by vanilla to transmit from server to client
-     Warning - although our getUpdatePacket() uses this method, vanilla also calls it directly, so don't remove it.
+     This is the whole state (the @SyncedField fields), sent when the player starts watching the chunk.
    */
   @Override
   public NBTTagCompound getUpdateTag()
   {
-    NBTTagCompound nbtTagCompound = new NBTTagCompound();
-    writeToNBT(nbtTagCompound);
-    return nbtTagCompound;
+    NBTTagCompound nbtTagCompound = super.writeToNBT(new NBTTagCompound());  // the client needs the location
+    return syncedFieldTracker.writeAllFields(nbtTagCompound);
   }
 
   /* Populates this TileEntity with information from the tag, used by vanilla to transmit from server to client
-   Warning - although our onDataPacket() uses this method, vanilla also calls it directly, so don't remove it.
  */
   @Override
   public void handleUpdateTag(NBTTagCompound tag)
   {
-    this.readFromNBT(tag);
+    super.readFromNBT(tag);
+    syncedFieldTracker.readFields(tag);
   }
 
 	/**
@@ -1,5 +1,6 @@
 package minecraftbyexample.mbe06_redstone.output_only;
 
+import minecraftbyexample.mbe06_redstone.SignalGraph;
 import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.properties.IProperty;
@@ -140,10 +141,19 @@ public class BlockRedstoneVariableSource extends Block
     }
   }
 
+  // The signal graph needs to know when the source is placed or broken, because it changes the connections
+  @Override
+  public void onBlockAdded(World worldIn, BlockPos pos, IBlockState state)
+  {
+    super.onBlockAdded(worldIn, pos, state);
+    SignalGraph.onBlockPlacedOrBroken(worldIn, pos);
+  }
+
   // When the block is broken, you may need to notify neighbours.
   @Override
   public void breakBlock(World worldIn, BlockPos pos, IBlockState state)
   {
+    SignalGraph.onBlockPlacedOrBroken(worldIn, pos);
     final boolean CASCADE_UPDATE = false;  // I'm not sure what this flag does, but vanilla always sets it to false
     // except for calls by World.setBlockState()
     worldIn.notifyNeighborsOfStateChange(pos, this, CASCADE_UPDATE);
@@ -1,5 +1,7 @@
 package minecraftbyexample.mbe12_item_nbt_animate;
 
+import minecraftbyexample.usefultools.AnimationClock;
+
 import net.minecraft.entity.EntityLivingBase;
 import net.minecraft.item.IItemPropertyGetter;
 import net.minecraft.item.ItemStack;
@@ -78,7 +80,7 @@ public class ItemNBTanimationTimer implements IItemPropertyGetter {
         return IDLE_FRAME_INDEX;
       }
 
-      long worldTicks = worldIn.getTotalWorldTime();
+      long worldTicks = AnimationClock.getWorldTicks();  // the same as worldIn.getTotalWorldTime(), read once per tick
       if (!animationHasStarted) {
         startingTick = worldTicks;
         animationHasStarted = true;
@@ -1,5 +1,9 @@
 package minecraftbyexample.mbe20_tileentity_data;
 
+import minecraftbyexample.usefultools.PrimitiveArrayNBT;
+import minecraftbyexample.usefultools.SyncedField;
+import minecraftbyexample.usefultools.SyncedFieldTracker;
+import minecraftbyexample.usefultools.TimerWheel;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockSapling;
 import net.minecraft.block.BlockTNT;
@@ -7,12 +11,10 @@ import net.minecraft.init.Blocks;
 import net.minecraft.init.Items;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.nbt.NBTTagDouble;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SPacketUpdateTileEntity;
 import net.minecraft.tileentity.TileEntity;
-import net.minecraft.util.ITickable;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
@@ -26,36 +28,91 @@ import java.util.Random;
  *
  * This is a simple tile entity which stores some data
  * When placed, it waits for 10 seconds then replaces itself with a random block
+ * It doesn't need to tick to count down the time: instead, it asks the world's TimerWheel to call it back when the time
+ *   is up (see onTimerExpired()).
  */
-public class TileEntityData extends TileEntity implements ITickable {
+public class TileEntityData extends TileEntity implements TimerWheel.Callback {
 
 	private final int INVALID_VALUE = -1;
-	private int ticksLeftTillDisappear = INVALID_VALUE;  // the time (in ticks) left until the block disappears
+	private int ticksLeftTillDisappear = INVALID_VALUE;  // the time (in ticks) left until the block disappears, while the timer isn't running
+	private TimerWheel.Timer disappearTimer = null;       // the running timer (server side only), or null if none
+	@SyncedField
+	private long disappearWorldTime = INVALID_VALUE;      // the world time when the block disappears, while the timer is running
+	private final SyncedFieldTracker syncedFieldTracker = new SyncedFieldTracker(this);
 
 	// set by the block upon creation
 	public void setTicksLeftTillDisappear(int ticks)
 	{
+		stopDisappearTimer();
 		ticksLeftTillDisappear = ticks;
+		startDisappearTimer();
+	}
+
+	public int getTicksLeftTillDisappear()
+	{
+		if (worldObj != null && worldObj.isRemote && disappearWorldTime != INVALID_VALUE) {
+			return (int)Math.max(0, disappearWorldTime - worldObj.getTotalWorldTime());
+		}
+		if (disappearTimer == null) return ticksLeftTillDisappear;
+		return (int)Math.max(0, disappearTimer.getDeadline() - worldObj.getTotalWorldTime());
+	}
+
+	// start the timer when the tile entity is added to the world (placed, or its chunk is loaded), and stop it when the tile
+	//   entity is removed (block broken, or chunk unloaded).  The ticks left are saved in writeToNBT(), so the countdown
+	//   carries on from where it was when the chunk is loaded again.
+	@Override
+	public void onLoad() {
+		startDisappearTimer();
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		stopDisappearTimer();
+	}
+
+	@Override
+	public void onChunkUnload() {
+		stopDisappearTimer();
+	}
+
+	private void startDisappearTimer()
+	{
+		if (worldObj == null || worldObj.isRemote) return;  // don't bother doing anything on the client side.
+		if (disappearTimer != null || ticksLeftTillDisappear == INVALID_VALUE) return;  // do nothing until the time is valid
+		disappearTimer = TimerWheel.forWorld(worldObj).schedule(worldObj.getTotalWorldTime() + ticksLeftTillDisappear, this);
+		disappearWorldTime = disappearTimer.getDeadline();
+	}
+
+	private void stopDisappearTimer()
+	{
+		if (disappearTimer == null) return;
+		ticksLeftTillDisappear = getTicksLeftTillDisappear();
+		disappearTimer.cancel();
+		disappearTimer = null;
+		disappearWorldTime = INVALID_VALUE;
 	}
 
 	// When the world loads from disk, the server needs to send the TileEntity information to the client
 	//  it uses getUpdatePacket(), getUpdateTag(), onDataPacket(), and handleUpdateTag() to do this:
   //  getUpdatePacket() and onDataPacket() are used for one-at-a-time TileEntity updates
   //  getUpdateTag() and handleUpdateTag() are used by vanilla to collate together into a single chunk update packet
-	//  Not really required for this example since we only use the timer on the client, but included anyway for illustration
+	//  Only the @SyncedField fields are sent, not the whole of writeToNBT(): the client only needs to know when the block will
+	//    disappear.  We send the world time rather than the ticks left, so that it doesn't change every tick.  See SyncedFieldTracker.
+	//  Not really required for this example since we only use the timer on the server, but included anyway for illustration
 	@Override
   @Nullable
   public SPacketUpdateTileEntity getUpdatePacket()
   {
-		NBTTagCompound nbtTagCompound = new NBTTagCompound();
-		writeToNBT(nbtTagCompound);
+		NBTTagCompound syncedFieldsNBT = syncedFieldTracker.writeFieldsIfChanged();
+		if (syncedFieldsNBT == null) return null;  // nothing has changed since the last update
 		int metadata = getBlockMetadata();
-		return new SPacketUpdateTileEntity(this.pos, metadata, nbtTagCompound);
+		return new SPacketUpdateTileEntity(this.pos, metadata, syncedFieldsNBT);
 	}
 
 	@Override
 	public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
-		readFromNBT(pkt.getNbtCompound());
+		syncedFieldTracker.readFields(pkt.getNbtCompound());
 	}
 
   /* Creates a tag containing the TileEntity information, used by vanilla to transmit from server to client
@@ -63,9 +120,8 @@ public class TileEntityData extends TileEntity implements ITickable {
   @Override
   public NBTTagCompound getUpdateTag()
   {
-    NBTTagCompound nbtTagCompound = new NBTTagCompound();
-    writeToNBT(nbtTagCompound);
-    return nbtTagCompound;
+    NBTTagCompound nbtTagCompound = super.writeToNBT(new NBTTagCompound());  // the client needs the location
+    return syncedFieldTracker.writeAllFields(nbtTagCompound);
   }
 
   /* Populates this TileEntity with information from the tag, used by vanilla to transmit from server to client
@@ -73,7 +129,8 @@ public class TileEntityData extends TileEntity implements ITickable {
   @Override
   public void handleUpdateTag(NBTTagCompound tag)
   {
-    this.readFromNBT(tag);
+    super.readFromNBT(tag);
+    syncedFieldTracker.readFields(tag);
   }
 
   // This is where you save any data that you don't want to lose when the tile entity unloads
@@ -86,18 +143,16 @@ public class TileEntityData extends TileEntity implements ITickable {
 	{
 		super.writeToNBT(parentNBTTagCompound); // The super call is required to save the tiles location
 
-		parentNBTTagCompound.setInteger("ticksLeft", ticksLeftTillDisappear);
+		parentNBTTagCompound.setInteger("ticksLeft", getTicksLeftTillDisappear());
 		// alternatively - could use parentNBTTagCompound.setTag("ticksLeft", new NBTTagInt(ticksLeftTillDisappear));
 
 		// some examples of other NBT tags - browse NBTTagCompound or search for the subclasses of NBTBase for more examples
 
 		parentNBTTagCompound.setString("testString", testString);
 
-		NBTTagCompound blockPosNBT = new NBTTagCompound();        // NBTTagCompound is similar to a Java HashMap
-		blockPosNBT.setInteger("x", testBlockPos.getX());
-		blockPosNBT.setInteger("y", testBlockPos.getY());
-		blockPosNBT.setInteger("z", testBlockPos.getZ());
-		parentNBTTagCompound.setTag("testBlockPos", blockPosNBT);
+		// A BlockPos can be stored as a compound with x, y, z (NBTTagCompound is similar to a Java HashMap), but it's more
+		//   compact to pack it into a single long - see PrimitiveArrayNBT
+		PrimitiveArrayNBT.setBlockPos(parentNBTTagCompound, "testBlockPos", testBlockPos);
 
 		NBTTagCompound itemStackNBT = new NBTTagCompound();
 		testItemStack.writeToNBT(itemStackNBT);                     // make sure testItemStack is not null first!
@@ -105,23 +160,11 @@ public class TileEntityData extends TileEntity implements ITickable {
 
 		parentNBTTagCompound.setIntArray("testIntArray", testIntArray);
 
-		NBTTagList doubleArrayNBT = new NBTTagList();                     // an NBTTagList is similar to a Java ArrayList
-		for (double value : testDoubleArray) {
-			doubleArrayNBT.appendTag(new NBTTagDouble(value));
-		}
-		parentNBTTagCompound.setTag("testDoubleArray", doubleArrayNBT);
-
-		NBTTagList doubleArrayWithNullsNBT = new NBTTagList();
-		for (int i = 0; i < testDoubleArrayWithNulls.length; ++i) {
-			Double value = testDoubleArrayWithNulls[i];
-			if (value != null) {
-				NBTTagCompound dataForThisSlot = new NBTTagCompound();
-				dataForThisSlot.setInteger("i", i+1);   // avoid using 0, so the default when reading a missing value (0) is obviously invalid
-				dataForThisSlot.setDouble("v", value);
-				doubleArrayWithNullsNBT.appendTag(dataForThisSlot);
-			}
-		}
-		parentNBTTagCompound.setTag("testDoubleArrayWithNulls", doubleArrayWithNullsNBT);
+		// Arrays of doubles could be stored as an NBTTagList (similar to a Java ArrayList) of NBTTagDouble, and arrays with
+		//   nulls as a list of compounds with the index and value, but that creates several objects per element when
+		//   saving and loading.  PrimitiveArrayNBT packs the whole array into a single NBTTagIntArray instead.
+		PrimitiveArrayNBT.setDoubleArray(parentNBTTagCompound, "testDoubleArray", testDoubleArray);
+		PrimitiveArrayNBT.setNullableDoubleArray(parentNBTTagCompound, "testDoubleArrayWithNulls", testDoubleArrayWithNulls);
     return parentNBTTagCompound;
 	}
 
@@ -139,7 +182,10 @@ public class TileEntityData extends TileEntity implements ITickable {
 			readTicks = parentNBTTagCompound.getInteger("ticksLeft");
 			if (readTicks < 0) readTicks = INVALID_VALUE;
 		}
+		boolean timerWasRunning = (disappearTimer != null);  // if not, onLoad() will start it
+		stopDisappearTimer();
 		ticksLeftTillDisappear = readTicks;
+		if (timerWasRunning) startDisappearTimer();
 
 		// some examples of other NBT tags - browse NBTTagCompound or search for the subclasses of NBTBase for more
 
@@ -152,11 +198,7 @@ public class TileEntityData extends TileEntity implements ITickable {
 			System.err.println("testString mismatch:" + readTestString);
 		}
 
-		NBTTagCompound blockPosNBT = parentNBTTagCompound.getCompoundTag("testBlockPos");
-		BlockPos readBlockPos = null;
-		if (blockPosNBT.hasKey("x", NBT_INT_ID) && blockPosNBT.hasKey("y", NBT_INT_ID) && blockPosNBT.hasKey("z", NBT_INT_ID) ) {
-			readBlockPos = new BlockPos(blockPosNBT.getInteger("x"), blockPosNBT.getInteger("y"), blockPosNBT.getInteger("z"));
-		}
+		BlockPos readBlockPos = PrimitiveArrayNBT.getBlockPos(parentNBTTagCompound, "testBlockPos");  // null if missing or invalid
 		if (readBlockPos == null || !testBlockPos.equals(readBlockPos)) {
 			System.err.println("testBlockPos mismatch:" + readBlockPos);
 		}
@@ -172,20 +214,31 @@ public class TileEntityData extends TileEntity implements ITickable {
 			System.err.println("testIntArray mismatch:" + readIntArray);
 		}
 
-		final int NBT_DOUBLE_ID = 6;					// see NBTBase.createNewByType()
-		NBTTagList doubleArrayNBT = parentNBTTagCompound.getTagList("testDoubleArray", NBT_DOUBLE_ID);
-		int numberOfEntries = Math.min(doubleArrayNBT.tagCount(), testDoubleArray.length);
-		double [] readDoubleArray = new double[numberOfEntries];
-		for (int i = 0; i < numberOfEntries; ++i) {
-			 readDoubleArray[i] = doubleArrayNBT.getDoubleAt(i);
-		}
-		if (doubleArrayNBT.tagCount() != numberOfEntries || !Arrays.equals(readDoubleArray, testDoubleArray)) {
+		double [] readDoubleArray = PrimitiveArrayNBT.getDoubleArray(parentNBTTagCompound, "testDoubleArray");
+		if (!Arrays.equals(readDoubleArray, testDoubleArray)) {
 			System.err.println("testDoubleArray mismatch:" + readDoubleArray);
 		}
 
-		final int NBT_COMPOUND_ID = 10;					// see NBTBase.createNewByType()
+		Double [] readDoubleNullArray;
+		final int NBT_LIST_ID = 9;					// see NBTBase.createNewByType()
+		if (parentNBTTagCompound.hasKey("testDoubleArrayWithNulls", NBT_LIST_ID)) {
+			readDoubleNullArray = readOldDoubleArrayWithNulls(parentNBTTagCompound);
+		} else {
+			readDoubleNullArray = PrimitiveArrayNBT.getNullableDoubleArray(parentNBTTagCompound, "testDoubleArrayWithNulls");
+		}
+		if (!Arrays.equals(testDoubleArrayWithNulls, readDoubleNullArray)) {
+			System.err.println("testDoubleArrayWithNulls mismatch:" + readDoubleNullArray);
+		}
+	}
+
+	// tile entities saved before we used PrimitiveArrayNBT stored the array as a list of compounds, one for each non-null
+	//   value, with the index + 1 ("i") and the value ("v")
+	private Double [] readOldDoubleArrayWithNulls(NBTTagCompound parentNBTTagCompound)
+	{
+		final int NBT_DOUBLE_ID = 6;					// see NBTBase.createNewByType()
+		final int NBT_COMPOUND_ID = 10;
 		NBTTagList doubleNullArrayNBT = parentNBTTagCompound.getTagList("testDoubleArrayWithNulls", NBT_COMPOUND_ID);
-		numberOfEntries = Math.min(doubleArrayNBT.tagCount(), testDoubleArrayWithNulls.length);
+		int numberOfEntries = testDoubleArrayWithNulls.length;
 		Double [] readDoubleNullArray = new Double[numberOfEntries];
 		for (int i = 0; i < doubleNullArrayNBT.tagCount(); ++i)	{
 			NBTTagCompound nbtEntry = doubleNullArrayNBT.getCompoundTagAt(i);
@@ -194,23 +247,19 @@ public class TileEntityData extends TileEntity implements ITickable {
 				readDoubleNullArray[idx] = nbtEntry.getDouble("v");
 			}
 		}
-		if (!Arrays.equals(testDoubleArrayWithNulls, readDoubleNullArray)) {
-			System.err.println("testDoubleArrayWithNulls mismatch:" + readDoubleNullArray);
-		}
+		return readDoubleNullArray;
 	}
 
-	// Since our TileEntity implements ITickable, we get an update method which is called once per tick (20 times / second)
-	// When the timer elapses, replace our block with a random one.
+	// Called by the TimerWheel at the end of the tick when the timer elapses (server side only): replace our block with a
+	//   random one.
+	// An alternative would be to implement ITickable and count down ticksLeftTillDisappear in update(), but then every
+	//   one of these tile entities would be called every tick (20 times / second) just to decrement a number.
 	@Override
-	public void update() {
-		if (!this.hasWorldObj()) return;  // prevent crash
+	public void onTimerExpired(long worldTime) {
+		disappearTimer = null;
+		ticksLeftTillDisappear = 0;
+		if (this.isInvalid() || !this.hasWorldObj()) return;  // prevent crash
 		World world = this.getWorld();
-		if (world.isRemote) return;   // don't bother doing anything on the client side.
-		if (ticksLeftTillDisappear == INVALID_VALUE) return;  // do nothing until the time is valid
-		--ticksLeftTillDisappear;
-//		this.markDirty();            // if you update a tileentity variable on the server and this should be communicated to the client,
-// 																		you need to markDirty() to force a resend.  In this case, the client doesn't need to know
-		if (ticksLeftTillDisappear > 0) return;   // not ready yet
 
 		Block [] blockChoices = {Blocks.DIAMOND_BLOCK, Blocks.OBSIDIAN, Blocks.AIR, Blocks.TNT, Blocks.YELLOW_FLOWER, Blocks.SAPLING, Blocks.WATER};
 		Random random = new Random();
@@ -0,0 +1,86 @@
+package minecraftbyexample.mbe21_tileentityspecialrenderer;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.renderer.block.model.*;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.util.EnumFacing;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BakedGemModel is the hopper model with the gem resting in it, used for the "baked_gem=true" block state.
+ * When the player is far away from the gem, it doesn't move, so there is no need to draw it with the TESR every frame.
+ *   Instead, the block state is changed so that the gem becomes part of the block model, which is drawn along with the rest
+ *   of the chunk.  The gem colour is added by GemColour (tint index 0).
+ * See TileEntitySpecialRendererMBE21 for when the switch happens.
+ */
+public class BakedGemModel implements IBakedModel
+{
+  public static final ModelResourceLocation variantTag
+          = new ModelResourceLocation("minecraftbyexample:mbe21_tesr_block_registry_name", "baked_gem=true");
+
+  public static final String GEM_SPRITE_NAME = "minecraftbyexample:entity/mbe21_tesr_gem";
+  public static final int GEM_TINT_INDEX = 0;
+
+  /**
+   * @param hopperModel the ordinary model for the block (without the gem)
+   * @param gemSprite the gem texture, which must have been added to the block texture sheet - see GemModelEventHandler
+   */
+  public BakedGemModel(IBakedModel hopperModel, TextureAtlasSprite gemSprite)
+  {
+    this.hopperModel = hopperModel;
+    // the same position and size as the TESR uses when the gem isn't levitating
+    final double GEM_BOTTOM_X = 0.5;
+    final double GEM_BOTTOM_Y = 0.8;
+    final double GEM_BOTTOM_Z = 0.5;
+    final double GEM_SCALE = 0.5;
+    gemQuads = GemMesh.createGemQuads(gemSprite, GEM_BOTTOM_X, GEM_BOTTOM_Y, GEM_BOTTOM_Z, GEM_SCALE, GEM_TINT_INDEX);
+  }
+
+  // the gem faces aren't culled against the neighbouring blocks (side == null) because it sticks up out of the block
+  @Override
+  public List<BakedQuad> getQuads(@Nullable IBlockState state, @Nullable EnumFacing side, long rand)
+  {
+    List<BakedQuad> hopperQuads = hopperModel.getQuads(state, side, rand);
+    if (side != null) return hopperQuads;
+    List<BakedQuad> quads = new ArrayList<BakedQuad>(hopperQuads.size() + gemQuads.size());
+    quads.addAll(hopperQuads);
+    quads.addAll(gemQuads);
+    return quads;
+  }
+
+  @Override
+  public boolean isAmbientOcclusion() {
+    return hopperModel.isAmbientOcclusion();
+  }
+
+  @Override
+  public boolean isGui3d() {
+    return hopperModel.isGui3d();
+  }
+
+  @Override
+  public boolean isBuiltInRenderer() {
+    return false;
+  }
+
+  @Override
+  public TextureAtlasSprite getParticleTexture() {
+    return hopperModel.getParticleTexture();
+  }
+
+  @Override
+  public ItemCameraTransforms getItemCameraTransforms() {
+    return hopperModel.getItemCameraTransforms();
+  }
+
+  @Override
+  public ItemOverrideList getOverrides() {
+    return hopperModel.getOverrides();
+  }
+
+  private final IBakedModel hopperModel;
+  private final List<BakedQuad> gemQuads;
+}
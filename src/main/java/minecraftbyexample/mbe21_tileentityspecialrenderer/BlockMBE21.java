@@ -4,6 +4,9 @@ import minecraftbyexample.mbe06_redstone.input.TileEntityRedstoneColouredLamp;
 import net.minecraft.block.Block;
 import net.minecraft.block.ITileEntityProvider;
 import net.minecraft.block.material.Material;
+import net.minecraft.block.properties.IProperty;
+import net.minecraft.block.properties.PropertyBool;
+import net.minecraft.block.state.BlockStateContainer;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.creativetab.CreativeTabs;
 import net.minecraft.entity.EntityLivingBase;
@@ -12,7 +15,10 @@ import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.EnumBlockRenderType;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ChunkCache;
+import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
@@ -25,6 +31,7 @@ import java.util.Random;
  *
  * BlockTileEntityData is a simple block with an associated TileEntity.  The base block is shaped like a hopper, the gem is
  *   rendered in the TESR.
+ * When the player is far away, the gem is drawn as part of the block model instead (BAKED_GEM) - see BakedGemModel
 */
 public class BlockMBE21 extends Block
 {
@@ -32,6 +39,54 @@ public class BlockMBE21 extends Block
   {
     super(Material.IRON);
     this.setCreativeTab(CreativeTabs.BUILDING_BLOCKS);   // the block will appear on the Blocks tab in creative
+    this.setDefaultState(this.blockState.getBaseState().withProperty(BAKED_GEM, false));
+  }
+
+  // true if the gem is part of the block model (BakedGemModel) instead of being drawn by the TESR.
+  // It isn't stored in the metadata; getActualState() copies it from the TileEntity.  It is only set on the client.
+  public static final PropertyBool BAKED_GEM = PropertyBool.create("baked_gem");
+
+  @Override
+  protected BlockStateContainer createBlockState()
+  {
+    return new BlockStateContainer(this, new IProperty[] {BAKED_GEM});
+  }
+
+  @Override
+  public IBlockState getStateFromMeta(int meta)
+  {
+    return this.getDefaultState();
+  }
+
+  @Override
+  public int getMetaFromState(IBlockState state)
+  {
+    return 0;
+  }
+
+  // called when the chunk is rendered, to choose the block model variant.  Also called on the server, where the gem is
+  //   never baked.
+  // When the chunk is being rendered, worldIn is a ChunkCache on a chunk builder thread.  The tile entity must be read
+  //   with CHECK so that the builder thread doesn't try to create one.  The TileEntity is told which model the new chunk
+  //   mesh uses, so that its TESR can keep drawing the gem until the mesh with the gem in it is on the screen.
+  @Override
+  public IBlockState getActualState(IBlockState state, IBlockAccess worldIn, BlockPos pos)
+  {
+    boolean bakedGem = false;
+    TileEntity tileEntity;
+    if (worldIn instanceof ChunkCache) {
+      tileEntity = ((ChunkCache)worldIn).getTileEntity(pos, Chunk.EnumCreateEntityType.CHECK);
+    } else {
+      tileEntity = worldIn.getTileEntity(pos);
+    }
+    if (tileEntity instanceof TileEntityMBE21) {
+      TileEntityMBE21 tileEntityMBE21 = (TileEntityMBE21)tileEntity;
+      bakedGem = tileEntityMBE21.isGemBaked();
+      if (worldIn instanceof ChunkCache && tileEntityMBE21.getWorld() != null && tileEntityMBE21.getWorld().isRemote) {
+        tileEntityMBE21.onChunkMeshBuilt(bakedGem);
+      }
+    }
+    return state.withProperty(BAKED_GEM, bakedGem);
   }
 
   @Override
@@ -0,0 +1,35 @@
+package minecraftbyexample.mbe21_tileentityspecialrenderer;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.renderer.color.IBlockColor;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+
+import java.awt.*;
+
+/**
+ * Gives the gem its colour when it is drawn as part of the block model (BakedGemModel), in the same way as the
+ *   MBE06 LampColour.
+ */
+public class GemColour implements IBlockColor {
+
+  private static final int NO_TINT = 0xffffff;
+
+  /**
+   * @return the gem colour for the gem faces (tintIndex == BakedGemModel.GEM_TINT_INDEX); no tint for anything else
+   */
+  @Override
+  public int colorMultiplier(IBlockState state, IBlockAccess worldIn, BlockPos pos, int tintIndex) {
+    if (tintIndex != BakedGemModel.GEM_TINT_INDEX || worldIn == null || pos == null) return NO_TINT;
+    int rgbColour = 0;
+    TileEntity tileEntity = worldIn.getTileEntity(pos);
+    if (tileEntity instanceof TileEntityMBE21) {
+      Color gemColour = ((TileEntityMBE21)tileEntity).getGemColour();
+      if (gemColour != TileEntityMBE21.INVALID_COLOR) {
+        rgbColour = gemColour.getRGB() & 0xffffff;
+      }
+    }
+    return rgbColour;
+  }
+}
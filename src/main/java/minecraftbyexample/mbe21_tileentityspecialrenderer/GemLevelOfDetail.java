@@ -0,0 +1,77 @@
+package minecraftbyexample.mbe21_tileentityspecialrenderer;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * GemLevelOfDetail chooses whether each gem is drawn by the TESR or as part of the block model (see BakedGemModel).
+ * Once the gem has stopped spinning, it doesn't move any more, so far away gems are moved into the block model.
+ * The choice is made once per client tick, from the distance between the player and the gem:
+ * 1) Each switch redraws the whole chunk, so the gem is moved into the block model further away than it is moved out of
+ *    it - a player standing near the switching distance doesn't cause a chunk redraw every tick.
+ * 2) The TESR doesn't make the choice because it isn't called for gems outside its render distance, and it would have
+ *    to be called further away than it is needed for drawing, just to switch the gem back again.
+ * Switching only changes which block model the chunk will use the next time it is built; the TESR carries on drawing
+ *   the gem until the chunk has been rebuilt - see TileEntityMBE21.isGemDrawnByTESR().
+ *
+ * Only the EventHandler is client only; TileEntityMBE21 adds and removes itself on both sides but only the client gems
+ *   are kept.
+ */
+public class GemLevelOfDetail
+{
+  public static final double DISTANCE_TO_BAKE_GEM = TileEntitySpecialRendererMBE21.DISTANCE_FOR_MIN_SPIN + 4.0;
+  public static final double DISTANCE_TO_UNBAKE_GEM = TileEntitySpecialRendererMBE21.DISTANCE_FOR_MIN_SPIN + 2.0;
+
+  public static void addGem(TileEntityMBE21 gem) {
+    if (gem.getWorld() == null || !gem.getWorld().isRemote) return;
+    loadedGems.add(gem);
+  }
+
+  public static void removeGem(TileEntityMBE21 gem) {
+    if (gem.getWorld() == null || !gem.getWorld().isRemote) return;  // the integrated server's gems are on another thread
+    loadedGems.remove(gem);
+  }
+
+  // client thread only
+  private static final Set<TileEntityMBE21> loadedGems
+          = Collections.newSetFromMap(new IdentityHashMap<TileEntityMBE21, Boolean>());
+
+  @SideOnly(Side.CLIENT)
+  public static class EventHandler
+  {
+    // at the end of the tick, so that the gems in chunks which arrived during the tick get the right model the first
+    //   time their chunk is built
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+      if (event.phase != TickEvent.Phase.END) return;
+      Entity viewer = Minecraft.getMinecraft().getRenderViewEntity();
+      if (viewer == null) return;
+      double eyeX = viewer.posX;
+      double eyeY = viewer.posY + viewer.getEyeHeight();
+      double eyeZ = viewer.posZ;
+
+      final double BAKE_DISTANCE_SQ = DISTANCE_TO_BAKE_GEM * DISTANCE_TO_BAKE_GEM;
+      final double UNBAKE_DISTANCE_SQ = DISTANCE_TO_UNBAKE_GEM * DISTANCE_TO_UNBAKE_GEM;
+      for (TileEntityMBE21 gem : loadedGems) {
+        if (gem.getWorld() != viewer.worldObj) continue;  // left over from the previous dimension, until it is unloaded
+        double dx = gem.getPos().getX() + TileEntitySpecialRendererMBE21.PEDESTAL_CENTRE_OFFSET_X - eyeX;
+        double dy = gem.getPos().getY() + TileEntitySpecialRendererMBE21.PEDESTAL_CENTRE_OFFSET_Y - eyeY;
+        double dz = gem.getPos().getZ() + TileEntitySpecialRendererMBE21.PEDESTAL_CENTRE_OFFSET_Z - eyeZ;
+        double distanceSq = dx * dx + dy * dy + dz * dz;
+        if (gem.isGemBaked()) {
+          if (distanceSq < UNBAKE_DISTANCE_SQ) gem.setGemBaked(false);
+        } else if (distanceSq > BAKE_DISTANCE_SQ) {
+          gem.setGemBaked(true);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package minecraftbyexample.mbe21_tileentityspecialrenderer;
+
+import net.minecraft.client.renderer.GLAllocation;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.OpenGlHelper;
+import net.minecraft.client.renderer.Tessellator;
+import net.minecraft.client.renderer.VertexBuffer;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+import com.google.common.primitives.Ints;
+import org.lwjgl.opengl.GL11;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GemMesh keeps the gem model on the graphics card, so that it doesn't have to be sent again every frame for every
+ *   pedestal.
+ * The usual way to draw a model with the Tessellator (begin(), add the vertices, draw()) copies all the vertices into a
+ *   buffer and sends them to the graphics card each time.  Instead, the first call to draw() uploads them once:
+ *   into a vertex buffer object (VBO) if the "Use VBOs" video setting is on, or otherwise into a display list (the same
+ *   as vanilla does for the sky and the stars - see RenderGlobal).
+ * After that, draw() just draws the mesh using the current transformation matrix, colour, texture and lightmap, so the
+ *   caller sets those for each gem and then calls draw().
+ * The mesh is rebuilt if the VBO setting is changed.  Only call the methods on the client thread (the one with the
+ *   OpenGL context).
+ */
+@SideOnly(Side.CLIENT)
+public class GemMesh
+{
+  /**
+   * Draw the gem, uploading it to the graphics card first if necessary
+   */
+  public void draw()
+  {
+    boolean useVbo = OpenGlHelper.useVbo();
+    if (!built || useVbo != builtWithVbo) {
+      build(useVbo);
+    }
+
+    if (builtWithVbo) {
+      // the layout of POSITION_TEX: three floats for the position, then two floats for the texture coordinates
+      final int BYTES_PER_VERTEX = DefaultVertexFormats.POSITION_TEX.getNextOffset();
+      final int TEXTURE_OFFSET = 3 * 4;
+      vertexBufferObject.bindBuffer();
+      GlStateManager.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+      GlStateManager.glVertexPointer(3, GL11.GL_FLOAT, BYTES_PER_VERTEX, 0);
+      GlStateManager.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+      GlStateManager.glTexCoordPointer(2, GL11.GL_FLOAT, BYTES_PER_VERTEX, TEXTURE_OFFSET);
+      vertexBufferObject.drawArrays(GL11.GL_TRIANGLES);
+      vertexBufferObject.unbindBuffer();
+      GlStateManager.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+      GlStateManager.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+    } else {
+      GlStateManager.callList(displayList);
+    }
+  }
+
+  /** true if the mesh is (or will be) drawn from a VBO; false for a display list */
+  public boolean isUsingVbo() {
+    return built ? builtWithVbo : OpenGlHelper.useVbo();
+  }
+
+  /**
+   * Free the VBO or display list.  The next draw() will upload the mesh again.
+   */
+  public void deleteGlResources()
+  {
+    if (vertexBufferObject != null) {
+      vertexBufferObject.deleteGlBuffers();
+      vertexBufferObject = null;
+    }
+    if (displayList != NO_DISPLAY_LIST) {
+      GLAllocation.deleteDisplayLists(displayList);
+      displayList = NO_DISPLAY_LIST;
+    }
+    built = false;
+  }
+
+  private void build(boolean useVbo)
+  {
+    deleteGlResources();
+    Tessellator tessellator = Tessellator.getInstance();
+    VertexBuffer vertexBuffer = tessellator.getBuffer();
+    if (useVbo) {
+      vertexBufferObject = new net.minecraft.client.renderer.vertex.VertexBuffer(DefaultVertexFormats.POSITION_TEX);
+      vertexBuffer.begin(GL11.GL_TRIANGLES, DefaultVertexFormats.POSITION_TEX);
+      addGemVertices(vertexBuffer);
+      vertexBuffer.finishDrawing();
+      vertexBuffer.reset();
+      vertexBufferObject.bufferData(vertexBuffer.getByteBuffer());
+    } else {
+      displayList = GLAllocation.generateDisplayLists(1);
+      GlStateManager.glNewList(displayList, GL11.GL_COMPILE);
+      vertexBuffer.begin(GL11.GL_TRIANGLES, DefaultVertexFormats.POSITION_TEX);
+      addGemVertices(vertexBuffer);
+      tessellator.draw();
+      GlStateManager.glEndList();
+    }
+    builtWithVbo = useVbo;
+    built = true;
+  }
+
+  // add the vertices for drawing the gem.  Generated using a model builder and pasted manually because the object model
+  //   loader wasn't implemented at the time I wrote this example...
+  // Also used by MBE75 to compare against drawing the gem the usual way.
+  public static void addGemVertices(VertexBuffer worldrenderer) {
+    for (double [] vertex : vertexTable) {
+      worldrenderer.pos(vertex[0], vertex[1], vertex[2])
+                   .tex(vertex[3], vertex[4])
+                   .endVertex();
+    }
+  }
+
+  /**
+   * Add the gem's vertices as GL_QUADS in the DefaultVertexFormats.BLOCK format (position, colour, texture, lightmap) - the
+   *   format of the fast TESR batch buffer.  Each triangle becomes a quad with the last vertex repeated.
+   * The gem is scaled, rotated around the vertical axis and moved on the CPU instead of by the transformation matrix, so
+   *   that lots of gems with different positions and colours can be drawn together in one buffer (see
+   *   TileEntitySpecialRendererMBE21.renderTileEntityFast()).
+   * @param sprite the gem texture in the block texture sheet
+   * @param angleInDegrees rotation around the vertical axis - the same as GlStateManager.rotate(angle, 0, 1, 0)
+   * @param skyLight16 blockLight16 the lightmap coordinates - the same as OpenGlHelper.setLightmapTextureCoords()
+   */
+  public static void addTransformedGemQuads(VertexBuffer vertexBuffer, TextureAtlasSprite sprite, double x, double y, double z,
+                                            double angleInDegrees, double scale, int red, int green, int blue,
+                                            int skyLight16, int blockLight16)
+  {
+    final int ALPHA = 255;
+    final int VERTICES_PER_TRIANGLE = 3;
+    double angleInRadians = Math.toRadians(angleInDegrees);
+    double cos = Math.cos(angleInRadians) * scale;
+    double sin = Math.sin(angleInRadians) * scale;
+    for (int first = 0; first < vertexTable.length; first += VERTICES_PER_TRIANGLE) {
+      for (int corner = 0; corner < 4; ++corner) {
+        double [] vertex = vertexTable[first + Math.min(corner, VERTICES_PER_TRIANGLE - 1)];
+        vertexBuffer.pos(x + vertex[0] * cos + vertex[2] * sin, y + vertex[1] * scale, z - vertex[0] * sin + vertex[2] * cos)
+                    .color(red, green, blue, ALPHA)
+                    .tex(sprite.getInterpolatedU(vertex[3] * 16), sprite.getInterpolatedV(vertex[4] * 16))
+                    .lightmap(skyLight16, blockLight16)
+                    .endVertex();
+      }
+    }
+  }
+
+  /**
+   * Create the gem as BakedQuads, for drawing as part of the block model (see BakedGemModel).  Each triangle becomes a
+   *   quad with the last vertex repeated.
+   * @param sprite the gem texture in the block texture sheet
+   * @param x y z the position of the bottom point of the gem in the block (0 - 1)
+   * @param scale the size of the gem
+   * @param tintIndex the tint index for the IBlockColor which gives the gem colour
+   */
+  public static List<BakedQuad> createGemQuads(TextureAtlasSprite sprite, double x, double y, double z, double scale, int tintIndex)
+  {
+    List<BakedQuad> quads = new ArrayList<BakedQuad>();
+    final int VERTICES_PER_TRIANGLE = 3;
+    for (int first = 0; first < vertexTable.length; first += VERTICES_PER_TRIANGLE) {
+      int [] vertexData = new int[0];
+      for (int corner = 0; corner < 4; ++corner) {
+        double [] vertex = vertexTable[first + Math.min(corner, VERTICES_PER_TRIANGLE - 1)];
+        vertexData = Ints.concat(vertexData, vertexToInts(x + vertex[0] * scale, y + vertex[1] * scale, z + vertex[2] * scale,
+                                                          sprite, vertex[3] * 16, vertex[4] * 16));
+      }
+      final boolean APPLY_DIFFUSE_LIGHTING = false;  // the same as the TESR, which turns off the lighting
+      quads.add(new BakedQuad(vertexData, tintIndex, null, sprite, APPLY_DIFFUSE_LIGHTING, DefaultVertexFormats.ITEM));
+    }
+    return quads;
+  }
+
+  // one vertex in the DefaultVertexFormats.ITEM format used by BakedQuads: x, y, z, colour, u, v, normal
+  private static int[] vertexToInts(double x, double y, double z, TextureAtlasSprite sprite, double u, double v)
+  {
+    final int WHITE = 0xffffffff;  // no tint except the one from the IBlockColor
+    final int NO_NORMAL = 0;
+    return new int[] {
+            Float.floatToRawIntBits((float)x),
+            Float.floatToRawIntBits((float)y),
+            Float.floatToRawIntBits((float)z),
+            WHITE,
+            Float.floatToRawIntBits(sprite.getInterpolatedU(u)),
+            Float.floatToRawIntBits(sprite.getInterpolatedV(v)),
+            NO_NORMAL
+    };
+  }
+
+  private static final double[][] vertexTable = {
+          {0.000,1.000,0.000,0.000,0.118},          //1
+          {-0.354,0.500,-0.354,0.000,0.354},
+          {-0.354,0.500,0.354,0.236,0.236},
+          {-0.354,0.500,0.354,0.236,0.236},         //2
+          {-0.354,0.500,-0.354,0.000,0.354},
+          {0.000,0.000,0.000,0.236,0.471},
+          {-0.354,0.500,0.354,0.236,0.236},         //3
+          {0.000,0.000,0.000,0.236,0.471},
+          {0.354,0.500,0.354,0.471,0.354},
+          {-0.354,0.500,0.354,0.236,0.236},         //4
+          {0.354,0.500,0.354,0.471,0.354},
+          {0.000,1.000,0.000,0.471,0.118},
+          {0.000,1.000,0.000,0.471,0.118},          //5
+          {0.354,0.500,0.354,0.471,0.354},
+          {0.354,0.500,-0.354,0.707,0.236},
+          {0.354,0.500,-0.354,0.707,0.236},         //6
+          {0.354,0.500,0.354,0.471,0.354},
+          {0.000,0.000,0.000,0.707,0.471},
+          {0.354,0.500,-0.354,0.707,0.236},         //7
+          {0.000,0.000,0.000,0.707,0.471},
+          {-0.354,0.500,-0.354,0.943,0.354},
+          {0.000,1.000,0.000,0.943,0.118},          //8
+          {0.354,0.500,-0.354,0.707,0.236},
+          {-0.354,0.500,-0.354,0.943,0.354}
+  };
+
+  private static final int NO_DISPLAY_LIST = -1;
+  private boolean built = false;
+  private boolean builtWithVbo;
+  private net.minecraft.client.renderer.vertex.VertexBuffer vertexBufferObject = null;
+  private int displayList = NO_DISPLAY_LIST;
+}
@@ -0,0 +1,35 @@
+package minecraftbyexample.mbe21_tileentityspecialrenderer;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.block.model.IBakedModel;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.client.event.ModelBakeEvent;
+import net.minecraftforge.client.event.TextureStitchEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Sets up the BakedGemModel:
+ * 1) TextureStitchEvent.Pre inserts the gem texture into the blocks+items texture sheet, so that the block model can use it
+ * 2) ModelBakeEvent replaces the model for the "baked_gem=true" variant (the hopper, from the blockstates json) with a
+ *    BakedGemModel which adds the gem.  The texture sheet has already been stitched by then.
+ * See MBE04 for more information about ModelBakeEvent and MBE50 for TextureStitchEvent.
+ */
+public class GemModelEventHandler
+{
+  @SubscribeEvent
+  public void stitcherEventPre(TextureStitchEvent.Pre event) {
+    event.getMap().registerSprite(new ResourceLocation(BakedGemModel.GEM_SPRITE_NAME));
+  }
+
+  @SubscribeEvent
+  public void onModelBakeEvent(ModelBakeEvent event)
+  {
+    Object object = event.getModelRegistry().getObject(BakedGemModel.variantTag);
+    if (object instanceof IBakedModel) {
+      IBakedModel existingModel = (IBakedModel)object;
+      TextureAtlasSprite gemSprite = Minecraft.getMinecraft().getTextureMapBlocks().getAtlasSprite(BakedGemModel.GEM_SPRITE_NAME);
+      event.getModelRegistry().putObject(BakedGemModel.variantTag, new BakedGemModel(existingModel, gemSprite));
+    }
+  }
+}
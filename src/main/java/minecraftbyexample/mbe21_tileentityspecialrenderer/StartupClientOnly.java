@@ -1,7 +1,9 @@
 package minecraftbyexample.mbe21_tileentityspecialrenderer;
 
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.block.model.ModelResourceLocation;
 import net.minecraftforge.client.model.ModelLoader;
+import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.client.registry.ClientRegistry;
 
 /**
@@ -26,15 +28,22 @@ public class StartupClientOnly
     // It must be done on client only, and must be done after the block has been created in Common.preinit().
     ModelResourceLocation itemModelResourceLocation = new ModelResourceLocation("minecraftbyexample:mbe21_tesr_block", "inventory");
     final int DEFAULT_ITEM_SUBTYPE = 0;
-    ModelLoader.setCustomModelResourceLocation(StartupCommon.itemBlockMBE21, DEFAULT_ITEM_SUBTYPE, itemModelResourceLocation);  }
+    ModelLoader.setCustomModelResourceLocation(StartupCommon.itemBlockMBE21, DEFAULT_ITEM_SUBTYPE, itemModelResourceLocation);
+
+    // adds the gem texture to the block texture sheet and the BakedGemModel to the model registry
+    MinecraftForge.EVENT_BUS.register(new GemModelEventHandler());
+  }
 
   public static void initClientOnly()
   {
     ClientRegistry.bindTileEntitySpecialRenderer(TileEntityMBE21.class, new TileEntitySpecialRendererMBE21());
+    MinecraftForge.EVENT_BUS.register(new GemLevelOfDetail.EventHandler());
   }
 
   public static void postInitClientOnly()
   {
+    // the GemColour class gives the gem its colour when it is part of the block model
+    Minecraft.getMinecraft().getBlockColors().registerBlockColorHandler(new GemColour(), StartupCommon.blockMBE21);
   }
 
 }
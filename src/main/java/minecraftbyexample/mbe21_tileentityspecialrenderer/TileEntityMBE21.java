@@ -1,5 +1,9 @@
 package minecraftbyexample.mbe21_tileentityspecialrenderer;
 
+import minecraftbyexample.mbe70_configuration.MBEConfiguration;
+import minecraftbyexample.usefultools.AnimationClock;
+import minecraftbyexample.usefultools.SyncedField;
+import minecraftbyexample.usefultools.SyncedFieldTracker;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SPacketUpdateTileEntity;
@@ -21,12 +25,93 @@ public class TileEntityMBE21 extends TileEntity {
 
 	// get the colour of the gem.  returns INVALID_COLOR if not set yet.
 	public Color getGemColour() {
+		if (gemColourRGB == INVALID_RGB) return INVALID_COLOR;
+		if (gemColour == INVALID_COLOR || gemColour.getRGB() != gemColourRGB) {
+			gemColour = new Color(gemColourRGB, true);
+		}
 		return gemColour;
 	}
 
 	public void setGemColour(Color newColour)
 	{
 		gemColour = newColour;
+		gemColourRGB = (newColour == INVALID_COLOR) ? INVALID_RGB : newColour.getRGB();
+	}
+
+	/**
+	 * Should the gem be drawn as part of the block model (far away) instead of by the TESR?  Chosen on the client by
+	 *   GemLevelOfDetail; always false on the server.  See BakedGemModel
+	 */
+	public boolean isGemBaked() {
+		return gemBaked;
+	}
+
+	/**
+	 * Client only: move the gem into or out of the block model.  The chunk is redrawn only if the setting changes.
+	 */
+	@SideOnly(Side.CLIENT)
+	public void setGemBaked(boolean newGemBaked)
+	{
+		if (newGemBaked == gemBaked) return;
+		gemBaked = newGemBaked;
+		worldObj.markBlockRangeForRenderUpdate(pos, pos);
+	}
+
+	/**
+	 * Called by BlockMBE21.getActualState() when the chunk mesh is being built (on a chunk builder thread)
+	 * @param gemInMesh true if the new mesh has the gem in it (the baked block model)
+	 */
+	public void onChunkMeshBuilt(boolean gemInMesh) {
+		if (gemInMesh && !gemInChunkMesh) gemJustAddedToMesh = true;
+		gemInChunkMesh = gemInMesh;
+	}
+
+	/**
+	 * Client only: should the TESR draw the gem this frame?
+	 * After setGemBaked(), the old chunk mesh stays on the screen until the chunk has been rebuilt, which can take a while
+	 *   if there are lots of chunks waiting.  So the TESR keeps drawing the gem until the chunk has been rebuilt with the gem
+	 *   in it, and starts drawing it again as soon as the chunk has been rebuilt without it.
+	 * A new mesh is sent to the graphics card at the start of the next frame after it has been built, so when the gem has
+	 *   just been added to the mesh, the TESR carries on drawing it for the first frame in which it sees the new mesh, to
+	 *   make sure that it doesn't disappear.  (When the gem is moved out of the model, the old mesh may be drawn for one more
+	 *   frame as well.)  Either way the two gems are drawn in exactly the same place, because the gem is resting in the
+	 *   hopper at the switching distance.
+	 */
+	@SideOnly(Side.CLIENT)
+	public boolean isGemDrawnByTESR() {
+		if (!gemInChunkMesh) return true;
+		if (!gemJustAddedToMesh) return false;
+		long frameTime = AnimationClock.getFrameTimeNanos();
+		if (frameWhenGemAddedToMesh == INVALID_TIME) frameWhenGemAddedToMesh = frameTime;
+		if (frameTime == frameWhenGemAddedToMesh) return true;
+		gemJustAddedToMesh = false;
+		frameWhenGemAddedToMesh = INVALID_TIME;
+		return false;
+	}
+
+	// the client gems are registered with GemLevelOfDetail while they are loaded
+	@Override
+	public void onLoad() {
+		GemLevelOfDetail.addGem(this);
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		GemLevelOfDetail.removeGem(this);
+	}
+
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+		GemLevelOfDetail.removeGem(this);
+	}
+
+	// When gemBatchRendering is on, vanilla calls TileEntitySpecialRendererMBE21.renderTileEntityFast() instead of
+	//   renderTileEntityAt(), so that the gem is drawn in one batch with all the others
+	@Override
+	public boolean hasFastRenderer() {
+		return MBEConfiguration.gemBatchRendering;
 	}
 
 	/**
@@ -37,13 +122,13 @@ public class TileEntityMBE21 extends TileEntity {
   public double getNextAngularPosition(double revsPerSecond)
 	{
 		// we calculate the next position as the angular speed multiplied by the elapsed time since the last position.
-		// Elapsed time is calculated using the system clock, which means the animations continue to
-		//  run while the game is paused.
+		// Elapsed time is calculated using the system clock (sampled once per frame by AnimationClock), which means the
+		//  animations continue to run while the game is paused.
 		// Alternatively, the elapsed time can be calculated as
 		//  time_in_seconds = (number_of_ticks_elapsed + partialTick) / 20.0;
 		//  where your tileEntity's update() method increments number_of_ticks_elapsed, and partialTick is passed by vanilla
 		//   to your TESR renderTileEntityAt() method.
-		long timeNow = System.nanoTime();
+		long timeNow = AnimationClock.getFrameTimeNanos();
 		if (lastTime == INVALID_TIME) {   // automatically initialise to 0 if not set yet
 			lastTime = timeNow;
 			lastAngularPosition = 0.0;
@@ -64,19 +149,20 @@ public class TileEntityMBE21 extends TileEntity {
 	// In this case, we need it for the gem colour.  There's no need to save the gem angular position because
 	//  the player will never notice the difference and the client<-->server synchronisation lag will make it
 	//  inaccurate anyway
+	// Only the @SyncedField fields are sent, and only when they have changed - see SyncedFieldTracker
 	@Override
 	@Nullable
 	public SPacketUpdateTileEntity getUpdatePacket()
 	{
-		NBTTagCompound nbtTagCompound = new NBTTagCompound();
-		writeToNBT(nbtTagCompound);
+		NBTTagCompound syncedFieldsNBT = syncedFieldTracker.writeFieldsIfChanged();
+		if (syncedFieldsNBT == null) return null;  // nothing has changed since the last update
 		int metadata = getBlockMetadata();
-		return new SPacketUpdateTileEntity(this.pos, metadata, nbtTagCompound);
+		return new SPacketUpdateTileEntity(this.pos, metadata, syncedFieldsNBT);
 	}
 
 	@Override
 	public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
-		readFromNBT(pkt.getNbtCompound());
+		syncedFieldTracker.readFields(pkt.getNbtCompound());
 	}
 
 	/* Creates a tag containing the TileEntity information, used by vanilla to transmit from server to client
@@ -84,9 +170,8 @@ public class TileEntityMBE21 extends TileEntity {
 	@Override
 	public NBTTagCompound getUpdateTag()
 	{
-		NBTTagCompound nbtTagCompound = new NBTTagCompound();
-		writeToNBT(nbtTagCompound);
-		return nbtTagCompound;
+		NBTTagCompound nbtTagCompound = super.writeToNBT(new NBTTagCompound());  // the client needs the location
+		return syncedFieldTracker.writeAllFields(nbtTagCompound);
 	}
 
 	/* Populates this TileEntity with information from the tag, used by vanilla to transmit from server to client
@@ -94,7 +179,8 @@ public class TileEntityMBE21 extends TileEntity {
 	@Override
 	public void handleUpdateTag(NBTTagCompound tag)
 	{
-		this.readFromNBT(tag);
+		super.readFromNBT(tag);
+		syncedFieldTracker.readFields(tag);
 	}
 
 	// This is where you save any data that you don't want to lose when the tile entity unloads
@@ -103,8 +189,8 @@ public class TileEntityMBE21 extends TileEntity {
 	public NBTTagCompound writeToNBT(NBTTagCompound parentNBTTagCompound)
 	{
 		super.writeToNBT(parentNBTTagCompound); // The super call is required to save the tiles location
-		if (gemColour != INVALID_COLOR) {
-			parentNBTTagCompound.setInteger("gemColour", gemColour.getRGB());
+		if (gemColourRGB != INVALID_RGB) {
+			parentNBTTagCompound.setInteger("gemColour", gemColourRGB);
 		}
 		return parentNBTTagCompound;
 	}
@@ -123,7 +209,7 @@ public class TileEntityMBE21 extends TileEntity {
 			int colorRGB = parentNBTTagCompound.getInteger("gemColour");
 			readGemColour = new Color(colorRGB);
 		}
-		gemColour = readGemColour;
+		setGemColour(readGemColour);
 	}
 
 	/**
@@ -158,9 +244,18 @@ public class TileEntityMBE21 extends TileEntity {
 		return aabb;
 	}
 
-	private Color gemColour = INVALID_COLOR;  // the RGB colour of the gem
+	private static final int INVALID_RGB = 0;  // Color.getRGB() is never 0 for an opaque colour
+	@SyncedField
+	private int gemColourRGB = INVALID_RGB;     // the RGB colour of the gem
+	private Color gemColour = INVALID_COLOR;   // gemColourRGB as a Color; recreated if gemColourRGB is changed by the server
+	private final SyncedFieldTracker syncedFieldTracker = new SyncedFieldTracker(this);
 
 	private final long INVALID_TIME = 0;
 	private long lastTime = INVALID_TIME;  // used for animation
 	private double lastAngularPosition; // used for animation
+
+	private volatile boolean gemBaked = false;        // client only, not saved.  Read by the chunk builder threads
+	private volatile boolean gemInChunkMesh = false;  // client only: was the chunk mesh last built with the gem in it?
+	private volatile boolean gemJustAddedToMesh = false;  // client only: set until the TESR has stopped drawing the gem
+	private long frameWhenGemAddedToMesh = INVALID_TIME;  // client only: the frame in which the TESR first saw the new mesh
 }
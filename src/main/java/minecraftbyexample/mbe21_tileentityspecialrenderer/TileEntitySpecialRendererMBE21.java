@@ -1,16 +1,16 @@
 package minecraftbyexample.mbe21_tileentityspecialrenderer;
 
 import minecraftbyexample.usefultools.UsefulFunctions;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.GlStateManager;
 import net.minecraft.client.renderer.OpenGlHelper;
-import net.minecraft.client.renderer.Tessellator;
 import net.minecraft.client.renderer.VertexBuffer;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.client.renderer.tileentity.TileEntitySpecialRenderer;
-import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.Vec3d;
-import org.lwjgl.opengl.GL11;
 
+import javax.annotation.Nullable;
 import java.awt.*;
 
 /**
@@ -35,6 +35,24 @@ public class TileEntitySpecialRendererMBE21 extends TileEntitySpecialRenderer<Ti
    */
   @Override
   public void renderTileEntityAt(TileEntityMBE21 tileEntity, double relativeX, double relativeY, double relativeZ, float partialTicks, int blockDamageProgress) {
+    renderGem(tileEntity, relativeX, relativeY, relativeZ, null);
+  }
+
+  /**
+   * Called instead of renderTileEntityAt() when TileEntityMBE21.hasFastRenderer() is true (the gemBatchRendering option).
+   * Instead of drawing the gem, we add its vertices to vanilla's batch buffer.  TileEntityRendererDispatcher.drawBatch()
+   *   draws all the fast TESRs in one go once the other tile entities have been drawn, with the block texture sheet bound
+   *   (the gem texture is in it - see GemModelEventHandler).  This happens before the translucent blocks are drawn, so
+   *   water and stained glass in front of the gem are drawn over it correctly.
+   */
+  @Override
+  public void renderTileEntityFast(TileEntityMBE21 tileEntity, double relativeX, double relativeY, double relativeZ, float partialTicks,
+                                   int blockDamageProgress, VertexBuffer batchBuffer) {
+    renderGem(tileEntity, relativeX, relativeY, relativeZ, batchBuffer);
+  }
+
+  // draw the gem, or add it to the batch buffer if there is one
+  private void renderGem(TileEntityMBE21 tileEntity, double relativeX, double relativeY, double relativeZ, @Nullable VertexBuffer batchBuffer) {
     if (!(tileEntity instanceof TileEntityMBE21)) return; // should never happen
     TileEntityMBE21 tileEntityMBE21 = tileEntity;
 
@@ -50,20 +68,23 @@ public class TileEntitySpecialRendererMBE21 extends TileEntitySpecialRenderer<Ti
     // 3) the distance that the gem rises above the pedestal, which depends on player distance
     // 4) the speed at which the gem is spinning, which depends on player distance.
 
-    final double pedestalCentreOffsetX = 0.5;
-    final double pedestalCentreOffsetY = 0.8;
-    final double pedestalCentreOffsetZ = 0.5;
+    final double pedestalCentreOffsetX = PEDESTAL_CENTRE_OFFSET_X;
+    final double pedestalCentreOffsetY = PEDESTAL_CENTRE_OFFSET_Y;
+    final double pedestalCentreOffsetZ = PEDESTAL_CENTRE_OFFSET_Z;
     Vec3d playerEye = new Vec3d(0.0, 0.0, 0.0);
     Vec3d pedestalCentre = new Vec3d(relativeX + pedestalCentreOffsetX, relativeY + pedestalCentreOffsetY, relativeZ + pedestalCentreOffsetZ);
     double playerDistance = playerEye.distanceTo(pedestalCentre);
 
-    final double DISTANCE_FOR_MIN_SPIN = 8.0;
     final double DISTANCE_FOR_MAX_SPIN = 4.0;
     final double DISTANCE_FOR_MIN_GLOW = 16.0;
     final double DISTANCE_FOR_MAX_GLOW = 4.0;
     final double DISTANCE_FOR_MIN_LEVITATE = 4.0;
     final double DISTANCE_FOR_MAX_LEVITATE = 2.0;
 
+    // Once the gem has stopped spinning, it doesn't move any more, so far away gems are drawn as part of the block model
+    //   instead (see GemLevelOfDetail and BakedGemModel)
+    if (!tileEntityMBE21.isGemDrawnByTESR()) return;
+
     final double MIN_LEVITATE_HEIGHT = 0.0;
     final double MAX_LEVITATE_HEIGHT = 0.5;
     double gemCentreOffsetX = pedestalCentreOffsetX;
@@ -82,13 +103,32 @@ public class TileEntitySpecialRendererMBE21 extends TileEntitySpecialRenderer<Ti
             MIN_REV_PER_SEC, MAX_REV_PER_SEC);
     double angularPositionInDegrees = tileEntityMBE21.getNextAngularPosition(revsPerSecond);
 
+    final double GEM_HEIGHT = 0.5;        // desired render height of the gem
+    final double MODEL_HEIGHT = 1.0;      // actual height of the gem in the vertexTable
+    final double SCALE_FACTOR = GEM_HEIGHT / MODEL_HEIGHT;
+    final int SKY_LIGHT_VALUE = (int)(15 * glowMultiplier);
+    final int BLOCK_LIGHT_VALUE = 0;
+
+    // if batching is turned on, the gem's colour and glow go into its vertices, and vanilla draws it along with all the
+    //   other gems - see renderTileEntityFast()
+    if (batchBuffer != null) {
+      Color gemColour = tileEntityMBE21.getGemColour();
+      int rgb = (gemColour == TileEntityMBE21.INVALID_COLOR) ? 0 : gemColour.getRGB() & 0xffffff;
+      TextureAtlasSprite gemSprite = Minecraft.getMinecraft().getTextureMapBlocks().getAtlasSprite(BakedGemModel.GEM_SPRITE_NAME);
+      GemMesh.addTransformedGemQuads(batchBuffer, gemSprite, relativeX + gemCentreOffsetX, relativeY + gemCentreOffsetY,
+                                     relativeZ + gemCentreOffsetZ, angularPositionInDegrees, SCALE_FACTOR,
+                                     (rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff, SKY_LIGHT_VALUE * 16, BLOCK_LIGHT_VALUE * 16);
+      return;
+    }
+
     try {
-      // save the transformation matrix and the rendering attributes, so that we can restore them after rendering.  This
-      //   prevents us disrupting any vanilla TESR that render after ours.
+      // save the transformation matrix, so that we can restore it after rendering.  This prevents us disrupting any
+      //   vanilla TESR that render after ours.
       //  using try..finally is not essential but helps make it more robust in case of exceptions
-      // For further information on rendering using the Tessellator, see http://greyminecraftcoder.blogspot.co.at/2014/12/the-tessellator-and-worldrenderer-18.html
-      GL11.glPushMatrix();
-      GL11.glPushAttrib(GL11.GL_ENABLE_BIT);
+      // We don't save the rendering attributes with glPushAttrib() - it's slow, and it bypasses GlStateManager's record of the
+      //   OpenGL state.  Instead, we change the flags through GlStateManager and put back the ones that vanilla expects
+      //   (lighting on) afterwards.
+      GlStateManager.pushMatrix();
 
       // First we need to set up the translation so that we render our gem with the bottom point at 0,0,0
       // when the renderTileEntityAt method is called, the tessellator is set up so that drawing a dot at [0,0,0] corresponds to the player's eyes
@@ -101,19 +141,14 @@ public class TileEntitySpecialRendererMBE21 extends TileEntitySpecialRenderer<Ti
 
       GlStateManager.rotate((float)angularPositionInDegrees, 0, 1, 0);   // rotate around the vertical axis
 
-      final double GEM_HEIGHT = 0.5;        // desired render height of the gem
-      final double MODEL_HEIGHT = 1.0;      // actual height of the gem in the vertexTable
-      final double SCALE_FACTOR = GEM_HEIGHT / MODEL_HEIGHT;
       GlStateManager.scale(SCALE_FACTOR, SCALE_FACTOR, SCALE_FACTOR);
 
-      Tessellator tessellator = Tessellator.getInstance();
-      VertexBuffer vertexBuffer = tessellator.getBuffer();
       this.bindTexture(gemTexture);         // texture for the gem appearance
 
       // set the key rendering flags appropriately...
-      GL11.glDisable(GL11.GL_LIGHTING);     // turn off "item" lighting (face brightness depends on which direction it is facing)
-      GL11.glDisable(GL11.GL_BLEND);        // turn off "alpha" transparency blending
-      GL11.glDepthMask(true);               // gem is hidden behind other objects
+      GlStateManager.disableLighting();     // turn off "item" lighting (face brightness depends on which direction it is facing)
+      GlStateManager.disableBlend();        // turn off "alpha" transparency blending
+      GlStateManager.depthMask(true);       // gem is hidden behind other objects
 
       // set the rendering colour as the gem base colour
       Color fullBrightnessColor = tileEntityMBE21.getGemColour();
@@ -127,17 +162,14 @@ public class TileEntitySpecialRendererMBE21 extends TileEntitySpecialRenderer<Ti
 
         // change the "multitexturing" lighting value (default value is the brightness of the tile entity's block)
         // - this will make the gem "glow" brighter than the surroundings if it is dark.
-      final int SKY_LIGHT_VALUE = (int)(15 * glowMultiplier);
-      final int BLOCK_LIGHT_VALUE = 0;
       OpenGlHelper.setLightmapTextureCoords(OpenGlHelper.lightmapTexUnit, SKY_LIGHT_VALUE * 16.0F, BLOCK_LIGHT_VALUE * 16.0F);
 
-      vertexBuffer.begin(GL11.GL_TRIANGLES, DefaultVertexFormats.POSITION_TEX);
-      addGemVertices(vertexBuffer);
-      tessellator.draw();
+      // the gem's vertices are only sent to the graphics card once - see GemMesh
+      gemMesh.draw();
 
     } finally {
-      GL11.glPopAttrib();
-      GL11.glPopMatrix();
+      GlStateManager.enableLighting();
+      GlStateManager.popMatrix();
     }
   }
 
@@ -148,42 +180,11 @@ public class TileEntitySpecialRendererMBE21 extends TileEntitySpecialRenderer<Ti
     return false;
   }
 
-  // add the vertices for drawing the gem.  Generated using a model builder and pasted manually because the object model
-  //   loader wasn't implemented at the time I wrote this example...
-  private void addGemVertices(VertexBuffer worldrenderer) {
-    final double[][] vertexTable = {
-            {0.000,1.000,0.000,0.000,0.118},          //1
-            {-0.354,0.500,-0.354,0.000,0.354},
-            {-0.354,0.500,0.354,0.236,0.236},
-            {-0.354,0.500,0.354,0.236,0.236},         //2
-            {-0.354,0.500,-0.354,0.000,0.354},
-            {0.000,0.000,0.000,0.236,0.471},
-            {-0.354,0.500,0.354,0.236,0.236},         //3
-            {0.000,0.000,0.000,0.236,0.471},
-            {0.354,0.500,0.354,0.471,0.354},
-            {-0.354,0.500,0.354,0.236,0.236},         //4
-            {0.354,0.500,0.354,0.471,0.354},
-            {0.000,1.000,0.000,0.471,0.118},
-            {0.000,1.000,0.000,0.471,0.118},          //5
-            {0.354,0.500,0.354,0.471,0.354},
-            {0.354,0.500,-0.354,0.707,0.236},
-            {0.354,0.500,-0.354,0.707,0.236},         //6
-            {0.354,0.500,0.354,0.471,0.354},
-            {0.000,0.000,0.000,0.707,0.471},
-            {0.354,0.500,-0.354,0.707,0.236},         //7
-            {0.000,0.000,0.000,0.707,0.471},
-            {-0.354,0.500,-0.354,0.943,0.354},
-            {0.000,1.000,0.000,0.943,0.118},          //8
-            {0.354,0.500,-0.354,0.707,0.236},
-            {-0.354,0.500,-0.354,0.943,0.354}
-              };
-
-    for (double [] vertex : vertexTable) {
-      worldrenderer.pos(vertex[0], vertex[1], vertex[2])
-                   .tex(vertex[3], vertex[4])
-                   .endVertex();
-    }
-  }
+  static final double PEDESTAL_CENTRE_OFFSET_X = 0.5;
+  static final double PEDESTAL_CENTRE_OFFSET_Y = 0.8;
+  static final double PEDESTAL_CENTRE_OFFSET_Z = 0.5;
+  static final double DISTANCE_FOR_MIN_SPIN = 8.0;
 
    private static final ResourceLocation gemTexture = new ResourceLocation("minecraftbyexample:textures/entity/mbe21_tesr_gem.png");
+   private final GemMesh gemMesh = new GemMesh();
 }
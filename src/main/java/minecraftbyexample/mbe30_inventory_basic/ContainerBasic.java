@@ -98,8 +98,10 @@ public class ContainerBasic extends Container {
 
 		// Check if the slot clicked is one of the vanilla container slots
 		if (sourceSlotIndex >= VANILLA_FIRST_SLOT_INDEX && sourceSlotIndex < VANILLA_FIRST_SLOT_INDEX + VANILLA_SLOT_COUNT) {
-			// This is a vanilla container slot so merge the stack into the tile inventory
-			if (!mergeItemStack(sourceStack, TE_INVENTORY_FIRST_SLOT_INDEX, TE_INVENTORY_FIRST_SLOT_INDEX + TE_INVENTORY_SLOT_COUNT, false)){
+			// This is a vanilla container slot so merge the stack into the tile inventory.
+			// The tile entity keeps an index of its slots, so it can do this without looking at each slot in turn; the result
+			//   is the same as mergeItemStack(sourceStack, TE_INVENTORY_FIRST_SLOT_INDEX, TE_INVENTORY_FIRST_SLOT_INDEX + TE_INVENTORY_SLOT_COUNT, false)
+			if (!tileEntityInventoryBasic.insertStack(sourceStack, 0, TE_INVENTORY_SLOT_COUNT, false)){
 				return ItemStack.field_190927_a;  // EMPTY_ITEM
 			}
 		} else if (sourceSlotIndex >= TE_INVENTORY_FIRST_SLOT_INDEX && sourceSlotIndex < TE_INVENTORY_FIRST_SLOT_INDEX + TE_INVENTORY_SLOT_COUNT) {
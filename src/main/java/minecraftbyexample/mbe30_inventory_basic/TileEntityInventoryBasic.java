@@ -1,16 +1,18 @@
 package minecraftbyexample.mbe30_inventory_basic;
 
+import minecraftbyexample.usefultools.IndexedInventory;
+import minecraftbyexample.usefultools.IndexedInventoryItemHandler;
 import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.inventory.IInventory;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.nbt.NBTTagList;
-import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.items.CapabilityItemHandler;
 
-import java.util.Arrays;
+import javax.annotation.Nullable;
 
 /**
  * User: brandon3055
@@ -18,93 +20,26 @@ import java.util.Arrays;
  *
  * This is a simple tile entity implementing IInventory that can store 9 item stacks
  */
-public class TileEntityInventoryBasic extends TileEntity implements IInventory {
-	// Create and initialize the items variable that will store store the items
-	private final int NUMBER_OF_SLOTS = 9;
-	private ItemStack[] itemStacks;
+public class TileEntityInventoryBasic extends IndexedInventory {
+	// The item stacks themselves are stored by IndexedInventory, which also keeps track of which slots are empty or have
+	//   room for more items.  See IndexedInventory for the IInventory methods which deal with the slots.
+	private static final int NUMBER_OF_SLOTS = 9;
 
 	public TileEntityInventoryBasic()
 	{
-		itemStacks = new ItemStack[NUMBER_OF_SLOTS];
-		clear();
+		super(NUMBER_OF_SLOTS);
 	}
 
 	/* The following are some IInventory methods you are required to override */
 
-	// Gets the number of slots in the inventory
-	@Override
-	public int getSizeInventory() {
-		return itemStacks.length;
-	}
-
-  // returns true if all of the slots in the inventory are empty
-	@Override
-	public boolean func_191420_l()
-  {
-    for (ItemStack itemstack : itemStacks) {
-      if (!itemstack.func_190926_b()) {  // isEmpty()
-        return false;
-      }
-    }
-
-    return true;
-  }
-
-	// Gets the stack in the given slot
-	@Override
-	public ItemStack getStackInSlot(int slotIndex) {
-		return itemStacks[slotIndex];
-	}
-
-	/**
-	 * Removes some of the units from itemstack in the given slot, and returns as a separate itemstack
- 	 * @param slotIndex the slot number to remove the items from
-	 * @param count the number of units to remove
-	 * @return a new itemstack containing the units removed from the slot
-	 */
-	@Override
-	public ItemStack decrStackSize(int slotIndex, int count) {
-		ItemStack itemStackInSlot = getStackInSlot(slotIndex);
-		if (itemStackInSlot.func_190926_b()) return ItemStack.field_190927_a;  // isEmpt();   EMPTY_ITEM
-
-		ItemStack itemStackRemoved;
-		if (itemStackInSlot.func_190916_E() <= count) {  // getStackSize()
-			itemStackRemoved = itemStackInSlot;
-			setInventorySlotContents(slotIndex, ItemStack.field_190927_a);   // EMPTY_ITEM
-		} else {
-			itemStackRemoved = itemStackInSlot.splitStack(count);
-			if (itemStackInSlot.func_190916_E() == 0) { // getStackSize
-				setInventorySlotContents(slotIndex, ItemStack.field_190927_a);   // EMPTY_ITEM
-			}
-		}
-	  markDirty();
-		return itemStackRemoved;
-	}
-
-	// overwrites the stack in the given slotIndex with the given stack
-	@Override
-	public void setInventorySlotContents(int slotIndex, ItemStack itemstack) {
-		itemStacks[slotIndex] = itemstack;
-		if (itemstack.func_190926_b() && itemstack.func_190916_E() > getInventoryStackLimit()) { //  isEmpty(); getStackSize()
-			itemstack.func_190920_e(getInventoryStackLimit());  //setStackSize
-		}
-		markDirty();
-	}
-
-	// This is the maximum number if items allowed in each slot
-	// This only affects things such as hoppers trying to insert items you need to use the container to enforce this for players
-	// inserting items via the gui
-	@Override
-	public int getInventoryStackLimit() {
-		return 64;
-	}
-
 	// Return true if the given player is able to use this block. In this case it checks that
-	// 1) the world tileentity hasn't been replaced in the meantime, and
-	// 2) the player isn't too far away from the centre of the block
+	// 1) the world tileentity hasn't been replaced in the meantime,
+	// 2) the player isn't too far away from the centre of the block, and
+	// 3) the saved items were loaded (see IndexedInventory.hasUnreadableItems())
 	@Override
 	public boolean isUseableByPlayer(EntityPlayer player) {
 		if (this.worldObj.getTileEntity(this.pos) != this) return false;
+		if (hasUnreadableItems()) return false;
 		final double X_CENTRE_OFFSET = 0.5;
 		final double Y_CENTRE_OFFSET = 0.5;
 		final double Z_CENTRE_OFFSET = 0.5;
@@ -112,12 +47,13 @@ public class TileEntityInventoryBasic extends TileEntity implements IInventory {
 		return player.getDistanceSq(pos.getX() + X_CENTRE_OFFSET, pos.getY() + Y_CENTRE_OFFSET, pos.getZ() + Z_CENTRE_OFFSET) < MAXIMUM_DISTANCE_SQ;
 	}
 
-	// Return true if the given stack is allowed to go in the given slot.  In this case, we can insert anything.
+	// Return true if the given stack is allowed to go in the given slot.  In this case, we can insert anything (unless the
+	// saved items couldn't be loaded - see IndexedInventory.hasUnreadableItems()).
 	// This only affects things such as hoppers trying to insert items you need to use the container to enforce this for players
 	// inserting items via the gui
 	@Override
 	public boolean isItemValidForSlot(int slotIndex, ItemStack itemstack) {
-		return true;
+		return !hasUnreadableItems();
 	}
 
 	// This is where you save any data that you don't want to lose when the tile entity unloads
@@ -126,22 +62,7 @@ public class TileEntityInventoryBasic extends TileEntity implements IInventory {
 	public NBTTagCompound writeToNBT(NBTTagCompound parentNBTTagCompound)
 	{
 		super.writeToNBT(parentNBTTagCompound); // The super call is required to save and load the tileEntity's location
-
-		// to use an analogy with Java, this code generates an array of hashmaps
-		// The itemStack in each slot is converted to an NBTTagCompound, which is effectively a hashmap of key->value pairs such
-		//   as slot=1, id=2353, count=1, etc
-		// Each of these NBTTagCompound are then inserted into NBTTagList, which is similar to an array.
-		NBTTagList dataForAllSlots = new NBTTagList();
-		for (int i = 0; i < this.itemStacks.length; ++i) {
-			if (!this.itemStacks[i].func_190926_b())	{ //isEmpty()
-				NBTTagCompound dataForThisSlot = new NBTTagCompound();
-				dataForThisSlot.setByte("Slot", (byte) i);
-				this.itemStacks[i].writeToNBT(dataForThisSlot);
-				dataForAllSlots.appendTag(dataForThisSlot);
-			}
-		}
-		// the array of hashmaps is then inserted into the parent hashmap for the container
-		parentNBTTagCompound.setTag("Items", dataForAllSlots);
+		writeItemStacksToNBT(parentNBTTagCompound);  // see IndexedInventory
 		// return the NBT Tag Compound
 		return parentNBTTagCompound;
 	}
@@ -151,24 +72,7 @@ public class TileEntityInventoryBasic extends TileEntity implements IInventory {
 	public void readFromNBT(NBTTagCompound parentNBTTagCompound)
 	{
 		super.readFromNBT(parentNBTTagCompound); // The super call is required to save and load the tiles location
-		final byte NBT_TYPE_COMPOUND = 10;       // See NBTBase.createNewByType() for a listing
-		NBTTagList dataForAllSlots = parentNBTTagCompound.getTagList("Items", NBT_TYPE_COMPOUND);
-
-		Arrays.fill(itemStacks, ItemStack.field_190927_a);           // set all slots to empty EMPTY_ITEM
-		for (int i = 0; i < dataForAllSlots.tagCount(); ++i) {
-			NBTTagCompound dataForOneSlot = dataForAllSlots.getCompoundTagAt(i);
-			int slotIndex = dataForOneSlot.getByte("Slot") & 255;
-
-			if (slotIndex >= 0 && slotIndex < this.itemStacks.length) {
-				this.itemStacks[slotIndex] = new ItemStack(dataForOneSlot);
-			}
-		}
-	}
-
-	// set all slots to empty
-	@Override
-	public void clear() {
-		Arrays.fill(itemStacks, ItemStack.field_190927_a);  //empty item
+		readItemStacksFromNBT(parentNBTTagCompound);  // see IndexedInventory
 	}
 
 	// will add a key for this container to the lang file so we can name it in the GUI
@@ -188,22 +92,28 @@ public class TileEntityInventoryBasic extends TileEntity implements IInventory {
 		return this.hasCustomName() ? new TextComponentString(this.getName()) : new TextComponentTranslation(this.getName());
 	}
 
-	// -----------------------------------------------------------------------------------------------------------
-	// The following methods are not needed for this example but are part of IInventory so they must be implemented
+	// Automation (pipes, hoppers, etc) accesses the inventory through the item handler capability.  All the sides give
+	//   access to all the slots.
+	// The handler also has bulk methods (see IndexedInventoryItemHandler) which move many items with a single markDirty()
+	private final IndexedInventoryItemHandler itemHandler = new IndexedInventoryItemHandler(this, 0, NUMBER_OF_SLOTS, true, true);
 
-	/**
-	 * This method removes the entire contents of the given slot and returns it.
-	 * Used by containers such as crafting tables which return any items in their slots when you close the GUI
-	 * @param slotIndex
-	 * @return
-	 */
 	@Override
-	public ItemStack removeStackFromSlot(int slotIndex) {
-		ItemStack itemStack = getStackInSlot(slotIndex);
-		if (!itemStack.func_190926_b()) setInventorySlotContents(slotIndex, ItemStack.field_190927_a);  //isEmpty(), EMPTY_ITEM
-		return itemStack;
+	public boolean hasCapability(Capability<?> capability, @Nullable EnumFacing facing) {
+		return capability == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY || super.hasCapability(capability, facing);
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T getCapability(Capability<T> capability, @Nullable EnumFacing facing) {
+		if (capability == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY) {
+			return (T)itemHandler;
+		}
+		return super.getCapability(capability, facing);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------
+	// The following methods are not needed for this example but are part of IInventory so they must be implemented
+
 	@Override
 	public void openInventory(EntityPlayer player) {}
 
@@ -117,36 +117,23 @@ public class BlockInventoryFurnace extends BlockContainer
 	//  For more background information see MBE03
 
 	// we will give our Block a property which tracks the number of burning sides, 0 - 4.
-	// This will affect the appearance of the block model, but does not need to be stored in metadata (it's stored in
-	//  the tileEntity) so we only need to implement getActualState.  getStateFromMeta, getMetaFromState aren't required
-	//   but we give defaults anyway because the base class getMetaFromState gives an error if we don't
-
-	// update the block state depending on the number of slots which contain burning fuel
-	@Override
-	public IBlockState getActualState(IBlockState state, IBlockAccess worldIn, BlockPos pos)
-	{
-		TileEntity tileEntity = worldIn.getTileEntity(pos);
-		if (tileEntity instanceof TileInventoryFurnace) {
-			TileInventoryFurnace tileInventoryFurnace = (TileInventoryFurnace)tileEntity;
-			int burningSlots = tileInventoryFurnace.numberOfBurningFuelSlots();
-			burningSlots = MathHelper.clamp_int(burningSlots, 0, 4);
-			return getDefaultState().withProperty(BURNING_SIDES_COUNT, burningSlots);
-		}
-		return state;
-	}
+	// This affects the appearance of the block model and the amount of light it gives off.
+	// The light value is asked for very often (many times for every relight, and also by the chunk rendering threads), so
+	//  rather than looking up the tileEntity each time, the tileEntity stores the burning count in the block state itself
+	//  whenever it changes (see TileInventoryFurnace.updateBurningState()), and we save it in the metadata.
+	// That way getLightValue() is just a lookup from the block state.
 
 	@Override
 	public IBlockState getStateFromMeta(int meta)
 	{
-		return this.getDefaultState();
-//		return this.getDefaultState().withProperty(BURNING_SIDES_COUNT, Integer.valueOf(meta));
+		int burningSides = MathHelper.clamp_int(meta, 0, 4);
+		return this.getDefaultState().withProperty(BURNING_SIDES_COUNT, burningSides);
 	}
 
 	@Override
 	public int getMetaFromState(IBlockState state)
 	{
-		return 0;
-//		return ((Integer)state.getValue(BURNING_SIDES_COUNT)).intValue();
+		return (Integer)state.getValue(BURNING_SIDES_COUNT);
 	}
 
 	// necessary to define which properties your blocks use
@@ -162,21 +149,25 @@ public class BlockInventoryFurnace extends BlockContainer
 					// change the furnace emitted light ("block light") depending on how many slots are burning
 	private static final int FOUR_SIDE_LIGHT_VALUE = 15; // light value for four sides burning
 	private static final int ONE_SIDE_LIGHT_VALUE = 8;  // light value for a single side burning
+	private static final int [] LIGHT_VALUE_FOR_BURNING_SIDES = new int[5];
+	static {
+		for (int burningSides = 0; burningSides <= 4; ++burningSides) {
+			int lightValue;
+			if (burningSides == 0) {
+				lightValue = 0;
+			} else {
+				// linearly interpolate the light value depending on how many slots are burning
+				lightValue = ONE_SIDE_LIGHT_VALUE + (int)((FOUR_SIDE_LIGHT_VALUE - ONE_SIDE_LIGHT_VALUE) / (4.0 - 1.0) * burningSides);
+			}
+			LIGHT_VALUE_FOR_BURNING_SIDES[burningSides] = MathHelper.clamp_int(lightValue, 0, FOUR_SIDE_LIGHT_VALUE);
+		}
+	}
 
   @Override
 	public int getLightValue(IBlockState state, IBlockAccess world, BlockPos pos) {
-		int lightValue = 0;
-		IBlockState blockState = getActualState(getDefaultState(), world, pos);
-		int burningSides = (Integer)blockState.getValue(BURNING_SIDES_COUNT);
-
-   	if (burningSides == 0) {
-			lightValue = 0;
-		} else {
-			// linearly interpolate the light value depending on how many slots are burning
-			lightValue = ONE_SIDE_LIGHT_VALUE + (int)((FOUR_SIDE_LIGHT_VALUE - ONE_SIDE_LIGHT_VALUE) / (4.0 - 1.0) * burningSides);
-		}
-		lightValue = MathHelper.clamp_int(lightValue, 0, FOUR_SIDE_LIGHT_VALUE);
-		return lightValue;
+		if (state.getBlock() != this) return super.getLightValue(state, world, pos);
+		int burningSides = (Integer)state.getValue(BURNING_SIDES_COUNT);
+		return LIGHT_VALUE_FOR_BURNING_SIDES[burningSides];
 	}
 
 	// the block will render in the SOLID layer.  See http://greyminecraftcoder.blogspot.co.at/2014/12/block-rendering-18.html for more information.
@@ -3,7 +3,6 @@ package minecraftbyexample.mbe31_inventory_furnace;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.InventoryPlayer;
 import net.minecraft.inventory.Container;
-import net.minecraft.inventory.IContainerListener;
 import net.minecraft.inventory.IInventory;
 import net.minecraft.inventory.Slot;
 import net.minecraft.item.ItemStack;
@@ -23,8 +22,22 @@ public class ContainerInventoryFurnace extends Container {
 	// Stores the tile entity instance for later use
 	private TileInventoryFurnace tileInventoryFurnace;
 
-	// These store cache values, used by the server to only update the client side tile entity when values have changed
-	private int [] cachedFields;
+	// These store cache values, used by the server to only update the client side tile entity when necessary:
+	// The client side tile entity runs its own update() every tick, so the fuel burn times and the cook time change on the
+	//   client at the same steady rate as they do on the server.  The server only needs to send a new value when a field
+	//   stops changing at the same rate as it did on the previous tick (eg a new piece of fuel is consumed, or an item
+	//   finishes smelting) - plus an occasional resync of all the fields in case the client has drifted.
+	// detectAndSendChanges() isn't only called once per tick (eg it is also called after each slot click), so the deltas and
+	//   the resync counter only move on when the world time has changed.  A field which changes more than once in the
+	//   same tick is sent straight away.
+	private int [] previousFieldValues;  // value of each field when last checked
+	private int [] previousFieldDeltas;  // how much each field changed between the previous two ticks
+	private long previousWorldTime;      // the world time when the fields were last checked
+	private int ticksSinceResync = 0;
+	private static final int TICKS_BETWEEN_RESYNCS = 20;
+
+	// the total number of progress bar updates sent to clients, for all furnace containers
+	private static long progressBarUpdatesSent = 0;
 
 	// must assign a slot index to each of the slots used by the GUI.
 	// For this container, we can see the furnace fuel, input, and output slots as well as the player inventory slots and the hotbar.
@@ -132,13 +145,15 @@ public class ContainerInventoryFurnace extends Container {
 		// Check if the slot clicked is one of the vanilla container slots
 		if (sourceSlotIndex >= VANILLA_FIRST_SLOT_INDEX && sourceSlotIndex < VANILLA_FIRST_SLOT_INDEX + VANILLA_SLOT_COUNT) {
 			// This is a vanilla container slot so merge the stack into one of the furnace slots
+			// The tileEntity keeps an index of its slots, so it can do this without looking at each slot in turn; insertStack()
+			//   gives the same result as mergeItemStack() on the corresponding container slots.
 			// If the stack is smeltable try to merge merge the stack into the input slots
 			if (!TileInventoryFurnace.getSmeltingResultForItem(sourceStack).func_190926_b()){  //isEmptyItem
-				if (!mergeItemStack(sourceStack, FIRST_INPUT_SLOT_INDEX, FIRST_INPUT_SLOT_INDEX + INPUT_SLOTS_COUNT, false)){
+				if (!tileInventoryFurnace.insertStack(sourceStack, FIRST_INPUT_SLOT_NUMBER, FIRST_INPUT_SLOT_NUMBER + INPUT_SLOTS_COUNT, false)){
 					return ItemStack.field_190927_a;  //EMPTY_ITEM;
 				}
 			}	else if (TileInventoryFurnace.getItemBurnTime(sourceStack) > 0) {
-				if (!mergeItemStack(sourceStack, FIRST_FUEL_SLOT_INDEX, FIRST_FUEL_SLOT_INDEX + FUEL_SLOTS_COUNT, true)) {
+				if (!tileInventoryFurnace.insertStack(sourceStack, FIRST_FUEL_SLOT_NUMBER, FIRST_FUEL_SLOT_NUMBER + FUEL_SLOTS_COUNT, true)) {
 					// Setting the boolean to true places the stack in the bottom slot first
 					return ItemStack.field_190927_a;  //EMPTY_ITEM;
 				}
@@ -171,40 +186,56 @@ public class ContainerInventoryFurnace extends Container {
 
 	// This is where you check if any values have changed and if so send an update to any clients accessing this container
 	// The container itemstacks are tested in Container.detectAndSendChanges, so we don't need to do that
-	// We iterate through all of the TileEntity Fields to find any which have changed, and send them.
+	// We iterate through all of the TileEntity Fields to find any which have changed unexpectedly, and send them.
 	// You don't have to use fields if you don't wish to; just manually match the ID in sendProgressBarUpdate with the value in
 	//   updateProgressBar()
 	// The progress bar values are restricted to shorts.  If you have a larger value (eg int), it's not a good idea to try and split it
 	//   up into two shorts because the progress bar values are sent independently, and unless you add synchronisation logic at the
 	//   receiving side, your int value will be wrong until the second short arrives.  Use a custom packet instead.
+	// This is called every tick so it doesn't allocate any objects.
 	@Override
 	public void detectAndSendChanges() {
 		super.detectAndSendChanges();
 
+		int fieldCount = tileInventoryFurnace.getFieldCount();
+		long worldTime = tileInventoryFurnace.getWorld().getTotalWorldTime();
 		boolean allFieldsHaveChanged = false;
-		boolean fieldHasChanged [] = new boolean[tileInventoryFurnace.getFieldCount()];
-		if (cachedFields == null) {
-			cachedFields = new int[tileInventoryFurnace.getFieldCount()];
+		if (previousFieldValues == null) {
+			previousFieldValues = new int[fieldCount];
+			previousFieldDeltas = new int[fieldCount];
+			previousWorldTime = worldTime;
 			allFieldsHaveChanged = true;
 		}
-		for (int i = 0; i < cachedFields.length; ++i) {
-			if (allFieldsHaveChanged || cachedFields[i] != tileInventoryFurnace.getField(i)) {
-				cachedFields[i] = tileInventoryFurnace.getField(i);
-				fieldHasChanged[i] = true;
-			}
+		boolean newTick = (worldTime != previousWorldTime);
+		previousWorldTime = worldTime;
+		boolean resync = false;
+		if (newTick) {
+			resync = (++ticksSinceResync >= TICKS_BETWEEN_RESYNCS);
+			if (resync) ticksSinceResync = 0;
 		}
 
-		// go through the list of listeners (players using this container) and update them if necessary
-    for (IContainerListener listener : this.listeners) {
-			for (int fieldID = 0; fieldID < tileInventoryFurnace.getFieldCount(); ++fieldID) {
-				if (fieldHasChanged[fieldID]) {
+		for (int fieldID = 0; fieldID < fieldCount; ++fieldID) {
+			int value = tileInventoryFurnace.getField(fieldID);
+			int delta = value - previousFieldValues[fieldID];
+			boolean discontinuity = newTick ? (delta != previousFieldDeltas[fieldID]) : (delta != 0);
+			if (allFieldsHaveChanged || discontinuity || resync) {
+				// go through the list of listeners (players using this container) and update them
+				for (int i = 0; i < listeners.size(); ++i) {
 					// Note that although sendProgressBarUpdate takes 2 ints on a server these are truncated to shorts
-          listener.sendProgressBarUpdate(this, fieldID, cachedFields[fieldID]);
+					listeners.get(i).sendProgressBarUpdate(this, fieldID, value);
+					++progressBarUpdatesSent;
 				}
 			}
+			previousFieldValues[fieldID] = value;
+			if (newTick) previousFieldDeltas[fieldID] = delta;
 		}
 	}
 
+	/** the total number of progress bar updates sent to clients so far */
+	public static long getProgressBarUpdatesSent() {
+		return progressBarUpdatesSent;
+	}
+
 	// Called when a progress bar update is received from the server. The two values (id and data) are the same two
 	// values given to sendProgressBarUpdate.  In this case we are using fields so we just pass them to the tileEntity.
 	@SideOnly(Side.CLIENT)
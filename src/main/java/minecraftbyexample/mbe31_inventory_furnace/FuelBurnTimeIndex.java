@@ -0,0 +1,114 @@
+package minecraftbyexample.mbe31_inventory_furnace;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntityFurnace;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * FuelBurnTimeIndex is a lookup table for the burn time of fuel items.
+ * TileEntityFurnace.getItemBurnTime() works through a long chain of item and material checks and then asks every
+ *   registered IFuelHandler (eg the wheat fuel handler in MBE35), which is slow to do every time a fuel slot runs out or
+ *   the player shift-clicks an item.
+ * The burn time for each (Item, metadata) is calculated once using the vanilla method and then remembered:
+ * 1) during postInit, the default (metadata 0) stack of every registered item is added to the table
+ * 2) any other (Item, metadata) combinations are added the first time they are looked up
+ * Items without subtypes are stored against the Item only, since their metadata is just the damage value.
+ * Stacks with NBT might be treated differently by a fuel handler, so they always use the vanilla method.
+ *
+ * The client and the integrated server threads can both look up burn times.  Lookups are far more common than additions
+ *   (which stop once every fuel in use has been seen), so the table is copy-on-write: it is never altered after it has
+ *   been published in the volatile field, and a lookup just reads the field without any locking.  An addition copies the
+ *   table, adds the new burn time, and publishes the copy; additions are synchronized so that two threads adding at the
+ *   same time don't lose each other's burn times.
+ */
+public class FuelBurnTimeIndex
+{
+	/**
+	 * returns the number of ticks the given item will burn, or 0 if it is not a fuel
+	 */
+	public static int getItemBurnTime(ItemStack stack)
+	{
+		if (stack.func_190926_b()) return 0;  // isEmpty()
+		if (stack.hasTagCompound()) {
+			return TileEntityFurnace.getItemBurnTime(stack);
+		}
+
+		Item item = stack.getItem();
+		int metadata = item.getHasSubtypes() ? stack.getMetadata() : 0;
+		BurnTimesForItem burnTimesForItem = burnTimesByItem.get(item);
+		Integer burnTime = (burnTimesForItem == null) ? null : burnTimesForItem.getBurnTime(metadata);
+		if (burnTime != null) {
+			++indexedLookupCount;
+			return burnTime;
+		}
+		int newBurnTime = TileEntityFurnace.getItemBurnTime(stack);
+		addBurnTime(item, metadata, newBurnTime);
+		return newBurnTime;
+	}
+
+	/**
+	 * (Re)build the table for the default stack of every registered item.  Called during postInit, after all the mods
+	 *   have registered their IFuelHandlers.
+	 */
+	public static synchronized void rebuild()
+	{
+		Map<Item, BurnTimesForItem> newTable = new IdentityHashMap<Item, BurnTimesForItem>();
+		for (Item item : Item.REGISTRY) {
+			ItemStack defaultStack = new ItemStack(item);
+			if (!defaultStack.func_190926_b() && !defaultStack.hasTagCompound()) {  // isEmpty()
+				int metadata = item.getHasSubtypes() ? defaultStack.getMetadata() : 0;
+				newTable.put(item, BurnTimesForItem.EMPTY.withBurnTime(metadata, TileEntityFurnace.getItemBurnTime(defaultStack)));
+			}
+		}
+		burnTimesByItem = newTable;
+	}
+
+	/** the number of burn time lookups which have been answered from the table (instead of TileEntityFurnace) */
+	public static long getIndexedLookupCount() {
+		return indexedLookupCount;
+	}
+
+	private static synchronized void addBurnTime(Item item, int metadata, int burnTime)
+	{
+		Map<Item, BurnTimesForItem> newTable = new IdentityHashMap<Item, BurnTimesForItem>(burnTimesByItem);
+		BurnTimesForItem burnTimesForItem = newTable.get(item);
+		if (burnTimesForItem == null) burnTimesForItem = BurnTimesForItem.EMPTY;
+		newTable.put(item, burnTimesForItem.withBurnTime(metadata, burnTime));
+		burnTimesByItem = newTable;
+	}
+
+	// The burn times for a single Item: usually just one, for metadata 0.  Never altered - withBurnTime() makes a copy.
+	private static class BurnTimesForItem
+	{
+		public static final BurnTimesForItem EMPTY = new BurnTimesForItem(null, null);
+
+		private BurnTimesForItem(Integer burnTimeMetadataZero, Map<Integer, Integer> burnTimesByMetadata) {
+			this.burnTimeMetadataZero = burnTimeMetadataZero;
+			this.burnTimesByMetadata = burnTimesByMetadata;
+		}
+
+		public Integer getBurnTime(int metadata) {
+			if (metadata == 0) return burnTimeMetadataZero;
+			return (burnTimesByMetadata == null) ? null : burnTimesByMetadata.get(metadata);
+		}
+
+		public BurnTimesForItem withBurnTime(int metadata, int burnTime) {
+			if (metadata == 0) return new BurnTimesForItem(burnTime, burnTimesByMetadata);
+			Map<Integer, Integer> newBurnTimesByMetadata = (burnTimesByMetadata == null)
+							? new HashMap<Integer, Integer>() : new HashMap<Integer, Integer>(burnTimesByMetadata);
+			newBurnTimesByMetadata.put(metadata, burnTime);
+			return new BurnTimesForItem(burnTimeMetadataZero, newBurnTimesByMetadata);
+		}
+
+		private final Integer burnTimeMetadataZero;
+		private final Map<Integer, Integer> burnTimesByMetadata;
+	}
+
+	// never altered after it has been published - see addBurnTime() and rebuild()
+	private static volatile Map<Item, BurnTimesForItem> burnTimesByItem = new IdentityHashMap<Item, BurnTimesForItem>();
+	private static long indexedLookupCount = 0;  // statistics for MBE75 only, so the occasional lost increment doesn't matter
+}
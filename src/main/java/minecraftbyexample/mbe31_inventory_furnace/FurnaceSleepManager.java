@@ -0,0 +1,130 @@
+package minecraftbyexample.mbe31_inventory_furnace;
+
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * FurnaceSleepManager lets idle TileInventoryFurnaces take themselves out of the world's list of ticking tile entities.
+ * A furnace which can't smelt anything (no smeltable input, or no room in the output) doesn't change its state in update(),
+ *   so there's no point ticking it until something changes its inventory.
+ * Usage:
+ * 1) The furnace calls requestSleep() from update() when it finds it has nothing to do
+ * 2) The furnace calls requestWake() whenever its inventory changes
+ * 3) At the end of each world tick, the manager removes the sleepers from / adds the wakers back into
+ *    World.tickableTileEntities.  This can't be done immediately because the world is iterating through the list at the
+ *    time (during World.updateEntities()) and would throw a ConcurrentModificationException.
+ *
+ * There is one manager per world; server side only.  The client side furnaces keep ticking as normal.
+ */
+public class FurnaceSleepManager
+{
+	/**
+	 * Get the manager for the given world, creating it if necessary
+	 */
+	public static FurnaceSleepManager forWorld(World world)
+	{
+		FurnaceSleepManager manager = managers.get(world);
+		if (manager == null) {
+			manager = new FurnaceSleepManager(world);
+			managers.put(world, manager);
+		}
+		return manager;
+	}
+
+	/** The number of loaded furnaces in this world which are currently ticking */
+	public int getAwakeCount() {
+		return loadedFurnaces.size() - sleepingFurnaces.size();
+	}
+
+	/** The number of loaded furnaces in this world which have been removed from the tick list */
+	public int getSleepingCount() {
+		return sleepingFurnaces.size();
+	}
+
+	// called when the furnace is added to the world
+	public void addFurnace(TileInventoryFurnace furnace) {
+		loadedFurnaces.add(furnace);
+	}
+
+	// called when the furnace is removed from the world (chunk unload, or block broken).  Vanilla has already removed it
+	//   from the tick list, so we just need to forget about it.
+	public void removeFurnace(TileInventoryFurnace furnace) {
+		loadedFurnaces.remove(furnace);
+		sleepingFurnaces.remove(furnace);
+		pendingSleep.remove(furnace);
+		pendingWake.remove(furnace);
+	}
+
+	public void requestSleep(TileInventoryFurnace furnace) {
+		pendingWake.remove(furnace);
+		if (!sleepingFurnaces.contains(furnace)) pendingSleep.add(furnace);
+	}
+
+	public void requestWake(TileInventoryFurnace furnace) {
+		pendingSleep.remove(furnace);
+		if (sleepingFurnaces.contains(furnace)) pendingWake.add(furnace);
+	}
+
+	/**
+	 * Move the sleepers out of the tick list and the wakers back in.  Must not be called while the world is ticking its
+	 *   tile entities.
+	 */
+	public void processPendingChanges() {
+		if (!pendingSleep.isEmpty()) {
+			world.tickableTileEntities.removeAll(pendingSleep);   // removeAll with a Set argument is a single pass over the list
+			sleepingFurnaces.addAll(pendingSleep);
+			pendingSleep.clear();
+		}
+		if (!pendingWake.isEmpty()) {
+			for (TileInventoryFurnace furnace : pendingWake) {
+				sleepingFurnaces.remove(furnace);
+				if (!furnace.isInvalid()) {
+					world.tickableTileEntities.add(furnace);
+				}
+			}
+			pendingWake.clear();
+		}
+	}
+
+	private FurnaceSleepManager(World world) {
+		this.world = world;
+	}
+
+	private final World world;
+	private final Set<TileInventoryFurnace> loadedFurnaces = newIdentitySet();
+	private final Set<TileInventoryFurnace> sleepingFurnaces = newIdentitySet();
+	private final Set<TileInventoryFurnace> pendingSleep = newIdentitySet();
+	private final Set<TileInventoryFurnace> pendingWake = newIdentitySet();
+
+	private static Set<TileInventoryFurnace> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<TileInventoryFurnace, Boolean>());
+	}
+
+	private static final Map<World, FurnaceSleepManager> managers = new WeakHashMap<World, FurnaceSleepManager>();
+
+	/**
+	 * Listens for the end of each server world tick (after all the tile entities have been updated), and for world unloads
+	 */
+	public static class EventHandler
+	{
+		@SubscribeEvent
+		public void onWorldTick(TickEvent.WorldTickEvent event) {
+			if (event.phase != TickEvent.Phase.END || event.world.isRemote) return;
+			FurnaceSleepManager manager = managers.get(event.world);
+			if (manager != null) manager.processPendingChanges();
+		}
+
+		@SubscribeEvent
+		public void onWorldUnload(WorldEvent.Unload event) {
+			managers.remove(event.getWorld());
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package minecraftbyexample.mbe31_inventory_furnace;
+
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * FurnaceTickManager updates all the TileInventoryFurnaces in a world in one tight loop, instead of the world calling
+ *   update() on each furnace separately.  It's intended for large smelting arrays (hundreds of furnaces), and is turned on
+ *   using furnaceTickManager in the configuration file.
+ *
+ * Most ticks, a furnace doesn't do anything interesting: each burning fuel slot loses one tick of burn time, and the cook
+ *   time goes up by the number of burning slots.  Something only "happens" when a piece of fuel runs out or is consumed,
+ *   or an item finishes smelting.  So instead of updating each furnace every tick, the manager stores two counters per
+ *   furnace in packed int arrays:
+ *   - the number of ticks until the furnace's next event (see TileInventoryFurnace.ticksUntilNextEvent())
+ *   - the number of ticks which have passed but haven't been applied to the furnace yet
+ * Each tick it just counts these down/up, and only calls the furnace when an event is due; the furnace then applies all
+ *   the pending ticks at once using advanceTicks(), which gives exactly the same result as updating every tick.
+ * If anything looks at the furnace in between (container, hopper, saving), the furnace asks the manager to bring it up
+ *   to date first (catchUp()).
+ *
+ * Managed furnaces are removed from World.tickableTileEntities.  Like FurnaceSleepManager, additions are done at the end
+ *   of the world tick to avoid modifying the list while the world is iterating through it.
+ * Server side only.
+ */
+public class FurnaceTickManager
+{
+	/**
+	 * Get the manager for the given world, creating it if necessary
+	 */
+	public static FurnaceTickManager forWorld(World world)
+	{
+		FurnaceTickManager manager = managers.get(world);
+		if (manager == null) {
+			manager = new FurnaceTickManager(world);
+			managers.put(world, manager);
+		}
+		return manager;
+	}
+
+	/**
+	 * Use forWorld() instead, unless you want a separate manager (eg for benchmarking)
+	 */
+	public FurnaceTickManager(World world) {
+		this.world = world;
+	}
+
+	/** the number of furnaces being updated by this manager */
+	public int getFurnaceCount() {
+		return furnaceCount;
+	}
+
+	/**
+	 * Start managing the given furnace.  The furnace will be taken out of the world's tick list at the end of this tick.
+	 */
+	public void addFurnace(TileInventoryFurnace furnace) {
+		furnace.tickManager = this;
+		pendingAdditions.add(furnace);
+	}
+
+	/**
+	 * Stop managing the given furnace (chunk unload, or block broken).  Vanilla has already removed it from the tick list.
+	 */
+	public void removeFurnace(TileInventoryFurnace furnace) {
+		if (pendingAdditions.remove(furnace)) {
+			furnace.tickManager = null;
+			return;
+		}
+		if (furnace.tickManagerIndex < 0) return;
+		if (ticking) {
+			pendingRemovals.add(furnace);
+		} else {
+			removeNow(furnace);
+		}
+	}
+
+	/**
+	 * Bring the furnace up to date: apply all the ticks which have passed since it was last updated
+	 * @param index the furnace's tickManagerIndex
+	 */
+	public void catchUp(int index) {
+		if (ticksPending[index] == 0) return;
+		advance(index);
+	}
+
+	/**
+	 * The furnace's inventory has changed, which might bring its next event forward (or put it off).
+	 */
+	public void inventoryChanged(TileInventoryFurnace furnace) {
+		int index = furnace.tickManagerIndex;
+		if (index < 0 || furnace == furnaceBeingAdvanced) return;  // advance() will recalculate it anyway
+		catchUp(index);
+		ticksUntilEvent[index] = furnace.ticksUntilNextEvent();
+	}
+
+	/**
+	 * Advance all the managed furnaces by one tick.
+	 */
+	public void tick() {
+		processPendingChanges();
+
+		ticking = true;
+		for (int i = 0; i < furnaceCount; ++i) {
+			++ticksPending[i];
+			if (--ticksUntilEvent[i] == 0) {
+				advance(i);
+				furnaces[i].updateBurningState();
+			}
+		}
+		ticking = false;
+
+		processPendingChanges();
+	}
+
+	// apply the pending ticks to the furnace, then find out when its next event will be
+	private void advance(int index) {
+		int ticks = ticksPending[index];
+		ticksPending[index] = 0;
+		TileInventoryFurnace furnace = furnaces[index];
+		furnaceBeingAdvanced = furnace;  // the furnace calls inventoryChanged() when it smelts or uses fuel
+		furnace.advanceTicks(ticks);
+		furnaceBeingAdvanced = null;
+		ticksUntilEvent[index] = furnace.ticksUntilNextEvent();
+	}
+
+	private void processPendingChanges() {
+		if (!pendingRemovals.isEmpty()) {
+			for (TileInventoryFurnace furnace : pendingRemovals) {
+				removeNow(furnace);
+			}
+			pendingRemovals.clear();
+		}
+		if (!pendingAdditions.isEmpty()) {
+			world.tickableTileEntities.removeAll(pendingAdditions);   // removeAll with a Set argument is a single pass over the list
+			for (TileInventoryFurnace furnace : pendingAdditions) {
+				if (!furnace.isInvalid()) addNow(furnace);
+			}
+			pendingAdditions.clear();
+		}
+	}
+
+	private void addNow(TileInventoryFurnace furnace) {
+		if (furnaceCount == furnaces.length) {
+			int newCapacity = furnaces.length * 2;
+			furnaces = Arrays.copyOf(furnaces, newCapacity);
+			ticksUntilEvent = Arrays.copyOf(ticksUntilEvent, newCapacity);
+			ticksPending = Arrays.copyOf(ticksPending, newCapacity);
+		}
+		int index = furnaceCount++;
+		furnaces[index] = furnace;
+		furnace.attachToTickManager(index);  // brings the furnace up to date
+		ticksPending[index] = 0;
+		ticksUntilEvent[index] = furnace.ticksUntilNextEvent();
+	}
+
+	// move the last furnace into the gap
+	private void removeNow(TileInventoryFurnace furnace) {
+		int index = furnace.tickManagerIndex;
+		if (index < 0) return;
+		catchUp(index);
+		furnace.tickManagerIndex = -1;
+		furnace.tickManager = null;
+
+		int last = --furnaceCount;
+		if (index != last) {
+			furnaces[index] = furnaces[last];
+			ticksUntilEvent[index] = ticksUntilEvent[last];
+			ticksPending[index] = ticksPending[last];
+			furnaces[index].tickManagerIndex = index;
+		}
+		furnaces[last] = null;
+	}
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final World world;
+	private TileInventoryFurnace [] furnaces = new TileInventoryFurnace[INITIAL_CAPACITY];
+	private int [] ticksUntilEvent = new int[INITIAL_CAPACITY];
+	private int [] ticksPending = new int[INITIAL_CAPACITY];
+	private int furnaceCount = 0;
+	private boolean ticking = false;
+	private TileInventoryFurnace furnaceBeingAdvanced = null;
+
+	private final Set<TileInventoryFurnace> pendingAdditions = newIdentitySet();
+	private final Set<TileInventoryFurnace> pendingRemovals = newIdentitySet();
+
+	private static Set<TileInventoryFurnace> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<TileInventoryFurnace, Boolean>());
+	}
+
+	private static final Map<World, FurnaceTickManager> managers = new WeakHashMap<World, FurnaceTickManager>();
+
+	/**
+	 * Ticks the managers at the end of each server world tick, and discards them when the world unloads
+	 */
+	public static class EventHandler
+	{
+		@SubscribeEvent
+		public void onWorldTick(TickEvent.WorldTickEvent event) {
+			if (event.phase != TickEvent.Phase.END || event.world.isRemote) return;
+			FurnaceTickManager manager = managers.get(event.world);
+			if (manager != null) manager.tick();
+		}
+
+		@SubscribeEvent
+		public void onWorldUnload(WorldEvent.Unload event) {
+			managers.remove(event.getWorld());
+		}
+	}
+}
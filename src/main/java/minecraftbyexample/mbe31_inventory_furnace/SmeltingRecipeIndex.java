@@ -0,0 +1,94 @@
+package minecraftbyexample.mbe31_inventory_furnace;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.FurnaceRecipes;
+import net.minecraftforge.oredict.OreDictionary;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * SmeltingRecipeIndex is a lookup table for the vanilla smelting recipes.
+ * FurnaceRecipes.getSmeltingResult() walks through every smelting recipe comparing the input stack against each one;
+ *   our furnace calls it up to five times per tick, so we index the recipes by Item and metadata instead.
+ * The index is built during postInit (after all the mods have registered their recipes in init).  Code which adds or
+ *   removes smelting recipes after that must call rebuild() afterwards, otherwise the furnace won't see the change.
+ *   (Checking the recipe list for changes during each lookup is no good: comparing the number of recipes misses a
+ *   recipe which has been replaced, and anything more thorough is as slow as FurnaceRecipes itself.)
+ * The client and the integrated server threads both look up recipes, so the index is never altered after it has been
+ *   built: rebuild() builds a complete new index and then publishes it by writing the single volatile field.
+ * The results are the same ItemStack instances that FurnaceRecipes returns, so don't modify them - copy() them first.
+ */
+public class SmeltingRecipeIndex
+{
+	/**
+	 * returns the smelting result for the given stack, or EMPTY_ITEM if the given stack can not be smelted
+	 */
+	public static ItemStack getSmeltingResult(ItemStack stack)
+	{
+		Map<Item, RecipesForItem> index = recipesByItem;  // read the volatile field once
+		if (index == null) {
+			return FurnaceRecipes.instance().getSmeltingResult(stack);  // too early - index not built until postInit
+		}
+
+		++indexedLookupCount;
+		RecipesForItem recipesForItem = index.get(stack.getItem());
+		if (recipesForItem == null) return ItemStack.field_190927_a;  // EMPTY_ITEM
+		return recipesForItem.getResult(stack.getMetadata());
+	}
+
+	/**
+	 * (Re)build the index from the vanilla smelting list.  Called during postInit; call it again after altering the
+	 *   smelting recipes.  Lookups carry on using the old index until the new one is complete.
+	 */
+	public static void rebuild()
+	{
+		Map<ItemStack, ItemStack> smeltingList = FurnaceRecipes.instance().getSmeltingList();
+		Map<Item, RecipesForItem> newIndex = new IdentityHashMap<Item, RecipesForItem>();
+		for (Map.Entry<ItemStack, ItemStack> entry : smeltingList.entrySet()) {
+			ItemStack input = entry.getKey();
+			RecipesForItem recipesForItem = newIndex.get(input.getItem());
+			if (recipesForItem == null) {
+				recipesForItem = new RecipesForItem();
+				newIndex.put(input.getItem(), recipesForItem);
+			}
+			recipesForItem.addRecipe(input.getMetadata(), entry.getValue());
+		}
+		recipesByItem = newIndex;
+	}
+
+	/** the number of smelting lookups which have been answered from the index (instead of FurnaceRecipes) */
+	public static long getIndexedLookupCount() {
+		return indexedLookupCount;
+	}
+
+	// All the recipes for a single Item: usually just one, either for a specific metadata or for any metadata (wildcard)
+	private static class RecipesForItem
+	{
+		public void addRecipe(int metadata, ItemStack result) {
+			if (metadata == OreDictionary.WILDCARD_VALUE) {
+				if (wildcardResult == null) wildcardResult = result;
+			} else {
+				if (resultsByMetadata == null) resultsByMetadata = new HashMap<Integer, ItemStack>();
+				if (!resultsByMetadata.containsKey(metadata)) resultsByMetadata.put(metadata, result);
+			}
+		}
+
+		public ItemStack getResult(int metadata) {
+			if (resultsByMetadata != null) {
+				ItemStack result = resultsByMetadata.get(metadata);
+				if (result != null) return result;
+			}
+			return (wildcardResult != null) ? wildcardResult : ItemStack.field_190927_a;  // EMPTY_ITEM
+		}
+
+		private ItemStack wildcardResult = null;
+		private Map<Integer, ItemStack> resultsByMetadata = null;
+	}
+
+	// never altered after it has been published - see rebuild()
+	private static volatile Map<Item, RecipesForItem> recipesByItem = null;
+	private static long indexedLookupCount = 0;  // statistics for MBE75 only, so the occasional lost increment doesn't matter
+}
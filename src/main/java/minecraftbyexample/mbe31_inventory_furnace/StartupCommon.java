@@ -4,6 +4,7 @@ import minecraftbyexample.GuiHandlerRegistry;
 import minecraftbyexample.MinecraftByExample;
 import net.minecraft.block.Block;
 import net.minecraft.item.ItemBlock;
+import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.common.registry.GameRegistry;
 
@@ -58,6 +59,11 @@ public class StartupCommon
 		//   it passes the request on to the correct example's GuiHandler.
 		NetworkRegistry.INSTANCE.registerGuiHandler(MinecraftByExample.instance, GuiHandlerRegistry.getInstance());
 		GuiHandlerRegistry.getInstance().registerGuiHandler(new GuiHandlerMBE31(), GuiHandlerMBE31.getGuiID());
+
+		// idle furnaces are removed from the tick list; the manager does the adding / removing at the end of each world tick
+		MinecraftForge.EVENT_BUS.register(new FurnaceSleepManager.EventHandler());
+		// if the tick manager is turned on, it updates the furnaces at the end of each world tick
+		MinecraftForge.EVENT_BUS.register(new FurnaceTickManager.EventHandler());
 	}
 
 	public static void initCommon()
@@ -66,5 +72,9 @@ public class StartupCommon
 
 	public static void postInitCommon()
 	{
+		// all the smelting recipes have been registered during init, so we can now index them for fast lookup
+		SmeltingRecipeIndex.rebuild();
+		// likewise the fuel handlers (eg MBE35's wheat)
+		FuelBurnTimeIndex.rebuild();
 	}
 }
@@ -1,23 +1,28 @@
 package minecraftbyexample.mbe31_inventory_furnace;
 
+import minecraftbyexample.mbe70_configuration.MBEConfiguration;
+import minecraftbyexample.usefultools.DeferredLightUpdates;
+import minecraftbyexample.usefultools.IndexedInventory;
+import minecraftbyexample.usefultools.IndexedInventoryItemHandler;
+import minecraftbyexample.usefultools.SyncedField;
+import minecraftbyexample.usefultools.SyncedFieldTracker;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.inventory.IInventory;
 import net.minecraft.item.ItemStack;
-import net.minecraft.item.crafting.FurnaceRecipes;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagIntArray;
-import net.minecraft.nbt.NBTTagList;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SPacketUpdateTileEntity;
-import net.minecraft.tileentity.TileEntity;
-import net.minecraft.tileentity.TileEntityFurnace;
+import net.minecraft.util.EnumFacing;
 import net.minecraft.util.ITickable;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraft.util.text.TextComponentTranslation;
-import net.minecraft.world.EnumSkyBlock;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.IItemHandler;
+import net.minecraftforge.items.wrapper.CombinedInvWrapper;
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
@@ -32,8 +37,7 @@ import java.util.Arrays;
  * The fuel slots are used in parallel.  The more slots burning in parallel, the faster the cook time.
  * The code is heavily based on TileEntityFurnace.
  */
-public class TileInventoryFurnace extends TileEntity implements IInventory, ITickable {
-	// Create and initialize the itemStacks variable that will store store the itemStacks
+public class TileInventoryFurnace extends IndexedInventory implements ITickable {
 	public static final int FUEL_SLOTS_COUNT = 4;
 	public static final int INPUT_SLOTS_COUNT = 5;
 	public static final int OUTPUT_SLOTS_COUNT = 5;
@@ -55,12 +59,31 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 
 	private int cachedNumberOfBurningSlots = -1;
 
-	private ItemStack[] itemStacks;
+	/** the number of burning slots sent to the client (see getUpdatePacket()); on the client, as sent by the server */
+	@SyncedField
+	private byte burningSlotCount = 0;
+	private final SyncedFieldTracker syncedFieldTracker = new SyncedFieldTracker(this);
 
+	/** true if this furnace has asked the FurnaceSleepManager to remove it from the tick list */
+	private boolean sleeping = false;
+
+	/** the number of ticks which have passed but haven't been applied to the furnace yet (coarse tick mode, or catch-up
+	 *  after the chunk was unloaded) */
+	private int pendingTicks = 0;
+
+	/** the world time when the furnace was last saved; used to catch up on the ticks that passed while it was unloaded */
+	private long worldTimeWhenSaved = NO_SAVED_WORLD_TIME;
+	private static final long NO_SAVED_WORLD_TIME = -1;
+
+	/** if the furnace is being updated by a FurnaceTickManager: the manager, and our index in its arrays (-1 = not yet added) */
+	FurnaceTickManager tickManager = null;
+	int tickManagerIndex = -1;
+
+	// The item stacks themselves are stored by IndexedInventory, which also keeps track of which slots are empty or have
+	//   room for more items.  See IndexedInventory for the IInventory methods which deal with the slots.
 	public TileInventoryFurnace()
 	{
-		itemStacks = new ItemStack[TOTAL_SLOTS_COUNT];
-		clear();
+		super(TOTAL_SLOTS_COUNT);
 	}
 
 	/**
@@ -88,10 +111,12 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 
 	/**
 	 * Get the number of slots which have fuel burning in them.
+	 * On the client, this is the number sent by the server in the description packet (see getUpdateTag())
 	 * @return number of slots with burning fuel, 0 - FUEL_SLOTS_COUNT
 	 */
 	public int numberOfBurningFuelSlots()
 	{
+		if (worldObj != null && worldObj.isRemote) return burningSlotCount;
 		int burningCount = 0;
 		for (int burnTime : burnTimeRemaining) {
 			if (burnTime > 0) ++burningCount;
@@ -113,10 +138,73 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 	// - see if the fuel has run out, and if so turn the furnace "off" and slowly uncook the current item (if any)
 	// - see if any of the items have finished smelting
 	// It runs both on the server and the client.
+	// If the "coarse tick" mode is turned on in the configuration (furnaceTickInterval > 1), the server only does the work
+	//   once every furnaceTickInterval ticks, and advances the furnace by all of those ticks at once.
 	@Override
 	public void update() {
+		int tickInterval = MBEConfiguration.furnaceTickInterval;
+		if (worldObj.isRemote) {
+			smeltingTick();
+		} else if (tickInterval <= 1) {
+			catchUpPendingTicks();
+			smeltingTick();
+		} else {
+			++pendingTicks;
+			// spread the furnaces out so that they don't all do their work on the same tick
+			long staggeredTime = worldObj.getTotalWorldTime() + (pos.hashCode() & Integer.MAX_VALUE);
+			if (staggeredTime % tickInterval != 0) return;
+			catchUpPendingTicks();
+		}
+		updateBurningState();
+	}
+
+	/**
+	 * When the number of burning slots changes, we need to force the block to re-render, otherwise the change in
+	 *   state will not be visible.  Likewise, we need to force a lighting recalculation.
+	 * On the server side, the burning count is stored in the block state (so that BlockInventoryFurnace.getLightValue()
+	 *   doesn't need to look up the tile entity), and the block update sends the new block state and description packet
+	 *   (getUpdatePacket()) to the nearby clients.
+	 * The lighting is required on both, since the client needs it for rendering and the server needs it for crop growth etc
+	 * The light check is deferred until the end of the tick (see DeferredLightUpdates), since the furnaces in a large
+	 *   smelting array often change at the same time.  On the client, it also makes the block re-render.
+	 */
+	void updateBurningState() {
+		if (worldObj == null) return;
+		int numberBurning = numberOfBurningFuelSlots();
+		if (cachedNumberOfBurningSlots != numberBurning) {
+			cachedNumberOfBurningSlots = numberBurning;
+			if (!worldObj.isRemote) {
+				IBlockState oldState = this.worldObj.getBlockState(pos);
+				IBlockState newState = oldState;
+				if (oldState.getBlock() instanceof BlockInventoryFurnace) {
+					newState = oldState.withProperty(BlockInventoryFurnace.BURNING_SIDES_COUNT, MathHelper.clamp_int(numberBurning, 0, 4));
+				}
+				if (newState != oldState) {
+					// World.setBlockState() would relight the block straight away, so change the block state in the chunk
+					//   directly and leave the relighting to DeferredLightUpdates.  The tile entity is kept, because the block
+					//   hasn't changed.
+					// This skips the rest of World.markAndNotifyBlock() as well.  The neighbours aren't sent neighborChanged()
+					//   and comparators aren't updated, which doesn't matter because the furnace gives no redstone power or
+					//   comparator output.  The clients are sent the block update below.  But observers react to any change
+					//   of block state, so they are told here.
+					worldObj.getChunkFromBlockCoords(pos).setBlockState(pos, newState);
+					worldObj.updateObservingBlocksAt(pos, getBlockType());
+				}
+				final int FLAGS = 3;  // I'm not sure what these flags do, exactly.
+				worldObj.notifyBlockUpdate(pos, oldState, newState, FLAGS);
+			}
+			DeferredLightUpdates.requestLightEmissionCheck(worldObj, pos);
+		}
+	}
+
+	/**
+	 * Update the fuel and the cooking for a single tick
+	 */
+	public void smeltingTick() {smeltingTick(canSmelt());}
+
+	private void smeltingTick(boolean canSmelt) {
 		// If there is nothing to smelt or there is no room in the output, reset cookTime and return
-		if (canSmelt()) {
+		if (canSmelt) {
 			int numberOfFuelBurning = burnFuel();
 
 			// If fuel is available, keep cooking the item, otherwise start "uncooking" it at double speed
@@ -135,24 +223,193 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 			}
 		}	else {
 			cookTime = 0;
+			goToSleep();
 		}
+	}
 
-		// when the number of burning slots changes, we need to force the block to re-render, otherwise the change in
-		//   state will not be visible.  Likewise, we need to force a lighting recalculation.
-		// The block update (for renderer) is only required on client side, but the lighting is required on both, since
-		//    the client needs it for rendering and the server needs it for crop growth etc
-		int numberBurning = numberOfBurningFuelSlots();
-		if (cachedNumberOfBurningSlots != numberBurning) {
-			cachedNumberOfBurningSlots = numberBurning;
-			if (worldObj.isRemote) {
-        IBlockState iblockstate = this.worldObj.getBlockState(pos);
-        final int FLAGS = 3;  // I'm not sure what these flags do, exactly.
-        worldObj.notifyBlockUpdate(pos, iblockstate, iblockstate, FLAGS);
+	/**
+	 * Advance the furnace by the given number of ticks.  The result is exactly the same as calling smeltingTick() that many
+	 *   times, but much faster:
+	 * Between "events" (a piece of fuel runs out or is consumed, or an item finishes smelting), the furnace changes in a
+	 *   simple way: every burning slot loses one tick of burn time per tick, and the cook time increases by the number of
+	 *   burning slots per tick (or decreases by 2 if none are burning).  So we can jump straight to the tick before the
+	 *   next event, then use smeltingTick() for the event tick itself.
+	 * @param ticksToAdvance the number of ticks
+	 */
+	public void advanceTicks(int ticksToAdvance) {
+		while (ticksToAdvance > 0) {
+			boolean canSmelt = canSmelt();
+			if (!canSmelt) {  // nothing else will change until the inventory is altered
+				smeltingTick(false);
+				return;
+			}
+			int quietTicks = countQuietTicks(ticksToAdvance);
+			if (quietTicks == 0) {
+				smeltingTick(true);
+				--ticksToAdvance;
+			} else {
+				applyQuietTicks(quietTicks);
+				ticksToAdvance -= quietTicks;
+			}
+		}
+	}
+
+	/**
+	 * Count how many ticks will pass before the next event (fuel runs out, fuel is consumed, or an item finishes smelting)
+	 * Assumes that the furnace is able to smelt.
+	 * @param maxTicks don't look any further ahead than this
+	 * @return the number of ticks (0 - maxTicks) which can be applied using applyQuietTicks()
+	 */
+	private int countQuietTicks(int maxTicks) {
+		int quietTicks = maxTicks;
+		int numberBurning = 0;
+		for (int i = 0; i < FUEL_SLOTS_COUNT; i++) {
+			if (burnTimeRemaining[i] > 0) {
+				++numberBurning;
+				quietTicks = Math.min(quietTicks, burnTimeRemaining[i] - 1);  // the tick on which it reaches zero is an event
+			} else {
+				ItemStack fuelStack = itemStacks[i + FIRST_FUEL_SLOT];
+				if (!fuelStack.func_190926_b() && getItemBurnTime(fuelStack) > 0) {  // isEmpty()
+					return 0;  // a new piece of fuel will be consumed on the next tick
+				}
+			}
+		}
+		if (numberBurning > 0) {
+			// the cookTime after the quiet ticks must still be less than COOK_TIME_FOR_COMPLETION
+			quietTicks = Math.min(quietTicks, (COOK_TIME_FOR_COMPLETION - 1 - cookTime) / numberBurning);
+		}
+		return Math.max(quietTicks, 0);
+	}
+
+	/**
+	 * The number of ticks until something "happens" to the furnace (see advanceTicks()), counting the event tick itself.
+	 *   Used by the FurnaceTickManager to decide when it next needs to update this furnace.
+	 * @return 1 or more; Integer.MAX_VALUE if nothing will happen until the inventory changes
+	 */
+	int ticksUntilNextEvent() {
+		if (!canSmelt()) return Integer.MAX_VALUE;
+		return countQuietTicks(Integer.MAX_VALUE - 1) + 1;
+	}
+
+	/**
+	 * Apply the given number of ticks, which must all be "quiet" ticks.  See countQuietTicks().
+	 */
+	private void applyQuietTicks(int ticks) {
+		int numberBurning = 0;
+		for (int i = 0; i < FUEL_SLOTS_COUNT; i++) {
+			if (burnTimeRemaining[i] > 0) {
+				burnTimeRemaining[i] -= ticks;
+				++numberBurning;
+			}
+		}
+		if (numberBurning > 0) {
+			cookTime += numberBurning * ticks;
+		} else {
+			cookTime = (short)Math.max(0, cookTime - 2L * ticks);
+		}
+	}
+
+	/**
+	 * In the coarse tick mode, bring the furnace up to date with all the ticks which haven't been processed yet.
+	 * Must be called before anyone looks at or changes the inventory or the furnace state, so that they see the same
+	 *   furnace as they would if it were being updated every tick.
+	 */
+	private void catchUpPendingTicks() {
+		if (tickManagerIndex >= 0) tickManager.catchUp(tickManagerIndex);
+		if (pendingTicks == 0) return;
+		int ticks = pendingTicks;
+		pendingTicks = 0;
+		advanceTicks(ticks);
+	}
+
+	/**
+	 * Nothing to smelt: the furnace won't change until the inventory does, so stop ticking (server only)
+	 */
+	private void goToSleep() {
+		if (tickManager != null) return;  // the tick manager doesn't update idle furnaces anyway
+		if (worldObj != null && !worldObj.isRemote) {
+			sleeping = true;
+			FurnaceSleepManager.forWorld(worldObj).requestSleep(this);
+		}
+	}
+
+	/**
+	 * Put the furnace back into the tick list if it has gone to sleep.  Must be called whenever the inventory changes.
+	 * If the furnace is being updated by a FurnaceTickManager, tell the manager instead.
+	 */
+	private void wakeUp() {
+		if (tickManagerIndex >= 0) tickManager.inventoryChanged(this);
+		if (!sleeping) return;
+		sleeping = false;
+		if (worldObj != null && !worldObj.isRemote) {
+			FurnaceSleepManager.forWorld(worldObj).requestWake(this);
+		}
+	}
+
+	// register with the sleep manager (or the tick manager) when the furnace is added to the world, and deregister when
+	//   it is removed
+	@Override
+	public void onLoad() {
+		if (!worldObj.isRemote) {
+			if (MBEConfiguration.furnaceTickManager) {
+				FurnaceTickManager.forWorld(worldObj).addFurnace(this);
+			} else {
+				FurnaceSleepManager.forWorld(worldObj).addFurnace(this);
 			}
-			worldObj.checkLightFor(EnumSkyBlock.BLOCK, pos);
+			scheduleCatchUp();
 		}
 	}
 
+	/**
+	 * Called by the FurnaceTickManager when it takes over updating this furnace
+	 * @param index our index in the manager's arrays
+	 */
+	void attachToTickManager(int index) {
+		catchUpPendingTicks();
+		tickManagerIndex = index;
+	}
+
+	private void removeFromManagers() {
+		FurnaceSleepManager.forWorld(worldObj).removeFurnace(this);
+		if (tickManager != null) tickManager.removeFurnace(this);
+	}
+
+	/**
+	 * The furnace doesn't do anything while its chunk is unloaded.  When it's loaded again, work out how many ticks have
+	 *   passed since it was saved, and add them to the pending ticks; they will be applied (using advanceTicks()) on the next
+	 *   update, or when something looks at the furnace, whichever is sooner.
+	 */
+	private void scheduleCatchUp() {
+		if (worldTimeWhenSaved == NO_SAVED_WORLD_TIME) return;
+		long ticksElapsed = worldObj.getTotalWorldTime() - worldTimeWhenSaved;
+		worldTimeWhenSaved = NO_SAVED_WORLD_TIME;
+		ticksElapsed = Math.max(0, Math.min(ticksElapsed, MBEConfiguration.furnaceMaxCatchUpTicks));
+		pendingTicks += (int)ticksElapsed;
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		if (worldObj != null && !worldObj.isRemote) {
+			removeFromManagers();
+		}
+	}
+
+	@Override
+	public void onChunkUnload() {
+		if (!worldObj.isRemote) {
+			removeFromManagers();
+		}
+	}
+
+	// Containers and hoppers sometimes alter the stacks in our slots directly and then just call markDirty(), so
+	//   this is the most reliable place to detect that the inventory has changed.
+	@Override
+	public void markDirty() {
+		wakeUp();
+		super.markDirty();
+	}
+
 	/**
 	 * 	for each fuel slot: decreases the burn time, checks if burnTimeRemaining = 0 and tries to consume a new piece of fuel if one is available
 	 * @return the number of fuel slots which are burning
@@ -181,10 +438,11 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 					if (itemStacks[fuelSlotNumber].func_190916_E() == 0) {  //getStackSize()
 						itemStacks[fuelSlotNumber] = itemStacks[fuelSlotNumber].getItem().getContainerItem(itemStacks[fuelSlotNumber]);
 					}
+					onSlotChanged(fuelSlotNumber);
 				}
 			}
 		}
-		if (inventoryChanged) markDirty();
+		if (inventoryChanged) markDirtyKeepIndex();
 		return burningCount;
 	}
 
@@ -254,94 +512,36 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
       int newStackSize = itemStacks[firstSuitableOutputSlot].func_190916_E() + result.func_190916_E();
 			itemStacks[firstSuitableOutputSlot].func_190920_e(newStackSize) ;  //setStackSize(), getStackSize()
 		}
-		markDirty();
+		onSlotChanged(firstSuitableInputSlot);
+		onSlotChanged(firstSuitableOutputSlot);
+		markDirtyKeepIndex();
 		return true;
 	}
 
-	// returns the smelting result for the given stack. Returns null if the given stack can not be smelted
-	public static ItemStack getSmeltingResultForItem(ItemStack stack) { return FurnaceRecipes.instance().getSmeltingResult(stack); }
+	// returns the smelting result for the given stack. Returns EMPTY_ITEM if the given stack can not be smelted
+	public static ItemStack getSmeltingResultForItem(ItemStack stack) { return SmeltingRecipeIndex.getSmeltingResult(stack); }
 
 	// returns the number of ticks the given item will burn. Returns 0 if the given item is not a valid fuel
 	public static short getItemBurnTime(ItemStack stack)
 	{
-		int burntime = TileEntityFurnace.getItemBurnTime(stack);  // just use the vanilla values
+		int burntime = FuelBurnTimeIndex.getItemBurnTime(stack);  // the vanilla values, from a lookup table
 		return (short)MathHelper.clamp_int(burntime, 0, Short.MAX_VALUE);
 	}
 
-	// Gets the number of slots in the inventory
-	@Override
-	public int getSizeInventory() {
-		return itemStacks.length;
-	}
-
-	// returns true if all of the slots in the inventory are empty
-	@Override
-	public boolean func_191420_l()
-	{
-		for (ItemStack itemstack : itemStacks) {
-			if (!itemstack.func_190926_b()) {  // isEmpty()
-				return false;
-			}
-		}
-
-		return true;
-	}
-
-	// Gets the stack in the given slot
-	@Override
-	public ItemStack getStackInSlot(int i) {
-		return itemStacks[i];
-	}
-
-	/**
-	 * Removes some of the units from itemstack in the given slot, and returns as a separate itemstack
-	 * @param slotIndex the slot number to remove the items from
-	 * @param count the number of units to remove
-	 * @return a new itemstack containing the units removed from the slot
-	 */
-	@Override
-	public ItemStack decrStackSize(int slotIndex, int count) {
-		ItemStack itemStackInSlot = getStackInSlot(slotIndex);
-		if (itemStackInSlot.func_190926_b()) return ItemStack.field_190927_a;  //isEmpty(), EMPTY_ITEM
-
-		ItemStack itemStackRemoved;
-		if (itemStackInSlot.func_190916_E() <= count) { //getStackSize
-			itemStackRemoved = itemStackInSlot;
-			setInventorySlotContents(slotIndex, ItemStack.field_190927_a); // EMPTY_ITEM
-		} else {
-			itemStackRemoved = itemStackInSlot.splitStack(count);
-			if (itemStackInSlot.func_190916_E() == 0) { //getStackSize
-				setInventorySlotContents(slotIndex, ItemStack.field_190927_a); //EMPTY_ITEM
-			}
-		}
-		markDirty();
-		return itemStackRemoved;
-	}
-
-	// overwrites the stack in the given slotIndex with the given stack
-	@Override
-	public void setInventorySlotContents(int slotIndex, ItemStack itemstack) {
-		itemStacks[slotIndex] = itemstack;
-		if (!itemstack.func_190926_b() && itemstack.func_190916_E() > getInventoryStackLimit()) {  // isEmpty();  getStackSize()
-			itemstack.func_190920_e(getInventoryStackLimit());  //setStackSize()
-		}
-		markDirty();
-	}
-
-	// This is the maximum number if items allowed in each slot
-	// This only affects things such as hoppers trying to insert items you need to use the container to enforce this for players
-	// inserting items via the gui
+	// In the coarse tick mode, bring the furnace up to date before anyone looks at or changes the slots
 	@Override
-	public int getInventoryStackLimit() {
-		return 64;
+	protected void beforeSlotAccess() {
+		catchUpPendingTicks();
 	}
 
 	// Return true if the given player is able to use this block. In this case it checks that
-	// 1) the world tileentity hasn't been replaced in the meantime, and
-	// 2) the player isn't too far away from the centre of the block
+	// 1) the world tileentity hasn't been replaced in the meantime,
+	// 2) the player isn't too far away from the centre of the block, and
+	// 3) the saved items were loaded (see IndexedInventory.hasUnreadableItems())
 	@Override
 	public boolean isUseableByPlayer(EntityPlayer player) {
 		if (this.worldObj.getTileEntity(this.pos) != this) return false;
+		if (hasUnreadableItems()) return false;
 		final double X_CENTRE_OFFSET = 0.5;
 		final double Y_CENTRE_OFFSET = 0.5;
 		final double Z_CENTRE_OFFSET = 0.5;
@@ -378,29 +578,17 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 	public NBTTagCompound writeToNBT(NBTTagCompound parentNBTTagCompound)
 	{
 		super.writeToNBT(parentNBTTagCompound); // The super call is required to save and load the tiles location
+		catchUpPendingTicks();
 
-//		// Save the stored item stacks
-
-		// to use an analogy with Java, this code generates an array of hashmaps
-		// The itemStack in each slot is converted to an NBTTagCompound, which is effectively a hashmap of key->value pairs such
-		//   as slot=1, id=2353, count=1, etc
-		// Each of these NBTTagCompound are then inserted into NBTTagList, which is similar to an array.
-		NBTTagList dataForAllSlots = new NBTTagList();
-		for (int i = 0; i < this.itemStacks.length; ++i) {
-			if (!this.itemStacks[i].func_190926_b()) {  //isEmpty()
-				NBTTagCompound dataForThisSlot = new NBTTagCompound();
-				dataForThisSlot.setByte("Slot", (byte) i);
-				this.itemStacks[i].writeToNBT(dataForThisSlot);
-				dataForAllSlots.appendTag(dataForThisSlot);
-			}
-		}
-		// the array of hashmaps is then inserted into the parent hashmap for the container
-		parentNBTTagCompound.setTag("Items", dataForAllSlots);
+		writeItemStacksToNBT(parentNBTTagCompound);  // see IndexedInventory
 
 		// Save everything else
 		parentNBTTagCompound.setShort("CookTime", cookTime);
 	  parentNBTTagCompound.setTag("burnTimeRemaining", new NBTTagIntArray(burnTimeRemaining));
 		parentNBTTagCompound.setTag("burnTimeInitial", new NBTTagIntArray(burnTimeInitialValue));
+		if (worldObj != null) {
+			parentNBTTagCompound.setLong("WorldTime", worldObj.getTotalWorldTime());
+		}
     return parentNBTTagCompound;
 	}
 
@@ -408,70 +596,63 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 	@Override
 	public void readFromNBT(NBTTagCompound nbtTagCompound)
 	{
+		if (tickManagerIndex >= 0) tickManager.catchUp(tickManagerIndex);  // so the manager doesn't apply old ticks to the new state
 		super.readFromNBT(nbtTagCompound); // The super call is required to save and load the tiles location
-		final byte NBT_TYPE_COMPOUND = 10;       // See NBTBase.createNewByType() for a listing
-		NBTTagList dataForAllSlots = nbtTagCompound.getTagList("Items", NBT_TYPE_COMPOUND);
-
-		Arrays.fill(itemStacks, ItemStack.field_190927_a);           // set all slots to empty EMPTY_ITEM
-		for (int i = 0; i < dataForAllSlots.tagCount(); ++i) {
-			NBTTagCompound dataForOneSlot = dataForAllSlots.getCompoundTagAt(i);
-			byte slotNumber = dataForOneSlot.getByte("Slot");
-			if (slotNumber >= 0 && slotNumber < this.itemStacks.length) {
-				this.itemStacks[slotNumber] = new ItemStack(dataForOneSlot);
-			}
-		}
+		readItemStacksFromNBT(nbtTagCompound);  // see IndexedInventory
 
 		// Load everything else.  Trim the arrays (or pad with 0) to make sure they have the correct number of elements
 		cookTime = nbtTagCompound.getShort("CookTime");
 		burnTimeRemaining = Arrays.copyOf(nbtTagCompound.getIntArray("burnTimeRemaining"), FUEL_SLOTS_COUNT);
 		burnTimeInitialValue = Arrays.copyOf(nbtTagCompound.getIntArray("burnTimeInitial"), FUEL_SLOTS_COUNT);
 		cachedNumberOfBurningSlots = -1;
+		pendingTicks = 0;
+		worldTimeWhenSaved = nbtTagCompound.hasKey("WorldTime") ? nbtTagCompound.getLong("WorldTime") : NO_SAVED_WORLD_TIME;
+		wakeUp();
 	}
 
 //	// When the world loads from disk, the server needs to send the TileEntity information to the client
 //	//  it uses getUpdatePacket(), getUpdateTag(), onDataPacket(), and handleUpdateTag() to do this
+//  // Nearby clients only need to know how many slots are burning, to render the block and its light.  The inventory and
+//  //  the burn / cook times are only needed by players who have the furnace open, and the container sends those.
+//  // Only the @SyncedField fields are sent, and the update packet is only sent when one of them has changed - see
+//  //  SyncedFieldTracker.
   @Override
   @Nullable
   public SPacketUpdateTileEntity getUpdatePacket()
   {
-    NBTTagCompound updateTagDescribingTileEntityState = getUpdateTag();
+    burningSlotCount = (byte)numberOfBurningFuelSlots();
+    NBTTagCompound syncedFieldsNBT = syncedFieldTracker.writeFieldsIfChanged();
+    if (syncedFieldsNBT == null) return null;  // nothing has changed since the last update
     final int METADATA = 0;
-    return new SPacketUpdateTileEntity(this.pos, METADATA, updateTagDescribingTileEntityState);
+    return new SPacketUpdateTileEntity(this.pos, METADATA, syncedFieldsNBT);
   }
 
   @Override
   public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt) {
-    NBTTagCompound updateTagDescribingTileEntityState = pkt.getNbtCompound();
-    handleUpdateTag(updateTagDescribingTileEntityState);
+    syncedFieldTracker.readFields(pkt.getNbtCompound());
   }
 
   /* Creates a tag containing the TileEntity information, used by vanilla to transmit from server to client
-     Warning - although our getUpdatePacket() uses this method, vanilla also calls it directly, so don't remove it.
+     This is the whole state (the @SyncedField fields), sent when the player starts watching the chunk.
    */
   @Override
   public NBTTagCompound getUpdateTag()
   {
+		burningSlotCount = (byte)numberOfBurningFuelSlots();
 		NBTTagCompound nbtTagCompound = new NBTTagCompound();
-		writeToNBT(nbtTagCompound);
-    return nbtTagCompound;
+		super.writeToNBT(nbtTagCompound);  // just the id and location - not the contents
+    return syncedFieldTracker.writeAllFields(nbtTagCompound);
   }
 
   /* Populates this TileEntity with information from the tag, used by vanilla to transmit from server to client
-   Warning - although our onDataPacket() uses this method, vanilla also calls it directly, so don't remove it.
  */
   @Override
   public void handleUpdateTag(NBTTagCompound tag)
   {
-    this.readFromNBT(tag);
+    syncedFieldTracker.readFields(tag);
   }
   //------------------------
 
-	// set all slots to empty
-	@Override
-	public void clear() {
-		Arrays.fill(itemStacks, ItemStack.field_190927_a);  //EMPTY_ITEM
-	}
-
 	// will add a key for this container to the lang file so we can name it in the GUI
 	@Override
 	public String getName() {
@@ -503,6 +684,7 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 
 	@Override
 	public int getField(int id) {
+		catchUpPendingTicks();
 		if (id == COOK_FIELD_ID) return cookTime;
 		if (id >= FIRST_BURN_TIME_REMAINING_FIELD_ID && id < FIRST_BURN_TIME_REMAINING_FIELD_ID + FUEL_SLOTS_COUNT) {
 			return burnTimeRemaining[id - FIRST_BURN_TIME_REMAINING_FIELD_ID];
@@ -533,29 +715,67 @@ public class TileInventoryFurnace extends TileEntity implements IInventory, ITic
 		return NUMBER_OF_FIELDS;
 	}
 
-	// -----------------------------------------------------------------------------------------------------------
-	// The following methods are not needed for this example but are part of IInventory so they must be implemented
-
-	// Unused unless your container specifically uses it.
-	// Return true if the given stack is allowed to go in the given slot
+	// Return true if the given stack is allowed to go in the given slot.  Used by hoppers and the item handlers.
+	// The player can put anything into the fuel and input slots (see isItemValidForFuelSlot()), but automation is only
+	//   allowed to insert fuel into the fuel slots and smeltable items into the input slots, so that it can't fill them
+	//   up with items that will never be used.
 	@Override
 	public boolean isItemValidForSlot(int slotIndex, ItemStack itemstack) {
+		if (hasUnreadableItems()) return false;  // see IndexedInventory.hasUnreadableItems()
+		if (slotIndex >= FIRST_FUEL_SLOT && slotIndex < FIRST_FUEL_SLOT + FUEL_SLOTS_COUNT) {
+			return getItemBurnTime(itemstack) > 0;
+		}
+		if (slotIndex >= FIRST_INPUT_SLOT && slotIndex < FIRST_INPUT_SLOT + INPUT_SLOTS_COUNT) {
+			return !getSmeltingResultForItem(itemstack).func_190926_b();  // isEmpty()
+		}
 		return false;
 	}
 
+	// -----------------------------------------------------------------------------------------------------------
+	// Automation (pipes, hoppers, etc) accesses the furnace through the item handler capability, one handler for each
+	//   side like the vanilla furnace:
+	// top = input slots, sides = fuel slots, bottom = output slots (extract only)
+	// The handlers also have bulk methods (see IndexedInventoryItemHandler) which move many items with a single markDirty()
+	// If no side is given, the handler covers all the slots.
+
+	private final IndexedInventoryItemHandler fuelHandler =
+					new IndexedInventoryItemHandler(this, FIRST_FUEL_SLOT, FIRST_FUEL_SLOT + FUEL_SLOTS_COUNT, true, false);
+	private final IndexedInventoryItemHandler inputHandler =
+					new IndexedInventoryItemHandler(this, FIRST_INPUT_SLOT, FIRST_INPUT_SLOT + INPUT_SLOTS_COUNT, true, false);
+	private final IndexedInventoryItemHandler outputHandler =
+					new IndexedInventoryItemHandler(this, FIRST_OUTPUT_SLOT, FIRST_OUTPUT_SLOT + OUTPUT_SLOTS_COUNT, false, true);
+	private final IItemHandler allSlotsHandler = new CombinedInvWrapper(fuelHandler, inputHandler, outputHandler);
+
 	/**
-	 * This method removes the entire contents of the given slot and returns it.
-	 * Used by containers such as crafting tables which return any items in their slots when you close the GUI
-	 * @param slotIndex
-	 * @return
+	 * Get the item handler for the given side of the block
+	 * @param side the side, or null for all the slots
 	 */
+	public IItemHandler getItemHandler(@Nullable EnumFacing side) {
+		if (side == null) return allSlotsHandler;
+		switch (side) {
+			case UP: return inputHandler;
+			case DOWN: return outputHandler;
+			default: return fuelHandler;
+		}
+	}
+
 	@Override
-	public ItemStack removeStackFromSlot(int slotIndex) {
-		ItemStack itemStack = getStackInSlot(slotIndex);
-		if (!itemStack.func_190926_b()) setInventorySlotContents(slotIndex, ItemStack.field_190927_a);  //isEmpty();  EMPTY_ITEM
-		return itemStack;
+	public boolean hasCapability(Capability<?> capability, @Nullable EnumFacing facing) {
+		return capability == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY || super.hasCapability(capability, facing);
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T getCapability(Capability<T> capability, @Nullable EnumFacing facing) {
+		if (capability == CapabilityItemHandler.ITEM_HANDLER_CAPABILITY) {
+			return (T)getItemHandler(facing);
+		}
+		return super.getCapability(capability, facing);
+	}
+
+	// -----------------------------------------------------------------------------------------------------------
+	// The following methods are not needed for this example but are part of IInventory so they must be implemented
+
 	@Override
 	public void openInventory(EntityPlayer player) {}
 
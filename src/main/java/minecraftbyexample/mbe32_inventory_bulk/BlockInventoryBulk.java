@@ -0,0 +1,80 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+import minecraftbyexample.MinecraftByExample;
+import net.minecraft.block.BlockContainer;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.creativetab.CreativeTabs;
+import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumBlockRenderType;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.EnumHand;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * BlockInventoryBulk is a storage block which can hold a large number of item stacks (see TileEntityInventoryBulk).
+ * Like BlockInventoryBasic, the block itself just creates the tile entity, opens the gui when right clicked, and drops the
+ *   contents when harvested.
+ */
+public class BlockInventoryBulk extends BlockContainer
+{
+	public BlockInventoryBulk()
+	{
+		super(Material.ROCK);
+		this.setCreativeTab(CreativeTabs.BUILDING_BLOCKS);     // the block will appear on the Blocks tab.
+	}
+
+	@Override
+	public TileEntity createNewTileEntity(World worldIn, int meta) {
+		return new TileEntityInventoryBulk();
+	}
+
+	@Override
+	public boolean hasTileEntity(IBlockState state)
+	{
+		return true;
+	}
+
+	// Called when the block is right clicked
+	// In this block it is used to open the blocks gui when right clicked by a player
+	@Override
+	public boolean onBlockActivated(World worldIn, BlockPos pos, IBlockState state, EntityPlayer playerIn, EnumHand hand,
+																	EnumFacing side, float hitX, float hitY, float hitZ) {
+		if (worldIn.isRemote) return true;
+
+		playerIn.openGui(MinecraftByExample.instance, GuiHandlerMBE32.getGuiID(), worldIn, pos.getX(), pos.getY(), pos.getZ());
+		return true;
+	}
+
+	// This is where you can do something when the block is broken. In this case drop the storage's contents
+	// Only the occupied slots are dropped, so this doesn't create an ItemStack for each of the empty slots.
+	@Override
+	public void breakBlock(World worldIn, BlockPos pos, IBlockState state) {
+		TileEntity tileEntity = worldIn.getTileEntity(pos);
+		if (tileEntity instanceof TileEntityInventoryBulk) {
+			for (ItemStack itemStack : ((TileEntityInventoryBulk)tileEntity).getStorage().removeAll()) {
+				// Create a new entity item with the item stack, and apply some random motion to it
+				EntityItem item = new EntityItem(worldIn, pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5, itemStack);
+				float multiplier = 0.1f;
+				item.motionX = (worldIn.rand.nextFloat() - 0.5f) * multiplier;
+				item.motionY = (worldIn.rand.nextFloat() - 0.5f) * multiplier;
+				item.motionZ = (worldIn.rand.nextFloat() - 0.5f) * multiplier;
+				worldIn.spawnEntityInWorld(item);
+			}
+		}
+
+		// Super MUST be called last because it removes the tile entity
+		super.breakBlock(worldIn, pos, state);
+	}
+
+	// render using a BakedModel (mbe32_inventory_bulk.json --> mbe32_inventory_bulk_model.json)
+	// required because the default (super method) is INVISIBLE for BlockContainers.
+	@Override
+	public EnumBlockRenderType getRenderType(IBlockState iBlockState) {
+		return EnumBlockRenderType.MODEL;
+	}
+}
@@ -0,0 +1,355 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraft.util.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BulkItemStorage stores a large number of item stacks (thousands) without creating an ItemStack object for each one.
+ * Each slot is stored in three primitive arrays:
+ *   itemIds - the item's numeric id (Item.getIdFromItem())
+ *   metadata - the item's metadata (damage)
+ *   counts - the stack size; 0 = empty slot
+ * Only the stacks with NBT (enchanted, renamed, etc) are stored as objects, in a sparse map from slot number to the
+ *   stack's NBT.
+ *
+ * ItemStacks are only created for the slots that somebody is looking at:
+ * 1) getStack() returns a new copy of the stack in the slot
+ * 2) the container (see BulkStorageWindow) needs stacks that it can alter directly, the same as a normal IInventory.  It
+ *    "pins" the slots it is displaying; each pinned slot has a live ItemStack which is the master copy until the slot is
+ *    unpinned, or flushLiveStacks() copies it back into the arrays.
+ *    Each pinned slot has a count of the windows that pinned it, so that several players can look at the same slots.
+ *
+ * The stack limit for each slot is 64 (see getSlotStackLimit()).
+ * Capability data attached to an ItemStack by other mods isn't stored unless the stack has NBT.
+ */
+public class BulkItemStorage
+{
+	public BulkItemStorage(int numberOfSlots)
+	{
+		itemIds = new int[numberOfSlots];
+		metadata = new short[numberOfSlots];
+		counts = new byte[numberOfSlots];
+	}
+
+	public int getSlotCount() {
+		return counts.length;
+	}
+
+	public int getSlotStackLimit() {
+		return SLOT_STACK_LIMIT;
+	}
+
+	public boolean isSlotEmpty(int slot) {
+		ItemStack liveStack = liveStacks.get(slot);
+		if (liveStack != null) return liveStack.func_190926_b();  // isEmpty()
+		return counts[slot] == 0;
+	}
+
+	/** the number of slots which aren't empty */
+	public int getOccupiedSlotCount() {
+		flushLiveStacks();
+		int occupied = 0;
+		for (byte count : counts) {
+			if (count != 0) ++occupied;
+		}
+		return occupied;
+	}
+
+	/**
+	 * Returns a copy of the stack in the given slot; altering it won't change the storage.
+	 */
+	public ItemStack getStack(int slot)
+	{
+		ItemStack liveStack = liveStacks.get(slot);
+		if (liveStack != null) return liveStack.copy();
+		return createStack(slot);
+	}
+
+	/**
+	 * Replace the stack in the given slot.  The storage keeps a copy of the stack, except for pinned slots, where the
+	 *   stack becomes the live stack.
+	 */
+	public void setStack(int slot, ItemStack stack)
+	{
+		if (!stack.func_190926_b() && stack.func_190916_E() > SLOT_STACK_LIMIT) {  // isEmpty(), getStackSize()
+			stack.func_190920_e(SLOT_STACK_LIMIT);  // setStackSize()
+		}
+		if (liveStacks.containsKey(slot)) {
+			liveStacks.put(slot, stack);
+		} else {
+			storeStack(slot, stack);
+		}
+	}
+
+	/**
+	 * Move as much as possible of the given stack into the storage: first top up any stacks of the same item which
+	 *   aren't full, then use the first empty slot (the same as Container.mergeItemStack()).
+	 * Uses a simple scan of the primitive arrays, which doesn't create any objects.
+	 * @param stack the stack to insert.  Its size is reduced by the number of items moved.
+	 * @return true if any items were moved
+	 */
+	public boolean insertStack(ItemStack stack)
+	{
+		if (stack.func_190926_b()) return false;  // isEmpty()
+		flushLiveStacks();   // so that we can just look at the arrays
+		boolean changed = false;
+		int itemId = Item.getIdFromItem(stack.getItem());
+		int slotLimit = Math.min(SLOT_STACK_LIMIT, stack.getMaxStackSize());
+		if (stack.isStackable()) {
+			boolean checkMetadata = stack.getHasSubtypes();
+			for (int slot = 0; slot < counts.length && !stack.func_190926_b(); ++slot) {  // isEmpty()
+				if (counts[slot] == 0 || counts[slot] >= slotLimit || itemIds[slot] != itemId) continue;
+				if (checkMetadata && metadata[slot] != (short)stack.getMetadata()) continue;
+				if (!tagsMatch(slot, stack)) continue;
+				int numberToMove = Math.min(stack.func_190916_E(), slotLimit - counts[slot]);  // getStackSize()
+				counts[slot] += numberToMove;
+				updateLiveStack(slot);
+				stack.func_190918_g(numberToMove);  // decreaseStackSize()
+				changed = true;
+			}
+		}
+		if (!stack.func_190926_b()) {  // isEmpty()
+			int emptySlot = findEmptySlot();
+			if (emptySlot >= 0) {
+				setStack(emptySlot, stack.splitStack(Math.min(stack.func_190916_E(), slotLimit)));  // getStackSize()
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Remove the contents of all the slots
+	 * @return the stacks which were removed
+	 */
+	public List<ItemStack> removeAll()
+	{
+		flushLiveStacks();
+		List<ItemStack> removed = new ArrayList<ItemStack>();
+		for (int slot = 0; slot < counts.length; ++slot) {
+			if (counts[slot] != 0) {
+				removed.add(createStack(slot));
+				storeStack(slot, ItemStack.field_190927_a);  // EMPTY_ITEM
+				updateLiveStack(slot);
+			}
+		}
+		return removed;
+	}
+
+	// ------- pinned slots
+
+	/**
+	 * Pin the given slot so that getLiveStack() can be used.
+	 */
+	public void pinSlot(int slot)
+	{
+		Integer pinCount = pinCounts.get(slot);
+		if (pinCount == null) {
+			pinCounts.put(slot, 1);
+			liveStacks.put(slot, createStack(slot));
+		} else {
+			pinCounts.put(slot, pinCount + 1);
+		}
+	}
+
+	/**
+	 * Unpin the given slot; if it isn't pinned by anybody else, the live stack is stored back into the arrays.
+	 */
+	public void unpinSlot(int slot)
+	{
+		Integer pinCount = pinCounts.get(slot);
+		if (pinCount == null) return;
+		if (pinCount > 1) {
+			pinCounts.put(slot, pinCount - 1);
+			return;
+		}
+		pinCounts.remove(slot);
+		storeStack(slot, liveStacks.remove(slot));
+	}
+
+	/**
+	 * Get the live stack for a pinned slot.  It can be altered directly, the same as the stacks in a normal IInventory.
+	 */
+	public ItemStack getLiveStack(int slot)
+	{
+		ItemStack liveStack = liveStacks.get(slot);
+		return (liveStack != null) ? liveStack : ItemStack.field_190927_a;  // EMPTY_ITEM
+	}
+
+	/**
+	 * Copy all the live stacks back into the arrays.  The slots stay pinned.
+	 */
+	public void flushLiveStacks()
+	{
+		for (Map.Entry<Integer, ItemStack> entry : liveStacks.entrySet()) {
+			storeStack(entry.getKey(), entry.getValue());
+		}
+	}
+
+	// ------- saving and loading
+
+	/**
+	 * Save the storage in the given tag.
+	 * Instead of the usual list of one compound tag per slot (see IndexedInventory.writeItemStacksToNBT()), the slots are
+	 *   saved in packed arrays:
+	 *   "Palette" - the registry names of the items in the storage (so that the save doesn't depend on the numeric ids)
+	 *   "Items" - for each slot: (palette index << 16) | metadata
+	 *   "Counts" - for each slot: the stack size (0 = empty)
+	 *   "Tags" - for each stack with NBT: the slot number ("Slot") and the whole stack ("Stack")
+	 */
+	public void writeToNBT(NBTTagCompound parentNBTTagCompound)
+	{
+		flushLiveStacks();
+		Map<Integer, Integer> paletteIndexForItemId = new HashMap<Integer, Integer>();
+		NBTTagList palette = new NBTTagList();
+		int [] packedItems = new int[counts.length];
+		for (int slot = 0; slot < counts.length; ++slot) {
+			if (counts[slot] == 0) continue;
+			Integer paletteIndex = paletteIndexForItemId.get(itemIds[slot]);
+			if (paletteIndex == null) {
+				paletteIndex = palette.tagCount();
+				paletteIndexForItemId.put(itemIds[slot], paletteIndex);
+				ResourceLocation itemName = Item.REGISTRY.getNameForObject(Item.getItemById(itemIds[slot]));
+				palette.appendTag(new NBTTagString(String.valueOf(itemName)));
+			}
+			packedItems[slot] = (paletteIndex << 16) | (metadata[slot] & 0xffff);
+		}
+
+		NBTTagList tagsForSlots = new NBTTagList();
+		for (Map.Entry<Integer, NBTTagCompound> entry : stackNBT.entrySet()) {
+			NBTTagCompound dataForThisSlot = new NBTTagCompound();
+			dataForThisSlot.setInteger("Slot", entry.getKey());
+			dataForThisSlot.setTag("Stack", entry.getValue().copy());
+			tagsForSlots.appendTag(dataForThisSlot);
+		}
+
+		parentNBTTagCompound.setTag("Palette", palette);
+		parentNBTTagCompound.setTag("Items", new NBTTagIntArray(packedItems));
+		parentNBTTagCompound.setTag("Counts", new NBTTagByteArray(counts.clone()));
+		parentNBTTagCompound.setTag("Tags", tagsForSlots);
+	}
+
+	/**
+	 * Load the storage saved by writeToNBT().  Items which no longer exist (eg the mod has been removed) are discarded.
+	 */
+	public void readFromNBT(NBTTagCompound parentNBTTagCompound)
+	{
+		final int NBT_TYPE_STRING = 8;        // See NBTBase.createNewByType() for a listing
+		final int NBT_TYPE_COMPOUND = 10;
+		NBTTagList palette = parentNBTTagCompound.getTagList("Palette", NBT_TYPE_STRING);
+		int [] itemIdForPaletteIndex = new int[palette.tagCount()];
+		for (int i = 0; i < palette.tagCount(); ++i) {
+			Item item = Item.getByNameOrId(palette.getStringTagAt(i));
+			itemIdForPaletteIndex[i] = (item == null) ? NO_ITEM : Item.getIdFromItem(item);
+		}
+
+		Arrays.fill(itemIds, 0);
+		Arrays.fill(metadata, (short)0);
+		Arrays.fill(counts, (byte)0);
+		stackNBT.clear();
+
+		int [] packedItems = parentNBTTagCompound.getIntArray("Items");
+		byte [] savedCounts = parentNBTTagCompound.getByteArray("Counts");
+		int slotsToRead = Math.min(counts.length, Math.min(packedItems.length, savedCounts.length));
+		for (int slot = 0; slot < slotsToRead; ++slot) {
+			if (savedCounts[slot] <= 0) continue;
+			int paletteIndex = packedItems[slot] >>> 16;
+			if (paletteIndex >= itemIdForPaletteIndex.length || itemIdForPaletteIndex[paletteIndex] == NO_ITEM) continue;
+			itemIds[slot] = itemIdForPaletteIndex[paletteIndex];
+			metadata[slot] = (short)packedItems[slot];
+			counts[slot] = savedCounts[slot];
+		}
+
+		NBTTagList tagsForSlots = parentNBTTagCompound.getTagList("Tags", NBT_TYPE_COMPOUND);
+		for (int i = 0; i < tagsForSlots.tagCount(); ++i) {
+			NBTTagCompound dataForThisSlot = tagsForSlots.getCompoundTagAt(i);
+			int slot = dataForThisSlot.getInteger("Slot");
+			if (slot >= 0 && slot < counts.length && counts[slot] != 0) {
+				stackNBT.put(slot, dataForThisSlot.getCompoundTag("Stack"));
+			}
+		}
+
+		for (int slot : liveStacks.keySet()) {
+			updateLiveStack(slot);
+		}
+	}
+
+	// ------- private
+
+	private ItemStack createStack(int slot)
+	{
+		if (counts[slot] == 0) return ItemStack.field_190927_a;  // EMPTY_ITEM
+		NBTTagCompound nbt = stackNBT.get(slot);
+		if (nbt != null) {
+			ItemStack stack = new ItemStack(nbt);
+			stack.func_190920_e(counts[slot]);  // setStackSize()
+			return stack;
+		}
+		return new ItemStack(Item.getItemById(itemIds[slot]), counts[slot], metadata[slot]);
+	}
+
+	private void storeStack(int slot, ItemStack stack)
+	{
+		if (stack.func_190926_b()) {  // isEmpty()
+			itemIds[slot] = 0;
+			metadata[slot] = 0;
+			counts[slot] = 0;
+			stackNBT.remove(slot);
+			return;
+		}
+		itemIds[slot] = Item.getIdFromItem(stack.getItem());
+		metadata[slot] = (short)stack.getMetadata();
+		counts[slot] = (byte)Math.min(stack.func_190916_E(), SLOT_STACK_LIMIT);  // getStackSize()
+		if (stack.hasTagCompound()) {
+			stackNBT.put(slot, stack.writeToNBT(new NBTTagCompound()));
+		} else {
+			stackNBT.remove(slot);
+		}
+	}
+
+	// the arrays have been changed directly: update the live stack (if any) to match
+	private void updateLiveStack(int slot)
+	{
+		if (liveStacks.containsKey(slot)) {
+			liveStacks.put(slot, createStack(slot));
+		}
+	}
+
+	private boolean tagsMatch(int slot, ItemStack stack)
+	{
+		NBTTagCompound nbt = stackNBT.get(slot);
+		if (nbt == null) return !stack.hasTagCompound();
+		return ItemStack.areItemStackTagsEqual(createStack(slot), stack);
+	}
+
+	private int findEmptySlot()
+	{
+		for (int slot = 0; slot < counts.length; ++slot) {
+			if (counts[slot] == 0) return slot;
+		}
+		return -1;
+	}
+
+	private static final int SLOT_STACK_LIMIT = 64;
+	private static final int NO_ITEM = -1;
+
+	private final int [] itemIds;
+	private final short [] metadata;
+	private final byte [] counts;
+	private final Map<Integer, NBTTagCompound> stackNBT = new HashMap<Integer, NBTTagCompound>();
+
+	private final Map<Integer, ItemStack> liveStacks = new HashMap<Integer, ItemStack>();
+	private final Map<Integer, Integer> pinCounts = new HashMap<Integer, Integer>();
+}
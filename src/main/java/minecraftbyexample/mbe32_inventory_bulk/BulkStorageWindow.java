@@ -0,0 +1,202 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentTranslation;
+
+/**
+ * BulkStorageWindow is an IInventory which gives the container access to a few rows of a BulkItemStorage at a time,
+ *   starting from firstRow.  It is used on the server only; on the client, the container uses a plain InventoryBasic
+ *   which the server fills with the stacks in the window.
+ * Because the container's slots only cover the window, vanilla's Container.detectAndSendChanges() only checks (and
+ *   sends to the client) the slots in the window, not all of the storage.
+ * The slots in the window are pinned in the storage (see BulkItemStorage), so that the container can alter the stacks
+ *   directly the same as for any other IInventory.  Call close() when the container is closed to unpin them.
+ */
+public class BulkStorageWindow implements IInventory
+{
+	public static final int COLUMNS = 9;
+
+	public BulkStorageWindow(TileEntityInventoryBulk tileEntity, int rows)
+	{
+		this.tileEntity = tileEntity;
+		this.storage = tileEntity.getStorage();
+		this.rows = rows;
+		pinWindow();
+	}
+
+	/** the total number of rows in the storage (the last one might not be full) */
+	public static int getTotalRows(int numberOfSlots) {
+		return (numberOfSlots + COLUMNS - 1) / COLUMNS;
+	}
+
+	/** the highest allowed firstRow */
+	public static int getMaxFirstRow(int numberOfSlots, int windowRows) {
+		return Math.max(0, getTotalRows(numberOfSlots) - windowRows);
+	}
+
+	public int getFirstRow() {
+		return firstRow;
+	}
+
+	/**
+	 * Move the window so that it starts from the given row (clamped to the storage)
+	 */
+	public void setFirstRow(int newFirstRow)
+	{
+		newFirstRow = Math.max(0, Math.min(newFirstRow, getMaxFirstRow(storage.getSlotCount(), rows)));
+		if (newFirstRow == firstRow) return;
+		unpinWindow();
+		firstRow = newFirstRow;
+		pinWindow();
+	}
+
+	/** unpin the slots in the window; the window can't be used after this */
+	public void close() {
+		unpinWindow();
+	}
+
+	/** the storage slot for the given window slot, or -1 if the window slot is past the end of the storage */
+	public int getStorageSlot(int windowSlot) {
+		int storageSlot = firstRow * COLUMNS + windowSlot;
+		return (storageSlot < storage.getSlotCount()) ? storageSlot : -1;
+	}
+
+	// ------ IInventory methods
+
+	@Override
+	public int getSizeInventory() {
+		return rows * COLUMNS;
+	}
+
+	@Override
+	public boolean func_191420_l() {  // isEmpty()
+		for (int i = 0; i < getSizeInventory(); ++i) {
+			if (!getStackInSlot(i).func_190926_b()) return false;  // isEmpty()
+		}
+		return true;
+	}
+
+	@Override
+	public ItemStack getStackInSlot(int index) {
+		int storageSlot = getStorageSlot(index);
+		return (storageSlot < 0) ? ItemStack.field_190927_a : storage.getLiveStack(storageSlot);  // EMPTY_ITEM
+	}
+
+	@Override
+	public ItemStack decrStackSize(int index, int count)
+	{
+		ItemStack itemStackInSlot = getStackInSlot(index);
+		if (itemStackInSlot.func_190926_b() || count <= 0) return ItemStack.field_190927_a;  // isEmpty(), EMPTY_ITEM
+
+		ItemStack itemStackRemoved = itemStackInSlot.splitStack(count);
+		if (itemStackInSlot.func_190926_b()) {  // isEmpty()
+			setInventorySlotContents(index, ItemStack.field_190927_a);  // EMPTY_ITEM
+		}
+		markDirty();
+		return itemStackRemoved;
+	}
+
+	@Override
+	public ItemStack removeStackFromSlot(int index)
+	{
+		ItemStack itemStack = getStackInSlot(index);
+		if (!itemStack.func_190926_b()) setInventorySlotContents(index, ItemStack.field_190927_a);  //isEmpty(), EMPTY_ITEM
+		return itemStack;
+	}
+
+	@Override
+	public void setInventorySlotContents(int index, ItemStack stack)
+	{
+		int storageSlot = getStorageSlot(index);
+		if (storageSlot < 0) return;
+		storage.setStack(storageSlot, stack);
+		markDirty();
+	}
+
+	@Override
+	public int getInventoryStackLimit() {
+		return storage.getSlotStackLimit();
+	}
+
+	@Override
+	public void markDirty() {
+		tileEntity.markDirty();
+	}
+
+	@Override
+	public boolean isUseableByPlayer(EntityPlayer player) {
+		return tileEntity.isUseableByPlayer(player);
+	}
+
+	// slots past the end of the storage can't hold anything
+	@Override
+	public boolean isItemValidForSlot(int index, ItemStack stack) {
+		return getStorageSlot(index) >= 0;
+	}
+
+	@Override
+	public String getName() {
+		return "container.mbe32_inventory_bulk.name";
+	}
+
+	@Override
+	public boolean hasCustomName() {
+		return false;
+	}
+
+	@Override
+	public ITextComponent getDisplayName() {
+		return new TextComponentTranslation(getName());
+	}
+
+	// -----------------------------------------------------------------------------------------------------------
+	// The following methods are not needed for this example but are part of IInventory so they must be implemented
+
+	@Override
+	public void openInventory(EntityPlayer player) {}
+
+	@Override
+	public void closeInventory(EntityPlayer player) {}
+
+	@Override
+	public int getField(int id) {
+		return 0;
+	}
+
+	@Override
+	public void setField(int id, int value) {}
+
+	@Override
+	public int getFieldCount() {
+		return 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < getSizeInventory(); ++i) {
+			setInventorySlotContents(i, ItemStack.field_190927_a);  // EMPTY_ITEM
+		}
+	}
+
+	private void pinWindow() {
+		for (int i = 0; i < getSizeInventory(); ++i) {
+			int storageSlot = getStorageSlot(i);
+			if (storageSlot >= 0) storage.pinSlot(storageSlot);
+		}
+	}
+
+	private void unpinWindow() {
+		for (int i = 0; i < getSizeInventory(); ++i) {
+			int storageSlot = getStorageSlot(i);
+			if (storageSlot >= 0) storage.unpinSlot(storageSlot);
+		}
+	}
+
+	private final TileEntityInventoryBulk tileEntity;
+	private final BulkItemStorage storage;
+	private final int rows;
+	private int firstRow = 0;
+}
@@ -0,0 +1,256 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.IContainerListener;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.inventory.InventoryBasic;
+import net.minecraft.inventory.Slot;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * The container for the bulk storage.  The storage has far too many slots to show (or send to the client) at once, so
+ *   the container only has slots for a window of WINDOW_ROWS rows, which the player scrolls up and down.
+ * On the server, the window slots are mapped to the storage slots by a BulkStorageWindow.  On the client, they are just a
+ *   plain InventoryBasic which vanilla fills with the stacks sent by the server; when the window scrolls, the stacks for
+ *   the new rows are sent by the usual Container.detectAndSendChanges().
+ *
+ * Scrolling: the client sends a scroll "button" to the server using the vanilla enchantment table packet
+ *   (PlayerControllerMP.sendEnchantPacket() -> Container.enchantItem()), see getFirstRowAfterScroll() for the buttons.
+ *   The server sends the new first row back to the client as a progress bar value.
+ */
+public class ContainerInventoryBulk extends Container {
+
+	public static final int WINDOW_ROWS = 6;
+	public static final int WINDOW_SLOT_COUNT = WINDOW_ROWS * BulkStorageWindow.COLUMNS;
+
+	// scroll buttons: 0 - SCROLL_POSITION_STEPS jump to that fraction of the way down the storage; the others move the
+	//   window up or down by a row or a page
+	public static final int SCROLL_POSITION_STEPS = 100;
+	public static final int SCROLL_ROW_UP = 101;
+	public static final int SCROLL_ROW_DOWN = 102;
+	public static final int SCROLL_PAGE_UP = 103;
+	public static final int SCROLL_PAGE_DOWN = 104;
+
+	private final int FIRST_ROW_FIELD_ID = 0;
+
+	// Stores a reference to the tile entity instance for later use
+	private TileEntityInventoryBulk tileEntityInventoryBulk;
+	private BulkStorageWindow serverWindow;   // null on the client
+	private int clientFirstRow = 0;
+	private int lastFirstRowSent = -1;
+
+	// Each time we add a Slot to the container, it automatically increases the slotIndex, which means
+	//  0 - 8 = hotbar slots (which will map to the InventoryPlayer slot numbers 0 - 8)
+	//  9 - 35 = player inventory slots (which map to the InventoryPlayer slot numbers 9 - 35)
+	//  36 - 89 = window slots, which map to the storage slots starting from (first row * 9)
+
+	private final int HOTBAR_SLOT_COUNT = 9;
+	private final int PLAYER_INVENTORY_ROW_COUNT = 3;
+	private final int PLAYER_INVENTORY_COLUMN_COUNT = 9;
+	private final int PLAYER_INVENTORY_SLOT_COUNT = PLAYER_INVENTORY_COLUMN_COUNT * PLAYER_INVENTORY_ROW_COUNT;
+	private final int VANILLA_SLOT_COUNT = HOTBAR_SLOT_COUNT + PLAYER_INVENTORY_SLOT_COUNT;
+
+	private final int VANILLA_FIRST_SLOT_INDEX = 0;
+	private final int WINDOW_FIRST_SLOT_INDEX = VANILLA_FIRST_SLOT_INDEX + VANILLA_SLOT_COUNT;
+
+	public ContainerInventoryBulk(InventoryPlayer invPlayer, TileEntityInventoryBulk tileEntityInventoryBulk) {
+		this.tileEntityInventoryBulk = tileEntityInventoryBulk;
+		IInventory windowInventory;
+		if (invPlayer.player.worldObj.isRemote) {
+			windowInventory = new InventoryBasic("container.mbe32_inventory_bulk.name", false, WINDOW_SLOT_COUNT);
+		} else {
+			serverWindow = new BulkStorageWindow(tileEntityInventoryBulk, WINDOW_ROWS);
+			windowInventory = serverWindow;
+		}
+
+		// the slot positions match the vanilla large chest texture (see GuiInventoryBulk)
+		final int SLOT_X_SPACING = 18;
+		final int SLOT_Y_SPACING = 18;
+		final int HOTBAR_XPOS = 8;
+		final int HOTBAR_YPOS = 197;
+		// Add the players hotbar to the gui - the [xpos, ypos] location of each item
+		for (int x = 0; x < HOTBAR_SLOT_COUNT; x++) {
+			int slotNumber = x;
+			addSlotToContainer(new Slot(invPlayer, slotNumber, HOTBAR_XPOS + SLOT_X_SPACING * x, HOTBAR_YPOS));
+		}
+
+		final int PLAYER_INVENTORY_XPOS = 8;
+		final int PLAYER_INVENTORY_YPOS = 139;
+		// Add the rest of the players inventory to the gui
+		for (int y = 0; y < PLAYER_INVENTORY_ROW_COUNT; y++) {
+			for (int x = 0; x < PLAYER_INVENTORY_COLUMN_COUNT; x++) {
+				int slotNumber = HOTBAR_SLOT_COUNT + y * PLAYER_INVENTORY_COLUMN_COUNT + x;
+				int xpos = PLAYER_INVENTORY_XPOS + x * SLOT_X_SPACING;
+				int ypos = PLAYER_INVENTORY_YPOS + y * SLOT_Y_SPACING;
+				addSlotToContainer(new Slot(invPlayer, slotNumber,  xpos, ypos));
+			}
+		}
+
+		final int WINDOW_XPOS = 8;
+		final int WINDOW_YPOS = 18;
+		// Add the window slots to the gui
+		for (int y = 0; y < WINDOW_ROWS; y++) {
+			for (int x = 0; x < BulkStorageWindow.COLUMNS; x++) {
+				int slotNumber = y * BulkStorageWindow.COLUMNS + x;
+				int xpos = WINDOW_XPOS + x * SLOT_X_SPACING;
+				int ypos = WINDOW_YPOS + y * SLOT_Y_SPACING;
+				addSlotToContainer(new SlotWindow(windowInventory, slotNumber, xpos, ypos));
+			}
+		}
+	}
+
+	/** the row of the storage shown at the top of the window */
+	public int getFirstRow() {
+		return (serverWindow != null) ? serverWindow.getFirstRow() : clientFirstRow;
+	}
+
+	/** the number of rows in the storage */
+	public int getTotalRows() {
+		return BulkStorageWindow.getTotalRows(tileEntityInventoryBulk.getStorage().getSlotCount());
+	}
+
+	/**
+	 * Work out where the window will be after the given scroll button is pressed.  Used by the client (to decide which
+	 *   button to send) as well as the server.
+	 */
+	public int getFirstRowAfterScroll(int button) {
+		int maxFirstRow = BulkStorageWindow.getMaxFirstRow(tileEntityInventoryBulk.getStorage().getSlotCount(), WINDOW_ROWS);
+		int firstRow = getFirstRow();
+		switch (button) {
+			case SCROLL_ROW_UP: firstRow -= 1; break;
+			case SCROLL_ROW_DOWN: firstRow += 1; break;
+			case SCROLL_PAGE_UP: firstRow -= WINDOW_ROWS; break;
+			case SCROLL_PAGE_DOWN: firstRow += WINDOW_ROWS; break;
+			default: {
+				if (button < 0 || button > SCROLL_POSITION_STEPS) return firstRow;
+				firstRow = (maxFirstRow * button + SCROLL_POSITION_STEPS / 2) / SCROLL_POSITION_STEPS;
+				break;
+			}
+		}
+		return Math.max(0, Math.min(firstRow, maxFirstRow));
+	}
+
+	// Called on the server when the client presses a scroll button (see the class description)
+	@Override
+	public boolean enchantItem(EntityPlayer playerIn, int button) {
+		if (serverWindow == null) return false;
+		serverWindow.setFirstRow(getFirstRowAfterScroll(button));
+		return true;
+	}
+
+	// Vanilla calls this method every tick to make sure the player is still able to access the inventory, and if not closes the gui
+	@Override
+	public boolean canInteractWith(EntityPlayer player)
+	{
+		return tileEntityInventoryBulk.isUseableByPlayer(player);
+	}
+
+	/* Client Synchronization */
+
+	// The stacks in the window slots are checked by Container.detectAndSendChanges() (only the WINDOW_SLOT_COUNT slots in
+	//   the window, not the whole storage); we just need to send the window position when it changes.
+	@Override
+	public void detectAndSendChanges() {
+		super.detectAndSendChanges();
+		int firstRow = getFirstRow();
+		if (firstRow != lastFirstRowSent) {
+			for (IContainerListener listener : listeners) {
+				listener.sendProgressBarUpdate(this, FIRST_ROW_FIELD_ID, firstRow);
+			}
+			lastFirstRowSent = firstRow;
+		}
+	}
+
+	// When a second player opens the container, they need the window position
+	@Override
+	public void addListener(IContainerListener listener) {
+		super.addListener(listener);
+		listener.sendProgressBarUpdate(this, FIRST_ROW_FIELD_ID, getFirstRow());
+	}
+
+	@SideOnly(Side.CLIENT)
+	@Override
+	public void updateProgressBar(int id, int data) {
+		if (id == FIRST_ROW_FIELD_ID) clientFirstRow = data;
+	}
+
+	// This is where you specify what happens when a player shift clicks a slot in the gui
+	//  (when you shift click a slot in the window, it moves it to the first available position in the hotbar and/or
+	//    player inventory.  When you you shift-click a hotbar or player inventory item, it moves it into the storage,
+	//    even if the slot it goes to isn't in the window)
+	// returns EMPTY_ITEM if the source slot is empty, or if none of the the source slot items could be moved
+	//   otherwise, returns a copy of the source stack
+	@Override
+	public ItemStack transferStackInSlot(EntityPlayer player, int sourceSlotIndex)
+	{
+		Slot sourceSlot = (Slot)inventorySlots.get(sourceSlotIndex);
+		if (sourceSlot == null || !sourceSlot.getHasStack()) return ItemStack.field_190927_a;  //EMPTY_ITEM
+		ItemStack sourceStack = sourceSlot.getStack();
+		ItemStack copyOfSourceStack = sourceStack.copy();
+
+		// Check if the slot clicked is one of the vanilla container slots
+		if (sourceSlotIndex >= VANILLA_FIRST_SLOT_INDEX && sourceSlotIndex < VANILLA_FIRST_SLOT_INDEX + VANILLA_SLOT_COUNT) {
+			// This is a vanilla container slot so merge the stack into the storage.
+			// On the client, we can only see the window, so we predict the result by merging into the window slots; the
+			//   server will send the correct result straight afterwards.
+			boolean moved;
+			if (serverWindow != null) {
+				moved = tileEntityInventoryBulk.getStorage().insertStack(sourceStack);
+				if (moved) tileEntityInventoryBulk.markDirty();
+			} else {
+				moved = mergeItemStack(sourceStack, WINDOW_FIRST_SLOT_INDEX, WINDOW_FIRST_SLOT_INDEX + WINDOW_SLOT_COUNT, false);
+			}
+			if (!moved) {
+				return ItemStack.field_190927_a;  // EMPTY_ITEM
+			}
+		} else if (sourceSlotIndex >= WINDOW_FIRST_SLOT_INDEX && sourceSlotIndex < WINDOW_FIRST_SLOT_INDEX + WINDOW_SLOT_COUNT) {
+			// This is a window slot so merge the stack into the players inventory
+			if (!mergeItemStack(sourceStack, VANILLA_FIRST_SLOT_INDEX, VANILLA_FIRST_SLOT_INDEX + VANILLA_SLOT_COUNT, false)) {
+				return ItemStack.field_190927_a;   // EMPTY_ITEM
+			}
+		} else {
+			System.err.print("Invalid slotIndex:" + sourceSlotIndex);
+			return ItemStack.field_190927_a;   // EMPTY_ITEM
+		}
+
+		// If stack size == 0 (the entire stack was moved) set slot contents to null
+		if (sourceStack.func_190916_E() == 0) {  // getStackSize
+			sourceSlot.putStack(ItemStack.field_190927_a);  // EMPTY_ITEM
+		} else {
+			sourceSlot.onSlotChanged();
+		}
+
+		sourceSlot.func_190901_a(player, sourceStack);  //onPickupFromSlot()
+		return copyOfSourceStack;
+	}
+
+	// unpin the window's slots in the storage
+	@Override
+	public void onContainerClosed(EntityPlayer playerIn)
+	{
+		super.onContainerClosed(playerIn);
+		if (serverWindow != null) serverWindow.close();
+	}
+
+	// SlotWindow is a slot in the window.  If the storage doesn't fill the last row, the slots past the end can't be used.
+	public class SlotWindow extends Slot {
+		public SlotWindow(IInventory inventoryIn, int index, int xPosition, int yPosition) {
+			super(inventoryIn, index, xPosition, yPosition);
+		}
+
+		@Override
+		public boolean isItemValid(ItemStack stack) {
+			int storageSlot = getFirstRow() * BulkStorageWindow.COLUMNS + getSlotIndex();
+			return storageSlot < tileEntityInventoryBulk.getStorage().getSlotCount();
+		}
+
+		@Override
+		public int getSlotStackLimit() {
+			return tileEntityInventoryBulk.getStorage().getSlotStackLimit();
+		}
+	}
+}
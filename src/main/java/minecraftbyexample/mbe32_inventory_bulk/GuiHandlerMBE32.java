@@ -0,0 +1,49 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.common.network.IGuiHandler;
+
+/**
+ * This class is used to get the client and server gui elements when a player opens a gui. There can only be one registered
+ *   IGuiHandler instance handler per mod.
+ */
+public class GuiHandlerMBE32 implements IGuiHandler {
+	private static final int GUIID_MBE_32 = 32;
+	public static int getGuiID() {return GUIID_MBE_32;}
+
+	// Gets the server side element for the given gui id- this should return a container
+	@Override
+	public Object getServerGuiElement(int ID, EntityPlayer player, World world, int x, int y, int z) {
+		if (ID != getGuiID()) {
+			System.err.println("Invalid ID: expected " + getGuiID() + ", received " + ID);
+		}
+
+		BlockPos xyz = new BlockPos(x, y, z);
+		TileEntity tileEntity = world.getTileEntity(xyz);
+		if (tileEntity instanceof TileEntityInventoryBulk) {
+			TileEntityInventoryBulk tileEntityInventoryBulk = (TileEntityInventoryBulk) tileEntity;
+			return new ContainerInventoryBulk(player.inventory, tileEntityInventoryBulk);
+		}
+		return null;
+	}
+
+	// Gets the client side element for the given gui id- this should return a gui
+	@Override
+	public Object getClientGuiElement(int ID, EntityPlayer player, World world, int x, int y, int z) {
+		if (ID != getGuiID()) {
+			System.err.println("Invalid ID: expected " + getGuiID() + ", received " + ID);
+		}
+
+		BlockPos xyz = new BlockPos(x, y, z);
+		TileEntity tileEntity = world.getTileEntity(xyz);
+		if (tileEntity instanceof TileEntityInventoryBulk) {
+			TileEntityInventoryBulk tileEntityInventoryBulk = (TileEntityInventoryBulk) tileEntity;
+			return new GuiInventoryBulk(player.inventory, tileEntityInventoryBulk);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,145 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.inventory.GuiContainer;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+import org.lwjgl.input.Keyboard;
+import org.lwjgl.input.Mouse;
+
+import java.awt.*;
+import java.io.IOException;
+
+/**
+ * GuiInventoryBulk shows a window of six rows of the bulk storage, using the vanilla large chest background, with a
+ *   scroll bar on the right.  The background is widened to make room for the scroll bar.
+ * The player scrolls using the mouse wheel, the up / down / page up / page down keys, or by clicking on the scroll bar.
+ *   Each of these sends a scroll button to the server (see ContainerInventoryBulk); the server moves the window and sends
+ *   back the new position and the stacks in the window.
+ */
+@SideOnly(Side.CLIENT)
+public class GuiInventoryBulk extends GuiContainer {
+
+	// the vanilla large chest background
+	private static final ResourceLocation texture = new ResourceLocation("textures/gui/container/generic_54.png");
+	private TileEntityInventoryBulk tileEntityInventoryBulk;
+	private ContainerInventoryBulk containerInventoryBulk;
+
+	public GuiInventoryBulk(InventoryPlayer invPlayer, TileEntityInventoryBulk tile) {
+		super(new ContainerInventoryBulk(invPlayer, tile));
+		tileEntityInventoryBulk = tile;
+		containerInventoryBulk = (ContainerInventoryBulk)inventorySlots;
+		// Set the width and height of the gui.  Should match the size of the texture, plus the room for the scroll bar
+		xSize = TEXTURE_WIDTH + EXTRA_WIDTH;
+		ySize = 222;
+	}
+
+	final int TEXTURE_WIDTH = 176;
+	final int EXTRA_WIDTH = 10;
+	final int RIGHT_EDGE_WIDTH = 4;  // the frame down the right-hand side of the texture
+
+	// some [x,y] coordinates of graphical elements
+	final int SCROLL_BAR_XPOS = 172;
+	final int SCROLL_BAR_YPOS = 18;
+	final int SCROLL_BAR_WIDTH = 6;
+	final int SCROLL_BAR_HEIGHT = ContainerInventoryBulk.WINDOW_ROWS * 18;
+	final int SCROLL_THUMB_HEIGHT = 12;
+
+	// draw the background for the GUI - rendered first
+	@Override
+	protected void drawGuiContainerBackgroundLayer(float partialTicks, int x, int y) {
+		// Bind the image texture
+		Minecraft.getMinecraft().getTextureManager().bindTexture(texture);
+		// Draw the image, widened for the scroll bar: everything except the right-hand edge, then the column just before
+		//   the edge repeated to fill the extra width, then the edge
+		GlStateManager.color(1.0F, 1.0F, 1.0F, 1.0F);
+		final int LEFT_PART_WIDTH = TEXTURE_WIDTH - RIGHT_EDGE_WIDTH;
+		drawBackgroundColumns(0, 0, LEFT_PART_WIDTH);
+		for (int column = 0; column < EXTRA_WIDTH; ++column) {
+			drawBackgroundColumns(LEFT_PART_WIDTH + column, LEFT_PART_WIDTH - 1, 1);
+		}
+		drawBackgroundColumns(LEFT_PART_WIDTH + EXTRA_WIDTH, LEFT_PART_WIDTH, RIGHT_EDGE_WIDTH);
+
+		// draw the scroll bar, with the thumb showing where the window is
+		final int BAR_COLOUR = 0xFF8B8B8B;
+		final int THUMB_COLOUR = 0xFFFFFFFF;
+		int barLeft = guiLeft + SCROLL_BAR_XPOS;
+		int barTop = guiTop + SCROLL_BAR_YPOS;
+		drawRect(barLeft, barTop, barLeft + SCROLL_BAR_WIDTH, barTop + SCROLL_BAR_HEIGHT, BAR_COLOUR);
+		int maxFirstRow = Math.max(1, containerInventoryBulk.getTotalRows() - ContainerInventoryBulk.WINDOW_ROWS);
+		int thumbTop = barTop + (SCROLL_BAR_HEIGHT - SCROLL_THUMB_HEIGHT) * containerInventoryBulk.getFirstRow() / maxFirstRow;
+		drawRect(barLeft, thumbTop, barLeft + SCROLL_BAR_WIDTH, thumbTop + SCROLL_THUMB_HEIGHT, THUMB_COLOUR);
+	}
+
+	// draw some columns of the background texture: the top part (title and window rows), then the bottom part (player
+	//   inventory), the same as GuiChest
+	private void drawBackgroundColumns(int xpos, int textureU, int width) {
+		final int TOP_PART_HEIGHT = ContainerInventoryBulk.WINDOW_ROWS * 18 + 17;
+		final int BOTTOM_PART_V = 126;
+		final int BOTTOM_PART_HEIGHT = 96;
+		drawTexturedModalRect(guiLeft + xpos, guiTop, textureU, 0, width, TOP_PART_HEIGHT);
+		drawTexturedModalRect(guiLeft + xpos, guiTop + TOP_PART_HEIGHT, textureU, BOTTOM_PART_V, width, BOTTOM_PART_HEIGHT);
+	}
+
+	// draw the foreground for the GUI - rendered after the slots, but before the dragged items and tooltips
+	// renders relative to the top left corner of the background
+	@Override
+	protected void drawGuiContainerForegroundLayer(int mouseX, int mouseY) {
+		final int LABEL_XPOS = 8;
+		final int LABEL_YPOS = 6;
+		fontRendererObj.drawString(tileEntityInventoryBulk.getDisplayName().getUnformattedText(), LABEL_XPOS, LABEL_YPOS, Color.darkGray.getRGB());
+
+		int firstRow = containerInventoryBulk.getFirstRow();
+		int lastRow = Math.min(firstRow + ContainerInventoryBulk.WINDOW_ROWS, containerInventoryBulk.getTotalRows());
+		String rowsText = "Rows " + (firstRow + 1) + "-" + lastRow + " of " + containerInventoryBulk.getTotalRows();
+		final int ROWS_LABEL_RIGHT_XPOS = 168;
+		fontRendererObj.drawString(rowsText, ROWS_LABEL_RIGHT_XPOS - fontRendererObj.getStringWidth(rowsText), LABEL_YPOS,
+						                   Color.darkGray.getRGB());
+	}
+
+	// scroll using the mouse wheel
+	@Override
+	public void handleMouseInput() throws IOException {
+		super.handleMouseInput();
+		int wheel = Mouse.getEventDWheel();
+		if (wheel > 0) {
+			sendScrollButton(ContainerInventoryBulk.SCROLL_ROW_UP);
+		} else if (wheel < 0) {
+			sendScrollButton(ContainerInventoryBulk.SCROLL_ROW_DOWN);
+		}
+	}
+
+	// scroll using the keyboard
+	@Override
+	protected void keyTyped(char typedChar, int keyCode) throws IOException {
+		switch (keyCode) {
+			case Keyboard.KEY_UP: sendScrollButton(ContainerInventoryBulk.SCROLL_ROW_UP); return;
+			case Keyboard.KEY_DOWN: sendScrollButton(ContainerInventoryBulk.SCROLL_ROW_DOWN); return;
+			case Keyboard.KEY_PRIOR: sendScrollButton(ContainerInventoryBulk.SCROLL_PAGE_UP); return;
+			case Keyboard.KEY_NEXT: sendScrollButton(ContainerInventoryBulk.SCROLL_PAGE_DOWN); return;
+			default: super.keyTyped(typedChar, keyCode);
+		}
+	}
+
+	// jump to the position on the scroll bar
+	@Override
+	protected void mouseClicked(int mouseX, int mouseY, int mouseButton) throws IOException {
+		int barX = mouseX - guiLeft - SCROLL_BAR_XPOS;
+		int barY = mouseY - guiTop - SCROLL_BAR_YPOS;
+		if (barX >= 0 && barX < SCROLL_BAR_WIDTH && barY >= 0 && barY < SCROLL_BAR_HEIGHT) {
+			int position = barY * ContainerInventoryBulk.SCROLL_POSITION_STEPS / (SCROLL_BAR_HEIGHT - 1);
+			sendScrollButton(position);
+			return;
+		}
+		super.mouseClicked(mouseX, mouseY, mouseButton);
+	}
+
+	// tell the server to move the window (unless it's already there)
+	private void sendScrollButton(int button) {
+		if (containerInventoryBulk.getFirstRowAfterScroll(button) == containerInventoryBulk.getFirstRow()) return;
+		mc.playerController.sendEnchantPacket(containerInventoryBulk.windowId, button);
+	}
+}
@@ -0,0 +1,33 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+import net.minecraft.client.renderer.block.model.ModelResourceLocation;
+import net.minecraftforge.client.model.ModelLoader;
+
+/**
+ * The Startup class for this example is called during startup, in the following order:
+ *  preInitCommon
+ *  preInitClientOnly
+ *  initCommon
+ *  initClientOnly
+ *  postInitCommon
+ *  postInitClientOnly
+ *  See MinecraftByExample class for more information
+ */
+public class StartupClientOnly
+{
+	public static void preInitClientOnly()
+	{
+		// the model for the block when it is an item; see MBE30 for more information
+		ModelResourceLocation itemModelResourceLocation = new ModelResourceLocation("minecraftbyexample:mbe32_inventory_bulk", "inventory");
+		final int DEFAULT_ITEM_SUBTYPE = 0;
+		ModelLoader.setCustomModelResourceLocation(StartupCommon.itemBlockInventoryBulk, DEFAULT_ITEM_SUBTYPE, itemModelResourceLocation);
+	}
+
+	public static void initClientOnly()
+	{
+	}
+
+	public static void postInitClientOnly()
+	{
+	}
+}
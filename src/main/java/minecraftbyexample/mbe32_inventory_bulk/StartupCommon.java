@@ -0,0 +1,49 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+import minecraftbyexample.GuiHandlerRegistry;
+import minecraftbyexample.MinecraftByExample;
+import net.minecraft.block.Block;
+import net.minecraft.item.ItemBlock;
+import net.minecraftforge.fml.common.network.NetworkRegistry;
+import net.minecraftforge.fml.common.registry.GameRegistry;
+
+/**
+ * The Startup classes for this example are called during startup, in the following order:
+ *  preInitCommon
+ *  preInitClientOnly
+ *  initCommon
+ *  initClientOnly
+ *  postInitCommon
+ *  postInitClientOnly
+ *  See MinecraftByExample class for more information
+ */
+public class StartupCommon
+{
+	public static Block blockInventoryBulk;  // this holds the unique instance of your block
+	public static ItemBlock itemBlockInventoryBulk; // and the corresponding item form that block
+
+	public static void preInitCommon()
+	{
+		blockInventoryBulk = new BlockInventoryBulk().setRegistryName("mbe32_inventory_bulk");
+		blockInventoryBulk.setUnlocalizedName("mbe32_inventory_bulk");
+		GameRegistry.register(blockInventoryBulk);
+
+		itemBlockInventoryBulk = new ItemBlock(blockInventoryBulk);
+		itemBlockInventoryBulk.setRegistryName(blockInventoryBulk.getRegistryName());
+		GameRegistry.register(itemBlockInventoryBulk);
+
+		GameRegistry.registerTileEntity(TileEntityInventoryBulk.class, "mbe32_tile_inventory_bulk");
+
+		// See MBE30 for an explanation of the GuiHandlerRegistry
+		NetworkRegistry.INSTANCE.registerGuiHandler(MinecraftByExample.instance, GuiHandlerRegistry.getInstance());
+		GuiHandlerRegistry.getInstance().registerGuiHandler(new GuiHandlerMBE32(), GuiHandlerMBE32.getGuiID());
+	}
+
+	public static void initCommon()
+	{
+	}
+
+	public static void postInitCommon()
+	{
+	}
+}
@@ -0,0 +1,66 @@
+package minecraftbyexample.mbe32_inventory_bulk;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentTranslation;
+
+/**
+ * This is a tile entity that can store a large number of item stacks (10,000).
+ * Unlike TileEntityInventoryBasic, it doesn't implement IInventory: there are far too many slots for hoppers and other
+ *   automation to look at them one at a time, and storing an ItemStack object for each slot would waste a lot of memory.
+ * Instead, the stacks are stored in primitive arrays (see BulkItemStorage), and the container only gives the player
+ *   access to a window of the slots at a time (see BulkStorageWindow).
+ */
+public class TileEntityInventoryBulk extends TileEntity
+{
+	public static final int NUMBER_OF_SLOTS = 10000;
+
+	public TileEntityInventoryBulk()
+	{
+		storage = new BulkItemStorage(NUMBER_OF_SLOTS);
+	}
+
+	public BulkItemStorage getStorage() {
+		return storage;
+	}
+
+	// Return true if the given player is able to use this block. In this case it checks that
+	// 1) the world tileentity hasn't been replaced in the meantime, and
+	// 2) the player isn't too far away from the centre of the block
+	public boolean isUseableByPlayer(EntityPlayer player) {
+		if (this.worldObj.getTileEntity(this.pos) != this) return false;
+		final double X_CENTRE_OFFSET = 0.5;
+		final double Y_CENTRE_OFFSET = 0.5;
+		final double Z_CENTRE_OFFSET = 0.5;
+		final double MAXIMUM_DISTANCE_SQ = 8.0 * 8.0;
+		return player.getDistanceSq(pos.getX() + X_CENTRE_OFFSET, pos.getY() + Y_CENTRE_OFFSET, pos.getZ() + Z_CENTRE_OFFSET) < MAXIMUM_DISTANCE_SQ;
+	}
+
+	// This is where you save any data that you don't want to lose when the tile entity unloads
+	// In this case, it saves the contents of the storage, in a packed format (see BulkItemStorage.writeToNBT())
+	@Override
+	public NBTTagCompound writeToNBT(NBTTagCompound parentNBTTagCompound)
+	{
+		super.writeToNBT(parentNBTTagCompound); // The super call is required to save and load the tileEntity's location
+		storage.writeToNBT(parentNBTTagCompound);
+		return parentNBTTagCompound;
+	}
+
+	// This is where you load the data that you saved in writeToNBT
+	@Override
+	public void readFromNBT(NBTTagCompound parentNBTTagCompound)
+	{
+		super.readFromNBT(parentNBTTagCompound); // The super call is required to save and load the tiles location
+		storage.readFromNBT(parentNBTTagCompound);
+	}
+
+	// will add a key for this container to the lang file so we can name it in the GUI
+	@Override
+	public ITextComponent getDisplayName() {
+		return new TextComponentTranslation("container.mbe32_inventory_bulk.name");
+	}
+
+	private final BulkItemStorage storage;
+}
@@ -46,6 +46,11 @@ public class MBEConfiguration {
 	public static int[] myIntList;
 	public static String myString;
 	public static String myColour;
+	public static int furnaceTickInterval;
+	public static int furnaceMaxCatchUpTicks;
+	public static boolean furnaceTickManager;
+	public static boolean gemBatchRendering;
+	public static boolean compiledRedstoneGraph;
 
 	public static final String CATEGORY_NAME_GENERAL = "category_general";
 	public static final String CATEGORY_NAME_OTHER = "category_other";
@@ -205,6 +210,42 @@ public class MBEConfiguration {
 		propColour.setLanguageKey("gui.mbe70_configuration.myColour").setRequiresWorldRestart(true);
 		propColour.setValidValues(COLOUR_CHOICES);
 
+		// the MBE31 furnace "coarse tick" mode: how often (in ticks) the server updates each furnace.  1 = every tick.
+		final int FURNACE_TICK_INTERVAL_MIN_VALUE = 1;
+		final int FURNACE_TICK_INTERVAL_MAX_VALUE = 100;
+		final int FURNACE_TICK_INTERVAL_DEFAULT_VALUE = 1;
+		Property propFurnaceTickInterval = config.get(CATEGORY_NAME_OTHER, "furnaceTickInterval", FURNACE_TICK_INTERVAL_DEFAULT_VALUE,
+				"Number of ticks between furnace updates on the server (furnaceTickInterval)",
+				FURNACE_TICK_INTERVAL_MIN_VALUE, FURNACE_TICK_INTERVAL_MAX_VALUE);
+		propFurnaceTickInterval.setLanguageKey("gui.mbe70_configuration.furnaceTickInterval");
+
+		// the MBE31 furnace catch-up when its chunk is reloaded: the maximum number of unloaded ticks to simulate.  0 = none.
+		final int FURNACE_MAX_CATCH_UP_MIN_VALUE = 0;
+		final int FURNACE_MAX_CATCH_UP_MAX_VALUE = 1728000;  // one day of real time
+		final int FURNACE_MAX_CATCH_UP_DEFAULT_VALUE = 24000;  // one minecraft day
+		Property propFurnaceMaxCatchUp = config.get(CATEGORY_NAME_OTHER, "furnaceMaxCatchUpTicks", FURNACE_MAX_CATCH_UP_DEFAULT_VALUE,
+				"Maximum number of ticks a furnace will catch up on when its chunk is reloaded (furnaceMaxCatchUpTicks)",
+				FURNACE_MAX_CATCH_UP_MIN_VALUE, FURNACE_MAX_CATCH_UP_MAX_VALUE);
+		propFurnaceMaxCatchUp.setLanguageKey("gui.mbe70_configuration.furnaceMaxCatchUpTicks");
+
+		// the MBE31 furnace tick manager: update all the furnaces in a world together, instead of ticking each one separately
+		final boolean FURNACE_TICK_MANAGER_DEFAULT_VALUE = false;
+		Property propFurnaceTickManager = config.get(CATEGORY_NAME_OTHER, "furnaceTickManager", FURNACE_TICK_MANAGER_DEFAULT_VALUE);
+		propFurnaceTickManager.setComment("Update all the furnaces in a world together in one batch (furnaceTickManager)");
+		propFurnaceTickManager.setLanguageKey("gui.mbe70_configuration.furnaceTickManager").setRequiresWorldRestart(true);
+
+		// the MBE21 gem batch rendering: draw all the gems together with a fast TESR, instead of one at a time
+		final boolean GEM_BATCH_RENDERING_DEFAULT_VALUE = false;
+		Property propGemBatchRendering = config.get(CATEGORY_NAME_OTHER, "gemBatchRendering", GEM_BATCH_RENDERING_DEFAULT_VALUE);
+		propGemBatchRendering.setComment("Draw all the MBE21 gems together in one batch (gemBatchRendering)");
+		propGemBatchRendering.setLanguageKey("gui.mbe70_configuration.gemBatchRendering");
+
+		// the MBE06 signal graph: evaluate connected redstone blocks once per tick in topological order, instead of cascading updates
+		final boolean COMPILED_REDSTONE_GRAPH_DEFAULT_VALUE = false;
+		Property propCompiledRedstoneGraph = config.get(CATEGORY_NAME_OTHER, "compiledRedstoneGraph", COMPILED_REDSTONE_GRAPH_DEFAULT_VALUE);
+		propCompiledRedstoneGraph.setComment("Update connected MBE06 redstone blocks together at the end of the tick (compiledRedstoneGraph)");
+		propCompiledRedstoneGraph.setLanguageKey("gui.mbe70_configuration.compiledRedstoneGraph");
+
 		// By defining a property order we can control the order of the
 		// properties in the config file and GUI. This is defined on a per config-category basis.
 		
@@ -218,6 +259,11 @@ public class MBEConfiguration {
 
 		List<String> propOrderOther = new ArrayList<String>();
 		propOrderOther.add(propColour.getName());
+		propOrderOther.add(propFurnaceTickInterval.getName());
+		propOrderOther.add(propFurnaceMaxCatchUp.getName());
+		propOrderOther.add(propFurnaceTickManager.getName());
+		propOrderOther.add(propGemBatchRendering.getName());
+		propOrderOther.add(propCompiledRedstoneGraph.getName());
 		config.setCategoryPropertyOrder(CATEGORY_NAME_OTHER, propOrderOther);
 
 		/*
@@ -262,6 +308,22 @@ public class MBEConfiguration {
 			if (!matched) {
 				myColour = COLOUR_DEFAULT_VALUE;
 			}
+
+			furnaceTickInterval = propFurnaceTickInterval.getInt(FURNACE_TICK_INTERVAL_DEFAULT_VALUE);
+			if (furnaceTickInterval > FURNACE_TICK_INTERVAL_MAX_VALUE || furnaceTickInterval < FURNACE_TICK_INTERVAL_MIN_VALUE) {
+				furnaceTickInterval = FURNACE_TICK_INTERVAL_DEFAULT_VALUE;
+			}
+
+			furnaceMaxCatchUpTicks = propFurnaceMaxCatchUp.getInt(FURNACE_MAX_CATCH_UP_DEFAULT_VALUE);
+			if (furnaceMaxCatchUpTicks > FURNACE_MAX_CATCH_UP_MAX_VALUE || furnaceMaxCatchUpTicks < FURNACE_MAX_CATCH_UP_MIN_VALUE) {
+				furnaceMaxCatchUpTicks = FURNACE_MAX_CATCH_UP_DEFAULT_VALUE;
+			}
+
+			furnaceTickManager = propFurnaceTickManager.getBoolean(FURNACE_TICK_MANAGER_DEFAULT_VALUE);
+
+			gemBatchRendering = propGemBatchRendering.getBoolean(GEM_BATCH_RENDERING_DEFAULT_VALUE);
+
+			compiledRedstoneGraph = propCompiledRedstoneGraph.getBoolean(COMPILED_REDSTONE_GRAPH_DEFAULT_VALUE);
 		}
 
 		/*
@@ -278,6 +340,11 @@ public class MBEConfiguration {
 		propMyString.set(myString);
 		propMyIntList.set(myIntList);
 		propColour.set(myColour);
+		propFurnaceTickInterval.set(furnaceTickInterval);
+		propFurnaceMaxCatchUp.set(furnaceMaxCatchUpTicks);
+		propFurnaceTickManager.set(furnaceTickManager);
+		propGemBatchRendering.set(gemBatchRendering);
+		propCompiledRedstoneGraph.set(compiledRedstoneGraph);
 
 		if (config.hasChanged()) {
 			config.save();
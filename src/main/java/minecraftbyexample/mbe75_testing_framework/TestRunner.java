@@ -1,14 +1,84 @@
 package minecraftbyexample.mbe75_testing_framework;
 
+import minecraftbyexample.mbe06_redstone.SignalGraph;
+import minecraftbyexample.mbe06_redstone.input.BlockRedstoneColouredLamp;
+import minecraftbyexample.mbe06_redstone.input.TileEntityRedstoneColouredLamp;
+import minecraftbyexample.mbe06_redstone.input_and_output.TileEntityRedstoneMeter;
+import minecraftbyexample.mbe06_redstone.input_and_output.TileEntitySpecialRendererRedstoneMeter;
+import minecraftbyexample.mbe06_redstone.output_only.BlockRedstoneVariableSource;
+import minecraftbyexample.mbe20_tileentity_data.TileEntityData;
+import minecraftbyexample.mbe21_tileentityspecialrenderer.BakedGemModel;
+import minecraftbyexample.mbe21_tileentityspecialrenderer.GemMesh;
+import minecraftbyexample.mbe21_tileentityspecialrenderer.TileEntityMBE21;
+import minecraftbyexample.mbe30_inventory_basic.TileEntityInventoryBasic;
+import minecraftbyexample.mbe31_inventory_furnace.BlockInventoryFurnace;
+import minecraftbyexample.mbe31_inventory_furnace.FurnaceTickManager;
+import minecraftbyexample.mbe31_inventory_furnace.TileInventoryFurnace;
+import minecraftbyexample.mbe32_inventory_bulk.BulkItemStorage;
+import minecraftbyexample.mbe32_inventory_bulk.BulkStorageWindow;
+import minecraftbyexample.mbe32_inventory_bulk.ContainerInventoryBulk;
+import minecraftbyexample.mbe32_inventory_bulk.TileEntityInventoryBulk;
+import minecraftbyexample.mbe70_configuration.MBEConfiguration;
+import minecraftbyexample.usefultools.DeferredLightUpdates;
+import minecraftbyexample.usefultools.IndexedInventoryItemHandler;
+import minecraftbyexample.usefultools.OscillatorBus;
+import minecraftbyexample.usefultools.PackedInventoryNBT;
+import minecraftbyexample.usefultools.PrimitiveArrayNBT;
+import minecraftbyexample.usefultools.SyncedFieldTracker;
+import minecraftbyexample.usefultools.TimerWheel;
 import net.minecraft.block.BlockLadder;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.Tessellator;
+import net.minecraft.client.renderer.VertexBuffer;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.texture.TextureMap;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
 import net.minecraft.command.CommandClone;
 import net.minecraft.command.server.CommandTeleport;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.init.Blocks;
+import net.minecraft.init.Items;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.inventory.InventoryBasic;
+import net.minecraft.inventory.Slot;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.network.play.server.SPacketUpdateTileEntity;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
+import net.minecraft.util.ITickable;
+import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
 import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.ICapabilitySerializable;
+import net.minecraftforge.event.AttachCapabilitiesEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.items.CapabilityItemHandler;
+import net.minecraftforge.items.IItemHandler;
+import org.lwjgl.opengl.GL11;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -29,6 +99,54 @@ public class TestRunner
         success = test1(worldIn, playerIn);
         break;
       }
+      case 2: {
+        success = test2(worldIn, playerIn);
+        break;
+      }
+      case 3: {
+        success = test3(worldIn, playerIn);
+        break;
+      }
+      case 4: {
+        success = test4(worldIn, playerIn);
+        break;
+      }
+      case 5: {
+        success = test5(worldIn, playerIn);
+        break;
+      }
+      case 6: {
+        success = test6(worldIn, playerIn);
+        break;
+      }
+      case 7: {
+        success = test7(worldIn, playerIn);
+        break;
+      }
+      case 9: {
+        success = test9(worldIn, playerIn);
+        break;
+      }
+      case 10: {
+        success = test10(worldIn, playerIn);
+        break;
+      }
+      case 11: {
+        success = test11(worldIn, playerIn);
+        break;
+      }
+      case 14: {
+        success = test14(worldIn, playerIn);
+        break;
+      }
+      case 15: {
+        success = test15(worldIn, playerIn);
+        break;
+      }
+      case 16: {
+        success = test16(worldIn, playerIn);
+        break;
+      }
       default: {
         System.out.println("Test Number " + testNumber + " does not exist on server side.");
         return false;
@@ -47,6 +165,14 @@ public class TestRunner
       case -1: {  // dummy (do nothing) - can never be called, just to prevent unreachable code compiler error
         break;
       }
+      case 12: {
+        success = test12ClientSide(worldIn, playerIn);
+        break;
+      }
+      case 13: {
+        success = test13ClientSide(worldIn, playerIn);
+        break;
+      }
       default: {
         System.out.println("Test Number " + testNumber + " does not exist on client side.");
         return false;
@@ -105,6 +231,1429 @@ public class TestRunner
     return success;
   }
 
+  // check that the MBE31 furnace "coarse tick" mode (advanceTicks) gives exactly the same result as updating the
+  //   furnace one tick at a time (smeltingTick):
+  // Make pairs of furnaces with identical random inventories and burn state, advance one furnace a tick at a time and the
+  //   other in steps of random size, then compare the two furnaces.
+  // The furnaces aren't placed in the world, so this doesn't need a test region.
+  private boolean test2(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_TRIALS = 500;
+    final int MAX_TICKS_PER_TRIAL = 5000;
+    final int MAX_STEP_SIZE = 100;
+    Random random = new Random(31);  // fixed seed so that any failure can be repeated
+
+    boolean success = true;
+    for (int trial = 0; trial < NUMBER_OF_TRIALS; ++trial) {
+      TileInventoryFurnace furnacePerTick = new TileInventoryFurnace();
+      fillFurnaceRandomly(furnacePerTick, random);
+      TileInventoryFurnace furnaceCoarse = new TileInventoryFurnace();
+      furnaceCoarse.readFromNBT(furnacePerTick.writeToNBT(new NBTTagCompound()));
+
+      int ticks = 1 + random.nextInt(MAX_TICKS_PER_TRIAL);
+      int stepSize = 1 + random.nextInt(MAX_STEP_SIZE);
+      for (int i = 0; i < ticks; ++i) {
+        furnacePerTick.smeltingTick();
+      }
+      for (int ticksLeft = ticks; ticksLeft > 0; ticksLeft -= stepSize) {
+        furnaceCoarse.advanceTicks(Math.min(stepSize, ticksLeft));
+      }
+
+      NBTTagCompound perTickResult = furnacePerTick.writeToNBT(new NBTTagCompound());
+      NBTTagCompound coarseResult = furnaceCoarse.writeToNBT(new NBTTagCompound());
+      if (!perTickResult.equals(coarseResult)) {
+        System.out.println("Test 2 trial " + trial + " failed: ticks=" + ticks + ", stepSize=" + stepSize);
+        System.out.println("  per tick:" + perTickResult);
+        System.out.println("  coarse  :" + coarseResult);
+        success = false;
+      }
+    }
+    return success;
+  }
+
+  // benchmark the MBE31 FurnaceTickManager against updating each furnace separately, and check they give the same result:
+  // Make two identical sets of furnaces with random inventories and burn state.  Update the first set by calling
+  //   smeltingTick() on each furnace every tick (like the world does), and the second set using a FurnaceTickManager.
+  //   Print the time per furnace per tick for each, then compare the two sets.
+  // The furnaces aren't placed in the world, so this doesn't need a test region.
+  private boolean test3(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_FURNACES = 500;
+    final int NUMBER_OF_TICKS = 2000;
+    Random random = new Random(31);  // fixed seed so that the benchmark is repeatable
+
+    TileInventoryFurnace [] furnacesPerTick = new TileInventoryFurnace[NUMBER_OF_FURNACES];
+    TileInventoryFurnace [] furnacesManaged = new TileInventoryFurnace[NUMBER_OF_FURNACES];
+    FurnaceTickManager furnaceTickManager = new FurnaceTickManager(worldIn);
+    for (int i = 0; i < NUMBER_OF_FURNACES; ++i) {
+      furnacesPerTick[i] = new TileInventoryFurnace();
+      fillFurnaceRandomly(furnacesPerTick[i], random);
+      furnacesManaged[i] = new TileInventoryFurnace();
+      furnacesManaged[i].readFromNBT(furnacesPerTick[i].writeToNBT(new NBTTagCompound()));
+      furnaceTickManager.addFurnace(furnacesManaged[i]);
+    }
+
+    long startTime = System.nanoTime();
+    for (int tick = 0; tick < NUMBER_OF_TICKS; ++tick) {
+      for (TileInventoryFurnace furnace : furnacesPerTick) {
+        furnace.smeltingTick();
+      }
+    }
+    long perTickNanoseconds = System.nanoTime() - startTime;
+
+    startTime = System.nanoTime();
+    for (int tick = 0; tick < NUMBER_OF_TICKS; ++tick) {
+      furnaceTickManager.tick();
+    }
+    long managedNanoseconds = System.nanoTime() - startTime;
+
+    final double FURNACE_TICKS = NUMBER_OF_FURNACES * (double)NUMBER_OF_TICKS;
+    System.out.println("Test 3: " + NUMBER_OF_FURNACES + " furnaces for " + NUMBER_OF_TICKS + " ticks");
+    System.out.println("  per tick     :" + String.format("%.1f", perTickNanoseconds / FURNACE_TICKS) + " ns per furnace per tick");
+    System.out.println("  tick manager :" + String.format("%.1f", managedNanoseconds / FURNACE_TICKS) + " ns per furnace per tick");
+
+    boolean success = true;
+    for (int i = 0; i < NUMBER_OF_FURNACES; ++i) {
+      NBTTagCompound perTickResult = furnacesPerTick[i].writeToNBT(new NBTTagCompound());
+      NBTTagCompound managedResult = furnacesManaged[i].writeToNBT(new NBTTagCompound());  // brings the furnace up to date first
+      if (!perTickResult.equals(managedResult)) {
+        System.out.println("Test 3 furnace " + i + " failed:");
+        System.out.println("  per tick:" + perTickResult);
+        System.out.println("  managed :" + managedResult);
+        success = false;
+      }
+    }
+    for (TileInventoryFurnace furnace : furnacesManaged) {
+      furnaceTickManager.removeFurnace(furnace);
+    }
+    return success;
+  }
+
+  // benchmark the MBE31 furnace light value, which is now stored in the block state instead of being looked up from
+  //   the tile entity:
+  // Place a grid of furnaces with one burning fuel slot each, then time
+  //   a) the light value lookup the way it used to be done (find the tile entity, count its burning slots)
+  //   b) the light value lookup from the block state
+  //   c) a full relight of each furnace's light
+  //   and check that the block state matches the tile entity.
+  private boolean test4(World worldIn, EntityPlayer playerIn)
+  {
+    BlockPos testRegionOrigin = new BlockPos(0, 204, 20);
+    final int GRID_SIZE = 10;
+    final int NUMBER_OF_REPEATS = 1000;
+
+    teleportPlayerToTestRegion(playerIn, testRegionOrigin.south(GRID_SIZE + 5));  // teleport the player nearby so you can watch
+
+    List<BlockPos> furnacePositions = new ArrayList<BlockPos>();
+    for (int x = 0; x < GRID_SIZE; ++x) {
+      for (int z = 0; z < GRID_SIZE; ++z) {
+        BlockPos pos = testRegionOrigin.add(x * 2, 0, z * 2);
+        worldIn.setBlockState(pos, minecraftbyexample.mbe31_inventory_furnace.StartupCommon.blockInventoryAdvanced.getDefaultState());
+        TileInventoryFurnace furnace = (TileInventoryFurnace)worldIn.getTileEntity(pos);
+        final int BURN_TIME = 1000;
+        furnace.setField(1, BURN_TIME);  // fields: 1 = burn time remaining for the first fuel slot
+        furnace.setField(1 + TileInventoryFurnace.FUEL_SLOTS_COUNT, BURN_TIME);
+        furnace.update();  // stores the burning count in the block state
+        furnacePositions.add(pos);
+      }
+    }
+    final double LOOKUPS = furnacePositions.size() * (double)NUMBER_OF_REPEATS;
+
+    long checksum = 0;  // stop the JIT from optimising the loops away
+    long startTime = System.nanoTime();
+    for (int i = 0; i < NUMBER_OF_REPEATS; ++i) {
+      for (BlockPos pos : furnacePositions) {
+        TileEntity tileEntity = worldIn.getTileEntity(pos);
+        if (tileEntity instanceof TileInventoryFurnace) {
+          checksum += ((TileInventoryFurnace)tileEntity).numberOfBurningFuelSlots();
+        }
+      }
+    }
+    long tileEntityNanoseconds = System.nanoTime() - startTime;
+
+    startTime = System.nanoTime();
+    for (int i = 0; i < NUMBER_OF_REPEATS; ++i) {
+      for (BlockPos pos : furnacePositions) {
+        checksum += worldIn.getBlockState(pos).getLightValue(worldIn, pos);
+      }
+    }
+    long blockStateNanoseconds = System.nanoTime() - startTime;
+
+    startTime = System.nanoTime();
+    for (BlockPos pos : furnacePositions) {
+      worldIn.setLightFor(EnumSkyBlock.BLOCK, pos, 0);  // force the lighting engine to relight the whole area
+      worldIn.checkLightFor(EnumSkyBlock.BLOCK, pos);
+    }
+    long relightNanoseconds = System.nanoTime() - startTime;
+
+    System.out.println("Test 4: " + furnacePositions.size() + " furnaces (checksum " + checksum + ")");
+    System.out.println("  light lookup from tile entity :" + String.format("%.1f", tileEntityNanoseconds / LOOKUPS) + " ns");
+    System.out.println("  light lookup from block state :" + String.format("%.1f", blockStateNanoseconds / LOOKUPS) + " ns");
+    System.out.println("  relight :" + String.format("%.1f", relightNanoseconds / 1000.0 / furnacePositions.size()) + " us per furnace");
+
+    boolean success = true;
+    for (BlockPos pos : furnacePositions) {
+      TileInventoryFurnace furnace = (TileInventoryFurnace)worldIn.getTileEntity(pos);
+      int burningSides = worldIn.getBlockState(pos).getValue(BlockInventoryFurnace.BURNING_SIDES_COUNT);
+      success &= (burningSides == furnace.numberOfBurningFuelSlots());
+      success &= worldIn.getLightFor(EnumSkyBlock.BLOCK, pos) >= worldIn.getBlockState(pos).getLightValue(worldIn, pos);
+    }
+    return success;
+  }
+
+  // benchmark the item handler capability of the MBE30 inventory: move items in and out the way a hopper does (one
+  //   item at a time) and using the bulk methods, and check that both give the same result.
+  // Also check that the MBE31 furnace's sides accept the right items.
+  private boolean test5(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_REPEATS = 1000;
+    final int[] markDirtyCount = {0};
+    TileEntityInventoryBasic perItemInventory = new TileEntityInventoryBasic() {
+      @Override
+      public void markDirty() {
+        ++markDirtyCount[0];
+        super.markDirty();
+      }
+    };
+    TileEntityInventoryBasic bulkInventory = new TileEntityInventoryBasic();
+    IItemHandler perItemHandler = perItemInventory.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, EnumFacing.UP);
+    IndexedInventoryItemHandler bulkHandler =
+            (IndexedInventoryItemHandler)bulkInventory.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, EnumFacing.UP);
+
+    List<ItemStack> stacks = new ArrayList<ItemStack>();
+    stacks.add(new ItemStack(Blocks.COBBLESTONE, 64));
+    stacks.add(new ItemStack(Blocks.COBBLESTONE, 40));
+    stacks.add(new ItemStack(Items.IRON_INGOT, 30));
+    stacks.add(new ItemStack(Items.ENDER_PEARL, 16));
+    stacks.add(new ItemStack(Blocks.WOOL, 50, 3));
+    stacks.add(new ItemStack(Blocks.WOOL, 20, 4));
+    stacks.add(new ItemStack(Items.IRON_SWORD));
+    int itemsPerRepeat = 0;
+    for (ItemStack stack : stacks) {
+      itemsPerRepeat += stack.func_190916_E();  // getStackSize()
+    }
+
+    boolean success = true;
+    long perItemNanoseconds = 0;
+    long bulkNanoseconds = 0;
+    for (int i = 0; i < NUMBER_OF_REPEATS; ++i) {
+      long startTime = System.nanoTime();
+      for (ItemStack stack : stacks) {
+        for (int count = 0; count < stack.func_190916_E(); ++count) {  // getStackSize()
+          ItemStack oneItem = stack.copy();
+          oneItem.func_190920_e(1);  // setStackSize()
+          for (int slot = 0; slot < perItemHandler.getSlots(); ++slot) {
+            if (perItemHandler.insertItem(slot, oneItem, false).func_190926_b()) break;  // isEmpty()
+          }
+        }
+      }
+      List<ItemStack> perItemResult = copyStacks(perItemInventory);
+      for (int slot = 0; slot < perItemHandler.getSlots(); ++slot) {
+        while (!perItemHandler.extractItem(slot, 1, false).func_190926_b()) {}  // isEmpty()
+      }
+      perItemNanoseconds += System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      bulkHandler.insertStacks(stacks);
+      List<ItemStack> bulkResult = copyStacks(bulkInventory);
+      bulkHandler.extractStacks(Integer.MAX_VALUE, false);
+      bulkNanoseconds += System.nanoTime() - startTime;
+
+      for (int slot = 0; slot < perItemResult.size(); ++slot) {
+        success &= ItemStack.areItemStacksEqual(perItemResult.get(slot), bulkResult.get(slot));
+      }
+      success &= perItemInventory.func_191420_l() && bulkInventory.func_191420_l();  // isEmpty()
+    }
+
+    final double ITEMS = itemsPerRepeat * (double)NUMBER_OF_REPEATS;
+    System.out.println("Test 5: " + itemsPerRepeat + " items in and out of the inventory, " + NUMBER_OF_REPEATS + " times");
+    System.out.println("  one item at a time :" + String.format("%.1f", perItemNanoseconds / ITEMS) + " ns per item, "
+                       + markDirtyCount[0] / NUMBER_OF_REPEATS + " markDirty() per repeat");
+    System.out.println("  bulk               :" + String.format("%.1f", bulkNanoseconds / ITEMS) + " ns per item, 2 markDirty() per repeat");
+
+    TileInventoryFurnace furnace = new TileInventoryFurnace();
+    IndexedInventoryItemHandler top = (IndexedInventoryItemHandler)furnace.getItemHandler(EnumFacing.UP);
+    IndexedInventoryItemHandler side = (IndexedInventoryItemHandler)furnace.getItemHandler(EnumFacing.NORTH);
+    IndexedInventoryItemHandler bottom = (IndexedInventoryItemHandler)furnace.getItemHandler(EnumFacing.DOWN);
+    success &= top.insertStack(new ItemStack(Blocks.IRON_ORE, 64 * 6), false).func_190916_E() == 64;  // one stack too many
+    success &= top.insertStack(new ItemStack(Items.STICK, 10), true).func_190916_E() == 10;  // not smeltable
+    success &= side.insertStack(new ItemStack(Items.COAL, 10), false).func_190926_b();  // isEmpty()
+    success &= bottom.insertStack(new ItemStack(Items.IRON_INGOT, 10), false).func_190916_E() == 10;  // output is extract only
+    success &= side.extractStack(ItemStack.field_190927_a, 64, false).func_190926_b();  // fuel is insert only
+    furnace.setInventorySlotContents(TileInventoryFurnace.FIRST_OUTPUT_SLOT, new ItemStack(Items.IRON_INGOT, 20));
+    furnace.setInventorySlotContents(TileInventoryFurnace.FIRST_OUTPUT_SLOT + 3, new ItemStack(Items.IRON_INGOT, 30));
+    success &= bottom.extractStack(ItemStack.field_190927_a, 64, false).func_190916_E() == 50;
+    return success;
+  }
+
+  // load test for the MBE32 bulk storage with 10,000 slots:
+  // a) the save size, compared to the usual list of one compound tag per slot
+  // b) the cost per tick of an open GUI, compared to a container which has a slot for every storage slot
+  // and check that the storage is the same after saving and loading, and after scrolling the window
+  private boolean test6(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_TICKS = 1000;
+    Random random = new Random(32);  // fixed seed so that the test is repeatable
+
+    ItemStack [] choices = {new ItemStack(Blocks.COBBLESTONE), new ItemStack(Blocks.DIRT), new ItemStack(Items.IRON_INGOT),
+                            new ItemStack(Blocks.WOOL, 1, 5), new ItemStack(Items.DYE, 1, 4), new ItemStack(Items.IRON_SWORD),
+                            new ItemStack(Items.ENDER_PEARL), new ItemStack(Blocks.LOG, 1, 2)};
+    TileEntityInventoryBulk bulkStorage = new TileEntityInventoryBulk();
+    BulkItemStorage storage = bulkStorage.getStorage();
+    for (int slot = 0; slot < storage.getSlotCount(); ++slot) {
+      if (random.nextInt(10) == 0) continue;  // leave some slots empty
+      ItemStack stack = randomStack(choices, random);
+      if (random.nextInt(50) == 0) stack.setStackDisplayName("Stack " + slot);  // a few stacks with NBT
+      storage.setStack(slot, stack);
+    }
+
+    // a) save size
+    NBTTagCompound packedNBT = bulkStorage.writeToNBT(new NBTTagCompound());
+    NBTTagList listOfSlots = new NBTTagList();
+    for (int slot = 0; slot < storage.getSlotCount(); ++slot) {
+      if (storage.isSlotEmpty(slot)) continue;
+      NBTTagCompound dataForThisSlot = new NBTTagCompound();
+      dataForThisSlot.setInteger("Slot", slot);
+      storage.getStack(slot).writeToNBT(dataForThisSlot);
+      listOfSlots.appendTag(dataForThisSlot);
+    }
+    NBTTagCompound listNBT = new NBTTagCompound();
+    listNBT.setTag("Items", listOfSlots);
+
+    System.out.println("Test 6: " + storage.getSlotCount() + " slots, " + storage.getOccupiedSlotCount() + " occupied");
+    try {
+      System.out.println("  save size, packed arrays :" + nbtSize(packedNBT, false) + " bytes (" + nbtSize(packedNBT, true) + " compressed)");
+      System.out.println("  save size, list of slots :" + nbtSize(listNBT, false) + " bytes (" + nbtSize(listNBT, true) + " compressed)");
+    } catch (IOException ioe) {
+      System.out.println("  save size failed:" + ioe);
+      return false;
+    }
+
+    boolean success = true;
+    TileEntityInventoryBulk reloaded = new TileEntityInventoryBulk();
+    reloaded.readFromNBT(packedNBT);
+    for (int slot = 0; slot < storage.getSlotCount(); ++slot) {
+      success &= ItemStack.areItemStacksEqual(storage.getStack(slot), reloaded.getStorage().getStack(slot));
+    }
+
+    // b) open GUI tick cost
+    ContainerInventoryBulk windowedContainer = new ContainerInventoryBulk(playerIn.inventory, bulkStorage);
+    final InventoryBasic allSlotsInventory = new InventoryBasic("test6", false, storage.getSlotCount());
+    for (int slot = 0; slot < storage.getSlotCount(); ++slot) {
+      allSlotsInventory.setInventorySlotContents(slot, storage.getStack(slot));
+    }
+    Container allSlotsContainer = new Container() {
+      {
+        for (int slot = 0; slot < allSlotsInventory.getSizeInventory(); ++slot) {
+          addSlotToContainer(new Slot(allSlotsInventory, slot, 0, 0));
+        }
+      }
+
+      @Override
+      public boolean canInteractWith(EntityPlayer player) {
+        return true;
+      }
+    };
+
+    long startTime = System.nanoTime();
+    for (int tick = 0; tick < NUMBER_OF_TICKS; ++tick) {
+      windowedContainer.detectAndSendChanges();
+    }
+    long windowedNanoseconds = System.nanoTime() - startTime;
+
+    startTime = System.nanoTime();
+    for (int tick = 0; tick < NUMBER_OF_TICKS; ++tick) {
+      allSlotsContainer.detectAndSendChanges();
+    }
+    long allSlotsNanoseconds = System.nanoTime() - startTime;
+
+    System.out.println("  open GUI, windowed  :" + String.format("%.1f", windowedNanoseconds / 1000.0 / NUMBER_OF_TICKS) + " us per tick");
+    System.out.println("  open GUI, all slots :" + String.format("%.1f", allSlotsNanoseconds / 1000.0 / NUMBER_OF_TICKS) + " us per tick");
+
+    // scroll to the end and check that the window shows the right slots
+    windowedContainer.enchantItem(playerIn, ContainerInventoryBulk.SCROLL_POSITION_STEPS);
+    windowedContainer.detectAndSendChanges();
+    int firstStorageSlot = windowedContainer.getFirstRow() * BulkStorageWindow.COLUMNS;
+    for (int i = 0; i < ContainerInventoryBulk.WINDOW_SLOT_COUNT; ++i) {
+      int storageSlot = firstStorageSlot + i;
+      ItemStack expected = (storageSlot < storage.getSlotCount()) ? storage.getStack(storageSlot) : ItemStack.field_190927_a;
+      Slot windowSlot = windowedContainer.getSlot(windowedContainer.inventorySlots.size() - ContainerInventoryBulk.WINDOW_SLOT_COUNT + i);
+      success &= ItemStack.areItemStacksEqual(expected, windowSlot.getStack());
+    }
+    windowedContainer.onContainerClosed(playerIn);
+    return success;
+  }
+
+  // benchmark the packed inventory save format (PackedInventoryNBT) against the old list of slots, and check that both
+  //   load back the same stacks (i.e. that the old format can still be read):
+  // Make a "chunk" of chest-sized inventories filled with random stacks, a few of them with NBT.  Save the whole chunk
+  //   to bytes the same way the chunk saving does, then load it back again.  Repeat, and print the average time and size.
+  // Also check that an unknown format version is kept unchanged, and that capability data isn't lost.
+  private boolean test7(World worldIn, EntityPlayer playerIn)
+  {
+    final int INVENTORIES_PER_CHUNK = 64;
+    final int SLOTS_PER_INVENTORY = 27;
+    final int NUMBER_OF_REPEATS = 200;
+    Random random = new Random(33);  // fixed seed so that the test is repeatable
+
+    ItemStack [] choices = {ItemStack.field_190927_a, new ItemStack(Blocks.COBBLESTONE), new ItemStack(Blocks.DIRT),
+                            new ItemStack(Items.IRON_INGOT), new ItemStack(Blocks.WOOL, 1, 5), new ItemStack(Items.DYE, 1, 4),
+                            new ItemStack(Items.IRON_SWORD), new ItemStack(Items.ENDER_PEARL), new ItemStack(Blocks.LOG, 1, 2)};
+    ItemStack [][] chunk = new ItemStack[INVENTORIES_PER_CHUNK][SLOTS_PER_INVENTORY];
+    for (ItemStack [] inventory : chunk) {
+      for (int slot = 0; slot < SLOTS_PER_INVENTORY; ++slot) {
+        inventory[slot] = randomStack(choices, random);
+        if (!inventory[slot].func_190926_b() && random.nextInt(50) == 0) {  // isEmpty(); a few stacks with NBT
+          inventory[slot].setStackDisplayName("Slot " + slot);
+        }
+      }
+    }
+
+    System.out.println("Test 7: " + INVENTORIES_PER_CHUNK + " inventories of " + SLOTS_PER_INVENTORY + " slots per chunk");
+    boolean success = true;
+    try {
+      for (boolean packed : new boolean[] {false, true}) {
+        byte [] savedChunk = null;
+        ItemStack [][] loadedChunk = null;
+        long saveNanoseconds = 0;
+        long loadNanoseconds = 0;
+        for (int repeat = 0; repeat < NUMBER_OF_REPEATS; ++repeat) {
+          long startTime = System.nanoTime();
+          savedChunk = saveChunkOfInventories(chunk, packed);
+          saveNanoseconds += System.nanoTime() - startTime;
+
+          startTime = System.nanoTime();
+          loadedChunk = loadChunkOfInventories(savedChunk, SLOTS_PER_INVENTORY);
+          loadNanoseconds += System.nanoTime() - startTime;
+        }
+
+        for (int i = 0; i < INVENTORIES_PER_CHUNK; ++i) {
+          for (int slot = 0; slot < SLOTS_PER_INVENTORY; ++slot) {
+            success &= ItemStack.areItemStacksEqual(chunk[i][slot], loadedChunk[i][slot]);
+          }
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        CompressedStreamTools.writeCompressed(CompressedStreamTools.read(new DataInputStream(new ByteArrayInputStream(savedChunk))),
+                                              compressed);
+        System.out.println((packed ? "  packed        :" : "  list of slots :")
+                           + String.format("save %.1f us, load %.1f us, ", saveNanoseconds / 1000.0 / NUMBER_OF_REPEATS,
+                                           loadNanoseconds / 1000.0 / NUMBER_OF_REPEATS)
+                           + savedChunk.length + " bytes per chunk (" + compressed.size() + " compressed)");
+      }
+    } catch (IOException ioe) {
+      System.out.println("  save or load failed:" + ioe);
+      return false;
+    }
+
+    // an inventory saved with an unknown format version must be saved again unchanged, not emptied
+    TileEntityInventoryBasic inventoryFromTheFuture = new TileEntityInventoryBasic();
+    NBTTagCompound futureNBT = new NBTTagCompound();
+    PackedInventoryNBT.writeItemStacks(chunk[0], futureNBT);
+    futureNBT.getByteArray("ItemsPacked")[0] = (byte)(PackedInventoryNBT.PACKED_FORMAT_VERSION + 1);
+    inventoryFromTheFuture.readFromNBT(futureNBT);
+    NBTTagCompound resavedNBT = inventoryFromTheFuture.writeToNBT(new NBTTagCompound());
+    boolean keptUnchanged = inventoryFromTheFuture.hasUnreadableItems()
+                            && !inventoryFromTheFuture.isItemValidForSlot(0, new ItemStack(Blocks.DIRT));
+    for (String tagName : new String[] {"ItemsPacked", "ItemsPalette", "ItemsWithNBT"}) {
+      keptUnchanged &= futureNBT.getTag(tagName).equals(resavedNBT.getTag(tagName));
+    }
+    System.out.println("  unknown format version: " + (keptUnchanged ? "items kept unchanged" : "ITEMS LOST"));
+    success &= keptUnchanged;
+
+    // a stack without NBT but with capability data must be saved in full, so that the capability data isn't lost.
+    //   Barriers are creative only, so they are unlikely to have been saved already (before the test attached a capability
+    //   to them) - whether an item has capability data is only worked out once.
+    CapabilityDataAttacher attacher = new CapabilityDataAttacher(Item.getItemFromBlock(Blocks.BARRIER));
+    MinecraftForge.EVENT_BUS.register(attacher);
+    boolean capabilityDataKept;
+    try {
+      ItemStack stackWithCapabilityData = new ItemStack(Blocks.BARRIER);
+      attacher.lastAttached.data = 42;
+      ItemStack [] inventory = {stackWithCapabilityData, new ItemStack(Blocks.DIRT)};
+      NBTTagCompound inventoryNBT = new NBTTagCompound();
+      PackedInventoryNBT.writeItemStacks(inventory, inventoryNBT);
+      ItemStack [] loadedInventory = new ItemStack[inventory.length];
+      PackedInventoryNBT.readItemStacks(inventoryNBT, loadedInventory);
+      capabilityDataKept = stackWithCapabilityData.writeToNBT(new NBTTagCompound()).equals(loadedInventory[0].writeToNBT(new NBTTagCompound()))
+                           && ItemStack.areItemStacksEqual(inventory[1], loadedInventory[1]);
+    } finally {
+      MinecraftForge.EVENT_BUS.unregister(attacher);
+    }
+    System.out.println("  stack with capability data: " + (capabilityDataKept ? "capability data kept" : "CAPABILITY DATA LOST"));
+    success &= capabilityDataKept;
+    return success;
+  }
+
+  // attaches a TestCapabilityData to each new stack of the given item, like a mod which adds data to other mods' items
+  public static class CapabilityDataAttacher
+  {
+    public CapabilityDataAttacher(Item item) {
+      this.item = item;
+    }
+
+    @SubscribeEvent
+    public void onAttachCapabilities(AttachCapabilitiesEvent.Item event) {
+      if (event.getItem() != item) return;
+      lastAttached = new TestCapabilityData();
+      event.addCapability(new ResourceLocation("minecraftbyexample", "mbe75_test_data"), lastAttached);
+    }
+
+    public TestCapabilityData lastAttached;
+    private final Item item;
+  }
+
+  // a capability provider which saves one number, without providing any capabilities
+  private static class TestCapabilityData implements ICapabilitySerializable<NBTTagCompound>
+  {
+    @Override
+    public boolean hasCapability(Capability<?> capability, EnumFacing facing) {
+      return false;
+    }
+
+    @Override
+    public <T> T getCapability(Capability<T> capability, EnumFacing facing) {
+      return null;
+    }
+
+    @Override
+    public NBTTagCompound serializeNBT() {
+      NBTTagCompound nbtTagCompound = new NBTTagCompound();
+      nbtTagCompound.setInteger("data", data);
+      return nbtTagCompound;
+    }
+
+    @Override
+    public void deserializeNBT(NBTTagCompound nbtTagCompound) {
+      data = nbtTagCompound.getInteger("data");
+    }
+
+    public int data = 0;
+  }
+
+  // save each inventory into its own tag (like a tile entity), collect them into a list, and write it out as bytes
+  private byte [] saveChunkOfInventories(ItemStack [][] inventories, boolean packed) throws IOException
+  {
+    NBTTagList tileEntities = new NBTTagList();
+    for (ItemStack [] inventory : inventories) {
+      NBTTagCompound tileEntityNBT = new NBTTagCompound();
+      if (packed) {
+        PackedInventoryNBT.writeItemStacks(inventory, tileEntityNBT);
+      } else {
+        PackedInventoryNBT.writeItemStacksAsList(inventory, tileEntityNBT);
+      }
+      tileEntities.appendTag(tileEntityNBT);
+    }
+    NBTTagCompound chunkNBT = new NBTTagCompound();
+    chunkNBT.setTag("TileEntities", tileEntities);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CompressedStreamTools.write(chunkNBT, new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  // the reverse of saveChunkOfInventories(); the format of each inventory is detected automatically
+  private ItemStack [][] loadChunkOfInventories(byte [] savedChunk, int slotsPerInventory) throws IOException
+  {
+    final int NBT_TYPE_COMPOUND = 10;       // See NBTBase.createNewByType() for a listing
+    NBTTagCompound chunkNBT = CompressedStreamTools.read(new DataInputStream(new ByteArrayInputStream(savedChunk)));
+    NBTTagList tileEntities = chunkNBT.getTagList("TileEntities", NBT_TYPE_COMPOUND);
+    ItemStack [][] inventories = new ItemStack[tileEntities.tagCount()][slotsPerInventory];
+    for (int i = 0; i < tileEntities.tagCount(); ++i) {
+      PackedInventoryNBT.readItemStacks(tileEntities.getCompoundTagAt(i), inventories[i]);
+    }
+    return inventories;
+  }
+
+  // check that the TimerWheel calls back each timer at exactly the right time, and benchmark it against ticking a countdown
+  //   in each object (the way TileEntityData used to work):
+  // a) schedule timers with random deadlines, some of them further ahead than the wheel's top level reaches, cancel some
+  //    of them, then advance the wheel past the last deadline and check when each timer was called back
+  // b) time a few thousand ticks of many short timers: ITickable countdowns vs the wheel
+  private boolean test9(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_TIMERS = 20000;
+    final int MAX_DELAY = 200000;
+    final long FAR_DELAY = (1L << 24) + 1000;  // beyond the top level of the wheel
+    final long START_TIME = (1L << 24) - 3000;  // so that the wheel wraps around all its levels during the test
+    Random random = new Random(35);  // fixed seed so that the test is repeatable
+
+    TimerWheel wheel = new TimerWheel(START_TIME);
+    long [] deadlines = new long[NUMBER_OF_TIMERS];
+    final long [] expiredAt = new long[NUMBER_OF_TIMERS];
+    TimerWheel.Timer [] timers = new TimerWheel.Timer[NUMBER_OF_TIMERS];
+    for (int i = 0; i < NUMBER_OF_TIMERS; ++i) {
+      long delay = (i % 1000 == 0) ? FAR_DELAY + random.nextInt(MAX_DELAY) : 1 + random.nextInt(MAX_DELAY);
+      deadlines[i] = START_TIME + delay;
+      final int timerIndex = i;
+      timers[i] = wheel.schedule(deadlines[i], new TimerWheel.Callback() {
+        @Override
+        public void onTimerExpired(long worldTime) {
+          expiredAt[timerIndex] = worldTime;
+        }
+      });
+    }
+    for (int i = 0; i < NUMBER_OF_TIMERS; i += 7) {
+      timers[i].cancel();
+    }
+
+    boolean success = true;
+    wheel.advanceTo(START_TIME + FAR_DELAY + MAX_DELAY);
+    for (int i = 0; i < NUMBER_OF_TIMERS; ++i) {
+      long expected = (i % 7 == 0) ? 0 : deadlines[i];
+      if (expiredAt[i] != expected) {
+        System.out.println("Test 9 timer " + i + " failed: deadline " + deadlines[i] + " expected " + expected + ", called at " + expiredAt[i]);
+        success = false;
+      }
+    }
+    success &= (wheel.getScheduledCount() == 0);
+
+    // b) benchmark
+    final int NUMBER_OF_TICKS = 2000;
+    List<ITickable> countdowns = new ArrayList<ITickable>();
+    TimerWheel benchmarkWheel = new TimerWheel(0);
+    final int [] expiredCount = {0};
+    TimerWheel.Callback countExpiry = new TimerWheel.Callback() {
+      @Override
+      public void onTimerExpired(long worldTime) {
+        ++expiredCount[0];
+      }
+    };
+    for (int i = 0; i < NUMBER_OF_TIMERS; ++i) {
+      final int delay = 1 + random.nextInt(NUMBER_OF_TICKS);
+      countdowns.add(new ITickable() {
+        private int ticksLeft = delay;
+        @Override
+        public void update() {
+          if (ticksLeft <= 0) return;
+          if (--ticksLeft == 0) ++expiredCount[0];
+        }
+      });
+      benchmarkWheel.schedule(delay, countExpiry);
+    }
+
+    long startTime = System.nanoTime();
+    for (int tick = 0; tick < NUMBER_OF_TICKS; ++tick) {
+      for (ITickable countdown : countdowns) {
+        countdown.update();
+      }
+    }
+    long tickingNanoseconds = System.nanoTime() - startTime;
+    int tickingExpiredCount = expiredCount[0];
+
+    expiredCount[0] = 0;
+    startTime = System.nanoTime();
+    for (int tick = 1; tick <= NUMBER_OF_TICKS; ++tick) {
+      benchmarkWheel.advanceTo(tick);
+    }
+    long wheelNanoseconds = System.nanoTime() - startTime;
+    success &= (tickingExpiredCount == NUMBER_OF_TIMERS && expiredCount[0] == NUMBER_OF_TIMERS);
+
+    System.out.println("Test 9: " + NUMBER_OF_TIMERS + " timers");
+    System.out.println("  ticking countdowns:" + String.format("%.1f", tickingNanoseconds / 1000.0 / NUMBER_OF_TICKS) + " us per tick");
+    System.out.println("  timer wheel       :" + String.format("%.1f", wheelNanoseconds / 1000.0 / NUMBER_OF_TICKS) + " us per tick");
+    return success;
+  }
+
+  // check that PrimitiveArrayNBT saves and loads each type of array correctly, and compare the memory allocated (and the
+  //   time taken) against the usual way of storing arrays (a list with one tag per element):
+  // a) round trip arrays with awkward values (NaN, -0.0, nulls at the start and end, empty arrays), and check that the
+  //    old unpacked formats can still be read
+  // b) save and load the same data many times each way, and measure how much memory is allocated
+  private boolean test10(World worldIn, EntityPlayer playerIn)
+  {
+    Random random = new Random(36);  // fixed seed so that the test is repeatable
+
+    // a) round trips
+    boolean success = true;
+    double [] doubles = {0.0, -0.0, Double.NaN, Double.MAX_VALUE, -Double.MIN_VALUE, Double.NEGATIVE_INFINITY, 1.5};
+    float [] floats = {0.0F, -0.0F, Float.NaN, Float.MAX_VALUE, -1.25F};
+    long [] longs = {0, -1, Long.MAX_VALUE, Long.MIN_VALUE, 0x00000000ffffffffL};
+    Double [] nullableDoubles = {null, 1.0, null, null, -2.5, null};
+    Integer [] nullableIntegers = new Integer[70];  // more than one bitmap word
+    for (int i = 0; i < nullableIntegers.length; i += 3) {
+      nullableIntegers[i] = (i % 2 == 0) ? -i : Integer.MAX_VALUE;
+    }
+    BlockPos [] positions = {new BlockPos(0, 0, 0), new BlockPos(-30000000, 255, 29999999), new BlockPos(-1, 0, -1)};
+
+    NBTTagCompound nbt = new NBTTagCompound();
+    PrimitiveArrayNBT.setDoubleArray(nbt, "doubles", doubles);
+    PrimitiveArrayNBT.setFloatArray(nbt, "floats", floats);
+    PrimitiveArrayNBT.setLongArray(nbt, "longs", longs);
+    PrimitiveArrayNBT.setNullableDoubleArray(nbt, "nullableDoubles", nullableDoubles);
+    PrimitiveArrayNBT.setNullableIntegerArray(nbt, "nullableIntegers", nullableIntegers);
+    PrimitiveArrayNBT.setNullableLongArray(nbt, "emptyLongs", new Long[0]);
+    PrimitiveArrayNBT.setBlockPosArray(nbt, "positions", positions);
+    PrimitiveArrayNBT.setBlockPos(nbt, "position", positions[1]);
+
+    success &= Arrays.equals(doubles, PrimitiveArrayNBT.getDoubleArray(nbt, "doubles"));  // Arrays.equals compares the bits of doubles
+    success &= Arrays.equals(floats, PrimitiveArrayNBT.getFloatArray(nbt, "floats"));
+    success &= Arrays.equals(longs, PrimitiveArrayNBT.getLongArray(nbt, "longs"));
+    success &= Arrays.equals(nullableDoubles, PrimitiveArrayNBT.getNullableDoubleArray(nbt, "nullableDoubles"));
+    success &= Arrays.equals(nullableIntegers, PrimitiveArrayNBT.getNullableIntegerArray(nbt, "nullableIntegers"));
+    success &= PrimitiveArrayNBT.getNullableLongArray(nbt, "emptyLongs").length == 0;
+    success &= Arrays.equals(positions, PrimitiveArrayNBT.getBlockPosArray(nbt, "positions"));
+    success &= positions[1].equals(PrimitiveArrayNBT.getBlockPos(nbt, "position"));
+    success &= PrimitiveArrayNBT.getDoubleArray(nbt, "missing").length == 0;
+    nbt.setIntArray("corrupt", new int[] {1000, -1});  // claims 1000 values, but doesn't have room for them
+    success &= Arrays.equals(new Double[32], PrimitiveArrayNBT.getNullableDoubleArray(nbt, "corrupt"));  // nulls, no crash
+    success &= PrimitiveArrayNBT.getBlockPos(nbt, "missing") == null;
+
+    NBTTagCompound oldFormatNBT = new NBTTagCompound();
+    writeDoublesAsList(oldFormatNBT, "doubles", doubles);
+    writeBlockPosAsCompound(oldFormatNBT, "position", positions[1]);
+    success &= Arrays.equals(doubles, PrimitiveArrayNBT.getDoubleArray(oldFormatNBT, "doubles"));
+    success &= positions[1].equals(PrimitiveArrayNBT.getBlockPos(oldFormatNBT, "position"));
+    if (!success) System.out.println("Test 10 round trip failed");
+
+    // b) allocation and time
+    final int ARRAY_LENGTH = 1000;
+    final int NUMBER_OF_REPEATS = 200;
+    double [] largeDoubles = new double[ARRAY_LENGTH];
+    Double [] largeNullableDoubles = new Double[ARRAY_LENGTH];
+    for (int i = 0; i < ARRAY_LENGTH; ++i) {
+      largeDoubles[i] = random.nextDouble();
+      if (random.nextInt(4) != 0) largeNullableDoubles[i] = random.nextGaussian();
+    }
+    BlockPos pos = new BlockPos(random.nextInt(1000), random.nextInt(256), random.nextInt(1000));
+
+    System.out.println("Test 10: arrays of " + ARRAY_LENGTH + " doubles, with and without nulls, plus a BlockPos");
+    for (boolean packed : new boolean[] {false, true}) {
+      long startBytes = getAllocatedBytes();
+      long startTime = System.nanoTime();
+      for (int repeat = 0; repeat < NUMBER_OF_REPEATS; ++repeat) {
+        NBTTagCompound saved = new NBTTagCompound();
+        if (packed) {
+          PrimitiveArrayNBT.setDoubleArray(saved, "d", largeDoubles);
+          PrimitiveArrayNBT.setNullableDoubleArray(saved, "n", largeNullableDoubles);
+          PrimitiveArrayNBT.setBlockPos(saved, "p", pos);
+          NBTTagCompound loaded = saved.copy();  // the copy stands in for the save to disk and load
+          success &= Arrays.equals(largeDoubles, PrimitiveArrayNBT.getDoubleArray(loaded, "d"));
+          success &= Arrays.equals(largeNullableDoubles, PrimitiveArrayNBT.getNullableDoubleArray(loaded, "n"));
+          success &= pos.equals(PrimitiveArrayNBT.getBlockPos(loaded, "p"));
+        } else {
+          writeDoublesAsList(saved, "d", largeDoubles);
+          writeNullableDoublesAsList(saved, "n", largeNullableDoubles);
+          writeBlockPosAsCompound(saved, "p", pos);
+          NBTTagCompound loaded = saved.copy();
+          success &= Arrays.equals(largeDoubles, PrimitiveArrayNBT.getDoubleArray(loaded, "d"));
+          success &= Arrays.equals(largeNullableDoubles, readNullableDoublesFromList(loaded, "n", ARRAY_LENGTH));
+          success &= pos.equals(PrimitiveArrayNBT.getBlockPos(loaded, "p"));
+        }
+      }
+      long nanoseconds = System.nanoTime() - startTime;
+      long allocatedBytes = getAllocatedBytes() - startBytes;
+      System.out.println((packed ? "  PrimitiveArrayNBT:" : "  list of tags     :")
+                         + String.format("%.1f", nanoseconds / 1000.0 / NUMBER_OF_REPEATS) + " us, "
+                         + (startBytes < 0 ? "allocation not measurable on this JVM" : (allocatedBytes / NUMBER_OF_REPEATS) + " bytes allocated")
+                         + " per save + load");
+    }
+    return success;
+  }
+
+  // check that the tile entities which use SyncedFieldTracker only send an update packet when something has changed, and
+  //   that the client copy ends up the same as the server copy; then compare the size of the update packets against
+  //   sending the whole state:
+  // a) for each of the five tile entities, make a server copy (in this world, at the player's position, so that
+  //    getBlockMetadata() works) and a client copy.  Send the full state, then change the tile entity a number of times
+  //    and send an update packet after each change.  Check that no packet is made when nothing has changed.
+  //    A second client copy only gets the last packet (like a player who missed the packets which vanilla sent to one
+  //    player only), and must end up the same as well.
+  // b) print the bytes per update: the whole of writeToNBT() (what the update packets used to contain for most of these),
+  //    getUpdateTag(), and the update packet, plus SyncedFieldTracker's counters
+  private boolean test11(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_UPDATES = 1000;
+    Random random = new Random(37);  // fixed seed so that the test is repeatable
+    BlockPos pos = playerIn.getPosition();
+
+    long packetsBefore = SyncedFieldTracker.getPacketsSent();
+    long bytesBefore = SyncedFieldTracker.getBytesSent();
+    long fieldsSentBefore = SyncedFieldTracker.getFieldsSent();
+    long packetsNotSentBefore = SyncedFieldTracker.getPacketsNotSent();
+
+    boolean success = true;
+    System.out.println("Test 11: bytes per update, " + NUMBER_OF_UPDATES + " updates of each tile entity");
+    try {
+      for (int type = 0; type < 5; ++type) {
+        TileEntity server;
+        TileEntity client;
+        TileEntity lastPacketClient;
+        String name;
+        switch (type) {
+          case 0: name = "TileEntityData"; server = new TileEntityData(); client = new TileEntityData(); lastPacketClient = new TileEntityData(); break;
+          case 1: name = "TileEntityMBE21"; server = new TileEntityMBE21(); client = new TileEntityMBE21(); lastPacketClient = new TileEntityMBE21(); break;
+          case 2: name = "TileEntityRedstoneColouredLamp"; server = new TileEntityRedstoneColouredLamp(); client = new TileEntityRedstoneColouredLamp(); lastPacketClient = new TileEntityRedstoneColouredLamp(); break;
+          case 3: name = "TileEntityRedstoneMeter"; server = new TileEntityRedstoneMeter(); client = new TileEntityRedstoneMeter(); lastPacketClient = new TileEntityRedstoneMeter(); break;
+          default: name = "TileInventoryFurnace"; server = new TileInventoryFurnace(); client = new TileInventoryFurnace(); lastPacketClient = new TileInventoryFurnace(); break;
+        }
+        server.setWorldObj(worldIn);
+        server.setPos(pos);
+        if (server instanceof TileInventoryFurnace) fillFurnaceRandomly((TileInventoryFurnace)server, random);
+
+        client.handleUpdateTag(server.getUpdateTag());
+        lastPacketClient.handleUpdateTag(server.getUpdateTag());
+        SPacketUpdateTileEntity firstPacket = server.getUpdatePacket();  // the tracker doesn't know about getUpdateTag(), so the first packet has everything
+        if (firstPacket != null) client.onDataPacket(null, firstPacket);
+        success &= (server.getUpdatePacket() == null);
+
+        long writeToNBTBytes = 0;
+        long updateTagBytes = 0;
+        long packetBytes = 0;
+        SPacketUpdateTileEntity lastPacket = null;
+        for (int update = 0; update < NUMBER_OF_UPDATES; ++update) {
+          if (server instanceof TileEntityData) {
+            ((TileEntityData)server).setTicksLeftTillDisappear(1000 + random.nextInt(1000));
+          } else if (server instanceof TileEntityMBE21) {
+            ((TileEntityMBE21)server).setGemColour(new Color(random.nextInt(0x1000000)));
+          } else if (server instanceof TileEntityRedstoneColouredLamp) {
+            ((TileEntityRedstoneColouredLamp)server).setRGBcolour(random.nextInt(0x1000000));
+          } else if (server instanceof TileEntityRedstoneMeter) {
+            ((TileEntityRedstoneMeter)server).setPowerLevel(update % 2 == 0 ? 15 : 0);  // steady output, so no block ticks are scheduled
+          } else {
+            TileInventoryFurnace furnace = (TileInventoryFurnace)server;
+            furnace.setField(1 + random.nextInt(TileInventoryFurnace.FUEL_SLOTS_COUNT), random.nextBoolean() ? 0 : 1 + random.nextInt(1000));
+          }
+          writeToNBTBytes += nbtSize(server.writeToNBT(new NBTTagCompound()), false);
+          updateTagBytes += nbtSize(server.getUpdateTag(), false);
+          SPacketUpdateTileEntity packet = server.getUpdatePacket();
+          if (packet != null) {
+            packetBytes += nbtSize(packet.getNbtCompound(), false);
+            client.onDataPacket(null, packet);
+            lastPacket = packet;
+          }
+          success &= (server.getUpdatePacket() == null);
+        }
+
+        if (lastPacket != null) lastPacketClient.onDataPacket(null, lastPacket);
+
+        // the client copies have no world, so only compare the tile entities which don't need one to report their state
+        if (!(server instanceof TileEntityData) && !(server instanceof TileInventoryFurnace)) {
+          NBTTagCompound serverNBT = server.writeToNBT(new NBTTagCompound());
+          if (!serverNBT.equals(client.writeToNBT(new NBTTagCompound()))) {
+            System.out.println("Test 11 " + name + " client doesn't match server");
+            success = false;
+          }
+          if (!serverNBT.equals(lastPacketClient.writeToNBT(new NBTTagCompound()))) {
+            System.out.println("Test 11 " + name + " client with only the last packet doesn't match server");
+            success = false;
+          }
+        }
+        server.invalidate();  // stops the TileEntityData timer
+        System.out.println("  " + name + ": writeToNBT " + writeToNBTBytes / NUMBER_OF_UPDATES
+                           + ", getUpdateTag " + updateTagBytes / NUMBER_OF_UPDATES
+                           + ", update packet " + String.format("%.1f", packetBytes / (double)NUMBER_OF_UPDATES));
+      }
+    } catch (IOException ioe) {
+      System.out.println("Test 11 failed: " + ioe);
+      return false;
+    }
+
+    System.out.println("  SyncedFieldTracker: " + (SyncedFieldTracker.getPacketsSent() - packetsBefore) + " packets, "
+                       + (SyncedFieldTracker.getBytesSent() - bytesBefore) + " bytes of values, "
+                       + (SyncedFieldTracker.getFieldsSent() - fieldsSentBefore) + " fields sent, "
+                       + (SyncedFieldTracker.getPacketsNotSent() - packetsNotSentBefore) + " packets not sent because nothing had changed");
+    return success;
+  }
+
+  // check that the shared oscillators (OscillatorBus, used by the redstone meter) toggle on exactly the same ticks as the old
+  //   ScheduledTogglingOutput, which scheduled its own block updates:
+  // A "display" of flashers is driven for a few thousand ticks.  Every tick, some of them are given a new rate (from a
+  //   small set, so that lots of them share) or set to a steady output.  Each flasher also runs the old algorithm
+  //   (keep the current output, toggle after the on time or off time from now, and so on) and the outputs are compared
+  //   straight after each change and after the toggling at the start of every tick.  The bus uses a TimerWheel which is
+  //   advanced by the test.
+  // One flasher in ten also changes its own rate and its neighbour's rate from inside its toggle callback, the way a meter
+  //   reacts to a neighbouring meter's output, so the new rates have to be based on the tick of the toggle.
+  //   Prints the number of oscillators and timers against the number of pending block ticks that the old way needed.
+  private boolean test14(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_FLASHERS = 2000;
+    final int NUMBER_OF_TICKS = 5000;
+    final int CHANGES_PER_TICK = 20;
+    final int [][] RATES = {{5, 10}, {7, 20}, {10, 40}, {15, 60}, {20, 80}};  // {onTicks, periodTicks}
+    Random random = new Random(41);  // fixed seed so that the test is repeatable
+
+    long startTick = 1000;
+    TimerWheel wheel = new TimerWheel(startTick);
+    OscillatorBus bus = new OscillatorBus(wheel);
+    final long [] currentTick = {startTick};
+    ReferenceFlasher [] flashers = new ReferenceFlasher[NUMBER_OF_FLASHERS];
+    for (int i = 0; i < NUMBER_OF_FLASHERS; ++i) {
+      flashers[i] = new ReferenceFlasher();
+    }
+    final int REACTING_FLASHER_SPACING = 10;
+    for (int i = 0; i < NUMBER_OF_FLASHERS; i += REACTING_FLASHER_SPACING) {
+      flashers[i].reactToToggles(bus, currentTick, flashers[i + 1], RATES);
+    }
+
+    boolean success = true;
+    int mismatches = 0;
+    long oscillatorTotal = 0;
+    long timerTotal = 0;
+    long oldPendingTickTotal = 0;
+    for (long tick = startTick + 1; tick <= startTick + NUMBER_OF_TICKS; ++tick) {
+      // the scheduled updates (old way) and the oscillators (new way) both toggle at the start of the tick
+      currentTick[0] = tick;
+      wheel.advanceTo(tick);
+      for (ReferenceFlasher flasher : flashers) {
+        flasher.onReferenceTick(tick);
+        if (flasher.isOnNow() != flasher.referenceOn) ++mismatches;
+      }
+
+      // then the neighbours change, during the rest of the tick
+      for (int change = 0; change < CHANGES_PER_TICK; ++change) {
+        ReferenceFlasher flasher = flashers[random.nextInt(NUMBER_OF_FLASHERS)];
+        if (random.nextInt(5) == 0) {
+          flasher.setSteadyOutput(random.nextBoolean());
+        } else {
+          int [] rate = RATES[random.nextInt(RATES.length)];
+          flasher.setToggleRate(bus, tick, rate[0], rate[1]);
+        }
+        if (flasher.isOnNow() != flasher.referenceOn) ++mismatches;
+      }
+
+      for (ReferenceFlasher flasher : flashers) {
+        if (flasher.oscillator != null) ++oldPendingTickTotal;  // the old way always had one pending tick while toggling
+      }
+      oscillatorTotal += bus.getOscillatorCount();
+      timerTotal += wheel.getScheduledCount();
+    }
+
+    int notifiedWithoutToggle = 0;
+    int callbackRateChanges = 0;
+    for (ReferenceFlasher flasher : flashers) {
+      notifiedWithoutToggle += flasher.notifiedWithoutToggle;
+      callbackRateChanges += flasher.callbackRateChanges;
+    }
+    if (mismatches != 0 || notifiedWithoutToggle != 0 || callbackRateChanges == 0) success = false;
+    System.out.println("Test 14: " + NUMBER_OF_FLASHERS + " flashers for " + NUMBER_OF_TICKS + " ticks");
+    System.out.println("  output different from the old way: " + mismatches + " times");
+    System.out.println("  notified when the output didn't change: " + notifiedWithoutToggle + " times");
+    System.out.println("  rates changed from inside a toggle callback: " + callbackRateChanges + " times");
+    System.out.println("  average pending block ticks (old way): " + oldPendingTickTotal / NUMBER_OF_TICKS
+                       + ", average oscillators: " + oscillatorTotal / NUMBER_OF_TICKS
+                       + ", average oscillator timers: " + timerTotal / NUMBER_OF_TICKS);
+    return success;
+  }
+
+  // an OscillatorBus listener which also works out what the old ScheduledTogglingOutput would have done
+  private static class ReferenceFlasher implements OscillatorBus.Listener
+  {
+    public void setToggleRate(OscillatorBus bus, long tick, int onTicks, int periodTicks)
+    {
+      boolean startOn = isOnNow();
+      boolean referenceStartOn = referenceOn;
+      setSteadyOutput(startOn);
+      referenceOn = referenceStartOn;
+      oscillator = bus.subscribe(tick, null, null, onTicks, periodTicks, startOn, this);
+      lastNotifiedState = oscillator.isOn();
+      referenceOnTicks = onTicks;
+      referenceOffTicks = periodTicks - onTicks;
+      referenceNextToggle = tick + (referenceOn ? referenceOnTicks : referenceOffTicks);
+    }
+
+    public void setSteadyOutput(boolean output)
+    {
+      if (oscillator != null) oscillator.unsubscribe(this);
+      oscillator = null;
+      steadyOutput = output;
+      referenceOn = output;
+      referenceNextToggle = -1;
+    }
+
+    public boolean isOnNow() {
+      return (oscillator != null) ? oscillator.isOn() : steadyOutput;
+    }
+
+    // the old way: the scheduled update toggles the output and schedules the next one
+    public void onReferenceTick(long tick)
+    {
+      if (tick != referenceNextToggle) return;
+      referenceOn = !referenceOn;
+      referenceNextToggle = tick + (referenceOn ? referenceOnTicks : referenceOffTicks);
+    }
+
+    // when the output turns on, change this flasher's rate and its neighbour's rate from inside the callback
+    public void reactToToggles(OscillatorBus bus, long [] currentTick, ReferenceFlasher neighbour, int [][] rates)
+    {
+      reactingBus = bus;
+      reactingCurrentTick = currentTick;
+      reactingNeighbour = neighbour;
+      reactingRates = rates;
+    }
+
+    @Override
+    public void onOscillatorToggled(boolean isOn)
+    {
+      if (isOn == lastNotifiedState) ++notifiedWithoutToggle;
+      lastNotifiedState = isOn;
+      if (reactingBus == null || !isOn) return;
+
+      long tick = reactingCurrentTick[0];
+      onReferenceTick(tick);  // the old way toggled in the scheduled update, before the neighbours were notified
+      int [] rate = reactingRates[(int)(tick % reactingRates.length)];
+      setToggleRate(reactingBus, tick, rate[0], rate[1]);
+      ++callbackRateChanges;
+      // a neighbour which is due to toggle in this tick as well could go either before or after this one, so leave it
+      if (reactingNeighbour.referenceNextToggle != tick) {
+        int [] neighbourRate = reactingRates[(int)((tick + 1) % reactingRates.length)];
+        reactingNeighbour.setToggleRate(reactingBus, tick, neighbourRate[0], neighbourRate[1]);
+        ++callbackRateChanges;
+      }
+    }
+
+    public OscillatorBus.Oscillator oscillator;
+    public boolean steadyOutput;
+    public boolean referenceOn;
+    public int notifiedWithoutToggle;
+    private boolean lastNotifiedState;
+    private long referenceNextToggle = -1;
+    private int referenceOnTicks;
+    private int referenceOffTicks;
+    public int callbackRateChanges;
+    private OscillatorBus reactingBus;
+    private long [] reactingCurrentTick;
+    private ReferenceFlasher reactingNeighbour;
+    private int [][] reactingRates;
+  }
+
+  // benchmark the MBE06 signal graph against the usual cascading neighborChanged() updates, using a display of 1000
+  //   blocks: columns of variable sources, with a column of coloured lamps (and every fifth row a meter) in between, so
+  //   that each lamp or meter has a source on each side.  Each frame, every source is changed to a new power level.
+  // Check that both ways end up with the same lamp colours and meter readings, and that the graph lets go of the display
+  //   when its chunks are unloaded.
+  private boolean test15(World worldIn, EntityPlayer playerIn)
+  {
+    BlockPos testRegionOrigin = new BlockPos(0, 204, 40);
+    final int DISPLAY_WIDTH = 40;
+    final int DISPLAY_DEPTH = 25;
+    final int NUMBER_OF_FRAMES = 50;
+    final int FLAGS = 3;  // notify the neighbours and send to the client
+
+    teleportPlayerToTestRegion(playerIn, testRegionOrigin.south(DISPLAY_DEPTH + 5));  // teleport the player nearby so you can watch
+
+    boolean savedCompiledRedstoneGraph = MBEConfiguration.compiledRedstoneGraph;
+    boolean success = true;
+    int [][] results = new int[2][DISPLAY_WIDTH * DISPLAY_DEPTH];
+    System.out.println("Test 15: display of " + DISPLAY_WIDTH * DISPLAY_DEPTH + " redstone blocks, " + NUMBER_OF_FRAMES + " frames");
+    try {
+      for (int method = 0; method < 2; ++method) {
+        boolean useGraph = (method == 1);
+        MBEConfiguration.compiledRedstoneGraph = useGraph;
+        SignalGraph signalGraph = SignalGraph.forWorld(worldIn);
+
+        // build the display
+        for (int x = 0; x < DISPLAY_WIDTH; ++x) {
+          for (int z = 0; z < DISPLAY_DEPTH; ++z) {
+            BlockPos pos = testRegionOrigin.add(x, 0, z);
+            IBlockState state;
+            if (x % 2 == 0) {
+              state = minecraftbyexample.mbe06_redstone.StartupCommon.blockRedstoneVariableSource.getDefaultState();
+            } else if (z % 5 == 4) {
+              state = minecraftbyexample.mbe06_redstone.StartupCommon.blockRedstoneMeter.getDefaultState();
+            } else {
+              state = minecraftbyexample.mbe06_redstone.StartupCommon.blockRedstoneColouredLamp.getDefaultState()
+                      .withProperty(BlockRedstoneColouredLamp.PROPERTYFACING, EnumFacing.NORTH);  // red = west, blue = east
+            }
+            worldIn.setBlockState(pos, Blocks.AIR.getDefaultState(), FLAGS);
+            worldIn.setBlockState(pos, state, FLAGS);
+          }
+        }
+        long startTime = System.nanoTime();
+        if (useGraph) signalGraph.evaluate();  // the first evaluation compiles the display
+        long compileNanoseconds = System.nanoTime() - startTime;
+
+        long evaluationCountAtStart = SignalGraph.getEvaluationCount();
+        startTime = System.nanoTime();
+        for (int frame = 0; frame < NUMBER_OF_FRAMES; ++frame) {
+          for (int x = 0; x < DISPLAY_WIDTH; x += 2) {
+            for (int z = 0; z < DISPLAY_DEPTH; ++z) {
+              BlockPos pos = testRegionOrigin.add(x, 0, z);
+              int powerIndex = (x / 2 + z + frame + 1) % 5;
+              worldIn.setBlockState(pos, worldIn.getBlockState(pos).withProperty(BlockRedstoneVariableSource.POWER_INDEX, powerIndex), FLAGS);
+            }
+          }
+          if (useGraph) signalGraph.evaluate();  // normally done at the end of the tick
+        }
+        long frameNanoseconds = System.nanoTime() - startTime;
+
+        for (int x = 1; x < DISPLAY_WIDTH; x += 2) {
+          for (int z = 0; z < DISPLAY_DEPTH; ++z) {
+            BlockPos pos = testRegionOrigin.add(x, 0, z);
+            TileEntity tileEntity = worldIn.getTileEntity(pos);
+            int westPower = worldIn.getRedstonePower(pos.west(), EnumFacing.WEST);
+            int eastPower = worldIn.getRedstonePower(pos.east(), EnumFacing.EAST);
+            int result;
+            if (tileEntity instanceof TileEntityRedstoneMeter) {
+              result = ((TileEntityRedstoneMeter)tileEntity).getPowerLevelClient();
+              success &= (result == Math.max(westPower, eastPower));
+            } else {
+              result = ((TileEntityRedstoneColouredLamp)tileEntity).getRGBcolour();
+              success &= (result == BlockRedstoneColouredLamp.calculateLampColour(westPower, 0, eastPower));
+            }
+            results[method][x * DISPLAY_DEPTH + z] = result;
+          }
+        }
+
+        String name = useGraph ? "signal graph          " : "cascading updates     ";
+        System.out.println("  " + name + ":" + String.format("%.3f", frameNanoseconds / 1.0e6 / NUMBER_OF_FRAMES) + " ms per frame");
+        if (useGraph) {
+          System.out.println("    compiled " + signalGraph.getNodeCount() + " blocks in " + String.format("%.3f", compileNanoseconds / 1.0e6) + " ms, "
+                             + (SignalGraph.getEvaluationCount() - evaluationCountAtStart) / NUMBER_OF_FRAMES + " evaluations per frame");
+
+          // unloading the display's chunks should discard all of its nodes (the chunks aren't really unloaded here)
+          for (int chunkX = testRegionOrigin.getX() >> 4; chunkX <= (testRegionOrigin.getX() + DISPLAY_WIDTH - 1) >> 4; ++chunkX) {
+            for (int chunkZ = testRegionOrigin.getZ() >> 4; chunkZ <= (testRegionOrigin.getZ() + DISPLAY_DEPTH - 1) >> 4; ++chunkZ) {
+              signalGraph.onChunkUnload(chunkX, chunkZ);
+            }
+          }
+          System.out.println("    " + signalGraph.getNodeCount() + " blocks left after unloading the display's chunks");
+          success &= (signalGraph.getNodeCount() == 0);
+        }
+      }
+    } finally {
+      MBEConfiguration.compiledRedstoneGraph = savedCompiledRedstoneGraph;
+    }
+    success &= Arrays.equals(results[0], results[1]);
+    return success;
+  }
+
+  // check DeferredLightUpdates.relightRegion() against the vanilla World.checkLightFor(): build random scenes of stone,
+  //   light sources and partly transparent blocks inside a closed box, change the light value of some of the blocks
+  //   (swapping stone, glowstone and magma, which all have the same opacity), then relight the changes
+  //   a) one position at a time with checkLightFor(); and
+  //   b) in one go with relightRegion()
+  //   starting from the same light each time, and check that every block in the box ends up with the same light.
+  private boolean test16(World worldIn, EntityPlayer playerIn)
+  {
+    BlockPos testRegionOrigin = new BlockPos(0, 204, 80);
+    final int BOX_SIZE = 24;
+    final int BOX_HEIGHT = 16;
+    final int NUMBER_OF_SCENES = 10;
+    final int CHANGES_PER_SCENE = 30;
+    final int FLAGS = 2;  // send to the client, but don't notify the neighbours
+
+    teleportPlayerToTestRegion(playerIn, testRegionOrigin.south(BOX_SIZE + 5));  // teleport the player nearby so you can watch
+
+    IBlockState [] emissionStates = {Blocks.STONE.getDefaultState(), Blocks.GLOWSTONE.getDefaultState(), Blocks.MAGMA.getDefaultState()};
+    IBlockState [] otherStates = {Blocks.AIR.getDefaultState(), Blocks.GLASS.getDefaultState(), Blocks.WEB.getDefaultState(),
+                                  Blocks.ICE.getDefaultState()};  // opacity 0, 0, 1, 3
+    DeferredLightUpdates deferredLightUpdates = DeferredLightUpdates.forWorld(worldIn);
+    Random random = new Random(16);
+    boolean success = true;
+    int mismatches = 0;
+    long regionRelightsAtStart = deferredLightUpdates.getRegionRelightCount();
+    System.out.println("Test 16: " + NUMBER_OF_SCENES + " scenes of " + BOX_SIZE * BOX_HEIGHT * BOX_SIZE + " blocks, "
+                       + CHANGES_PER_SCENE + " light value changes each");
+
+    for (int scene = 0; scene < NUMBER_OF_SCENES; ++scene) {
+      // build the scene, with a shell of stone around it, and let World.setBlockState() light it
+      List<BlockPos> boxPositions = new ArrayList<BlockPos>();
+      for (int x = -1; x <= BOX_SIZE; ++x) {
+        for (int y = -1; y <= BOX_HEIGHT; ++y) {
+          for (int z = -1; z <= BOX_SIZE; ++z) {
+            BlockPos pos = testRegionOrigin.add(x, y, z);
+            boolean shell = (x < 0 || x == BOX_SIZE || y < 0 || y == BOX_HEIGHT || z < 0 || z == BOX_SIZE);
+            IBlockState state;
+            if (shell) {
+              state = Blocks.STONE.getDefaultState();
+            } else if (random.nextInt(4) == 0) {
+              state = emissionStates[random.nextInt(emissionStates.length)];
+            } else {
+              state = otherStates[random.nextInt(otherStates.length)];
+            }
+            worldIn.setBlockState(pos, state, FLAGS);
+            if (!shell) boxPositions.add(pos);
+          }
+        }
+      }
+      List<BlockPos> changedPositions = new ArrayList<BlockPos>();
+      List<IBlockState> newStates = new ArrayList<IBlockState>();
+      for (int change = 0; change < CHANGES_PER_SCENE; ++change) {
+        BlockPos pos = boxPositions.get(random.nextInt(boxPositions.size()));
+        if (changedPositions.contains(pos)) continue;
+        changedPositions.add(pos);
+        newStates.add(emissionStates[random.nextInt(emissionStates.length)]);
+      }
+      List<IBlockState> oldStates = new ArrayList<IBlockState>();
+      int [] oldLight = new int[boxPositions.size()];
+      for (BlockPos pos : changedPositions) {
+        oldStates.add(worldIn.getBlockState(pos));
+      }
+      for (int i = 0; i < boxPositions.size(); ++i) {
+        oldLight[i] = worldIn.getLightFor(EnumSkyBlock.BLOCK, boxPositions.get(i));
+      }
+
+      int [][] results = new int[2][boxPositions.size()];
+      for (int method = 0; method < 2; ++method) {
+        boolean relightInOneGo = (method == 1);
+        // change the blocks in the chunk directly, so that the light isn't updated yet (the same as the MBE31 furnace)
+        for (int i = 0; i < changedPositions.size(); ++i) {
+          BlockPos pos = changedPositions.get(i);
+          worldIn.getChunkFromBlockCoords(pos).setBlockState(pos, newStates.get(i));
+        }
+        if (relightInOneGo) {
+          for (BlockPos pos : changedPositions) {
+            deferredLightUpdates.requestLightEmissionCheck(pos);
+          }
+          deferredLightUpdates.processPendingChecks(true);
+        } else {
+          for (BlockPos pos : changedPositions) {
+            worldIn.checkLightFor(EnumSkyBlock.BLOCK, pos);
+          }
+        }
+        for (int i = 0; i < boxPositions.size(); ++i) {
+          results[method][i] = worldIn.getLightFor(EnumSkyBlock.BLOCK, boxPositions.get(i));
+        }
+
+        // put the blocks and the light back the way they were, ready for the other method
+        for (int i = 0; i < changedPositions.size(); ++i) {
+          BlockPos pos = changedPositions.get(i);
+          worldIn.getChunkFromBlockCoords(pos).setBlockState(pos, oldStates.get(i));
+        }
+        for (int i = 0; i < boxPositions.size(); ++i) {
+          worldIn.setLightFor(EnumSkyBlock.BLOCK, boxPositions.get(i), oldLight[i]);
+        }
+      }
+
+      for (int i = 0; i < boxPositions.size(); ++i) {
+        if (results[0][i] != results[1][i]) ++mismatches;
+      }
+    }
+
+    long regionRelights = deferredLightUpdates.getRegionRelightCount() - regionRelightsAtStart;
+    System.out.println("  regions relit in one go: " + regionRelights);
+    System.out.println("  blocks with different light: " + mismatches);
+    success &= (mismatches == 0) && (regionRelights >= NUMBER_OF_SCENES);
+    return success;
+  }
+
+  // client side: compare the time to draw the MBE21 gems for a scene of 500 pedestals, sending the vertices through the
+  //   Tessellator for each gem (the old way) against drawing the GemMesh, and against drawing them all in one batch the
+  //   way vanilla draws the fast TESRs (TileEntityRendererDispatcher.drawBatch(): one buffer of GL_QUADS with the block
+  //   texture sheet).  Each gem gets its own transformation and colour, the same as the TESR does.
+  // It is drawn into the frame which is about to be cleared, so nothing appears on the screen.  glFinish() waits for the
+  //   graphics card to finish each frame, so that the time includes the drawing, not just the sending.
+  private boolean test12ClientSide(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_PEDESTALS = 500;
+    final int NUMBER_OF_FRAMES = 200;
+    final int PEDESTALS_PER_ROW = 25;
+    GemMesh gemMesh = new GemMesh();
+    Tessellator tessellator = Tessellator.getInstance();
+    VertexBuffer vertexBuffer = tessellator.getBuffer();
+    TextureAtlasSprite gemSprite = Minecraft.getMinecraft().getTextureMapBlocks().getAtlasSprite(BakedGemModel.GEM_SPRITE_NAME);
+
+    System.out.println("Test 12: " + NUMBER_OF_PEDESTALS + " gems per frame");
+    try {
+      for (int method = 0; method < 3; ++method) {
+        boolean useMesh = (method == 1);
+        boolean useBatch = (method == 2);
+        long startTime = System.nanoTime();
+        for (int frame = 0; frame < NUMBER_OF_FRAMES; ++frame) {
+          if (useBatch) {
+            Minecraft.getMinecraft().getTextureManager().bindTexture(TextureMap.LOCATION_BLOCKS_TEXTURE);
+            vertexBuffer.begin(GL11.GL_QUADS, DefaultVertexFormats.BLOCK);
+          }
+          for (int i = 0; i < NUMBER_OF_PEDESTALS; ++i) {
+            if (useBatch) {
+              final double GEM_SCALE = 0.5;
+              final int SKY_LIGHT_16 = 15 * 16;
+              final int BLOCK_LIGHT_16 = 0;
+              GemMesh.addTransformedGemQuads(vertexBuffer, gemSprite, i % PEDESTALS_PER_ROW, 0, i / PEDESTALS_PER_ROW, frame + i,
+                                             GEM_SCALE, (i % 3) * 127, (i % 5) * 63, (i % 7) * 42, SKY_LIGHT_16, BLOCK_LIGHT_16);
+              continue;
+            }
+            GlStateManager.pushMatrix();
+            GlStateManager.translate(i % PEDESTALS_PER_ROW, 0, i / PEDESTALS_PER_ROW);
+            GlStateManager.rotate(frame + i, 0, 1, 0);
+            GlStateManager.color((i % 3) / 2.0F, (i % 5) / 4.0F, (i % 7) / 6.0F);
+            if (useMesh) {
+              gemMesh.draw();
+            } else {
+              vertexBuffer.begin(GL11.GL_TRIANGLES, DefaultVertexFormats.POSITION_TEX);
+              GemMesh.addGemVertices(vertexBuffer);
+              tessellator.draw();
+            }
+            GlStateManager.popMatrix();
+          }
+          if (useBatch) tessellator.draw();
+          GL11.glFinish();
+        }
+        long nanoseconds = System.nanoTime() - startTime;
+        String name = useBatch ? "fast TESR batch       "
+                      : (useMesh ? (gemMesh.isUsingVbo() ? "GemMesh (VBO)         " : "GemMesh (display list)") : "Tessellator every time");
+        System.out.println("  " + name + ":" + String.format("%.2f", nanoseconds / 1.0e6 / NUMBER_OF_FRAMES) + " ms per frame");
+      }
+    } finally {
+      gemMesh.deleteGlResources();
+      GlStateManager.color(1.0F, 1.0F, 1.0F);
+    }
+    return true;
+  }
+
+  // time drawing 200 redstone meter needles per frame, comparing
+  //  a) the old way: each meter looks up the power level of its four neighbours every frame, then draws the needle
+  //  b) the new way: the TESR just reads the power level which was sent by the server
+  // The meters are put around the player (they don't need to be real blocks for this), and the needles are drawn with
+  //   the real TESR.  Also check that the cached level is used: it should not change when the neighbours are looked at.
+  private boolean test13ClientSide(World worldIn, EntityPlayer playerIn)
+  {
+    final int NUMBER_OF_METERS = 200;
+    final int NUMBER_OF_FRAMES = 200;
+    final int METERS_PER_ROW = 20;
+    BlockPos origin = playerIn.getPosition();
+    TileEntitySpecialRendererRedstoneMeter meterRenderer = new TileEntitySpecialRendererRedstoneMeter();
+    TileEntityRedstoneMeter [] meters = new TileEntityRedstoneMeter[NUMBER_OF_METERS];
+    for (int i = 0; i < NUMBER_OF_METERS; ++i) {
+      meters[i] = new TileEntityRedstoneMeter();
+      meters[i].setWorldObj(worldIn);
+      meters[i].setPos(origin.add(i % METERS_PER_ROW, 0, i / METERS_PER_ROW));
+    }
+
+    System.out.println("Test 13: " + NUMBER_OF_METERS + " redstone meters per frame");
+    boolean success = true;
+    try {
+      for (int method = 0; method < 2; ++method) {
+        boolean probeNeighbours = (method == 0);
+        int powerLevelTotal = 0;  // so that the JIT can't throw the lookups away
+        long startTime = System.nanoTime();
+        for (int frame = 0; frame < NUMBER_OF_FRAMES; ++frame) {
+          for (int i = 0; i < NUMBER_OF_METERS; ++i) {
+            if (probeNeighbours) powerLevelTotal += meters[i].getPowerLevelFromNeighbours();
+            final float PARTIAL_TICKS = 0;
+            final int NO_DAMAGE = -1;
+            meterRenderer.renderTileEntityAt(meters[i], i % METERS_PER_ROW, 0, i / METERS_PER_ROW, PARTIAL_TICKS, NO_DAMAGE);
+          }
+          GL11.glFinish();
+        }
+        long nanoseconds = System.nanoTime() - startTime;
+        String name = probeNeighbours ? "neighbour lookups every frame" : "cached power level           ";
+        System.out.println("  " + name + ":" + String.format("%.2f", nanoseconds / 1.0e6 / NUMBER_OF_FRAMES) + " ms per frame"
+                           + (probeNeighbours ? " (total power " + powerLevelTotal + ")" : ""));
+      }
+      for (TileEntityRedstoneMeter meter : meters) {
+        if (meter.getPowerLevelClient() != 0) success = false;  // never sent anything by the server
+      }
+    } finally {
+      GlStateManager.color(1.0F, 1.0F, 1.0F);
+    }
+    return success;
+  }
+
+  // the memory allocated so far by this thread, or -1 if the JVM can't measure it
+  private long getAllocatedBytes()
+  {
+    java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) return -1;
+    return ((com.sun.management.ThreadMXBean)threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // the unpacked formats which PrimitiveArrayNBT replaces
+  private void writeDoublesAsList(NBTTagCompound nbt, String key, double [] values)
+  {
+    NBTTagList list = new NBTTagList();
+    for (double value : values) {
+      list.appendTag(new NBTTagDouble(value));
+    }
+    nbt.setTag(key, list);
+  }
+
+  private void writeNullableDoublesAsList(NBTTagCompound nbt, String key, Double [] values)
+  {
+    NBTTagList list = new NBTTagList();
+    for (int i = 0; i < values.length; ++i) {
+      if (values[i] == null) continue;
+      NBTTagCompound entry = new NBTTagCompound();
+      entry.setInteger("i", i + 1);
+      entry.setDouble("v", values[i]);
+      list.appendTag(entry);
+    }
+    nbt.setTag(key, list);
+  }
+
+  private Double [] readNullableDoublesFromList(NBTTagCompound nbt, String key, int length)
+  {
+    final int NBT_TYPE_COMPOUND = 10;       // See NBTBase.createNewByType() for a listing
+    NBTTagList list = nbt.getTagList(key, NBT_TYPE_COMPOUND);
+    Double [] values = new Double[length];
+    for (int i = 0; i < list.tagCount(); ++i) {
+      NBTTagCompound entry = list.getCompoundTagAt(i);
+      int index = entry.getInteger("i") - 1;
+      if (index >= 0 && index < length) values[index] = entry.getDouble("v");
+    }
+    return values;
+  }
+
+  private void writeBlockPosAsCompound(NBTTagCompound nbt, String key, BlockPos pos)
+  {
+    NBTTagCompound blockPosNBT = new NBTTagCompound();
+    blockPosNBT.setInteger("x", pos.getX());
+    blockPosNBT.setInteger("y", pos.getY());
+    blockPosNBT.setInteger("z", pos.getZ());
+    nbt.setTag(key, blockPosNBT);
+  }
+
+  // the size of the tag when it is written to disk
+  private int nbtSize(NBTTagCompound nbt, boolean compressed) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    if (compressed) {
+      CompressedStreamTools.writeCompressed(nbt, bytes);
+    } else {
+      CompressedStreamTools.write(nbt, new DataOutputStream(bytes));
+    }
+    return bytes.size();
+  }
+
+  private List<ItemStack> copyStacks(IInventory inventory)
+  {
+    List<ItemStack> copies = new ArrayList<ItemStack>();
+    for (int slot = 0; slot < inventory.getSizeInventory(); ++slot) {
+      copies.add(inventory.getStackInSlot(slot).copy());
+    }
+    return copies;
+  }
+
+  // put a random mix of fuel, smeltable and unsmeltable items into the furnace, and set the burn times and cook time
+  private void fillFurnaceRandomly(TileInventoryFurnace furnace, Random random)
+  {
+    ItemStack [] fuels = {ItemStack.field_190927_a, new ItemStack(Items.COAL), new ItemStack(Blocks.PLANKS), new ItemStack(Items.WHEAT),
+                          new ItemStack(Items.STICK), new ItemStack(Items.LAVA_BUCKET), new ItemStack(Blocks.DIRT)};
+    ItemStack [] inputs = {ItemStack.field_190927_a, new ItemStack(Blocks.IRON_ORE), new ItemStack(Items.CAKE),
+                           new ItemStack(Blocks.SAND), new ItemStack(Blocks.COBBLESTONE), new ItemStack(Blocks.DIRT)};
+    ItemStack [] outputs = {ItemStack.field_190927_a, new ItemStack(Items.IRON_INGOT), new ItemStack(Items.COAL, 1, 1),
+                            new ItemStack(Blocks.GLASS), new ItemStack(Blocks.STONE), new ItemStack(Blocks.DIRT)};
+
+    for (int i = 0; i < TileInventoryFurnace.FUEL_SLOTS_COUNT; ++i) {
+      furnace.setInventorySlotContents(TileInventoryFurnace.FIRST_FUEL_SLOT + i, randomStack(fuels, random));
+    }
+    for (int i = 0; i < TileInventoryFurnace.INPUT_SLOTS_COUNT; ++i) {
+      furnace.setInventorySlotContents(TileInventoryFurnace.FIRST_INPUT_SLOT + i, randomStack(inputs, random));
+    }
+    for (int i = 0; i < TileInventoryFurnace.OUTPUT_SLOTS_COUNT; ++i) {
+      furnace.setInventorySlotContents(TileInventoryFurnace.FIRST_OUTPUT_SLOT + i, randomStack(outputs, random));
+    }
+
+    // fields: 0 = cook time, 1 - 4 = burn time remaining, 5 - 8 = burn time initial value
+    final int MAX_COOK_TIME = 200;
+    final int MAX_BURN_TIME = 1600;
+    furnace.setField(0, random.nextInt(MAX_COOK_TIME));
+    for (int i = 0; i < TileInventoryFurnace.FUEL_SLOTS_COUNT; ++i) {
+      int burnTimeRemaining = random.nextBoolean() ? 0 : random.nextInt(MAX_BURN_TIME);
+      furnace.setField(1 + i, burnTimeRemaining);
+      furnace.setField(1 + TileInventoryFurnace.FUEL_SLOTS_COUNT + i, burnTimeRemaining + random.nextInt(MAX_BURN_TIME));
+    }
+  }
+
+  private ItemStack randomStack(ItemStack [] choices, Random random)
+  {
+    ItemStack stack = choices[random.nextInt(choices.length)].copy();
+    if (!stack.func_190926_b()) {  // isEmpty()
+      stack.func_190920_e(1 + random.nextInt(stack.getMaxStackSize()));  // setStackSize()
+    }
+    return stack;
+  }
+
   /**
    * Teleport the player to the test region (so you can see the results of the test)
    * @param playerIn
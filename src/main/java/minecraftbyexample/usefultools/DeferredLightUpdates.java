@@ -0,0 +1,400 @@
+package minecraftbyexample.usefultools;
+
+import com.google.common.collect.ComparisonChain;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * DeferredLightUpdates is a queue of block light checks which are performed once, at the end of the tick, instead of
+ *   straight away.
+ * Blocks whose light output changes often (eg the MBE31 furnace as its fuel slots burn out and refuel, or the MBE06 lamp)
+ *   would otherwise call World.checkLightFor() every time they change, sometimes several times in the same tick for the
+ *   same position, or for a whole group of neighbouring blocks at once.
+ * Usage:
+ * 1) instead of world.checkLightFor(EnumSkyBlock.BLOCK, pos), call DeferredLightUpdates.requestLightCheck(world, pos)
+ *    If the only thing that has changed is the amount of light the block gives off (eg the furnace lighting up, not a
+ *    block being placed or removed), call requestLightEmissionCheck(world, pos) instead.
+ *    On the client, this also re-renders the block, so you don't need to call notifyBlockUpdate() as well.
+ * 2) at the end of the tick, the queue:
+ *    a) discards duplicate positions
+ *    b) groups the positions into regions of nearby blocks, and relights each region together.  On the client the whole
+ *       region is also re-rendered with a single markBlockRangeForRenderUpdate().
+ * The vanilla lighting engine (World.checkLightFor()) can only relight outwards from one position at a time, and each
+ *   check looks at all the blocks which the light from that position could reach.  When there are lots of emission
+ *   changes close together, it's cheaper to relight the region in one go: every block which could have been affected
+ *   (within LIGHT_RANGE of the region) is given its block light again, spreading outwards from the light sources in
+ *   that box and from the light just outside it - see relightRegion().
+ *   This relies on the light just outside the box staying the same, which is only true if no block's opacity has
+ *   changed: a new wall could cast a shadow much further than LIGHT_RANGE.  So a region which has any
+ *   requestLightCheck() positions in it, or only a few positions, is checked one position at a time with checkLightFor()
+ *   as usual, in chunk order, which keeps the lighting engine working on the same chunk sections.
+ *   MBE75 test 16 compares the two ways.
+ *
+ * There is one queue per world.  The server queues are processed at the end of each world tick, the client queues at the
+ *   end of each client tick.
+ */
+public class DeferredLightUpdates
+{
+  /**
+   * Get the queue for the given world, creating it if necessary
+   */
+  public static DeferredLightUpdates forWorld(World world)
+  {
+    Map<World, DeferredLightUpdates> queues = world.isRemote ? clientQueues : serverQueues;
+    DeferredLightUpdates queue = queues.get(world);
+    if (queue == null) {
+      queue = new DeferredLightUpdates(world);
+      queues.put(world, queue);
+    }
+    return queue;
+  }
+
+  /**
+   * Check the block light at the given position at the end of this tick
+   */
+  public static void requestLightCheck(World world, BlockPos pos)
+  {
+    forWorld(world).requestLightCheck(pos);
+  }
+
+  public void requestLightCheck(BlockPos pos)
+  {
+    ++requestedCount;
+    BlockPos immutablePos = pos.toImmutable();
+    pendingPositions.add(immutablePos);
+    pendingOpacityChecks.add(immutablePos);
+  }
+
+  /**
+   * Check the block light at the given position at the end of this tick, when only the light value of the block has
+   *   changed - its opacity must be the same as before (eg a lamp changing brightness)
+   */
+  public static void requestLightEmissionCheck(World world, BlockPos pos)
+  {
+    forWorld(world).requestLightEmissionCheck(pos);
+  }
+
+  public void requestLightEmissionCheck(BlockPos pos)
+  {
+    ++requestedCount;
+    pendingPositions.add(pos.toImmutable());
+  }
+
+  /** the number of light checks which have been requested */
+  public long getRequestedCount() {
+    return requestedCount;
+  }
+
+  /** the number of relights which have actually been performed: one for each region which was relit in one go, plus one
+   *   for each position which was checked on its own */
+  public long getPerformedCount() {
+    return performedCount;
+  }
+
+  /** the number of regions the light checks have been grouped into */
+  public long getRegionCount() {
+    return regionCount;
+  }
+
+  /** the number of regions which were relit in one go, instead of one position at a time */
+  public long getRegionRelightCount() {
+    return regionRelightCount;
+  }
+
+  /**
+   * Perform all the light checks which have been requested since last time.
+   */
+  public void processPendingChecks()
+  {
+    processPendingChecks(false);
+  }
+
+  /**
+   * Perform all the light checks which have been requested since last time.
+   * @param alwaysRelightInOneGo for testing: relight every region of emission changes in one go, even if it would be
+   *                             cheaper to check each position
+   */
+  public void processPendingChecks(boolean alwaysRelightInOneGo)
+  {
+    if (pendingPositions.isEmpty()) return;
+    BlockPos [] positions = pendingPositions.toArray(new BlockPos[pendingPositions.size()]);
+    Set<BlockPos> opacityChecks = new HashSet<BlockPos>(pendingOpacityChecks);
+    pendingPositions.clear();   // any checks requested while we're relighting will be done next tick
+    pendingOpacityChecks.clear();
+
+    Arrays.sort(positions, CHUNK_ORDER);
+    for (Region region : groupIntoRegions(positions)) {
+      ++regionCount;
+      boolean emissionChangesOnly = Collections.disjoint(region.positions, opacityChecks);
+      if (emissionChangesOnly && (alwaysRelightInOneGo || isWorthRelightingInOneGo(region)) && relightRegion(region)) {
+        ++regionRelightCount;
+        ++performedCount;
+      } else {
+        for (BlockPos pos : region.positions) {
+          world.checkLightFor(EnumSkyBlock.BLOCK, pos);
+          ++performedCount;
+        }
+      }
+      if (world.isRemote) {
+        world.markBlockRangeForRenderUpdate(region.min, region.max);
+      }
+    }
+  }
+
+  // Group the positions into regions: each position joins the first region whose bounding box is within
+  //   MERGE_DISTANCE of it, otherwise it starts a new region.
+  private static List<Region> groupIntoRegions(BlockPos [] positions)
+  {
+    List<Region> regions = new ArrayList<Region>();
+    for (BlockPos pos : positions) {
+      Region joined = null;
+      for (Region region : regions) {
+        if (region.isNear(pos)) {
+          joined = region;
+          break;
+        }
+      }
+      if (joined == null) {
+        regions.add(new Region(pos));
+      } else {
+        joined.add(pos);
+      }
+    }
+    return regions;
+  }
+
+  private static final int MERGE_DISTANCE = 8;
+  private static final int MAX_REGION_SIZE = 32;   // don't re-render large areas which are mostly empty
+
+  // Light spreads at most 14 blocks from its source (15, minus at least 1 for each block), so a block more than
+  //   LIGHT_RANGE away from all the positions in the region can't have changed.
+  private static final int LIGHT_RANGE = 15;
+
+  // Roughly the number of blocks that a checkLightFor() looks at for a bright light source: it visits all the blocks
+  //   the light reaches (about 4000 within 14 blocks) once to remove the old light and again to spread the new light,
+  //   reading several neighbours of each.  relightRegion() reads each block in its box about twice.
+  private static final int BLOCKS_PER_LIGHT_CHECK = 4096 * 4;
+
+  private static boolean isWorthRelightingInOneGo(Region region)
+  {
+    long boxVolume = (long)(region.max.getX() - region.min.getX() + 2 * LIGHT_RANGE + 1)
+                   * (region.max.getY() - region.min.getY() + 2 * LIGHT_RANGE + 1)
+                   * (region.max.getZ() - region.min.getZ() + 2 * LIGHT_RANGE + 1);
+    return (long)region.positions.size() * BLOCKS_PER_LIGHT_CHECK >= boxVolume;
+  }
+
+  /**
+   * Relight all the blocks within LIGHT_RANGE of the region, without using checkLightFor().  Only for regions where
+   *   nothing but the light values of the blocks has changed:
+   * 1) read the light source value and opacity of each block in the box, and the current light of the blocks on the
+   *    border just outside the box (which can't have changed: it is further from every changed block than light can
+   *    travel, and no opacity has changed)
+   * 2) spread the light from the light sources and the border, brightest first (a flood fill with one queue per light
+   *    level), the same way that World.getRawLight() calculates it: each block gets the brightest of its own light value
+   *    and each neighbour's light minus its opacity (at least 1)
+   * 3) store the blocks whose light has changed
+   * @return false if the box isn't loaded, in which case nothing is changed
+   */
+  private boolean relightRegion(Region region)
+  {
+    // the box, plus one block of border all the way round.  Below 0 and above 255 the border is dark.
+    int minX = region.min.getX() - LIGHT_RANGE - 1;
+    int minY = Math.max(region.min.getY() - LIGHT_RANGE, 0) - 1;
+    int minZ = region.min.getZ() - LIGHT_RANGE - 1;
+    int maxX = region.max.getX() + LIGHT_RANGE + 1;
+    int maxY = Math.min(region.max.getY() + LIGHT_RANGE, 255) + 1;
+    int maxZ = region.max.getZ() + LIGHT_RANGE + 1;
+    if (!world.isAreaLoaded(new BlockPos(minX, Math.max(minY, 0), minZ), new BlockPos(maxX, Math.min(maxY, 255), maxZ), false)) {
+      return false;
+    }
+
+    final int sizeX = maxX - minX + 1;
+    final int sizeY = maxY - minY + 1;
+    final int sizeZ = maxZ - minZ + 1;
+    final int strideZ = sizeX;
+    final int strideY = sizeX * sizeZ;
+    int [] oldLight = new int[sizeX * sizeY * sizeZ];
+    int [] light = new int[oldLight.length];
+    int [] opacity = new int[oldLight.length];  // the light lost spreading into the block; 15 or more = none gets in
+    LightQueue [] queues = new LightQueue[MAX_LIGHT + 1];
+    for (int level = 0; level <= MAX_LIGHT; ++level) {
+      queues[level] = new LightQueue();
+    }
+
+    BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+    for (int y = minY; y <= maxY; ++y) {
+      for (int z = minZ; z <= maxZ; ++z) {
+        for (int x = minX; x <= maxX; ++x) {
+          int i = (y - minY) * strideY + (z - minZ) * strideZ + (x - minX);
+          boolean border = (x == minX || x == maxX || y == minY || y == maxY || z == minZ || z == maxZ);
+          if (y < 0 || y > 255) {
+            opacity[i] = MAX_LIGHT;
+            continue;
+          }
+          pos.setPos(x, y, z);
+          oldLight[i] = world.getLightFor(EnumSkyBlock.BLOCK, pos);
+          if (border) {
+            light[i] = oldLight[i];
+            opacity[i] = MAX_LIGHT;  // the border keeps its light
+          } else {
+            IBlockState state = world.getBlockState(pos);
+            int lightValue = state.getLightValue(world, pos);
+            int blockOpacity = state.getLightOpacity(world, pos);
+            if (blockOpacity >= MAX_LIGHT && lightValue > 0) blockOpacity = 1;  // the same as World.getRawLight()
+            opacity[i] = Math.max(blockOpacity, 1);
+            light[i] = (opacity[i] >= MAX_LIGHT) ? 0 : lightValue;
+          }
+          if (light[i] > 1) queues[light[i]].add(i);
+        }
+      }
+    }
+
+    // a block's light only spreads to blocks with lower light, so by the time a level is reached, all of its blocks have
+    //   been queued.  A block can be queued more than once if it is brightened again; only the brightest one counts.
+    final int [] NEIGHBOUR_OFFSETS = {1, -1, strideZ, -strideZ, strideY, -strideY};
+    for (int level = MAX_LIGHT; level > 1; --level) {
+      LightQueue queue = queues[level];
+      for (int q = 0; q < queue.size; ++q) {
+        int i = queue.indices[q];
+        if (light[i] != level) continue;
+        for (int offset : NEIGHBOUR_OFFSETS) {
+          int neighbour = i + offset;
+          if (neighbour < 0 || neighbour >= light.length) continue;  // above or below the border
+          // the border's opacity stops the light spreading into it, or wrapping round from one side of the box to the other
+          int spreadLight = level - opacity[neighbour];
+          if (spreadLight > light[neighbour]) {
+            light[neighbour] = spreadLight;
+            queues[spreadLight].add(neighbour);
+          }
+        }
+      }
+    }
+
+    for (int y = minY + 1; y < maxY; ++y) {
+      for (int z = minZ + 1; z < maxZ; ++z) {
+        for (int x = minX + 1; x < maxX; ++x) {
+          int i = (y - minY) * strideY + (z - minZ) * strideZ + (x - minX);
+          if (light[i] != oldLight[i]) {
+            world.setLightFor(EnumSkyBlock.BLOCK, pos.setPos(x, y, z), light[i]);
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private static final int MAX_LIGHT = 15;
+
+  // a growable list of block indices, for relightRegion()
+  private static class LightQueue
+  {
+    public void add(int index) {
+      if (size == indices.length) indices = Arrays.copyOf(indices, indices.length * 2);
+      indices[size++] = index;
+    }
+
+    public int [] indices = new int[64];
+    public int size = 0;
+  }
+
+  private static class Region
+  {
+    public Region(BlockPos pos) {
+      min = pos;
+      max = pos;
+      positions.add(pos);
+    }
+
+    public boolean isNear(BlockPos pos) {
+      int minX = Math.min(min.getX(), pos.getX());
+      int maxX = Math.max(max.getX(), pos.getX());
+      int minY = Math.min(min.getY(), pos.getY());
+      int maxY = Math.max(max.getY(), pos.getY());
+      int minZ = Math.min(min.getZ(), pos.getZ());
+      int maxZ = Math.max(max.getZ(), pos.getZ());
+      if (maxX - minX > MAX_REGION_SIZE || maxY - minY > MAX_REGION_SIZE || maxZ - minZ > MAX_REGION_SIZE) return false;
+      return pos.getX() >= min.getX() - MERGE_DISTANCE && pos.getX() <= max.getX() + MERGE_DISTANCE
+          && pos.getY() >= min.getY() - MERGE_DISTANCE && pos.getY() <= max.getY() + MERGE_DISTANCE
+          && pos.getZ() >= min.getZ() - MERGE_DISTANCE && pos.getZ() <= max.getZ() + MERGE_DISTANCE;
+    }
+
+    public void add(BlockPos pos) {
+      min = new BlockPos(Math.min(min.getX(), pos.getX()), Math.min(min.getY(), pos.getY()), Math.min(min.getZ(), pos.getZ()));
+      max = new BlockPos(Math.max(max.getX(), pos.getX()), Math.max(max.getY(), pos.getY()), Math.max(max.getZ(), pos.getZ()));
+      positions.add(pos);
+    }
+
+    public BlockPos min;
+    public BlockPos max;
+    public final List<BlockPos> positions = new ArrayList<BlockPos>();
+  }
+
+  // sort by chunk, then by chunk section (y / 16), then by position within the section
+  private static final Comparator<BlockPos> CHUNK_ORDER = new Comparator<BlockPos>() {
+    @Override
+    public int compare(BlockPos a, BlockPos b) {
+      return ComparisonChain.start()
+              .compare(a.getX() >> 4, b.getX() >> 4).compare(a.getZ() >> 4, b.getZ() >> 4).compare(a.getY() >> 4, b.getY() >> 4)
+              .compare(a.getY(), b.getY()).compare(a.getX(), b.getX()).compare(a.getZ(), b.getZ())
+              .result();
+    }
+  };
+
+  private DeferredLightUpdates(World world) {
+    this.world = world;
+  }
+
+  private final World world;
+  private final Set<BlockPos> pendingPositions = new HashSet<BlockPos>();
+  private final Set<BlockPos> pendingOpacityChecks = new HashSet<BlockPos>();  // from requestLightCheck(): not just emission
+  private long requestedCount = 0;
+  private long performedCount = 0;
+  private long regionCount = 0;
+  private long regionRelightCount = 0;
+
+  // the client and the integrated server run on different threads, so they each have their own map
+  private static final Map<World, DeferredLightUpdates> serverQueues = new WeakHashMap<World, DeferredLightUpdates>();
+  private static final Map<World, DeferredLightUpdates> clientQueues = new WeakHashMap<World, DeferredLightUpdates>();
+
+  /**
+   * Processes the queues at the end of each server world tick and each client tick, and discards them when the world unloads
+   */
+  public static class EventHandler
+  {
+    @SubscribeEvent
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+      if (event.phase != TickEvent.Phase.END || event.world.isRemote) return;
+      DeferredLightUpdates queue = serverQueues.get(event.world);
+      if (queue != null) queue.processPendingChecks();
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+      if (event.phase != TickEvent.Phase.END) return;
+      for (DeferredLightUpdates queue : clientQueues.values()) {
+        queue.processPendingChecks();
+      }
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+      World world = event.getWorld();
+      (world.isRemote ? clientQueues : serverQueues).remove(world);
+    }
+  }
+}
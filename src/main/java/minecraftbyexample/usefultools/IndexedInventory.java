@@ -0,0 +1,428 @@
+package minecraftbyexample.usefultools;
+
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IndexedInventory is a base class for tile entities which store a fixed number of item stacks (eg MBE30 and MBE31).
+ * As well as the stacks themselves, it keeps an index of the inventory so that the common questions can be answered
+ *   without looking at every slot:
+ * 1) which slots are occupied (a bitmap) - for isEmpty(), and to find the first empty slot.  The first empty slot is
+ *    cached (the "free slot cursor").
+ * 2) for each (Item, metadata), which slots hold a stack that isn't full yet - to find a slot to merge into.
+ * insertStack() uses the index to do the same job as Container.mergeItemStack().
+ * IndexedInventoryItemHandler uses the same index to give automation (pipes, hoppers, etc) access to the inventory
+ *   through the Forge item handler capability.
+ *
+ * Keeping the index up to date:
+ * - setInventorySlotContents(), decrStackSize() and insertStack() update it straight away.
+ * - Containers and hoppers often change the size of a stack in one of the slots directly and then call markDirty(), so we
+ *   can't tell which slot has changed.  markDirty() throws the index away and it is rebuilt the next time it's needed.
+ * - If a subclass changes its stacks directly, it should call onSlotChanged() for each slot it alters, then
+ *   markDirtyKeepIndex() instead of markDirty().
+ */
+public abstract class IndexedInventory extends TileEntity implements IInventory
+{
+  public IndexedInventory(int numberOfSlots)
+  {
+    itemStacks = new ItemStack[numberOfSlots];
+    occupiedSlots = new BitSet(numberOfSlots);
+    partialStackKeys = new ItemKey[numberOfSlots];
+    Arrays.fill(itemStacks, ItemStack.field_190927_a);  // EMPTY_ITEM
+    rebuildIndex();
+  }
+
+  // Gets the number of slots in the inventory
+  @Override
+  public int getSizeInventory() {
+    return itemStacks.length;
+  }
+
+  // returns true if all of the slots in the inventory are empty
+  @Override
+  public boolean func_191420_l()
+  {
+    beforeSlotAccess();
+    ensureIndexIsUpToDate();
+    return occupiedSlots.isEmpty();
+  }
+
+  // Gets the stack in the given slot
+  @Override
+  public ItemStack getStackInSlot(int slotIndex) {
+    beforeSlotAccess();
+    return itemStacks[slotIndex];
+  }
+
+  /**
+   * Removes some of the units from itemstack in the given slot, and returns as a separate itemstack
+   * @param slotIndex the slot number to remove the items from
+   * @param count the number of units to remove
+   * @return a new itemstack containing the units removed from the slot
+   */
+  @Override
+  public ItemStack decrStackSize(int slotIndex, int count) {
+    ItemStack itemStackRemoved = takeFromSlot(slotIndex, count);
+    if (!itemStackRemoved.func_190926_b()) markDirtyKeepIndex();  // isEmpty()
+    return itemStackRemoved;
+  }
+
+  /**
+   * Same as decrStackSize() except that it doesn't call markDirty(); the caller should call markDirtyKeepIndex() once it
+   *   has finished.
+   */
+  protected ItemStack takeFromSlot(int slotIndex, int count) {
+    ItemStack itemStackInSlot = getStackInSlot(slotIndex);
+    if (itemStackInSlot.func_190926_b() || count <= 0) return ItemStack.field_190927_a;  // isEmpty();   EMPTY_ITEM
+
+    ItemStack itemStackRemoved;
+    if (itemStackInSlot.func_190916_E() <= count) {  // getStackSize()
+      itemStackRemoved = itemStackInSlot;
+      itemStacks[slotIndex] = ItemStack.field_190927_a;   // EMPTY_ITEM
+    } else {
+      itemStackRemoved = itemStackInSlot.splitStack(count);
+    }
+    onSlotChanged(slotIndex);
+    return itemStackRemoved;
+  }
+
+  // overwrites the stack in the given slotIndex with the given stack
+  @Override
+  public void setInventorySlotContents(int slotIndex, ItemStack itemstack) {
+    beforeSlotAccess();
+    itemStacks[slotIndex] = itemstack;
+    if (!itemstack.func_190926_b() && itemstack.func_190916_E() > getInventoryStackLimit()) { //  isEmpty(); getStackSize()
+      itemstack.func_190920_e(getInventoryStackLimit());  //setStackSize
+    }
+    onSlotChanged(slotIndex);
+    markDirtyKeepIndex();
+  }
+
+  /**
+   * This method removes the entire contents of the given slot and returns it.
+   * Used by containers such as crafting tables which return any items in their slots when you close the GUI
+   * @param slotIndex
+   * @return
+   */
+  @Override
+  public ItemStack removeStackFromSlot(int slotIndex) {
+    ItemStack itemStack = getStackInSlot(slotIndex);
+    if (!itemStack.func_190926_b()) setInventorySlotContents(slotIndex, ItemStack.field_190927_a);  //isEmpty(), EMPTY_ITEM
+    return itemStack;
+  }
+
+  // This is the maximum number if items allowed in each slot
+  // This only affects things such as hoppers trying to insert items you need to use the container to enforce this for players
+  // inserting items via the gui
+  @Override
+  public int getInventoryStackLimit() {
+    return 64;
+  }
+
+  // set all slots to empty
+  @Override
+  public void clear() {
+    Arrays.fill(itemStacks, ItemStack.field_190927_a);  //empty item
+    rebuildIndex();
+  }
+
+  // the stacks may have been altered directly, so the index can't be trusted any more
+  @Override
+  public void markDirty() {
+    if (!keepIndexOnMarkDirty) indexIsUpToDate = false;
+    super.markDirty();
+  }
+
+  /**
+   * Call markDirty() (including any subclass overrides), but keep the index: the caller has already updated it using
+   *   onSlotChanged()
+   */
+  protected void markDirtyKeepIndex() {
+    keepIndexOnMarkDirty = true;
+    try {
+      markDirty();
+    } finally {
+      keepIndexOnMarkDirty = false;
+    }
+  }
+
+  /**
+   * Called before any of the slots are looked at or changed.  Override it if the subclass needs to bring its inventory
+   *   up to date first.
+   */
+  protected void beforeSlotAccess() {
+  }
+
+  /**
+   * Update the index for a single slot whose stack has been replaced, or changed size
+   */
+  protected void onSlotChanged(int slotIndex)
+  {
+    if (!indexIsUpToDate) return;  // will be rebuilt from scratch anyway
+    ItemKey oldKey = partialStackKeys[slotIndex];
+    if (oldKey != null) {
+      BitSet slots = partialSlotsByItem.get(oldKey);
+      slots.clear(slotIndex);
+      if (slots.isEmpty()) partialSlotsByItem.remove(oldKey);
+      partialStackKeys[slotIndex] = null;
+    }
+    indexSlot(slotIndex);
+  }
+
+  /**
+   * Find the first empty slot in the given range
+   * @param firstSlot first slot to look at
+   * @param lastSlotPlusOne one past the last slot to look at
+   * @param reverseDirection if true, look from the end of the range instead of the start
+   * @return the slot number, or -1 if none
+   */
+  public int findEmptySlot(int firstSlot, int lastSlotPlusOne, boolean reverseDirection)
+  {
+    beforeSlotAccess();
+    ensureIndexIsUpToDate();
+    if (reverseDirection) {
+      for (int i = lastSlotPlusOne - 1; i >= firstSlot; --i) {
+        if (!occupiedSlots.get(i)) return i;
+      }
+      return -1;
+    }
+    int slot = (firstSlot <= firstEmptySlot) ? firstEmptySlot : occupiedSlots.nextClearBit(firstSlot);
+    return (slot < lastSlotPlusOne) ? slot : -1;
+  }
+
+  /**
+   * Find the first occupied slot in the given range
+   * @param firstSlot first slot to look at
+   * @param lastSlotPlusOne one past the last slot to look at
+   * @return the slot number, or -1 if none
+   */
+  public int findOccupiedSlot(int firstSlot, int lastSlotPlusOne)
+  {
+    beforeSlotAccess();
+    ensureIndexIsUpToDate();
+    int slot = occupiedSlots.nextSetBit(firstSlot);
+    return (slot >= 0 && slot < lastSlotPlusOne) ? slot : -1;
+  }
+
+  /**
+   * Find the first slot in the given range holding a stack which the given stack can be merged into, i.e. the same item,
+   *   metadata and NBT, and not full yet.
+   * @param firstSlot first slot to look at
+   * @param lastSlotPlusOne one past the last slot to look at
+   * @param reverseDirection if true, look from the end of the range instead of the start
+   * @return the slot number, or -1 if none
+   */
+  public int findSlotToMergeInto(ItemStack stack, int firstSlot, int lastSlotPlusOne, boolean reverseDirection)
+  {
+    if (stack.func_190926_b()) return -1;  // isEmpty()
+    beforeSlotAccess();
+    ensureIndexIsUpToDate();
+    BitSet candidates = partialSlotsByItem.get(new ItemKey(stack));
+    if (candidates == null) return -1;
+    int found = -1;
+    for (int i = candidates.nextSetBit(firstSlot); i >= 0 && i < lastSlotPlusOne; i = candidates.nextSetBit(i + 1)) {
+      if (ItemStack.areItemStackTagsEqual(stack, itemStacks[i])) {
+        found = i;
+        if (!reverseDirection) break;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Move as much of the given stack as possible into the given range of slots; works the same way as
+   *   Container.mergeItemStack() does for slots which accept any item:
+   * 1) fill up any stacks of the same item which aren't full yet, then
+   * 2) put whatever is left into the first empty slot.
+   * @param stack the stack to insert.  Its size is reduced by the number of items moved.
+   * @param firstSlot first slot to insert into
+   * @param lastSlotPlusOne one past the last slot to insert into
+   * @param reverseDirection if true, fill the slots starting from the end of the range
+   * @return true if any items were moved
+   */
+  public boolean insertStack(ItemStack stack, int firstSlot, int lastSlotPlusOne, boolean reverseDirection)
+  {
+    boolean changed = moveStackIntoSlots(stack, firstSlot, lastSlotPlusOne, reverseDirection);
+    if (changed) markDirtyKeepIndex();
+    return changed;
+  }
+
+  /**
+   * Same as insertStack() except that it doesn't call markDirty(); the caller should call markDirtyKeepIndex() once it
+   *   has finished.
+   */
+  protected boolean moveStackIntoSlots(ItemStack stack, int firstSlot, int lastSlotPlusOne, boolean reverseDirection)
+  {
+    beforeSlotAccess();
+    boolean changed = false;
+    if (stack.isStackable()) {
+      while (!stack.func_190926_b()) {  // isEmpty()
+        int slot = findSlotToMergeInto(stack, firstSlot, lastSlotPlusOne, reverseDirection);
+        if (slot < 0) break;
+        ItemStack targetStack = itemStacks[slot];
+        int numberToMove = Math.min(stack.func_190916_E(), stack.getMaxStackSize() - targetStack.func_190916_E());  // getStackSize()
+        targetStack.func_190920_e(targetStack.func_190916_E() + numberToMove);  // setStackSize()
+        stack.func_190918_g(numberToMove);  // decreaseStackSize()
+        onSlotChanged(slot);
+        changed = true;
+      }
+    }
+    if (!stack.func_190926_b()) {  // isEmpty()
+      int slot = findEmptySlot(firstSlot, lastSlotPlusOne, reverseDirection);
+      if (slot >= 0) {
+        int slotLimit = Math.min(getInventoryStackLimit(), stack.getMaxStackSize());
+        itemStacks[slot] = stack.splitStack(Math.min(stack.func_190916_E(), slotLimit));
+        onSlotChanged(slot);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * How many of the given stack's items would fit into the given range of slots, if insertStack() was called repeatedly
+   *   until all the empty slots were used up?
+   * @param stack the stack to insert (only the item, metadata and NBT are used, not the size)
+   */
+  public int getInsertCapacity(ItemStack stack, int firstSlot, int lastSlotPlusOne)
+  {
+    if (stack.func_190926_b()) return 0;  // isEmpty()
+    beforeSlotAccess();
+    ensureIndexIsUpToDate();
+    int capacity = 0;
+    if (stack.isStackable()) {
+      BitSet candidates = partialSlotsByItem.get(new ItemKey(stack));
+      if (candidates != null) {
+        for (int i = candidates.nextSetBit(firstSlot); i >= 0 && i < lastSlotPlusOne; i = candidates.nextSetBit(i + 1)) {
+          if (ItemStack.areItemStackTagsEqual(stack, itemStacks[i])) {
+            capacity += stack.getMaxStackSize() - itemStacks[i].func_190916_E();  // getStackSize()
+          }
+        }
+      }
+    }
+    int emptySlots = (lastSlotPlusOne - firstSlot) - occupiedSlots.get(firstSlot, lastSlotPlusOne).cardinality();
+    capacity += emptySlots * Math.min(getInventoryStackLimit(), stack.getMaxStackSize());
+    return capacity;
+  }
+
+  /**
+   * Save the stacks in the given tag, in the packed format (see PackedInventoryNBT)
+   * If the saved stacks couldn't be loaded, the original tags are saved again instead.
+   */
+  protected void writeItemStacksToNBT(NBTTagCompound parentNBTTagCompound)
+  {
+    if (unreadableItemsNBT != null) {
+      PackedInventoryNBT.copyPackedTags(unreadableItemsNBT, parentNBTTagCompound);
+      return;
+    }
+    PackedInventoryNBT.writeItemStacks(itemStacks, parentNBTTagCompound);
+  }
+
+  /**
+   * Load the stacks saved by writeItemStacksToNBT().  Also reads the old format, a list of slot number + item stack, so
+   *   that inventories saved before the packed format was introduced still load.
+   * If the packed format version is unknown, the inventory is left empty and the saved tags are kept, to be saved again
+   *   unchanged - see hasUnreadableItems().
+   */
+  protected void readItemStacksFromNBT(NBTTagCompound parentNBTTagCompound)
+  {
+    unreadableItemsNBT = null;
+    if (!PackedInventoryNBT.readItemStacks(parentNBTTagCompound, itemStacks)) {
+      unreadableItemsNBT = new NBTTagCompound();
+      PackedInventoryNBT.copyPackedTags(parentNBTTagCompound, unreadableItemsNBT);
+    }
+    rebuildIndex();
+  }
+
+  /**
+   * True if the saved stacks couldn't be loaded (see readItemStacksFromNBT()).  The inventory looks empty, but anything
+   *   put into it would be lost when the original items are saved again, so subclasses should refuse to let players or
+   *   automation use it - return false from isUseableByPlayer() and isItemValidForSlot().
+   */
+  public boolean hasUnreadableItems() {
+    return unreadableItemsNBT != null;
+  }
+
+  private void ensureIndexIsUpToDate() {
+    if (!indexIsUpToDate) rebuildIndex();
+  }
+
+  private void rebuildIndex()
+  {
+    occupiedSlots.clear();
+    partialSlotsByItem.clear();
+    Arrays.fill(partialStackKeys, null);
+    firstEmptySlot = 0;
+    indexIsUpToDate = true;
+    for (int i = 0; i < itemStacks.length; ++i) {
+      indexSlot(i);
+    }
+  }
+
+  // add the slot to the index (it must not be in the index already)
+  private void indexSlot(int slotIndex)
+  {
+    ItemStack stack = itemStacks[slotIndex];
+    if (stack.func_190926_b()) {  // isEmpty()
+      occupiedSlots.clear(slotIndex);
+      if (slotIndex < firstEmptySlot) firstEmptySlot = slotIndex;
+      return;
+    }
+    occupiedSlots.set(slotIndex);
+    if (slotIndex == firstEmptySlot) firstEmptySlot = occupiedSlots.nextClearBit(slotIndex);
+
+    if (stack.isStackable() && stack.func_190916_E() < stack.getMaxStackSize()) {  // getStackSize()
+      ItemKey key = new ItemKey(stack);
+      BitSet slots = partialSlotsByItem.get(key);
+      if (slots == null) {
+        slots = new BitSet(itemStacks.length);
+        partialSlotsByItem.put(key, slots);
+      }
+      slots.set(slotIndex);
+      partialStackKeys[slotIndex] = key;
+    }
+  }
+
+  // Identifies the stacks which can be merged with each other (apart from NBT, which is checked separately).  The same
+  //   test as Container.mergeItemStack(): the metadata only matters if the item has subtypes.
+  private static final class ItemKey
+  {
+    public ItemKey(ItemStack stack) {
+      item = stack.getItem();
+      metadata = stack.getHasSubtypes() ? stack.getMetadata() : 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof ItemKey)) return false;
+      ItemKey other = (ItemKey)obj;
+      return item == other.item && metadata == other.metadata;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(item) * 31 + metadata;
+    }
+
+    private final Item item;
+    private final int metadata;
+  }
+
+  protected final ItemStack[] itemStacks;
+
+  private final BitSet occupiedSlots;
+  private final Map<ItemKey, BitSet> partialSlotsByItem = new HashMap<ItemKey, BitSet>();
+  private final ItemKey[] partialStackKeys;  // the key each slot is listed under in partialSlotsByItem, or null if none
+  private int firstEmptySlot;                 // the "free slot cursor" = occupiedSlots.nextClearBit(0)
+  private boolean indexIsUpToDate = false;
+  private boolean keepIndexOnMarkDirty = false;
+  private NBTTagCompound unreadableItemsNBT = null;  // the saved items which couldn't be loaded, or null if none
+}
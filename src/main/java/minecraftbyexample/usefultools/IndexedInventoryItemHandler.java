@@ -0,0 +1,225 @@
+package minecraftbyexample.usefultools;
+
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.items.IItemHandlerModifiable;
+import net.minecraftforge.items.ItemHandlerHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IndexedInventoryItemHandler gives automation (pipes, hoppers from other mods, etc) access to a range of slots in an
+ *   IndexedInventory, using the Forge item handler capability (see TileEntity.getCapability()).
+ * The slots in the range should all accept the same items, eg the furnace's fuel slots - a tile entity with several
+ *   different kinds of slot (eg input, output) uses one handler for each, typically one for each side of the block.
+ *
+ * As well as the usual IItemHandler methods, which move items into / out of one slot at a time, there are bulk methods
+ *   which move a whole stack, or a list of stacks, in one call:
+ *   insertStack(), insertStacks(), extractStack(), extractStacks()
+ * These use the inventory's index to find the slots instead of trying each slot in turn, and only call markDirty() once
+ *   for the whole batch.
+ */
+public class IndexedInventoryItemHandler implements IItemHandlerModifiable
+{
+  /**
+   * @param inventory the inventory to give access to
+   * @param firstSlot the first inventory slot in the range (the handler's slot 0)
+   * @param lastSlotPlusOne one past the last inventory slot in the range
+   * @param canInsert if false, items can't be inserted (eg output slots)
+   * @param canExtract if false, items can't be extracted (eg fuel slots)
+   */
+  public IndexedInventoryItemHandler(IndexedInventory inventory, int firstSlot, int lastSlotPlusOne,
+                                     boolean canInsert, boolean canExtract)
+  {
+    this.inventory = inventory;
+    this.firstSlot = firstSlot;
+    this.lastSlotPlusOne = lastSlotPlusOne;
+    this.canInsert = canInsert;
+    this.canExtract = canExtract;
+  }
+
+  // ------ IItemHandler methods
+
+  @Override
+  public int getSlots() {
+    return lastSlotPlusOne - firstSlot;
+  }
+
+  @Override
+  public ItemStack getStackInSlot(int slot) {
+    return inventory.getStackInSlot(firstSlot + slot);
+  }
+
+  @Override
+  public ItemStack insertItem(int slot, ItemStack stack, boolean simulate)
+  {
+    if (stack.func_190926_b() || !canInsert) return stack;  // isEmpty()
+    int slotIndex = firstSlot + slot;
+    if (!inventory.isItemValidForSlot(slotIndex, stack)) return stack;
+
+    ItemStack existing = inventory.getStackInSlot(slotIndex);
+    int room = getSlotLimit(slot, stack);
+    if (!existing.func_190926_b()) {  // isEmpty()
+      if (!ItemHandlerHelper.canItemStacksStack(stack, existing)) return stack;
+      room -= existing.func_190916_E();  // getStackSize()
+    }
+    if (room <= 0) return stack;
+
+    int numberToMove = Math.min(room, stack.func_190916_E());  // getStackSize()
+    if (!simulate) {
+      if (existing.func_190926_b()) {  // isEmpty()
+        inventory.itemStacks[slotIndex] = ItemHandlerHelper.copyStackWithSize(stack, numberToMove);
+      } else {
+        existing.func_190920_e(existing.func_190916_E() + numberToMove);  // setStackSize(), getStackSize()
+      }
+      inventory.onSlotChanged(slotIndex);
+      inventory.markDirtyKeepIndex();
+    }
+    int numberLeft = stack.func_190916_E() - numberToMove;  // getStackSize()
+    return (numberLeft == 0) ? ItemStack.field_190927_a : ItemHandlerHelper.copyStackWithSize(stack, numberLeft);  // EMPTY_ITEM
+  }
+
+  @Override
+  public ItemStack extractItem(int slot, int amount, boolean simulate)
+  {
+    if (amount <= 0 || !canExtract) return ItemStack.field_190927_a;  // EMPTY_ITEM
+    int slotIndex = firstSlot + slot;
+    ItemStack existing = inventory.getStackInSlot(slotIndex);
+    if (existing.func_190926_b()) return ItemStack.field_190927_a;  // isEmpty(), EMPTY_ITEM
+
+    int numberToMove = Math.min(amount, Math.min(existing.func_190916_E(), existing.getMaxStackSize()));  // getStackSize()
+    if (simulate) return ItemHandlerHelper.copyStackWithSize(existing, numberToMove);
+    return inventory.decrStackSize(slotIndex, numberToMove);
+  }
+
+  // the maximum number of items in the slot (not @Override: IItemHandler only has this method in later Forge versions)
+  public int getSlotLimit(int slot) {
+    return inventory.getInventoryStackLimit();
+  }
+
+  @Override
+  public void setStackInSlot(int slot, ItemStack stack) {
+    inventory.setInventorySlotContents(firstSlot + slot, stack);
+  }
+
+  // ------ bulk methods
+
+  /**
+   * Insert as much of the stack as possible, spread over as many slots as necessary: first topping up any stacks of the
+   *   same item, then filling empty slots.
+   * @param stack the stack to insert; it's not altered
+   * @param simulate if true, don't actually insert anything
+   * @return the items which didn't fit (EMPTY_ITEM if they all did)
+   */
+  public ItemStack insertStack(ItemStack stack, boolean simulate)
+  {
+    if (!canInsertIntoRange(stack)) return stack;
+    if (simulate) {
+      int numberLeft = stack.func_190916_E() - inventory.getInsertCapacity(stack, firstSlot, lastSlotPlusOne);  // getStackSize()
+      if (numberLeft <= 0) return ItemStack.field_190927_a;  // EMPTY_ITEM
+      return (numberLeft == stack.func_190916_E()) ? stack : ItemHandlerHelper.copyStackWithSize(stack, numberLeft);
+    }
+    ItemStack remainder = stack.copy();
+    if (moveIntoRange(remainder)) inventory.markDirtyKeepIndex();
+    return remainder.func_190926_b() ? ItemStack.field_190927_a : remainder;  // isEmpty(), EMPTY_ITEM
+  }
+
+  /**
+   * Insert as many of the given stacks as possible (see insertStack())
+   * @param stacks the stacks to insert; they're not altered
+   * @return the items which didn't fit, one entry for each of the given stacks (EMPTY_ITEM if it all fitted)
+   */
+  public List<ItemStack> insertStacks(List<ItemStack> stacks)
+  {
+    List<ItemStack> remainders = new ArrayList<ItemStack>(stacks.size());
+    boolean changed = false;
+    for (ItemStack stack : stacks) {
+      if (!canInsertIntoRange(stack)) {
+        remainders.add(stack);
+        continue;
+      }
+      ItemStack remainder = stack.copy();
+      if (moveIntoRange(remainder)) changed = true;
+      remainders.add(remainder.func_190926_b() ? ItemStack.field_190927_a : remainder);  // isEmpty(), EMPTY_ITEM
+    }
+    if (changed) inventory.markDirtyKeepIndex();
+    return remainders;
+  }
+
+  /**
+   * Extract up to maxCount items from the slots, gathering them from as many slots as necessary.
+   * @param filter only extract items which stack with this one; or EMPTY_ITEM to extract the first item found
+   * @param maxCount the maximum number of items to extract; limited to the item's maximum stack size
+   * @param simulate if true, don't actually remove anything
+   * @return the items extracted (EMPTY_ITEM if none)
+   */
+  public ItemStack extractStack(ItemStack filter, int maxCount, boolean simulate)
+  {
+    if (maxCount <= 0 || !canExtract) return ItemStack.field_190927_a;  // EMPTY_ITEM
+    ItemStack extracted = ItemStack.field_190927_a;  // EMPTY_ITEM
+    for (int slot = inventory.findOccupiedSlot(firstSlot, lastSlotPlusOne);
+         slot >= 0; slot = inventory.findOccupiedSlot(slot + 1, lastSlotPlusOne)) {
+      ItemStack stackInSlot = inventory.itemStacks[slot];
+      ItemStack template = extracted.func_190926_b() ? filter : extracted;  // isEmpty()
+      if (!template.func_190926_b() && !ItemHandlerHelper.canItemStacksStack(template, stackInSlot)) continue;
+
+      int limit = Math.min(maxCount, stackInSlot.getMaxStackSize());
+      int numberToMove = Math.min(limit - extracted.func_190916_E(), stackInSlot.func_190916_E());  // getStackSize()
+      if (extracted.func_190926_b()) {  // isEmpty()
+        extracted = ItemHandlerHelper.copyStackWithSize(stackInSlot, numberToMove);
+      } else {
+        extracted.func_190920_e(extracted.func_190916_E() + numberToMove);  // setStackSize(), getStackSize()
+      }
+      if (!simulate) inventory.takeFromSlot(slot, numberToMove);
+      if (extracted.func_190916_E() >= limit) break;
+    }
+    if (!simulate && !extracted.func_190926_b()) inventory.markDirtyKeepIndex();  // isEmpty()
+    return extracted;
+  }
+
+  /**
+   * Extract the whole stack from each occupied slot, up to maxStacks slots
+   * @param simulate if true, don't actually remove anything
+   * @return the stacks extracted, in slot order
+   */
+  public List<ItemStack> extractStacks(int maxStacks, boolean simulate)
+  {
+    List<ItemStack> extracted = new ArrayList<ItemStack>();
+    if (!canExtract) return extracted;
+    for (int slot = inventory.findOccupiedSlot(firstSlot, lastSlotPlusOne);
+         slot >= 0 && extracted.size() < maxStacks; slot = inventory.findOccupiedSlot(slot + 1, lastSlotPlusOne)) {
+      ItemStack stackInSlot = inventory.itemStacks[slot];
+      if (simulate) {
+        extracted.add(stackInSlot.copy());
+      } else {
+        extracted.add(inventory.takeFromSlot(slot, stackInSlot.func_190916_E()));  // getStackSize()
+      }
+    }
+    if (!simulate && !extracted.isEmpty()) inventory.markDirtyKeepIndex();
+    return extracted;
+  }
+
+  // the slots in the range all accept the same items, so we only need to check the first one
+  private boolean canInsertIntoRange(ItemStack stack) {
+    return canInsert && !stack.func_190926_b() && inventory.isItemValidForSlot(firstSlot, stack);  // isEmpty()
+  }
+
+  // keep inserting until the stack is empty or there are no more slots for it
+  private boolean moveIntoRange(ItemStack stack) {
+    boolean changed = false;
+    while (!stack.func_190926_b() && inventory.moveStackIntoSlots(stack, firstSlot, lastSlotPlusOne, false)) {  // isEmpty()
+      changed = true;
+    }
+    return changed;
+  }
+
+  private int getSlotLimit(int slot, ItemStack stack) {
+    return Math.min(getSlotLimit(slot), stack.getMaxStackSize());
+  }
+
+  private final IndexedInventory inventory;
+  private final int firstSlot;
+  private final int lastSlotPlusOne;
+  private final boolean canInsert;
+  private final boolean canExtract;
+}
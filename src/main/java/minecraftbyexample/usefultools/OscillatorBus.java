@@ -0,0 +1,324 @@
+package minecraftbyexample.usefultools;
+
+import net.minecraft.block.Block;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * OscillatorBus shares square-wave oscillators between blocks which flash at the same rate, so that each block doesn't
+ *   need to schedule its own block updates to toggle its output.
+ * Usage:
+ * 1) OscillatorBus.Oscillator oscillator = OscillatorBus.subscribe(world, pos, block, onTicks, periodTicks, startOn, listener);
+ *    The output starts in the startOn state now, and then toggles every onTicks / (periodTicks - onTicks) ticks - exactly
+ *    the same as if the block had scheduled its own updates from this tick.
+ * 2) oscillator.isOn() for the current output; listener.onOscillatorToggled() is called each time it changes.
+ * 3) oscillator.unsubscribe(listener) when the block stops flashing, is broken, or its chunk unloads.
+ * 4) the block's updateTick() must call OscillatorBus.onScheduledTick() - see below.
+ *
+ * How it works: the output of an oscillator is on for onTicks then off for the rest of periodTicks, with the "on" edges at
+ *   the world times t where t % periodTicks == phase.  Subscribers with the same onTicks, periodTicks and phase have
+ *   exactly the same output, so they share one Oscillator.  Each Oscillator uses a single timer for its next edge, in the
+ *   bus's own TimerWheel; when it expires, the output is toggled and all of its subscribers are told in one batch.  The
+ *   oscillator is dropped when its last subscriber leaves.
+ * The edge has to happen at the same point in the tick as a scheduled block update would, i.e. during the world's
+ *   tickUpdates() for that tick, once the world time has been incremented.  Otherwise, anything which the subscribers
+ *   do in response (eg a neighbouring meter changing its rate, or a repeater scheduling its update) sees the wrong time.
+ *   There's no event at that point, so the wheel is advanced at the start of the world tick, and each oscillator which
+ *   is due schedules a real block update at one of its subscribers (the "anchor") for the coming tick.  The subscriber's
+ *   updateTick() calls onScheduledTick(), which toggles the oscillator.  So there is at most one pending block update
+ *   per oscillator, and only in the tick before its edge.
+ *   If the block update doesn't happen (eg the anchor's chunk was unloaded in the meantime), the edge is applied at the
+ *   end of the tick instead.
+ * Server side only.  Like the TimerWheel, the bus isn't saved; the subscribers subscribe again when they are loaded.
+ */
+public class OscillatorBus
+{
+  /**
+   * Get the bus for the given world, creating it if necessary.  Server side only.
+   * Use subscribe() to add a listener.
+   */
+  public static OscillatorBus forWorld(World world)
+  {
+    OscillatorBus bus = buses.get(world);
+    if (bus == null) {
+      bus = new OscillatorBus(world, new TimerWheel(world.getTotalWorldTime()));
+      buses.put(world, bus);
+    }
+    return bus;
+  }
+
+  public interface Listener
+  {
+    /** Called when the oscillator's output changes.  It's ok to subscribe or unsubscribe from here. */
+    void onOscillatorToggled(boolean isOn);
+  }
+
+  /**
+   * A bus driven by the given wheel, without a world.  The edges happen as soon as the wheel reaches them.
+   * Normally use forWorld() instead; this is for a wheel which you advance yourself (eg for testing), in which case use
+   *   the subscribe() which is given the time.
+   */
+  public OscillatorBus(TimerWheel timerWheel)
+  {
+    this(null, timerWheel);
+  }
+
+  private OscillatorBus(World world, TimerWheel timerWheel)
+  {
+    this.world = world;
+    this.timerWheel = timerWheel;
+  }
+
+  /**
+   * Start receiving the output of an oscillator.  Server side only.
+   * @param world the world that the listener is in; the output is synchronised to its getTotalWorldTime()
+   * @param pos the position of the listener's block
+   * @param block the listener's block; its updateTick() must call onScheduledTick()
+   * @param onTicks the number of ticks for the output to remain on; 0 < onTicks < periodTicks
+   * @param periodTicks the ticks spent on plus the ticks spent off
+   * @param startOn the output for the current tick: if true, it turns off after onTicks, otherwise it turns on after
+   *                periodTicks - onTicks
+   * @return the oscillator, which the listener should unsubscribe from when finished with it
+   */
+  public static Oscillator subscribe(World world, BlockPos pos, Block block, int onTicks, int periodTicks, boolean startOn,
+                                     Listener listener)
+  {
+    return forWorld(world).subscribe(world.getTotalWorldTime(), pos, block, onTicks, periodTicks, startOn, listener);
+  }
+
+  /**
+   * The same as subscribe(World, ...) but with the time of the current tick given explicitly.  pos and block may be null
+   *   if the bus doesn't have a world.
+   */
+  public Oscillator subscribe(long worldTime, BlockPos pos, Block block, int onTicks, int periodTicks, boolean startOn,
+                              Listener listener)
+  {
+    checkArgument(onTicks > 0 && onTicks < periodTicks,
+                  "expected onTicks %s to be > 0 and < periodTicks %s", onTicks, periodTicks);
+    checkArgument(world == null || (pos != null && block != null), "expected a pos and block for a world's bus");
+    long firstOnEdge = startOn ? worldTime : worldTime + (periodTicks - onTicks);
+    int phase = (int)(firstOnEdge % periodTicks);
+
+    Long key = ((long)onTicks << 42) | ((long)periodTicks << 21) | phase;
+    Oscillator oscillator = oscillators.get(key);
+    if (oscillator != null && oscillator.toggleIfDueAt(worldTime)) {
+      oscillator = oscillators.get(key);  // the listeners might have unsubscribed when they were told
+    }
+    if (oscillator == null) {
+      oscillator = new Oscillator(key, onTicks, periodTicks, phase);
+      oscillators.put(key, oscillator);
+      oscillator.start(worldTime);
+    }
+    oscillator.listeners.put(listener, new Anchor(pos, block));
+    return oscillator;
+  }
+
+  /**
+   * Must be called by the updateTick() of the subscribers' blocks: if an oscillator's block update was scheduled at this
+   *   position, it toggles now.
+   */
+  public static void onScheduledTick(World world, BlockPos pos)
+  {
+    OscillatorBus bus = buses.get(world);
+    if (bus == null) return;
+    Oscillator oscillator = bus.edgesDue.remove(pos);
+    if (oscillator != null) oscillator.toggleDueEdge();
+  }
+
+  /** the number of oscillators which have at least one subscriber */
+  public int getOscillatorCount() {
+    return oscillators.size();
+  }
+
+  /** the number of times that an oscillator has toggled, since the game started (all worlds) */
+  public static long getToggleCount() {
+    return toggleCount;
+  }
+
+  /** the number of edges which were applied at the end of the tick because their block update didn't happen (all worlds) */
+  public static long getLateEdgeCount() {
+    return lateEdgeCount;
+  }
+
+  public class Oscillator implements TimerWheel.Callback
+  {
+    private Oscillator(Long key, int onTicks, int periodTicks, int phase)
+    {
+      this.key = key;
+      this.onTicks = onTicks;
+      this.periodTicks = periodTicks;
+      this.phase = phase;
+    }
+
+    public boolean isOn() {
+      return isOn;
+    }
+
+    /**
+     * Stop receiving the output.  Does nothing if the listener isn't subscribed.
+     */
+    public void unsubscribe(Listener listener)
+    {
+      if (listeners.remove(listener) == null) return;
+      if (!listeners.isEmpty()) return;
+      if (timer != null) timer.cancel();
+      timer = null;
+      if (dueAnchorPos != null && edgesDue.get(dueAnchorPos) == this) edgesDue.remove(dueAnchorPos);
+      dueAnchorPos = null;
+      removed = true;
+      oscillators.remove(key);
+    }
+
+    // set the output for the given time, and schedule the next edge
+    private void start(long worldTime)
+    {
+      int ticksIntoCycle = (int)(((worldTime - phase) % periodTicks + periodTicks) % periodTicks);
+      isOn = ticksIntoCycle < onTicks;
+      int ticksToNextEdge = isOn ? onTicks - ticksIntoCycle : periodTicks - ticksIntoCycle;
+      timer = timerWheel.schedule(worldTime + ticksToNextEdge, this);
+    }
+
+    // Without a world, toggle straight away.  Otherwise, this is the start of the tick before the edge: schedule a
+    //   block update at the first subscriber, for the tick of the edge
+    @Override
+    public void onTimerExpired(long edgeTime)
+    {
+      timer = null;
+      dueEdgeTime = edgeTime;
+      edgeDue = true;
+      if (world == null) {
+        toggleDueEdge();
+        return;
+      }
+      for (Anchor anchor : listeners.values()) {
+        if (edgesDue.containsKey(anchor.pos)) continue;  // the position already has a block update for another oscillator
+        dueAnchorPos = anchor.pos;
+        edgesDue.put(anchor.pos, this);
+        world.scheduleUpdate(anchor.pos, anchor.block, (int)(edgeTime - world.getTotalWorldTime()));
+        return;
+      }
+      lateEdges.add(this);
+    }
+
+    // If the oscillator is due to toggle in this tick but hasn't yet (its block update, or its timer if there's no world,
+    //   comes later in the tick), toggle it now.  Used when a new listener subscribes, so that it starts from the output
+    //   for this tick.
+    // @return true if it toggled
+    private boolean toggleIfDueAt(long worldTime)
+    {
+      if (edgeDue && dueEdgeTime == worldTime) {
+        if (dueAnchorPos != null) edgesDue.remove(dueAnchorPos);
+        lateEdges.remove(this);
+      } else if (timer != null && timer.isScheduled() && timer.getDeadline() == worldTime) {
+        timer.cancel();
+        timer = null;
+        dueEdgeTime = worldTime;
+        edgeDue = true;
+      } else {
+        return false;
+      }
+      toggleDueEdge();
+      return true;
+    }
+
+    private void toggleDueEdge()
+    {
+      if (removed || !edgeDue) return;
+      edgeDue = false;
+      dueAnchorPos = null;
+      start(dueEdgeTime);
+      ++toggleCount;
+      // copy the listeners first, because they might subscribe or unsubscribe when they're told
+      Listener [] listenersToTell = listeners.keySet().toArray(new Listener[listeners.size()]);
+      for (Listener listener : listenersToTell) {
+        if (removed) return;  // the last listener has unsubscribed
+        if (listeners.containsKey(listener)) listener.onOscillatorToggled(isOn);
+      }
+    }
+
+    private final Long key;
+    private final int onTicks;
+    private final int periodTicks;
+    private final int phase;
+    private final Map<Listener, Anchor> listeners = new LinkedHashMap<Listener, Anchor>();
+    private boolean isOn;
+    private boolean removed;
+    private TimerWheel.Timer timer;
+    private boolean edgeDue;  // true from when the timer expires until the output is toggled
+    private long dueEdgeTime;
+    private BlockPos dueAnchorPos;  // where the block update for dueEdgeTime is scheduled, or null if none
+  }
+
+  // the subscriber's block, which can be used for the oscillator's scheduled update
+  private static class Anchor
+  {
+    public Anchor(BlockPos pos, Block block) {
+      this.pos = (pos == null) ? null : pos.toImmutable();
+      this.block = block;
+    }
+
+    public final BlockPos pos;
+    public final Block block;
+  }
+
+  // apply any edges whose block update didn't happen during this tick
+  private void toggleLateEdges()
+  {
+    if (edgesDue.isEmpty() && lateEdges.isEmpty()) return;
+    List<Oscillator> late = new ArrayList<Oscillator>(lateEdges);
+    late.addAll(edgesDue.values());
+    lateEdges.clear();
+    edgesDue.clear();
+    for (Oscillator oscillator : late) {
+      ++lateEdgeCount;
+      oscillator.toggleDueEdge();
+    }
+  }
+
+  private final World world;  // null if the bus is driven directly by its wheel
+  private final TimerWheel timerWheel;
+  private final Map<Long, Oscillator> oscillators = new HashMap<Long, Oscillator>();
+  private final Map<BlockPos, Oscillator> edgesDue = new HashMap<BlockPos, Oscillator>();
+  private final List<Oscillator> lateEdges = new ArrayList<Oscillator>();  // due this tick, but without a block update
+  private static long toggleCount = 0;
+  private static long lateEdgeCount = 0;
+
+  private static final Map<World, OscillatorBus> buses = new WeakHashMap<World, OscillatorBus>();
+
+  /**
+   * Advances each server world's oscillators at the start of the world tick, applies any late edges at the end of the
+   *   tick, and discards the bus when the world unloads
+   */
+  public static class EventHandler
+  {
+    @SubscribeEvent
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+      if (event.world.isRemote) return;
+      OscillatorBus bus = buses.get(event.world);
+      if (bus == null) return;
+      if (event.phase == TickEvent.Phase.START) {
+        // the world time is incremented after the START event, so the tick which is about to run is one more than now
+        bus.timerWheel.advanceTo(event.world.getTotalWorldTime() + 1);
+      } else {
+        bus.toggleLateEdges();
+      }
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+      buses.remove(event.getWorld());
+    }
+  }
+}
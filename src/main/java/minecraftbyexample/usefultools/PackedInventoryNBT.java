@@ -0,0 +1,208 @@
+package minecraftbyexample.usefultools;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PackedInventoryNBT saves an array of item stacks in a compact binary format, instead of the usual list with one
+ *   NBTTagCompound for each slot (which is slow to create, save, load and walk through when there are lots of them).
+ *
+ * The packed format uses three tags:
+ *   "ItemsPacked" - an NBTTagByteArray containing:
+ *      the format version (one byte, PACKED_FORMAT_VERSION)
+ *      the number of entries
+ *      for each non-empty slot without NBT: slot number, palette index, metadata, count
+ *      all written as varints (7 bits per byte, the top bit means "more bytes follow" - see VarIntWriter); the metadata
+ *      is zigzag encoded because it can be negative.
+ *   "ItemsPalette" - the registry names of the items, in palette index order.  The names are stored instead of the numeric
+ *      item ids, so that the save doesn't depend on the ids.
+ *   "ItemsWithNBT" - a list with the slot number ("Slot") and the whole stack ("Stack") for each stack which has NBT
+ *      (enchantments, custom names, etc) or capability data
+ *
+ * Capability data ("ForgeCaps" - from Item.initCapabilities(), or attached to the stack by another mod in
+ *   AttachCapabilitiesEvent) isn't part of the stack's NBT, so the stacks of any item which has serializable capabilities
+ *   are saved in full as well.  Whether an item has them is found once, from a new stack of that item, and remembered.
+ *
+ * readItemStacks() also accepts the old format (writeItemStacksAsList()): a list called "Items" of compounds with a
+ *   "Slot" byte plus the stack.
+ * If the packed tags have a format version which this code doesn't understand (eg saved by a newer version of the mod),
+ *   readItemStacks() doesn't load anything and returns false.  The caller must then keep the original tags and save
+ *   them again unchanged (see copyPackedTags()), otherwise the next save will throw the items away.
+ */
+public class PackedInventoryNBT
+{
+  public static final int PACKED_FORMAT_VERSION = 1;
+
+  private static final String [] PACKED_TAG_NAMES = {"ItemsPacked", "ItemsPalette", "ItemsWithNBT"};
+
+  /**
+   * Save the stacks in the packed format
+   */
+  public static void writeItemStacks(ItemStack [] itemStacks, NBTTagCompound parentNBTTagCompound)
+  {
+    int entryCount = 0;
+    for (ItemStack stack : itemStacks) {
+      if (!stack.func_190926_b() && !isSavedInFull(stack)) ++entryCount;  // isEmpty()
+    }
+    VarIntWriter writer = new VarIntWriter(8 + entryCount * 4);
+    writer.writeByte(PACKED_FORMAT_VERSION);
+    writer.writeVarInt(entryCount);
+
+    NBTTagList palette = new NBTTagList();
+    Item [] paletteItems = new Item[entryCount];
+    NBTTagList stacksWithNBT = new NBTTagList();
+    for (int slot = 0; slot < itemStacks.length; ++slot) {
+      ItemStack stack = itemStacks[slot];
+      if (stack.func_190926_b()) continue;  // isEmpty()
+      if (isSavedInFull(stack)) {
+        NBTTagCompound dataForThisSlot = new NBTTagCompound();
+        dataForThisSlot.setInteger("Slot", slot);
+        dataForThisSlot.setTag("Stack", stack.writeToNBT(new NBTTagCompound()));
+        stacksWithNBT.appendTag(dataForThisSlot);
+        continue;
+      }
+      int paletteIndex = 0;
+      Item item = stack.getItem();
+      while (paletteIndex < palette.tagCount() && paletteItems[paletteIndex] != item) {  // the palette is small, so a linear search is fine
+        ++paletteIndex;
+      }
+      if (paletteIndex == palette.tagCount()) {
+        paletteItems[paletteIndex] = item;
+        palette.appendTag(new NBTTagString(String.valueOf(Item.REGISTRY.getNameForObject(item))));
+      }
+      writer.writeVarInt(slot);
+      writer.writeVarInt(paletteIndex);
+      writer.writeSignedVarInt(stack.getMetadata());
+      writer.writeVarInt(stack.func_190916_E());  // getStackSize()
+    }
+
+    parentNBTTagCompound.setTag("ItemsPacked", new NBTTagByteArray(writer.toByteArray()));
+    parentNBTTagCompound.setTag("ItemsPalette", palette);
+    parentNBTTagCompound.setTag("ItemsWithNBT", stacksWithNBT);
+  }
+
+  // stacks with NBT or capability data can't be packed
+  private static boolean isSavedInFull(ItemStack stack)
+  {
+    if (stack.hasTagCompound()) return true;
+    Item item = stack.getItem();
+    Boolean hasCapabilityData = itemHasCapabilityData.get(item);
+    if (hasCapabilityData == null) {
+      hasCapabilityData = new ItemStack(item).writeToNBT(new NBTTagCompound()).hasKey("ForgeCaps");
+      itemHasCapabilityData.put(item, hasCapabilityData);
+    }
+    return hasCapabilityData;
+  }
+
+  /**
+   * Load the stacks saved by writeItemStacks(), or in the old list format (writeItemStacksAsList())
+   * Slots which aren't in the saved data are set to empty.
+   * @return false if the packed format version is unknown, in which case all the slots are left empty
+   */
+  public static boolean readItemStacks(NBTTagCompound parentNBTTagCompound, ItemStack [] itemStacks)
+  {
+    Arrays.fill(itemStacks, ItemStack.field_190927_a);           // set all slots to empty EMPTY_ITEM
+    final int NBT_TYPE_BYTE_ARRAY = 7;       // See NBTBase.createNewByType() for a listing
+    if (!parentNBTTagCompound.hasKey("ItemsPacked", NBT_TYPE_BYTE_ARRAY)) {
+      readItemStacksFromList(parentNBTTagCompound, itemStacks);
+      return true;
+    }
+
+    final int NBT_TYPE_STRING = 8;
+    final int NBT_TYPE_COMPOUND = 10;
+    VarIntReader reader = new VarIntReader(parentNBTTagCompound.getByteArray("ItemsPacked"));
+    int version = reader.readByte();
+    if (version != PACKED_FORMAT_VERSION) {
+      System.err.println("PackedInventoryNBT: unknown format version " + version + ", the saved items will be kept unchanged");
+      return false;
+    }
+
+    NBTTagList palette = parentNBTTagCompound.getTagList("ItemsPalette", NBT_TYPE_STRING);
+    Item [] paletteItems = new Item[palette.tagCount()];
+    for (int i = 0; i < palette.tagCount(); ++i) {
+      paletteItems[i] = Item.getByNameOrId(palette.getStringTagAt(i));  // null if the item no longer exists
+    }
+
+    int entryCount = reader.readVarInt();
+    for (int i = 0; i < entryCount && !reader.isAtEnd(); ++i) {
+      int slot = reader.readVarInt();
+      int paletteIndex = reader.readVarInt();
+      int metadata = reader.readSignedVarInt();
+      int count = reader.readVarInt();
+      if (slot < 0 || slot >= itemStacks.length) continue;
+      if (paletteIndex < 0 || paletteIndex >= paletteItems.length || paletteItems[paletteIndex] == null) continue;
+      itemStacks[slot] = new ItemStack(paletteItems[paletteIndex], count, metadata);
+    }
+
+    NBTTagList stacksWithNBT = parentNBTTagCompound.getTagList("ItemsWithNBT", NBT_TYPE_COMPOUND);
+    for (int i = 0; i < stacksWithNBT.tagCount(); ++i) {
+      NBTTagCompound dataForThisSlot = stacksWithNBT.getCompoundTagAt(i);
+      int slot = dataForThisSlot.getInteger("Slot");
+      if (slot >= 0 && slot < itemStacks.length) {
+        itemStacks[slot] = new ItemStack(dataForThisSlot.getCompoundTag("Stack"));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copy the packed format tags from one compound to another, unchanged - used to keep the items which
+   *   readItemStacks() couldn't load.
+   */
+  public static void copyPackedTags(NBTTagCompound source, NBTTagCompound destination)
+  {
+    for (String tagName : PACKED_TAG_NAMES) {
+      if (source.hasKey(tagName)) {
+        destination.setTag(tagName, source.getTag(tagName).copy());
+      }
+    }
+  }
+
+  /**
+   * Save the stacks in the old format: a list of slot number + item stack.  Only used for comparison (see MBE75 test 7);
+   *   readItemStacks() can read it.
+   */
+  public static void writeItemStacksAsList(ItemStack [] itemStacks, NBTTagCompound parentNBTTagCompound)
+  {
+    // to use an analogy with Java, this code generates an array of hashmaps
+    // The itemStack in each slot is converted to an NBTTagCompound, which is effectively a hashmap of key->value pairs such
+    //   as slot=1, id=2353, count=1, etc
+    // Each of these NBTTagCompound are then inserted into NBTTagList, which is similar to an array.
+    NBTTagList dataForAllSlots = new NBTTagList();
+    for (int i = 0; i < itemStacks.length; ++i) {
+      if (!itemStacks[i].func_190926_b())	{ //isEmpty()
+        NBTTagCompound dataForThisSlot = new NBTTagCompound();
+        dataForThisSlot.setByte("Slot", (byte) i);
+        itemStacks[i].writeToNBT(dataForThisSlot);
+        dataForAllSlots.appendTag(dataForThisSlot);
+      }
+    }
+    // the array of hashmaps is then inserted into the parent hashmap for the container
+    parentNBTTagCompound.setTag("Items", dataForAllSlots);
+  }
+
+  private static void readItemStacksFromList(NBTTagCompound parentNBTTagCompound, ItemStack [] itemStacks)
+  {
+    final byte NBT_TYPE_COMPOUND = 10;       // See NBTBase.createNewByType() for a listing
+    NBTTagList dataForAllSlots = parentNBTTagCompound.getTagList("Items", NBT_TYPE_COMPOUND);
+    for (int i = 0; i < dataForAllSlots.tagCount(); ++i) {
+      NBTTagCompound dataForOneSlot = dataForAllSlots.getCompoundTagAt(i);
+      int slotIndex = dataForOneSlot.getByte("Slot") & 255;
+
+      if (slotIndex >= 0 && slotIndex < itemStacks.length) {
+        itemStacks[slotIndex] = new ItemStack(dataForOneSlot);
+      }
+    }
+  }
+
+  // used on both the client and server threads
+  private static final Map<Item, Boolean> itemHasCapabilityData = new ConcurrentHashMap<Item, Boolean>();
+}
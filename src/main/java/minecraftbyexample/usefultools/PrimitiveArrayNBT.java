@@ -0,0 +1,288 @@
+package minecraftbyexample.usefultools;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+
+import javax.annotation.Nullable;
+
+/**
+ * PrimitiveArrayNBT saves arrays of numbers, and block positions, without creating a tag for each element.
+ * The usual way (an NBTTagList of NBTTagDouble, or a list of compounds for an array with nulls in it) creates several
+ *   objects per element when saving, and again when loading.  Instead, each array is packed into a single NBTTagIntArray:
+ *   float[]  - one int per element (Float.floatToRawIntBits)
+ *   double[], long[] - two ints per element, high word first (Double.doubleToRawLongBits)
+ *   Double[], Float[], Long[], Integer[] which may contain nulls -
+ *      the length of the array, then a bitmap with one bit per element (set = not null, 32 elements per int), then the
+ *      values of the non-null elements in the same format as above
+ *   BlockPos - a single long tag (BlockPos.toLong())
+ *   BlockPos[] - like long[]
+ * (Minecraft 1.11 doesn't have a long array tag.)
+ *
+ * The getters follow the vanilla style: they return an empty array (or null for a BlockPos) if the key is missing or has
+ *   the wrong type, and never throw on bad data.  getDoubleArray() and getBlockPos() also accept the common unpacked forms
+ *   (a list of doubles, and a compound with "x", "y", "z") so that data saved before switching to this class still loads.
+ */
+public class PrimitiveArrayNBT
+{
+  public static void setFloatArray(NBTTagCompound nbt, String key, float [] values)
+  {
+    int [] words = new int[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      words[i] = Float.floatToRawIntBits(values[i]);
+    }
+    nbt.setTag(key, new NBTTagIntArray(words));
+  }
+
+  public static float [] getFloatArray(NBTTagCompound nbt, String key)
+  {
+    int [] words = getIntArrayOrNull(nbt, key);
+    if (words == null) return new float[0];
+    float [] values = new float[words.length];
+    for (int i = 0; i < words.length; ++i) {
+      values[i] = Float.intBitsToFloat(words[i]);
+    }
+    return values;
+  }
+
+  public static void setDoubleArray(NBTTagCompound nbt, String key, double [] values)
+  {
+    int [] words = new int[values.length * 2];
+    for (int i = 0; i < values.length; ++i) {
+      putLong(words, i * 2, Double.doubleToRawLongBits(values[i]));
+    }
+    nbt.setTag(key, new NBTTagIntArray(words));
+  }
+
+  public static double [] getDoubleArray(NBTTagCompound nbt, String key)
+  {
+    int [] words = getIntArrayOrNull(nbt, key);
+    if (words == null) {
+      if (!nbt.hasKey(key, NBT_TYPE_LIST)) return new double[0];
+      NBTTagList list = nbt.getTagList(key, NBT_TYPE_DOUBLE);  // the old format
+      double [] values = new double[list.tagCount()];
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = list.getDoubleAt(i);
+      }
+      return values;
+    }
+    double [] values = new double[words.length / 2];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = Double.longBitsToDouble(getLong(words, i * 2));
+    }
+    return values;
+  }
+
+  public static void setLongArray(NBTTagCompound nbt, String key, long [] values)
+  {
+    int [] words = new int[values.length * 2];
+    for (int i = 0; i < values.length; ++i) {
+      putLong(words, i * 2, values[i]);
+    }
+    nbt.setTag(key, new NBTTagIntArray(words));
+  }
+
+  public static long [] getLongArray(NBTTagCompound nbt, String key)
+  {
+    int [] words = getIntArrayOrNull(nbt, key);
+    if (words == null) return new long[0];
+    long [] values = new long[words.length / 2];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = getLong(words, i * 2);
+    }
+    return values;
+  }
+
+  public static void setNullableDoubleArray(NBTTagCompound nbt, String key, Double [] values)
+  {
+    nbt.setTag(key, new NBTTagIntArray(packNullable(values, 2)));
+  }
+
+  public static Double [] getNullableDoubleArray(NBTTagCompound nbt, String key)
+  {
+    NullableReader reader = new NullableReader(getIntArrayOrNull(nbt, key), 2);
+    Double [] values = new Double[reader.getLength()];
+    for (int i = 0; i < values.length; ++i) {
+      if (reader.isPresent(i)) values[i] = Double.longBitsToDouble(reader.nextValue());
+    }
+    return values;
+  }
+
+  public static void setNullableFloatArray(NBTTagCompound nbt, String key, Float [] values)
+  {
+    nbt.setTag(key, new NBTTagIntArray(packNullable(values, 1)));
+  }
+
+  public static Float [] getNullableFloatArray(NBTTagCompound nbt, String key)
+  {
+    NullableReader reader = new NullableReader(getIntArrayOrNull(nbt, key), 1);
+    Float [] values = new Float[reader.getLength()];
+    for (int i = 0; i < values.length; ++i) {
+      if (reader.isPresent(i)) values[i] = Float.intBitsToFloat((int)reader.nextValue());
+    }
+    return values;
+  }
+
+  public static void setNullableLongArray(NBTTagCompound nbt, String key, Long [] values)
+  {
+    nbt.setTag(key, new NBTTagIntArray(packNullable(values, 2)));
+  }
+
+  public static Long [] getNullableLongArray(NBTTagCompound nbt, String key)
+  {
+    NullableReader reader = new NullableReader(getIntArrayOrNull(nbt, key), 2);
+    Long [] values = new Long[reader.getLength()];
+    for (int i = 0; i < values.length; ++i) {
+      if (reader.isPresent(i)) values[i] = reader.nextValue();
+    }
+    return values;
+  }
+
+  public static void setNullableIntegerArray(NBTTagCompound nbt, String key, Integer [] values)
+  {
+    nbt.setTag(key, new NBTTagIntArray(packNullable(values, 1)));
+  }
+
+  public static Integer [] getNullableIntegerArray(NBTTagCompound nbt, String key)
+  {
+    NullableReader reader = new NullableReader(getIntArrayOrNull(nbt, key), 1);
+    Integer [] values = new Integer[reader.getLength()];
+    for (int i = 0; i < values.length; ++i) {
+      if (reader.isPresent(i)) values[i] = (int)reader.nextValue();
+    }
+    return values;
+  }
+
+  public static void setBlockPos(NBTTagCompound nbt, String key, BlockPos pos)
+  {
+    nbt.setLong(key, pos.toLong());
+  }
+
+  /**
+   * @return the saved position, or null if there isn't one
+   */
+  @Nullable
+  public static BlockPos getBlockPos(NBTTagCompound nbt, String key)
+  {
+    if (nbt.hasKey(key, NBT_TYPE_LONG)) return BlockPos.fromLong(nbt.getLong(key));
+    if (!nbt.hasKey(key, NBT_TYPE_COMPOUND)) return null;
+    NBTTagCompound blockPosNBT = nbt.getCompoundTag(key);  // the old format
+    if (blockPosNBT.hasKey("x", NBT_TYPE_INT) && blockPosNBT.hasKey("y", NBT_TYPE_INT) && blockPosNBT.hasKey("z", NBT_TYPE_INT)) {
+      return new BlockPos(blockPosNBT.getInteger("x"), blockPosNBT.getInteger("y"), blockPosNBT.getInteger("z"));
+    }
+    return null;
+  }
+
+  public static void setBlockPosArray(NBTTagCompound nbt, String key, BlockPos [] positions)
+  {
+    int [] words = new int[positions.length * 2];
+    for (int i = 0; i < positions.length; ++i) {
+      putLong(words, i * 2, positions[i].toLong());
+    }
+    nbt.setTag(key, new NBTTagIntArray(words));
+  }
+
+  public static BlockPos [] getBlockPosArray(NBTTagCompound nbt, String key)
+  {
+    int [] words = getIntArrayOrNull(nbt, key);
+    if (words == null) return new BlockPos[0];
+    BlockPos [] positions = new BlockPos[words.length / 2];
+    for (int i = 0; i < positions.length; ++i) {
+      positions[i] = BlockPos.fromLong(getLong(words, i * 2));
+    }
+    return positions;
+  }
+
+  // See NBTBase.createNewByType() for a listing
+  private static final int NBT_TYPE_INT = 3;
+  private static final int NBT_TYPE_LONG = 4;
+  private static final int NBT_TYPE_DOUBLE = 6;
+  private static final int NBT_TYPE_LIST = 9;
+  private static final int NBT_TYPE_COMPOUND = 10;
+  private static final int NBT_TYPE_INT_ARRAY = 11;
+
+  @Nullable
+  private static int [] getIntArrayOrNull(NBTTagCompound nbt, String key)
+  {
+    return nbt.hasKey(key, NBT_TYPE_INT_ARRAY) ? nbt.getIntArray(key) : null;
+  }
+
+  private static void putLong(int [] words, int index, long value)
+  {
+    words[index] = (int)(value >>> 32);
+    words[index + 1] = (int)value;
+  }
+
+  private static long getLong(int [] words, int index)
+  {
+    return ((long)words[index] << 32) | (words[index + 1] & 0xffffffffL);
+  }
+
+  // length, presence bitmap, then the non-null values using wordsPerValue ints each
+  private static int [] packNullable(Number [] values, int wordsPerValue)
+  {
+    int bitmapWords = (values.length + 31) / 32;
+    int presentCount = 0;
+    for (Number value : values) {
+      if (value != null) ++presentCount;
+    }
+    int [] words = new int[1 + bitmapWords + presentCount * wordsPerValue];
+    words[0] = values.length;
+    int nextValueIndex = 1 + bitmapWords;
+    for (int i = 0; i < values.length; ++i) {
+      Number value = values[i];
+      if (value == null) continue;
+      words[1 + i / 32] |= 1 << (i % 32);
+      long bits;
+      if (value instanceof Double) {
+        bits = Double.doubleToRawLongBits(value.doubleValue());
+      } else if (value instanceof Float) {
+        bits = Float.floatToRawIntBits(value.floatValue());
+      } else {
+        bits = value.longValue();
+      }
+      if (wordsPerValue == 2) {
+        putLong(words, nextValueIndex, bits);
+      } else {
+        words[nextValueIndex] = (int)bits;
+      }
+      nextValueIndex += wordsPerValue;
+    }
+    return words;
+  }
+
+  // reads the values written by packNullable(), in order.  Treats missing or truncated data as nulls.
+  private static class NullableReader
+  {
+    public NullableReader(@Nullable int [] words, int wordsPerValue)
+    {
+      this.words = (words == null) ? new int[0] : words;
+      this.wordsPerValue = wordsPerValue;
+      int maxLength = Math.max(0, this.words.length - 1) * 32;
+      length = (this.words.length == 0) ? 0 : Math.max(0, Math.min(this.words[0], maxLength));
+      nextValueIndex = 1 + (length + 31) / 32;
+    }
+
+    public int getLength() {
+      return length;
+    }
+
+    // only call nextValue() if this returns true
+    public boolean isPresent(int index) {
+      if (nextValueIndex + wordsPerValue > words.length) return false;
+      return (words[1 + index / 32] & (1 << (index % 32))) != 0;
+    }
+
+    public long nextValue() {
+      long value = (wordsPerValue == 2) ? getLong(words, nextValueIndex) : words[nextValueIndex];
+      nextValueIndex += wordsPerValue;
+      return value;
+    }
+
+    private final int [] words;
+    private final int wordsPerValue;
+    private final int length;
+    private int nextValueIndex;
+  }
+}
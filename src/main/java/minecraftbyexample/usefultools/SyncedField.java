@@ -0,0 +1,16 @@
+package minecraftbyexample.usefultools;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a tile entity field which should be sent from the server to the client - see SyncedFieldTracker.
+ * The field can be boolean, byte, short, int, long, float, double or String, and mustn't be final or static.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface SyncedField
+{
+}
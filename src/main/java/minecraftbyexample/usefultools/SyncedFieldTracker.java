@@ -0,0 +1,223 @@
+package minecraftbyexample.usefultools;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SyncedFieldTracker sends a tile entity's @SyncedField fields from the server to the client, only sending an update when
+ *   one of them has changed.
+ * The usual way - getUpdatePacket() calls writeToNBT() - sends the whole state every time the block is updated, with a
+ *   name for every tag, even if only one number has changed (or nothing has).
+ * Usage: the tile entity creates a tracker for itself, and
+ * 1) getUpdatePacket(): tracker.writeFieldsIfChanged() gives a tag containing all the fields, or null if none of them has
+ *    changed since the last update packet - vanilla doesn't send a packet then.
+ * 2) getUpdateTag(): used when a player starts watching the chunk: super.writeToNBT() (the client needs the location)
+ *    then tracker.writeAllFields().
+ * 3) onDataPacket() and handleUpdateTag(): tracker.readFields() sets each field which is in the tag.
+ *
+ * The changes are found by comparing each field with the value it had when the last update packet was made, so the tile
+ *   entity doesn't need to do anything special when it changes a field.
+ * The update packet always contains all the fields, not just the changed ones, because it doesn't always go to every
+ *   player who is watching: eg when a block break is cancelled, ForgeHooks.onBlockBreakEvent() sends it to the breaking
+ *   player only.  The other players would never get a change which only went in that packet.
+ * The fields are packed into a single byte array ("Sync"): for each field, its number (the fields are numbered in name
+ *   order, so the server and client agree), then the value - varints for the integer types (see VarIntWriter).
+ *
+ * The static counters (getPacketsSent() etc) show how much is being sent, for comparison with the full state.
+ */
+public class SyncedFieldTracker
+{
+  public SyncedFieldTracker(TileEntity tileEntity)
+  {
+    this.tileEntity = tileEntity;
+    this.fields = getSyncedFields(tileEntity.getClass());
+    this.lastSentValues = new Object[fields.length];
+  }
+
+  /**
+   * Write all the fields, if any of them has changed since the last time this was called.
+   * @return the tag, or null if nothing has changed
+   */
+  @Nullable
+  public NBTTagCompound writeFieldsIfChanged()
+  {
+    boolean changed = false;
+    for (int i = 0; i < fields.length; ++i) {
+      Object value = getValue(fields[i]);
+      if (value.equals(lastSentValues[i])) continue;
+      lastSentValues[i] = value;
+      changed = true;
+    }
+    if (!changed) {
+      packetsNotSent.incrementAndGet();
+      return null;
+    }
+
+    VarIntWriter writer = new VarIntWriter(16);
+    for (int i = 0; i < fields.length; ++i) {
+      writer.writeVarInt(i);
+      writeValue(writer, lastSentValues[i]);
+    }
+    packetsSent.incrementAndGet();
+    fieldsSent.addAndGet(fields.length);
+    bytesSent.addAndGet(writer.size());
+    NBTTagCompound nbtTagCompound = new NBTTagCompound();
+    nbtTagCompound.setByteArray(NBT_KEY, writer.toByteArray());
+    return nbtTagCompound;
+  }
+
+  /**
+   * Add all the fields to the given tag, changed or not
+   */
+  public NBTTagCompound writeAllFields(NBTTagCompound nbtTagCompound)
+  {
+    VarIntWriter writer = new VarIntWriter(16);
+    for (int i = 0; i < fields.length; ++i) {
+      writer.writeVarInt(i);
+      writeValue(writer, getValue(fields[i]));
+    }
+    nbtTagCompound.setByteArray(NBT_KEY, writer.toByteArray());
+    return nbtTagCompound;
+  }
+
+  /**
+   * Set the fields which are in the tag; leave the others unchanged.
+   */
+  public void readFields(NBTTagCompound nbtTagCompound)
+  {
+    VarIntReader reader = new VarIntReader(nbtTagCompound.getByteArray(NBT_KEY));
+    while (!reader.isAtEnd()) {
+      int fieldNumber = reader.readVarInt();
+      if (fieldNumber < 0 || fieldNumber >= fields.length) {
+        System.err.println("SyncedFieldTracker: invalid field number " + fieldNumber + " for " + tileEntity.getClass().getName());
+        return;  // we can't tell how long the value is, so the rest can't be read
+      }
+      Field field = fields[fieldNumber];
+      Object value = readValue(reader, field.getType());
+      try {
+        field.set(tileEntity, value);
+      } catch (IllegalAccessException iae) {
+        throw new RuntimeException(iae);  // can't happen: the field has been made accessible
+      }
+    }
+  }
+
+  /** the number of update packets sent (with at least one changed field) */
+  public static long getPacketsSent() {
+    return packetsSent.get();
+  }
+
+  /** the total size of the values in the update packets, in bytes (not counting the packet header or the tag) */
+  public static long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  /** the number of fields sent in update packets */
+  public static long getFieldsSent() {
+    return fieldsSent.get();
+  }
+
+  /** the number of update packets which weren't sent, because none of the fields had changed */
+  public static long getPacketsNotSent() {
+    return packetsNotSent.get();
+  }
+
+  private static final String NBT_KEY = "Sync";
+
+  private Object getValue(Field field)
+  {
+    try {
+      Object value = field.get(tileEntity);
+      return (value == null) ? "" : value;  // null Strings are sent as ""
+    } catch (IllegalAccessException iae) {
+      throw new RuntimeException(iae);  // can't happen: the field has been made accessible
+    }
+  }
+
+  private static void writeValue(VarIntWriter writer, Object value)
+  {
+    if (value instanceof Boolean) {
+      writer.writeByte((Boolean)value ? 1 : 0);
+    } else if (value instanceof Byte) {
+      writer.writeByte((Byte)value);
+    } else if (value instanceof Short || value instanceof Integer) {
+      writer.writeSignedVarInt(((Number)value).intValue());
+    } else if (value instanceof Long) {
+      writer.writeSignedVarLong((Long)value);
+    } else if (value instanceof Float) {
+      writer.writeFixedInt(Float.floatToRawIntBits((Float)value));
+    } else if (value instanceof Double) {
+      writer.writeFixedLong(Double.doubleToRawLongBits((Double)value));
+    } else {
+      writer.writeString((String)value);
+    }
+  }
+
+  private static Object readValue(VarIntReader reader, Class<?> type)
+  {
+    if (type == boolean.class) return reader.readByte() != 0;
+    if (type == byte.class) return (byte)reader.readByte();
+    if (type == short.class) return (short)reader.readSignedVarInt();
+    if (type == int.class) return reader.readSignedVarInt();
+    if (type == long.class) return reader.readSignedVarLong();
+    if (type == float.class) return Float.intBitsToFloat(reader.readFixedInt());
+    if (type == double.class) return Double.longBitsToDouble(reader.readFixedLong());
+    return reader.readString();
+  }
+
+  private static final List<Class<?>> SUPPORTED_TYPES = Arrays.<Class<?>>asList(boolean.class, byte.class, short.class, int.class,
+                                                                                 long.class, float.class, double.class, String.class);
+
+  // the @SyncedField fields of the class and its superclasses, sorted by name, and made accessible
+  private static Field [] getSyncedFields(Class<?> tileEntityClass)
+  {
+    Field [] fields = syncedFieldsByClass.get(tileEntityClass);
+    if (fields != null) return fields;
+
+    List<Field> found = new ArrayList<Field>();
+    for (Class<?> c = tileEntityClass; c != TileEntity.class && c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!field.isAnnotationPresent(SyncedField.class)) continue;
+        int modifiers = field.getModifiers();
+        if (Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers) || !SUPPORTED_TYPES.contains(field.getType())) {
+          throw new IllegalArgumentException("@SyncedField " + c.getName() + "." + field.getName()
+                                             + " must be a non-final, non-static field of type " + SUPPORTED_TYPES);
+        }
+        field.setAccessible(true);
+        found.add(field);
+      }
+    }
+    fields = found.toArray(new Field[found.size()]);
+    Arrays.sort(fields, new Comparator<Field>() {
+      @Override
+      public int compare(Field field1, Field field2) {
+        int nameOrder = field1.getName().compareTo(field2.getName());
+        return (nameOrder != 0) ? nameOrder : field1.getDeclaringClass().getName().compareTo(field2.getDeclaringClass().getName());
+      }
+    });
+    syncedFieldsByClass.put(tileEntityClass, fields);
+    return fields;
+  }
+
+  private final TileEntity tileEntity;
+  private final Field [] fields;
+  private final Object [] lastSentValues;  // the value of each field in the last update packet, or null if never sent
+
+  // used on both the client and server threads
+  private static final Map<Class<?>, Field[]> syncedFieldsByClass = new ConcurrentHashMap<Class<?>, Field[]>();
+  private static final AtomicLong packetsSent = new AtomicLong();
+  private static final AtomicLong bytesSent = new AtomicLong();
+  private static final AtomicLong fieldsSent = new AtomicLong();
+  private static final AtomicLong packetsNotSent = new AtomicLong();
+}
@@ -0,0 +1,223 @@
+package minecraftbyexample.usefultools;
+
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * TimerWheel calls back tile entities (or anything else) when the world time reaches a given deadline, so that they don't
+ *   need to implement ITickable just to count down a timer.  Each world has its own wheel, keyed on
+ *   World.getTotalWorldTime(), which is advanced at the end of each server world tick.
+ * Usage:
+ * 1) TimerWheel.Timer timer = TimerWheel.forWorld(world).schedule(deadline, callback);
+ *    callback.onTimerExpired() is called at the end of the world tick when getTotalWorldTime() reaches the deadline.
+ * 2) timer.cancel() if the timer is no longer needed - for example when the tile entity is invalidated (block broken) or
+ *    its chunk is unloaded.  Cancelling is cheap (the timer is unlinked from its list).
+ * 3) The wheel itself isn't saved.  The owner saves whatever it needs in writeToNBT() (eg the ticks left until the
+ *    deadline) and schedules the timer again when it is loaded (onLoad()).
+ *
+ * How it works: it's a hierarchical timing wheel.  Level 0 has one slot for each of the next 64 ticks; level 1 has one slot
+ *   for each of the next 64 blocks of 64 ticks, and so on for LEVELS levels.  A timer is put into the slot for its deadline
+ *   in the lowest level which reaches that far.  Each tick, only the level 0 slot for the current tick is looked at.  Every
+ *   64 ticks, the next level 1 slot is emptied and its timers are moved down into level 0 (and so on for the higher
+ *   levels).  So each timer costs O(1) to schedule and cancel, and is moved at most LEVELS times before it expires,
+ *   however many timers there are.  Timers further in the future than the top level reaches wait in an overflow list.
+ */
+public class TimerWheel
+{
+  /**
+   * Get the wheel for the given world, creating it if necessary.  Server side only.
+   */
+  public static TimerWheel forWorld(World world)
+  {
+    TimerWheel wheel = wheels.get(world);
+    if (wheel == null) {
+      wheel = new TimerWheel(world.getTotalWorldTime());
+      wheels.put(world, wheel);
+    }
+    return wheel;
+  }
+
+  public interface Callback
+  {
+    /** Called when the timer's deadline is reached.  It's ok to schedule or cancel other timers from here. */
+    void onTimerExpired(long worldTime);
+  }
+
+  /**
+   * A scheduled timer, returned by schedule()
+   */
+  public static class Timer
+  {
+    private Timer(long deadline, Callback callback)
+    {
+      this.deadline = deadline;
+      this.callback = callback;
+    }
+
+    public long getDeadline() {
+      return deadline;
+    }
+
+    /** true until the timer expires or is cancelled */
+    public boolean isScheduled() {
+      return previous != null;
+    }
+
+    /** stop the timer from expiring.  Does nothing if it has already expired or been cancelled. */
+    public void cancel() {
+      if (previous == null) return;
+      unlink();
+      --owner.scheduledCount;
+    }
+
+    private void unlink() {
+      previous.next = next;
+      if (next != null) next.previous = previous;
+      previous = null;
+      next = null;
+    }
+
+    private final long deadline;
+    private final Callback callback;
+    private TimerWheel owner;
+    private Timer previous;  // the previous timer in the slot's list, or the slot's head; null if not scheduled
+    private Timer next;
+  }
+
+  /**
+   * @param currentTime the time of the tick which has just been processed
+   */
+  public TimerWheel(long currentTime)
+  {
+    this.currentTime = currentTime;
+    for (int level = 0; level < LEVELS; ++level) {
+      for (int slot = 0; slot < SLOTS_PER_LEVEL; ++slot) {
+        slots[level][slot] = new Timer(0, null);
+      }
+    }
+  }
+
+  /**
+   * Call the callback at the end of the tick when the world time reaches the deadline.  If the deadline has already
+   *   passed, it is called on the next tick.
+   */
+  public Timer schedule(long deadline, Callback callback)
+  {
+    Timer timer = new Timer(Math.max(deadline, currentTime + 1), callback);
+    timer.owner = this;
+    insert(timer);
+    ++scheduledCount;
+    return timer;
+  }
+
+  /** the time of the last tick which has been processed */
+  public long getCurrentTime() {
+    return currentTime;
+  }
+
+  /** the number of timers which are waiting to expire */
+  public int getScheduledCount() {
+    return scheduledCount;
+  }
+
+  /**
+   * Process each tick up to and including newTime, calling back the timers which expire.
+   */
+  public void advanceTo(long newTime)
+  {
+    while (currentTime < newTime) {
+      ++currentTime;
+      cascade(1);
+      // move the slot's timers to the expiring list first, so that the callbacks can safely cancel any of them, or
+      //   schedule new timers
+      Timer first = detachList(slots[0][(int)(currentTime & SLOT_MASK)]);
+      if (first == null) continue;
+      expiring.next = first;
+      first.previous = expiring;
+      while (expiring.next != null) {
+        Timer timer = expiring.next;
+        timer.cancel();
+        timer.callback.onTimerExpired(currentTime);
+      }
+    }
+  }
+
+  // if the lower level has just wrapped around, move the timers in this level's current slot down to the lower levels
+  private void cascade(int level)
+  {
+    if (level > LEVELS) return;
+    int lowerLevelBits = BITS_PER_LEVEL * level;
+    if ((currentTime & ((1L << lowerLevelBits) - 1)) != 0) return;
+    cascade(level + 1);  // the higher levels first, since they can move timers into this level
+
+    Timer timer = (level == LEVELS) ? detachList(overflow) : detachList(slots[level][(int)((currentTime >> lowerLevelBits) & SLOT_MASK)]);
+    while (timer != null) {
+      Timer nextTimer = timer.next;
+      timer.previous = null;
+      timer.next = null;
+      insert(timer);
+      timer = nextTimer;
+    }
+  }
+
+  private void insert(Timer timer)
+  {
+    long ticksToGo = timer.deadline - currentTime;  // can be 0 while cascading: the level 0 slot for currentTime is about to be processed
+    Timer head = overflow;
+    for (int level = 0; level < LEVELS; ++level) {
+      if (ticksToGo < (1L << (BITS_PER_LEVEL * (level + 1)))) {
+        head = slots[level][(int)((timer.deadline >> (BITS_PER_LEVEL * level)) & SLOT_MASK)];
+        break;
+      }
+    }
+    timer.previous = head;
+    timer.next = head.next;
+    if (head.next != null) head.next.previous = timer;
+    head.next = timer;
+  }
+
+  // remove all the timers from the list and return the first of them (still linked to each other by next)
+  private static Timer detachList(Timer head)
+  {
+    Timer first = head.next;
+    head.next = null;
+    return first;
+  }
+
+  private static final int BITS_PER_LEVEL = 6;
+  private static final int SLOTS_PER_LEVEL = 1 << BITS_PER_LEVEL;
+  private static final long SLOT_MASK = SLOTS_PER_LEVEL - 1;
+  private static final int LEVELS = 4;     // reaches 2^24 ticks = about 9 days ahead
+
+  private final Timer [][] slots = new Timer[LEVELS][SLOTS_PER_LEVEL];  // each slot is the head of a list of timers
+  private final Timer overflow = new Timer(0, null);
+  private final Timer expiring = new Timer(0, null);
+  private long currentTime;
+  private int scheduledCount = 0;
+
+  private static final Map<World, TimerWheel> wheels = new WeakHashMap<World, TimerWheel>();
+
+  /**
+   * Advances each server world's wheel at the end of the world tick (after all the tile entities have been updated), and
+   *   discards it when the world unloads
+   */
+  public static class EventHandler
+  {
+    @SubscribeEvent
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+      if (event.phase != TickEvent.Phase.END || event.world.isRemote) return;
+      TimerWheel wheel = wheels.get(event.world);
+      if (wheel != null) wheel.advanceTo(event.world.getTotalWorldTime());
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+      wheels.remove(event.getWorld());
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package minecraftbyexample.usefultools;
+
+/**
+ * VarIntReader reads back the numbers written by VarIntWriter, in the same order.
+ * It never throws on bad data: reading past the end returns 0 (or an empty string), so check isAtEnd() or validate the
+ *   values if the data might be corrupt.
+ */
+public class VarIntReader
+{
+  public VarIntReader(byte [] buffer) {
+    this.buffer = buffer;
+  }
+
+  public boolean isAtEnd() {
+    return position >= buffer.length;
+  }
+
+  public int readByte() {
+    return isAtEnd() ? 0 : buffer[position++] & 0xff;
+  }
+
+  public int readVarInt() {
+    int value = 0;
+    for (int shift = 0; shift < 35 && !isAtEnd(); shift += 7) {
+      int b = buffer[position++];
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) break;
+    }
+    return value;
+  }
+
+  public int readSignedVarInt() {
+    int value = readVarInt();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  public long readVarLong() {
+    long value = 0;
+    for (int shift = 0; shift < 70 && !isAtEnd(); shift += 7) {
+      int b = buffer[position++];
+      value |= (long)(b & 0x7f) << shift;
+      if ((b & 0x80) == 0) break;
+    }
+    return value;
+  }
+
+  public long readSignedVarLong() {
+    long value = readVarLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  public int readFixedInt() {
+    return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+  }
+
+  public long readFixedLong() {
+    return ((long)readFixedInt() << 32) | (readFixedInt() & 0xffffffffL);
+  }
+
+  public String readString() {
+    int length = Math.max(0, Math.min(readVarInt(), buffer.length - position));
+    String value = new String(buffer, position, length, VarIntWriter.UTF_8);
+    position += length;
+    return value;
+  }
+
+  private final byte [] buffer;
+  private int position = 0;
+}
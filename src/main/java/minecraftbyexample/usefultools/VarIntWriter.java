@@ -0,0 +1,82 @@
+package minecraftbyexample.usefultools;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * VarIntWriter builds a byte array of compactly encoded numbers, for packing data into an NBTTagByteArray or a packet.
+ * Ints and longs are written as varints: 7 bits per byte, least significant first, with the top bit set if more bytes
+ *   follow - so small numbers only take one byte.  The signed versions zigzag encode the number first, so that small
+ *   negative numbers are small too: 0, -1, 1, -2, 2 --> 0, 1, 2, 3, 4
+ * Read the bytes back with VarIntReader.
+ */
+public class VarIntWriter
+{
+  public VarIntWriter(int initialCapacity) {
+    buffer = new byte[Math.max(initialCapacity, 8)];
+  }
+
+  public void writeByte(int value) {
+    if (size == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    buffer[size++] = (byte)value;
+  }
+
+  public void writeVarInt(int value) {
+    while ((value & ~0x7f) != 0) {
+      writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    writeByte(value);
+  }
+
+  public void writeSignedVarInt(int value) {
+    writeVarInt((value << 1) ^ (value >> 31));
+  }
+
+  public void writeVarLong(long value) {
+    while ((value & ~0x7fL) != 0) {
+      writeByte((int)(value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    writeByte((int)value);
+  }
+
+  public void writeSignedVarLong(long value) {
+    writeVarLong((value << 1) ^ (value >> 63));
+  }
+
+  /** four bytes, most significant first - better than a varint for values which use all the bits (eg floats) */
+  public void writeFixedInt(int value) {
+    writeByte(value >>> 24);
+    writeByte(value >>> 16);
+    writeByte(value >>> 8);
+    writeByte(value);
+  }
+
+  public void writeFixedLong(long value) {
+    writeFixedInt((int)(value >>> 32));
+    writeFixedInt((int)value);
+  }
+
+  /** the length in bytes, then the UTF-8 bytes */
+  public void writeString(String value) {
+    byte [] bytes = value.getBytes(UTF_8);
+    writeVarInt(bytes.length);
+    for (byte b : bytes) {
+      writeByte(b);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public byte [] toByteArray() {
+    return Arrays.copyOf(buffer, size);
+  }
+
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private byte [] buffer;
+  private int size = 0;
+}